@@ -71,6 +71,19 @@ public interface FileDriver {
      */
     Object getField(long rowId, int columnId) throws IOException;
 
+    /**
+     * Read all the fields of the given row.
+     *
+     * @param rowId Row index [0-getRowCount()].
+     * @param target Array of at least {@link #getFieldCount()} elements, the field i is set at index i.
+     * @throws java.io.IOException Read error.
+     */
+    default void readRecord(long rowId, Object[] target) throws IOException {
+        for (int columnId = 0; columnId < getFieldCount(); columnId++) {
+            target[columnId] = getField(rowId, columnId);
+        }
+    }
+
     /**
      * Insert values to the current row.
      *
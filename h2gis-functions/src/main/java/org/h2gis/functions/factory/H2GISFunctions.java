@@ -47,6 +47,7 @@ import org.h2gis.functions.spatial.affine_transformations.ST_Scale;
 import org.h2gis.functions.spatial.affine_transformations.ST_Translate;
 import org.h2gis.functions.spatial.aggregate.ST_Accum;
 import org.h2gis.functions.spatial.aggregate.ST_Collect;
+import org.h2gis.functions.spatial.aggregate.ST_UnionAgg;
 import org.h2gis.functions.spatial.aggregate.ST_LineMerge;
 import org.h2gis.functions.spatial.buffer.ST_Buffer;
 import org.h2gis.functions.spatial.buffer.ST_OffSetCurve;
@@ -57,6 +58,7 @@ import org.h2gis.functions.spatial.convert.*;
 import org.h2gis.functions.spatial.create.*;
 import org.h2gis.functions.spatial.crs.ST_SetSRID;
 import org.h2gis.functions.spatial.crs.ST_Transform;
+import org.h2gis.functions.spatial.crs.ST_TransformTable;
 import org.h2gis.functions.spatial.distance.*;
 import org.h2gis.functions.spatial.earth.ST_GeometryShadow;
 import org.h2gis.functions.spatial.earth.ST_Isovist;
@@ -176,7 +178,9 @@ public class H2GISFunctions {
                 new ST_SRID(),
                 new ST_EnvelopesIntersect(),
                 new ST_Accum(),
+                new ST_UnionAgg(),
                 new ST_Transform(),
+                new ST_TransformTable(),
                 new ST_SetSRID(),
                 new ST_CoordDim(),
                 new ST_GeometryTypeCode(),
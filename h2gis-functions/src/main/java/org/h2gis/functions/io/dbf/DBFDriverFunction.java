@@ -23,6 +23,7 @@ package org.h2gis.functions.io.dbf;
 import org.h2.table.Column;
 import org.h2.util.JdbcUtils;
 import org.h2.value.TypeInfo;
+import org.h2.value.Value;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
@@ -254,10 +255,12 @@ public class DBFDriverFunction implements DriverFunction {
                                         getQuestionMark(dbfHeader.getNumFields() + 1)))) {
                             JDBCUtilities.attachCancelResultSet(preparedStatement, progress);
                             long batchSize = 0;
+                            Value[] row = new Value[columnCount];
                             for (int rowId = 0; rowId < dbfDriver.getRowCount(); rowId++) {
                                 preparedStatement.setObject(1, rowId + 1);
+                                dbfDriver.readRecord(rowId, row);
                                 for (int columnId = 0; columnId < columnCount; columnId++) {
-                                    JdbcUtils.set(preparedStatement,columnId + 2, dbfDriver.getField(rowId, columnId), null);
+                                    JdbcUtils.set(preparedStatement,columnId + 2, row[columnId], null);
                                 }
                                 preparedStatement.addBatch();
                                 batchSize++;
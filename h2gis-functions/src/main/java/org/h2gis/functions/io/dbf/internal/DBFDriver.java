@@ -151,6 +151,17 @@ public class DBFDriver implements FileDriver {
         return dbaseFileReader.getFieldValue((int)rowId, columnId);
     }
 
+    @Override
+    public void readRecord(long rowId, Object[] target) throws IOException {
+        if (target instanceof Value[]) {
+            dbaseFileReader.readRecord((int) rowId, (Value[]) target);
+        } else {
+            Value[] values = new Value[getFieldCount()];
+            dbaseFileReader.readRecord((int) rowId, values);
+            System.arraycopy(values, 0, target, 0, values.length);
+        }
+    }
+
     /**
      * Get the file reader
      * @return 
@@ -71,6 +71,16 @@ public class DbaseFileReader {
     private CharsetDecoder decoder;
     private char[] fieldTypes;
     private int[] fieldLengths;
+    // Offset of each field in a record, the deletion flag excluded
+    private int[] fieldOffsets;
+    // Bytes of the last read record, the deletion flag excluded
+    private byte[] recordBytes;
+    private ByteBuffer recordBuffer;
+    private int recordRow = -1;
+    // True if each byte of the file is decoded into one char, the whole record is then decoded at once
+    private boolean singleByteCharset;
+    // True if the char buffer holds the whole current record
+    private boolean recordDecoded;
     private static final Logger LOG = LoggerFactory.getLogger(DbaseFileReader.class);
 
     /**
@@ -90,7 +100,7 @@ public class DbaseFileReader {
     }
 
     private void init() throws IOException {
-        buffer = new ReadBufferManager(channel);
+        buffer = ReadBufferManager.open(channel);
 
         // The entire file is in little endian
         buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -98,14 +108,21 @@ public class DbaseFileReader {
         // Set up some buffers and lookups for efficiency
         fieldTypes = new char[header.getNumFields()];
         fieldLengths = new int[header.getNumFields()];
+        fieldOffsets = new int[header.getNumFields()];
+        int fieldOffset = 0;
         for (int i = 0, ii = header.getNumFields(); i < ii; i++) {
             fieldTypes[i] = header.getFieldType(i);
             fieldLengths[i] = header.getFieldLength(i);
+            fieldOffsets[i] = fieldOffset;
+            fieldOffset += fieldLengths[i];
         }
 
-        charBuffer = CharBuffer.allocate(header.getRecordLength() - 1);
+        recordBytes = new byte[Math.max(0, header.getRecordLength() - 1)];
+        recordBuffer = ByteBuffer.wrap(recordBytes);
+        charBuffer = CharBuffer.allocate(recordBytes.length);
         Charset chars = Charset.forName(header.getFileEncoding());
         decoder = chars.newDecoder();
+        singleByteCharset = chars.canEncode() && chars.newEncoder().maxBytesPerChar() == 1;
     }
 
     /**
@@ -128,38 +145,87 @@ public class DbaseFileReader {
         if (channel != null && channel.isOpen()) {
             channel.close();
         }
-
+        if (buffer != null) {
+            buffer.close();
+        }
         buffer = null;
         channel = null;
         charBuffer = null;
         decoder = null;
         header = null;
+        recordBytes = null;
+        recordBuffer = null;
+        recordRow = -1;
     }
 
     /**
-     * @param pos Pos index in the buffer
-     * @param length Array length to extract
-     * @return byte array extracted from the buffer
+     * Read the bytes of a record, unless it is the last read record.
+     *
+     * @param row Row index
      * @throws IOException
      */
-    private byte[] getBytes(long pos, int length) throws IOException {
-        byte[] bytes = new byte[length];
-        buffer.get(pos, bytes);
-        return bytes;
+    private void loadRecord(int row) throws IOException {
+        if (row != recordRow) {
+            recordRow = -1;
+            buffer.get(header.getHeaderLength() + (long) row * header.getRecordLength() + 1, recordBytes);
+            recordDecoded = false;
+            if (singleByteCharset) {
+                decode(0, recordBytes.length);
+                // On a malformed byte the fields are decoded one by one
+                recordDecoded = charBuffer.limit() == recordBytes.length;
+            }
+            recordRow = row;
+        }
     }
 
-    public Value getFieldValue(int row, int column) throws IOException {
-        long fieldPosition = getPositionFor(row, column);
-        int fieldLength = getLengthFor(column);
-        byte[] fieldBytes = getBytes(fieldPosition, fieldLength);
-        ByteBuffer field = ByteBuffer.wrap(fieldBytes);
-
+    /**
+     * Decode bytes of the current record into the char buffer.
+     *
+     * @param offset Offset in the record
+     * @param length Length in bytes
+     */
+    private void decode(int offset, int length) {
+        recordBuffer.limit(offset + length);
+        recordBuffer.position(offset);
         charBuffer.clear();
-        decoder.decode(field, charBuffer, true);
+        decoder.reset();
+        decoder.decode(recordBuffer, charBuffer, true);
         charBuffer.flip();
+    }
 
-        return readObject(0, column);
+    /**
+     * Decode a field of the current record.
+     *
+     * @param column Column index
+     * @return The field value
+     * @throws IOException
+     */
+    private Value readField(int column) throws IOException {
+        if (recordDecoded) {
+            return readObject(fieldOffsets[column], column);
+        } else {
+            decode(fieldOffsets[column], fieldLengths[column]);
+            return readObject(0, column);
+        }
+    }
 
+    public Value getFieldValue(int row, int column) throws IOException {
+        loadRecord(row);
+        return readField(column);
+    }
+
+    /**
+     * Read all the fields of a record. The record is read once and its fields are decoded in one pass.
+     *
+     * @param row Row index
+     * @param target Array of at least {@link #getFieldCount()} values, the value of the field i is set at index i
+     * @throws IOException
+     */
+    public void readRecord(int row, Value[] target) throws IOException {
+        loadRecord(row);
+        for (int column = 0; column < fieldTypes.length; column++) {
+            target[column] = readField(column);
+        }
     }
 
     public int getLengthFor(int column) {
@@ -169,12 +235,7 @@ public class DbaseFileReader {
     protected long getPositionFor(int row, int column) {
         long recordOffset = header.getHeaderLength() + (long) row
                 * header.getRecordLength() + 1;
-        long fieldOffset = 0;
-        for (int i = 0; i < column; i++) {
-            fieldOffset += header.getFieldLength(i);
-        }
-
-        return fieldOffset + recordOffset;
+        return fieldOffsets[column] + recordOffset;
     }
 
     private Value readObject(final int fieldOffset, final int fieldNum) throws IOException {
@@ -250,7 +311,8 @@ public class DbaseFileReader {
                 // (D)date (Date)
                 case 'd':
                 case 'D':
-                    if (charBuffer.toString().equals("00000000")) {
+                    if (charBuffer.subSequence(fieldOffset, Math.min(fieldOffset + fieldLen,
+                            charBuffer.length())).toString().equals("00000000")) {
                         object = ValueNull.INSTANCE;
                     } else {
                         try {
@@ -22,6 +22,7 @@ package org.h2gis.functions.io.dbf.internal;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.text.FieldPosition;
@@ -56,6 +57,10 @@ public class DbaseFileWriter {
     WritableByteChannel channel;
     private ByteBuffer buffer;
     private Charset charset;
+    /**
+     * Number of records written by this writer
+     */
+    private int recordCount = 0;
 
     /**
      * The null values to use for each column. This will be accessed only when
@@ -188,6 +193,7 @@ public class DbaseFileWriter {
         }
 
         write();
+        recordCount++;
     }
 
     private String fieldString(Object obj, final int col) {
@@ -242,6 +248,16 @@ public class DbaseFileWriter {
         // buffer.put((byte) 0).position(0).limit(1);
         // write();
         if (channel.isOpen()) {
+            // The record count of the header may not be known when the writer
+            // is created, the header is updated with the written records
+            if (recordCount != header.getNumRecords() && channel instanceof SeekableByteChannel) {
+                SeekableByteChannel seekableChannel = (SeekableByteChannel) channel;
+                long position = seekableChannel.position();
+                header.setNumRecords(recordCount);
+                seekableChannel.position(0);
+                header.writeHeader(seekableChannel);
+                seekableChannel.position(position);
+            }
             channel.close();
         }
 
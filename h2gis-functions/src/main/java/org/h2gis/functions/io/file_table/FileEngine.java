@@ -69,6 +69,7 @@ public abstract class FileEngine<Driver extends FileDriver> implements TableEngi
             }
             H2MVTable table = new H2MVTable(driver, data);
             table.init(data.session);
+            addFileIndexes(driver, table);
             return table;
         } catch (IOException ex) {
             throw DbException.get(ErrorCode.IO_EXCEPTION_1,ex);
@@ -110,6 +111,15 @@ public abstract class FileEngine<Driver extends FileDriver> implements TableEngi
     protected  abstract Driver createDriver(File filePath, List<String> args) throws IOException;
 
 
+    /**
+     * Add the indexes provided by the file itself into the linked table.
+     * Does nothing by default.
+     * @param driver driver object
+     * @param table Linked table
+     */
+    protected void addFileIndexes(Driver driver, H2MVTable table) {
+    }
+
     /**
      * Add columns definition of the file into the CreateTableData instance.
      * @param driver driver object
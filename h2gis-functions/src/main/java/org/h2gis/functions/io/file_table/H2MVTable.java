@@ -60,6 +60,8 @@ public class H2MVTable extends MVTable {
     private static final Logger LOG = LoggerFactory.getLogger(H2MVTable.class);
     private final ArrayList<Index> indexes = new ArrayList<>();
     private Column rowIdColumn;
+    // Number of indexes that are not stored in the database schema
+    private int fileIndexCount = 2;
 
     public H2MVTable(FileDriver driver, CreateTableData data) {
         super(data, data.session.getDatabase().getStore());
@@ -81,6 +83,15 @@ public class H2MVTable extends MVTable {
         indexes.add(0, new H2TableIndex(driver,this,this.getId(), indexColumn));
     }
 
+    /**
+     * Add an index provided by the linked file. This index is not stored in the
+     * database schema, it lives as long as the table.
+     * @param index Index of the linked file
+     */
+    public void addFileIndex(Index index) {
+        indexes.add(fileIndexCount++, index);
+    }
+
     @Override
     public boolean lock(Session session, boolean exclusive, boolean force) {
         return false;
@@ -184,8 +195,8 @@ public class H2MVTable extends MVTable {
 
     @Override
     public void removeChildrenAndResources(Session session) {
-        while (indexes.size() > 2) {
-            Index index = indexes.get(2);
+        while (indexes.size() > fileIndexCount) {
+            Index index = indexes.get(fileIndexCount);
             index.remove(session);
             if (index.getName() != null) {
                 database.removeSchemaObject(session, index);
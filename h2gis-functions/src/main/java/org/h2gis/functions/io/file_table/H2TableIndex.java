@@ -246,11 +246,15 @@ public class H2TableIndex extends BaseIndex {
     }
 
     /**
-     * This class is requiring only field value on demand instead of gathering the full row values from drivers
+     * This class is requiring only field value on demand instead of gathering the full row values from drivers.
+     * Decoded values are kept, so a column used several times by a query (ie a geometry in the WHERE and in the
+     * SELECT clause) is read only once from the file.
      */
     public static class DriverRow extends Row {
         FileDriver driver;
         int memory; // estimated row size in bytes
+        // Decoded field values, null until the field is requested
+        private Value[] fieldValues;
 
         public DriverRow(FileDriver driver, long key) {
             this.driver = driver;
@@ -260,10 +264,14 @@ public class H2TableIndex extends BaseIndex {
         @Override
         public Value[] getValueList() {
             try {
-                Value[] values = new Value[getColumnCount()];
+                if (fieldValues == null) {
+                    fieldValues = new Value[driver.getFieldCount()];
+                    driver.readRecord(key - 1, fieldValues);
+                }
+                Value[] values = new Value[fieldValues.length + 1];
                 values[0] = ValueBigint.get(key);
-                for(int i = 1; i < values.length; i++) {
-                    values[i] = (Value)(driver.getField(key - 1, i - 1));
+                for (int i = 0; i < fieldValues.length; i++) {
+                    values[i + 1] = getFieldValue(i);
                 }
                 return values;
             } catch (IOException ex) {
@@ -278,22 +286,36 @@ public class H2TableIndex extends BaseIndex {
 
         @Override
         public Value getValue(int column) {
-            if(column == ROWID_INDEX) {
+            if(column == ROWID_INDEX || column == 0) {
+                // pk
                 return ValueBigint.get(key);
             } else {
                 try {
-                    if(column == 0) {
-                        // pk
-                        return ValueBigint.get(key);
-                    } else {
-                        return (Value)(driver.getField(key - 1, column - 1));
-                    }
+                    return getFieldValue(column - 1);
                 } catch (IOException ex) {
                     throw DbException.get(ErrorCode.IO_EXCEPTION_1,ex);
                 }
             }
         }
 
+        /**
+         * Read the field value from the driver only on the first request
+         * @param field Field index in the driver
+         * @return The field value
+         * @throws IOException
+         */
+        private Value getFieldValue(int field) throws IOException {
+            if (fieldValues == null) {
+                fieldValues = new Value[driver.getFieldCount()];
+            }
+            Value value = fieldValues[field];
+            if (value == null) {
+                value = (Value) driver.getField(key - 1, field);
+                fieldValues[field] = value;
+            }
+            return value;
+        }
+
         @Override
         public void setValue(int i, Value value) {
             if (i == ROWID_INDEX) {
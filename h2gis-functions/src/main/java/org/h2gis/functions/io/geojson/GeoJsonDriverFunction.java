@@ -45,7 +45,7 @@ public class GeoJsonDriverFunction implements DriverFunction {
 
     @Override
     public String[] getImportFormats() {
-        return new String[]{"geojson", "geojson.gz"};
+        return new String[]{"geojson", "geojson.gz", "geojsonl", "geojsons"};
     }
 
     @Override
@@ -57,6 +57,8 @@ public class GeoJsonDriverFunction implements DriverFunction {
     public String getFormatDescription(String format) {
         if (format.equalsIgnoreCase("geojson")) {
             return "GeoJSON 1.0";
+        } else if (format.equalsIgnoreCase("geojsonl") || format.equalsIgnoreCase("geojsons")) {
+            return "GeoJSON text sequence";
         } else {
             return "";
         }
@@ -64,7 +66,7 @@ public class GeoJsonDriverFunction implements DriverFunction {
 
     @Override
     public boolean isSpatialFormat(String extension) {
-        return extension.equals("geojson");
+        return extension.equals("geojson") || extension.equals("geojsonl") || extension.equals("geojsons");
     }
 
     @Override
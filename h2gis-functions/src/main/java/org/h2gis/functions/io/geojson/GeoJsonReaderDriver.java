@@ -31,12 +31,15 @@ import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.dbtypes.DBTypes;
 import org.h2gis.utilities.dbtypes.DBUtils;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.util.GeometryTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -56,13 +59,12 @@ public class GeoJsonReaderDriver {
 
     private final File fileName;
     private final Connection connection;
-    private static GeometryFactory GF;
+    private GeometryFactory gf;
     private final String encoding;
     private final boolean deleteTable;
     private PreparedStatement preparedStatement = null;
     private JsonFactory jsFactory;
-    private int nbFeature = 1;
-    private int featureCounter = 1;
+    private int nbFeature = 0;
     private ProgressVisitor progress = new EmptyProgressVisitor();
     // For progression information return
     private static final int AVERAGE_NODE_SIZE = 500;
@@ -73,11 +75,31 @@ public class GeoJsonReaderDriver {
     private String tableLocation;
     private LinkedHashMap<String, Integer> cachedColumnNames;
     private LinkedHashMap<String, Integer> cachedColumnIndex;
-    private static final int BATCH_MAX_SIZE = 100;
-
-    private Set finalGeometryTypes;
+    private static final int BATCH_MAX_SIZE = 1000;
+    private static final int SPILL_BUFFER_SIZE = 65536;
+    // Value tags of the spill file
+    private static final byte SPILL_NULL = 0;
+    private static final byte SPILL_STRING = 1;
+    private static final byte SPILL_BOOLEAN = 2;
+    private static final byte SPILL_DOUBLE = 3;
+    private static final byte SPILL_INT = 4;
+    private static final byte SPILL_LONG = 5;
+    private static final byte SPILL_GEOMETRY = 6;
+    // Geometry with some 2D coordinates parsed before the first Z coordinate of the file
+    private static final byte SPILL_GEOMETRY_2D = 7;
+    // Array or object value stored as a JSON string
+    private static final byte SPILL_JSON = 8;
+    private static final int SPILL_END_OF_FEATURE = -1;
+    // Number of characters of a GeoJSON text sequence parsed by a worker
+    private static final int SEQUENCE_CHUNK_SIZE = 1 << 20;
+    // Prefix of the GeoJSON texts in a RFC 8142 sequence
+    private static final char RECORD_SEPARATOR = '\u001E';
+
+    private Set<String> finalGeometryTypes;
     private JsonEncoding jsonEncoding;
     private boolean hasZ =false;
+    // True if the current geometry has coordinates without Z value
+    private boolean has2DCoordinate = false;
 
     /**
      * Driver to import a GeoJSON file into a spatial table.
@@ -94,6 +116,23 @@ public class GeoJsonReaderDriver {
         this.deleteTable = deleteTable;
     }
 
+    /**
+     * Parser of a chunk of a GeoJSON text sequence. Each worker uses its own
+     * parser, geometry factory and metadata.
+     *
+     * @param driver the driver that reads the file
+     */
+    private GeoJsonReaderDriver(GeoJsonReaderDriver driver) {
+        this(null, null, driver.encoding, false);
+        this.dbType = driver.dbType;
+        this.jsFactory = driver.jsFactory;
+        this.parsedSRID = driver.parsedSRID;
+        this.gf = new GeometryFactory(new PrecisionModel(), parsedSRID);
+        this.cachedColumnNames = new LinkedHashMap<>();
+        this.cachedColumnIndex = new LinkedHashMap<>();
+        this.finalGeometryTypes = new HashSet<String>();
+    }
+
     /**
      * Read the GeoJSON file.
      *
@@ -116,7 +155,7 @@ public class GeoJsonReaderDriver {
                 stmt.close();
             }
             if (fileName.length() > 0) {
-                parseGeoJson(progress);
+                parseGeoJson(progress, new FileInputStream(fileName), false);
                 return tableLocation;
             } else {
                 JDBCUtilities.createEmptyTable(connection, tableLocation);
@@ -137,25 +176,33 @@ public class GeoJsonReaderDriver {
             }
 
             if (fileName.length() > 0) {
-                this.progress = progress.subProcess(100);
-                init();
-                FileInputStream fis = new FileInputStream(fileName);
-                if (parseMetadata(new GZIPInputStream(fis))) {
-                    connection.setAutoCommit(false);
-                    GF = new GeometryFactory(new PrecisionModel(), parsedSRID);
-                    fis = new FileInputStream(fileName);
-                    parseData(new GZIPInputStream(fis));
-                    connection.setAutoCommit(true);
-                    return tableLocation;
-                } else {
-                    throw new SQLException("Cannot create the table " + tableLocation + " to import the GeoJSON data");
-                }
+                parseGeoJson(progress, new GZIPInputStream(new FileInputStream(fileName)), false);
+                return tableLocation;
+            } else {
+                JDBCUtilities.createEmptyTable(connection, tableLocation);
+                return tableLocation;
+            }
+        } else if (fileName != null && (fileName.getName().toLowerCase().endsWith(".geojsonl")
+                || fileName.getName().toLowerCase().endsWith(".geojsons"))) {
+            if (!fileName.exists()) {
+                throw new SQLException("The file " + tableLocation + " doesn't exist ");
+            }
+            this.dbType = DBUtils.getDBType(connection);
+            this.tableLocation = TableLocation.parse(tableReference, dbType).toString();
+            if (deleteTable) {
+                Statement stmt = connection.createStatement();
+                stmt.execute("DROP TABLE IF EXISTS " + tableLocation);
+                stmt.close();
+            }
+            if (fileName.length() > 0) {
+                parseGeoJson(progress, new FileInputStream(fileName), true);
+                return tableLocation;
             } else {
                 JDBCUtilities.createEmptyTable(connection, tableLocation);
                 return tableLocation;
             }
         } else {
-            throw new SQLException("The geojson read driver supports only geojson or gz extensions");
+            throw new SQLException("The geojson read driver supports only geojson, geojsonl, geojsons or gz extensions");
         }
     }
 
@@ -181,594 +228,156 @@ public class GeoJsonReaderDriver {
      * { "type": "FeatureCollection", "bbox": [100.0, 0.0, 105.0, 1.0],
      * "features": [ ... ] }
      *
-     *
-     * @param progress
-     */
-    private void parseGeoJson(ProgressVisitor progress) throws SQLException, IOException {
-        this.progress = progress.subProcess(100);
-        init();
-        if (parseMetadata(new FileInputStream(fileName))) {
-            connection.setAutoCommit(false);
-            GF = new GeometryFactory(new PrecisionModel(), parsedSRID);
-            parseData(new FileInputStream(fileName));
-            connection.setAutoCommit(true);
-
-        } else {
-            throw new SQLException("Cannot create the table " + tableLocation + " to import the GeoJSON data");
-        }
-    }
-
-    /**
-     * Parses the all GeoJSON feature to create the PreparedStatement.
-     *
-     * @throws SQLException
-     * @throws IOException
-     */
-    private boolean parseMetadata(InputStream is) throws SQLException, IOException {
-        try {
-            cachedColumnNames = new LinkedHashMap<>();
-            finalGeometryTypes = new HashSet<String>();
-            try (JsonParser jp = jsFactory.createParser(new InputStreamReader(is, jsonEncoding.getJavaName()))) {
-                jp.nextToken();//START_OBJECT
-                jp.nextToken(); // field_name (type)
-                jp.nextToken(); // value_string (FeatureCollection)
-                String geomType = jp.getText();
-
-                if (geomType.equalsIgnoreCase(GeoJsonField.FEATURECOLLECTION)) {
-                    parseFeaturesMetadata(jp);
-                } else {
-                    throw new SQLException("Malformed GeoJSON file. Expected 'FeatureCollection', found '" + geomType + "'");
-                }
-            } //START_OBJECT
-
-        } catch (FileNotFoundException ex) {
-            throw new SQLException(ex);
-
-        } finally {
-            try {
-                if (is != null) {
-                    is.close();
-                }
-            } catch (IOException ex) {
-                throw new IOException(ex);
-            }
-        }
-        // Now we create the table if there is at least one geometry field.          
-        if (hasGeometryField) {
-            StringBuilder createTable = new StringBuilder();
-            createTable.append("CREATE TABLE ");
-            createTable.append(tableLocation);
-            createTable.append(" (");
-            //Add the geometry column
-            String finalGeometryType = GeoJsonField.GEOMETRY;
-            if (finalGeometryTypes.size() == 1) {
-                finalGeometryType = (String) finalGeometryTypes.iterator().next();
-                createTable.append("THE_GEOM GEOMETRY(").append(hasZ?finalGeometryType+"Z":finalGeometryType).append(",").append(parsedSRID).append(")");
-            }
-            else{
-                createTable.append("THE_GEOM GEOMETRY(GEOMETRY,").append(parsedSRID).append(")");
-            }
-            cachedColumnIndex = new LinkedHashMap<>();
-            StringBuilder insertTable = new StringBuilder("INSERT INTO ");
-            insertTable.append(tableLocation).append(" VALUES(ST_GeomFromWKB(?, ").append(parsedSRID).append(")");
-
-            int i = 1;
-            for (Map.Entry<String, Integer> columns : cachedColumnNames.entrySet()) {
-                String columnName = columns.getKey();
-                Integer columnType = columns.getValue();
-                cachedColumnIndex.put(columnName, i++);
-                createTable.append(",").append(columns.getKey()).append(" ").append(getSQLTypeName(columnType));
-                if(columnType==Types.ARRAY){
-                    if(dbType == DBTypes.H2 || dbType == DBTypes.H2GIS){
-                        insertTable.append(",").append(" ? FORMAT json");
-                    }else {
-                        insertTable.append(",").append("cast(? as json)");
-                    }
-                }else {
-                    insertTable.append(",").append("?");
-                }
-            }
-            createTable.append(")");
-            insertTable.append(")");
-
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute(createTable.toString());
-            }
-            preparedStatement = connection.prepareStatement(insertTable.toString());
-            return true;
-
-        } else {
-            throw new SQLException("The geojson file  does not contain any geometry.");
-        }
-
-    }
-
-    /**
-     * Parses the featureCollection to collect the field properties
-     *
-     * @param jp
-     * @throws IOException
-     * @throws SQLException
-     */
-    private void parseFeaturesMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME features
-        // Passes all the properties until "Feature" object is found
-        while (!jp.getText().equalsIgnoreCase(GeoJsonField.FEATURES)
-                && !jp.getText().equalsIgnoreCase(GeoJsonField.CRS)) {
-            jp.nextToken();
-            if (jp.getCurrentToken().equals(JsonToken.START_ARRAY) || jp.getCurrentToken().equals(JsonToken.START_OBJECT)) {
-                jp.skipChildren();
-            }
-            jp.nextToken();
-        }
-        if (jp.getText().equalsIgnoreCase(GeoJsonField.CRS)) {
-            parsedSRID = readCRS(jp);
-        }
-        if (jp.getText().equalsIgnoreCase(GeoJsonField.FEATURES)) {
-            jp.nextToken(); // START_ARRAY [
-            JsonToken token = jp.nextToken(); // START_OBJECT {
-            while (token != JsonToken.END_ARRAY) {
-                jp.nextToken(); // FIELD_NAME type
-                jp.nextToken(); // VALUE_STRING Feature
-                String geomType = jp.getText();
-                if (geomType.equalsIgnoreCase(GeoJsonField.FEATURE)) {
-                    if (progress.isCanceled()) {
-                        throw new SQLException("Canceled by user");
-                    }
-                    parseFeatureMetadata(jp);
-                    token = jp.nextToken(); //START_OBJECT new feature                   
-                    nbFeature++;
-                } else {
-                    throw new SQLException("Malformed GeoJSON file. Expected 'Feature', found '" + geomType + "'");
-                }
-            }
-            //LOOP END_ARRAY ]
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'features', found '" + jp.getText() + "'");
-        }
-    }
-
-    /**
-     * Features in GeoJSON contain a geometry object and additional properties
-     * This method is used to collect metadata
-     *
-     * Syntax:
-     *
-     * { "type": "Feature", "geometry":{"type": "Point", "coordinates": [102.0,
-     * 0.5]}, "properties": {"prop0": "value0"} }
-     *
-     * @param jp
-     */
-    private void parseFeatureMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken();
-        String field = jp.getText();
-        //Avoid all token which are not 'properties', 'geometry', 'type'
-        while (!field.equalsIgnoreCase(GeoJsonField.GEOMETRY)
-                && !field.equalsIgnoreCase(GeoJsonField.PROPERTIES)
-                && !jp.getCurrentToken().equals(JsonToken.END_OBJECT)) {
-            jp.nextToken();
-            if (jp.getCurrentToken().equals(JsonToken.START_ARRAY) || jp.getCurrentToken().equals(JsonToken.START_OBJECT)) {
-                jp.skipChildren();
-            }
-            jp.nextToken();
-            field = jp.getText();
-        }
-        // FIELD_NAME geometry
-        if (field.equalsIgnoreCase(GeoJsonField.GEOMETRY)) {
-            parseParentGeometryMetadata(jp);
-            hasGeometryField = true;
-            jp.nextToken();
-        } else if (field.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
-            parsePropertiesMetadata(jp);
-            jp.nextToken();
-        }
-        //If there is only one geometry field in the feature them the next
-        //token corresponds to the end object of the feature
-
-        //Avoid all token which are not 'properties', 'geometry', 'type'
-        field = jp.getText();
-        while (!field.equalsIgnoreCase(GeoJsonField.GEOMETRY)
-                && !field.equalsIgnoreCase(GeoJsonField.PROPERTIES)
-                && !jp.getCurrentToken().equals(JsonToken.END_OBJECT)) {
-            jp.nextToken();
-            if (jp.getCurrentToken().equals(JsonToken.START_ARRAY) || jp.getCurrentToken().equals(JsonToken.START_OBJECT)) {
-                jp.skipChildren();
-            }
-            jp.nextToken();
-            field = jp.getText();
-        }
-        if (jp.getCurrentToken() != JsonToken.END_OBJECT) {
-            String secondParam = jp.getText();// field name
-            if (secondParam.equalsIgnoreCase(GeoJsonField.GEOMETRY)) {
-                parseParentGeometryMetadata(jp);
-                hasGeometryField = true;
-            } else if (secondParam.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
-                parsePropertiesMetadata(jp);
-            }
-            while (jp.nextToken() != JsonToken.END_OBJECT); //END_OBJECT } feature
-        }
-
-    }
-
-    /**
-     * Parses the geometries to return its properties
-     *
-     * @param jp
-     * @throws IOException
-     * @throws SQLException
-     */
-    private void parseParentGeometryMetadata(JsonParser jp) throws IOException, SQLException {
-        if (jp.nextToken() != JsonToken.VALUE_NULL) {//START_OBJECT { in case of null geometry
-            jp.nextToken(); // FIELD_NAME type     
-            jp.nextToken(); //VALUE_STRING Point
-            String geometryType = jp.getText();
-            parseGeometryMetadata(jp, geometryType);
-        }
-
-    }
-
-    /**
-     * Parses a all type of geometries and check if the geojson is wellformed.
-     *
-     * Syntax:
-     *
-     * "geometry":{"type": "Point", "coordinates": [102.0,0.5]}
-     *
-     * @param jp
-     * @throws IOException
-     */
-    private void parseGeometryMetadata(JsonParser jp, String geometryType) throws IOException, SQLException {
-        if (geometryType.equalsIgnoreCase(GeoJsonField.POINT)) {
-            parsePointMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.POINT);
-        } else if (geometryType.equalsIgnoreCase(GeoJsonField.MULTIPOINT)) {
-            parseMultiPointMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.MULTIPOINT);
-        } else if (geometryType.equalsIgnoreCase(GeoJsonField.LINESTRING)) {
-            parseLinestringMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.LINESTRING);
-        } else if (geometryType.equalsIgnoreCase(GeoJsonField.MULTILINESTRING)) {
-            parseMultiLinestringMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.MULTILINESTRING);
-        } else if (geometryType.equalsIgnoreCase(GeoJsonField.POLYGON)) {
-            parsePolygonMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.POLYGON);
-        } else if (geometryType.equalsIgnoreCase(GeoJsonField.MULTIPOLYGON)) {
-            parseMultiPolygonMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.MULTIPOLYGON);
-        } else if (geometryType.equalsIgnoreCase(GeoJsonField.GEOMETRYCOLLECTION)) {
-            parseGeometryCollectionMetadata(jp);
-            finalGeometryTypes.add(GeoJsonField.GEOMETRYCOLLECTION);
-        } else {
-            throw new SQLException("Unsupported geometry : " + geometryType);
-        }
-    }
-
-    /**
-     * Parses a point and check if it's wellformated
-     *
-     * Syntax:
-     *
-     * { "type": "Point", "coordinates": [100.0, 0.0] }
-     *
-     * @param jp
-     * @throws IOException
-     */
-    private void parsePointMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME coordinates        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
-            jp.nextToken(); // START_ARRAY [ to parse the coordinate
-            parseCoordinateMetadata(jp);
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
-        }
-    }
-
-    /**
-     * Parses a MultiPoint and check if it's wellformated
-     *
-     * Syntax:
-     *
-     * { "type": "MultiPoint", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
-     *
-     * @param jp
-     * @throws IOException
-     */
-    private void parseMultiPointMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME coordinates        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
-            jp.nextToken(); // START_ARRAY [ coordinates
-            parseCoordinatesMetadata(jp);
-            jp.nextToken();//END_OBJECT } geometry
-
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
-        }
-    }
-
-    /**
-     *
-     * Parses a LineString and check if it's wellformated
-     *
-     * Syntax:
-     *
-     * { "type": "LineString", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
-     *
-     * @param jp
-     */
-    private void parseLinestringMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME coordinates        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
-            jp.nextToken(); // START_ARRAY [ coordinates
-            parseCoordinatesMetadata(jp);
-            jp.nextToken();//END_OBJECT } geometry            
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
-        }
-    }
-
-    /**
-     * Parses MultiLineString defined as:
-     *
-     * { "type": "MultiLineString", "coordinates": [ [ [100.0, 0.0], [101.0,
-     * 1.0] ], [ [102.0, 2.0], [103.0, 3.0] ] ] }
-     *
-     * @param jp
-     */
-    private void parseMultiLinestringMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME coordinates        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
-            jp.nextToken();//START_ARRAY [ coordinates
-            jp.nextToken(); // START_ARRAY [ coordinates line
-            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-                parseCoordinatesMetadata(jp);
-                jp.nextToken();
-            }
-            jp.nextToken();//END_OBJECT } geometry           
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
-        }
-
-    }
-
-    /**
-     * Parses a Polygon as an array of LinearRing coordinate arrays. The first
-     * element in the array represents the exterior ring. Any subsequent
-     * elements represent interior rings (or holes).
-     *
-     * Syntax:
-     *
-     * No holes:
-     *
-     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ] ] }
-     *
-     * With holes:
-     *
-     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ], [ [100.2, 0.2], [100.8, 0.2],
-     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2] ] ] }
-     *
-     *
-     *
-     * @param jp
-     */
-    private void parsePolygonMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME coordinates        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
-            jp.nextToken(); // START_ARRAY [ coordinates
-            jp.nextToken(); //Start the RING
-            int linesIndex = 0;
-            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-                if (linesIndex == 0) {
-                    parseCoordinatesMetadata(jp);
-                } else {
-                    parseCoordinatesMetadata(jp);
-                }
-                jp.nextToken();//END RING
-                linesIndex++;
-            }
-            if (linesIndex > 1) {
-                jp.nextToken();//END_OBJECT } geometry                
-            } else {
-                jp.nextToken();//END_OBJECT } geometry
-            }
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
-        }
-    }
-
-    /**
-     * Parses a MultiPolygon as an array of Polygon coordinate arrays:
-     *
-     * { "type": "MultiPolygon", "coordinates": [ [[[102.0, 2.0], [103.0, 2.0],
-     * [103.0, 3.0], [102.0, 3.0], [102.0, 2.0]]], [[[100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0]], [[100.2, 0.2], [100.8, 0.2],
-     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2]]] ] }
-     *
-     * @param jp
-     * @throws IOException
-     * @throws SQLException
-     */
-    private void parseMultiPolygonMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME coordinates        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
-            jp.nextToken(); // START_ARRAY [ coordinates             
-            jp.nextToken(); //Start the polygon
-            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-                //Parses the polygon
-                jp.nextToken(); //Start the RING
-                while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-                    parseCoordinatesMetadata(jp);
-                    jp.nextToken();//END RING
-                }
-                jp.nextToken();//END_OBJECT
-            }
-            jp.nextToken();//END_OBJECT } geometry
-
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
-        }
-    }
-
-    /**
-     * Parses a GeometryCollection the geometry objects are described above:
-     *
-     * { "type": "GeometryCollection", "geometries": [ { "type": "Point",
-     * "coordinates": [100.0, 0.0] }, { "type": "LineString", "coordinates": [
-     * [101.0, 0.0], [102.0, 1.0] ] } ]
-     *
-     * @param jp
-     *
-     * @throws IOException
-     * @throws SQLException
-     * @return GeometryCollection
-     */
-    private void parseGeometryCollectionMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken(); // FIELD_NAME geometries        
-        String coordinatesField = jp.getText();
-        if (coordinatesField.equalsIgnoreCase(GeoJsonField.GEOMETRIES)) {
-            jp.nextToken();//START array
-            jp.nextToken();//START object
-            while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-                jp.nextToken(); // FIELD_NAME type     
-                jp.nextToken(); //VALUE_STRING Point
-                String geometryType = jp.getText();
-                parseGeometryMetadata(jp, geometryType);
-                jp.nextToken();
-            }
-            jp.nextToken();//END_OBJECT } geometry            
-        } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'geometries', found '" + coordinatesField + "'");
-        }
-
-    }
-
-    /**
-     * Parses a GeoJSON coordinate array and check if it's wellformed. The first
-     * token corresponds to the first X value. The last token correponds to the
-     * end of the coordinate array "]".
-     *
-     * Parsed syntax:
-     *
-     * 100.0, 0.0]
-     *
-     * @param jp
-     * @throws IOException
-     * @return Coordinate
+     * A GeoJSON text sequence (RFC 8142) or a newline-delimited GeoJSON file
+     * contains one Feature per record instead of a FeatureCollection.
+     *
+     * The file is read only once. The column types are inferred while the
+     * features are parsed and the parsed values are staged in a temporary spill
+     * file. The table is then created and the staged rows are inserted.
+     *
+     * @param progress
+     * @param is the GeoJSON input stream
+     * @param sequence true if the input is a GeoJSON text sequence
      */
-    private void parseCoordinateMetadata(JsonParser jp) throws IOException {
-        jp.nextToken();
-        jp.nextToken(); // second value
-        //We look for a z value
-        jp.nextToken();
-        if (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-            jp.nextToken(); // exit array
-            hasZ=true;
+    private void parseGeoJson(ProgressVisitor progress, InputStream is, boolean sequence) throws SQLException, IOException {
+        this.progress = progress.subProcess(100);
+        init();
+        cachedColumnNames = new LinkedHashMap<>();
+        cachedColumnIndex = new LinkedHashMap<>();
+        finalGeometryTypes = new HashSet<String>();
+        File spillFile = File.createTempFile("geojson", ".spill");
+        try {
+            try (DataOutputStream spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), SPILL_BUFFER_SIZE))) {
+                if (sequence) {
+                    parseSequence(is, spill);
+                } else {
+                    parseData(is, spill);
+                }
+            }
+            if (!hasGeometryField) {
+                throw new SQLException("The geojson file  does not contain any geometry.");
+            }
+            createTable();
+            connection.setAutoCommit(false);
+            try (DataInputStream spill = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile), SPILL_BUFFER_SIZE))) {
+                insertFeatures(spill);
+            }
+            connection.setAutoCommit(true);
+        } finally {
+            if (preparedStatement != null) {
+                preparedStatement.close();
+            }
+            spillFile.delete();
         }
-        jp.nextToken();
     }
 
     /**
-     * Parses a sequence of coordinates array expressed as
-     *
-     * [ [100.0, 0.0], [101.0, 1.0] ]
+     * Creates the table and the PreparedStatement from the collected metadata.
      *
-     * and check if it's wellformated
-     *
-     * @param jp
-     * @throws IOException
      * @throws SQLException
-     * @return Coordinate[]
      */
-    private void parseCoordinatesMetadata(JsonParser jp) throws IOException {
-        jp.nextToken(); // START_ARRAY [ to parse the each positions        
-        while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-            parseCoordinateMetadata(jp);
+    private void createTable() throws SQLException {
+        StringBuilder createTable = new StringBuilder();
+        createTable.append("CREATE TABLE ");
+        createTable.append(tableLocation);
+        createTable.append(" (");
+        //Add the geometry column
+        String finalGeometryType = GeoJsonField.GEOMETRY;
+        if (finalGeometryTypes.size() == 1) {
+            finalGeometryType = finalGeometryTypes.iterator().next();
+            createTable.append("THE_GEOM GEOMETRY(").append(hasZ?finalGeometryType+"Z":finalGeometryType).append(",").append(parsedSRID).append(")");
+        }
+        else{
+            createTable.append("THE_GEOM GEOMETRY(GEOMETRY,").append(parsedSRID).append(")");
+        }
+        StringBuilder insertTable = new StringBuilder("INSERT INTO ");
+        insertTable.append(tableLocation).append(" VALUES(ST_GeomFromWKB(?, ").append(parsedSRID).append(")");
+
+        for (Map.Entry<String, Integer> columns : cachedColumnNames.entrySet()) {
+            Integer columnType = columns.getValue();
+            createTable.append(",").append(columns.getKey()).append(" ").append(getSQLTypeName(columnType));
+            if(columnType==Types.ARRAY){
+                if(dbType == DBTypes.H2 || dbType == DBTypes.H2GIS){
+                    insertTable.append(",").append(" ? FORMAT json");
+                }else {
+                    insertTable.append(",").append("cast(? as json)");
+                }
+            }else {
+                insertTable.append(",").append("?");
+            }
+        }
+        createTable.append(")");
+        insertTable.append(")");
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(createTable.toString());
         }
+        preparedStatement = connection.prepareStatement(insertTable.toString());
     }
 
     /**
-     * Parses the properties of a feature
-     *
-     * Syntax:
-     *
-     * "properties": {"prop0": "value0"}
+     * Updates the type of a property column with the type of a parsed value.
      *
-     * @param jp
+     * @param fieldName the quoted column name
+     * @param value the token of the value
+     * @return the index of the column, or null if the value is ignored
      */
-    private void parsePropertiesMetadata(JsonParser jp) throws IOException, SQLException {
-        jp.nextToken();//START_OBJECT {
-        while (jp.nextToken() != JsonToken.END_OBJECT) {
-            String fieldName = TableLocation.capsIdentifier(jp.getText(), dbType); //FIELD_NAME columnName
-            fieldName = TableLocation.quoteIdentifier(fieldName, dbType);
-            JsonToken value = jp.nextToken();
-            if (null != value) {
-                Integer dataType = cachedColumnNames.get(fieldName);
-                boolean hasField = cachedColumnNames.containsKey(fieldName);
-                switch (value) {
-                    case VALUE_STRING:
+    private Integer updateColumnType(String fieldName, JsonToken value) {
+        Integer dataType = cachedColumnNames.get(fieldName);
+        boolean hasField = cachedColumnNames.containsKey(fieldName);
+        switch (value) {
+            case VALUE_STRING:
+                cachedColumnNames.put(fieldName, Types.VARCHAR);
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                if (!hasField || dataType == Types.NULL) {
+                    cachedColumnNames.put(fieldName, Types.BOOLEAN);
+                } else if (hasField && dataType != Types.BOOLEAN) {
+                    cachedColumnNames.put(fieldName, Types.VARCHAR);
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                if (!hasField || dataType == Types.NULL) {
+                    cachedColumnNames.put(fieldName, Types.DOUBLE);
+                } else if (hasField) {
+                    if (dataType == Types.BIGINT) {
+                        cachedColumnNames.put(fieldName, Types.DOUBLE);
+                    } else if (dataType != Types.DOUBLE) {
                         cachedColumnNames.put(fieldName, Types.VARCHAR);
-                        break;
-                    case VALUE_TRUE:
-                    case VALUE_FALSE:
-                        if (!hasField || dataType == Types.NULL) {
-                            cachedColumnNames.put(fieldName, Types.BOOLEAN);
-                        } else if (hasField && dataType != Types.BOOLEAN) {
-                            cachedColumnNames.put(fieldName, Types.VARCHAR);
-                        }
-                        break;
-                    case VALUE_NUMBER_FLOAT:
-                        if (!hasField || dataType == Types.NULL) {
-                            cachedColumnNames.put(fieldName, Types.DOUBLE);
-                        } else if (hasField) {
-                            if (dataType == Types.BIGINT) {
-                                cachedColumnNames.put(fieldName, Types.DOUBLE);
-                            } else if (dataType != Types.DOUBLE) {
-                                cachedColumnNames.put(fieldName, Types.VARCHAR);
-                            }
-                        }
-                        break;
-                    case VALUE_NUMBER_INT:
-                        if (!hasField || dataType == Types.NULL) {
-                            cachedColumnNames.put(fieldName, Types.BIGINT);
-                        } else if (hasField && dataType != Types.BIGINT) {
-                            cachedColumnNames.put(fieldName, Types.VARCHAR);
-                        }
-                        break;
-                    case START_ARRAY:
-                        if (!hasField || dataType == Types.NULL) {
-                            cachedColumnNames.put(fieldName, Types.ARRAY);
-                        } else if (hasField && dataType != Types.ARRAY) {
-                            cachedColumnNames.put(fieldName, Types.VARCHAR);
-                        }
-                        parseArrayMetadata(jp);
-                        break;
-                    case START_OBJECT:
-                        if (!hasField || dataType == Types.NULL) {
-                            cachedColumnNames.put(fieldName, Types.ARRAY);
-                        }
-                        else if (hasField && dataType != Types.ARRAY) {
-                            cachedColumnNames.put(fieldName, Types.VARCHAR);
-                        }
-                        parseObjectMetadata(jp);
-                        break;
-                    case VALUE_NULL:
-                        if (!hasField) {
-                            cachedColumnNames.put(fieldName, Types.NULL);
-                        }
-                    //ignore other value
-                    default:
-                        break;
+                    }
                 }
-            }
+                break;
+            case VALUE_NUMBER_INT:
+                if (!hasField || dataType == Types.NULL) {
+                    cachedColumnNames.put(fieldName, Types.BIGINT);
+                } else if (hasField && dataType != Types.BIGINT) {
+                    cachedColumnNames.put(fieldName, Types.VARCHAR);
+                }
+                break;
+            case START_ARRAY:
+            case START_OBJECT:
+                if (!hasField || dataType == Types.NULL) {
+                    cachedColumnNames.put(fieldName, Types.ARRAY);
+                } else if (hasField && dataType != Types.ARRAY) {
+                    cachedColumnNames.put(fieldName, Types.VARCHAR);
+                }
+                break;
+            case VALUE_NULL:
+                if (!hasField) {
+                    cachedColumnNames.put(fieldName, Types.NULL);
+                }
+                break;
+            //ignore other value
+            default:
+                return null;
         }
+        Integer index = cachedColumnIndex.get(fieldName);
+        if (index == null) {
+            index = cachedColumnIndex.size() + 1;
+            cachedColumnIndex.put(fieldName, index);
+        }
+        return index;
     }
 
     /**
@@ -791,7 +400,7 @@ public class GeoJsonReaderDriver {
 
     /**
      * Features in GeoJSON contain a geometry object and additional properties
-     * This method returns all values stored in a feature.
+     * This method writes all values stored in a feature to the spill file.
      *
      * Syntax:
      *
@@ -799,8 +408,9 @@ public class GeoJsonReaderDriver {
      * 0.5]}, "properties": {"prop0": "value0"} }
      *
      * @param jp
+     * @param spill
      */
-    private Object[] parseFeature(JsonParser jp) throws IOException, SQLException {
+    private void parseFeature(JsonParser jp, DataOutputStream spill) throws IOException, SQLException {
         jp.nextToken();
         String field = jp.getText();
         //Avoid all token which are not 'properties', 'geometry', 'type'
@@ -814,12 +424,11 @@ public class GeoJsonReaderDriver {
             jp.nextToken();
             field = jp.getText();
         }
-        Object[] values = new Object[cachedColumnIndex.size() + 1];
         if (field.equalsIgnoreCase(GeoJsonField.GEOMETRY)) {
-            setGeometry(jp, values);
+            setGeometry(jp, spill);
             jp.nextToken();
         } else if (field.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
-            parseProperties(jp, values);
+            parseProperties(jp, spill);
             jp.nextToken();
         }
         //If there is only one geometry field in the feature them the next
@@ -840,30 +449,40 @@ public class GeoJsonReaderDriver {
         if (jp.getCurrentToken() != JsonToken.END_OBJECT) {
             String secondParam = jp.getText();// field name
             if (secondParam.equalsIgnoreCase(GeoJsonField.GEOMETRY)) {
-                setGeometry(jp, values);
+                setGeometry(jp, spill);
             } else if (secondParam.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
-                parseProperties(jp, values);
+                parseProperties(jp, spill);
             }
             while (jp.nextToken() != JsonToken.END_OBJECT); //END_OBJECT } feature
         }
-
-        return values;
+        spill.writeInt(SPILL_END_OF_FEATURE);
     }
 
     /**
-     * Sets the parsed geometry to the table *
+     * Writes the parsed geometry to the spill file
      *
      * @param jp
      * @throws IOException
      * @throws SQLException
      */
-    private void setGeometry(JsonParser jp, Object[] values) throws IOException, SQLException {
+    private void setGeometry(JsonParser jp, DataOutputStream spill) throws IOException, SQLException {
+        hasGeometryField = true;
         if (jp.nextToken() != JsonToken.VALUE_NULL) {//START_OBJECT { in case of null geometry
             jp.nextToken(); // FIELD_NAME type     
             jp.nextToken(); //VALUE_STRING Point
             String geometryType = jp.getText();
+            has2DCoordinate = false;
             Geometry geom = parseGeometry(jp, geometryType);
-            values[0] = ValueGeometry.getFromGeometry(geom).getBytesNoCopy();
+            if (has2DCoordinate && hasZ) {
+                // The first Z coordinate of the file has been found in this geometry
+                geom = setMissingZ(geom);
+                has2DCoordinate = false;
+            }
+            byte[] bytes = ValueGeometry.getFromGeometry(geom).getBytesNoCopy();
+            spill.writeInt(0);
+            spill.writeByte(has2DCoordinate ? SPILL_GEOMETRY_2D : SPILL_GEOMETRY);
+            spill.writeInt(bytes.length);
+            spill.write(bytes);
         }
     }
 
@@ -880,18 +499,25 @@ public class GeoJsonReaderDriver {
      */
     private Geometry parseGeometry(JsonParser jp, String geometryType) throws IOException, SQLException {
         if (geometryType.equalsIgnoreCase(GeoJsonField.POINT)) {
+            finalGeometryTypes.add(GeoJsonField.POINT);
             return parsePoint(jp);
         } else if (geometryType.equalsIgnoreCase(GeoJsonField.MULTIPOINT)) {
+            finalGeometryTypes.add(GeoJsonField.MULTIPOINT);
             return parseMultiPoint(jp);
         } else if (geometryType.equalsIgnoreCase(GeoJsonField.LINESTRING)) {
+            finalGeometryTypes.add(GeoJsonField.LINESTRING);
             return parseLinestring(jp);
         } else if (geometryType.equalsIgnoreCase(GeoJsonField.MULTILINESTRING)) {
+            finalGeometryTypes.add(GeoJsonField.MULTILINESTRING);
             return parseMultiLinestring(jp);
         } else if (geometryType.equalsIgnoreCase(GeoJsonField.POLYGON)) {
+            finalGeometryTypes.add(GeoJsonField.POLYGON);
             return parsePolygon(jp);
         } else if (geometryType.equalsIgnoreCase(GeoJsonField.MULTIPOLYGON)) {
+            finalGeometryTypes.add(GeoJsonField.MULTIPOLYGON);
             return parseMultiPolygon(jp);
         } else if (geometryType.equalsIgnoreCase(GeoJsonField.GEOMETRYCOLLECTION)) {
+            finalGeometryTypes.add(GeoJsonField.GEOMETRYCOLLECTION);
             return parseGeometryCollection(jp);
         } else {
             throw new SQLException("Unsupported geometry : " + geometryType);
@@ -899,15 +525,17 @@ public class GeoJsonReaderDriver {
     }
 
     /**
-     * Parses the properties of a feature
+     * Parses the properties of a feature, updates the column types and writes
+     * the values to the spill file
      *
      * Syntax:
      *
      * "properties": {"prop0": "value0"}
      *
      * @param jp
+     * @param spill
      */
-    private void parseProperties(JsonParser jp, Object[] values) throws IOException, SQLException {
+    private void parseProperties(JsonParser jp, DataOutputStream spill) throws IOException, SQLException {
         jp.nextToken();//START_OBJECT {
         while (jp.nextToken() != JsonToken.END_OBJECT) {
             String fieldName = TableLocation.capsIdentifier(jp.getText(), dbType); //FIELD_NAME columnName
@@ -915,43 +543,51 @@ public class GeoJsonReaderDriver {
             JsonToken value = jp.nextToken();
             if (null == value) {
                 //ignore other value
-            } else switch (value) {
+                continue;
+            }
+            Integer index = updateColumnType(fieldName, value);
+            if (index == null) {
+                continue;
+            }
+            spill.writeInt(index);
+            switch (value) {
                 case VALUE_STRING:
-                    values[cachedColumnIndex.get(fieldName)] = jp.getText();
+                    writeString(spill, SPILL_STRING, jp.getText());
                     break;
                 case VALUE_TRUE:
-                    values[cachedColumnIndex.get(fieldName)] = jp.getValueAsBoolean();
-                    break;
                 case VALUE_FALSE:
-                    values[cachedColumnIndex.get(fieldName)] = jp.getValueAsBoolean();
+                    spill.writeByte(SPILL_BOOLEAN);
+                    spill.writeBoolean(jp.getValueAsBoolean());
                     break;
                 case VALUE_NUMBER_FLOAT:
-                    values[cachedColumnIndex.get(fieldName)] = jp.getValueAsDouble();
+                    spill.writeByte(SPILL_DOUBLE);
+                    spill.writeDouble(jp.getValueAsDouble());
                     break;
                 case VALUE_NUMBER_INT:
                     if(jp.getNumberType() == JsonParser.NumberType.INT) {
-                        values[cachedColumnIndex.get(fieldName)] = jp.getIntValue();
+                        spill.writeByte(SPILL_INT);
+                        spill.writeInt(jp.getIntValue());
                     } else {
-                        values[cachedColumnIndex.get(fieldName)] = jp.getLongValue();
-                    }   break;
+                        spill.writeByte(SPILL_LONG);
+                        spill.writeLong(jp.getLongValue());
+                    }
+                    break;
                 case START_ARRAY:
                     {
                         StringBuilder sb = new StringBuilder();
                         parseArray(jp, sb);
-                        values[cachedColumnIndex.get(fieldName)] = sb.toString();
+                        writeString(spill, SPILL_JSON, sb.toString());
                         break;
                     }
                 case START_OBJECT:
                     {
                         StringBuilder sb = new StringBuilder();
                         parseObject(jp, sb);
-                        values[cachedColumnIndex.get(fieldName)] = sb.toString();
+                        writeString(spill, SPILL_JSON, sb.toString());
                         break;
                     }
-                case VALUE_NULL:
-                    values[cachedColumnIndex.get(fieldName)] = null;
-                    break;
                 default:
+                    spill.writeByte(SPILL_NULL);
                     break;
             }
         }
@@ -959,13 +595,91 @@ public class GeoJsonReaderDriver {
     }
 
     /**
-     * Parses the featureCollection
+     * Writes a string value to the spill file
+     *
+     * @param spill
+     * @param tag SPILL_STRING or SPILL_JSON
+     * @param value
+     * @throws IOException
+     */
+    private static void writeString(DataOutputStream spill, byte tag, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        spill.writeByte(tag);
+        spill.writeInt(bytes.length);
+        spill.write(bytes);
+    }
+
+    /**
+     * Reads a value from the spill file
+     *
+     * @param spill
+     * @return the value to set in the PreparedStatement
+     * @throws IOException
+     */
+    private Object readValue(DataInputStream spill) throws IOException {
+        byte tag = spill.readByte();
+        switch (tag) {
+            case SPILL_STRING:
+            case SPILL_JSON: {
+                byte[] bytes = new byte[spill.readInt()];
+                spill.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case SPILL_BOOLEAN:
+                return spill.readBoolean();
+            case SPILL_DOUBLE:
+                return spill.readDouble();
+            case SPILL_INT:
+                return spill.readInt();
+            case SPILL_LONG:
+                return spill.readLong();
+            case SPILL_GEOMETRY:
+            case SPILL_GEOMETRY_2D: {
+                byte[] bytes = new byte[spill.readInt()];
+                spill.readFully(bytes);
+                if (tag == SPILL_GEOMETRY_2D && hasZ) {
+                    // A Z coordinate has been found later in the file, set the missing Z values to 0
+                    Geometry geom = ValueGeometry.getFromEWKB(bytes).getGeometry();
+                    geom = setMissingZ(geom);
+                    bytes = ValueGeometry.getFromGeometry(geom).getBytesNoCopy();
+                }
+                return bytes;
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns a copy of a geometry where the missing Z values are set to 0
+     *
+     * @param geom
+     * @return the geometry with Z values
+     */
+    private static Geometry setMissingZ(Geometry geom) {
+        return new GeometryTransformer() {
+            @Override
+            protected CoordinateSequence transformCoordinates(CoordinateSequence coords, Geometry parent) {
+                Coordinate[] coordinates = new Coordinate[coords.size()];
+                for (int i = 0; i < coordinates.length; i++) {
+                    Coordinate coord = coords.getCoordinate(i);
+                    coordinates[i] = new Coordinate(coord.x, coord.y, Double.isNaN(coord.getZ()) ? 0 : coord.getZ());
+                }
+                return factory.getCoordinateSequenceFactory().create(coordinates);
+            }
+        }.transform(geom);
+    }
+
+    /**
+     * Parses the featureCollection, collects the field properties and writes
+     * the features to the spill file
      *
      * @param jp
+     * @param spill
      * @throws IOException
      * @throws SQLException
      */
-    private void parseFeatures(JsonParser jp) throws IOException, SQLException {
+    private void parseFeatures(JsonParser jp, DataOutputStream spill) throws IOException, SQLException {
         jp.nextToken(); // FIELD_NAME features
         // Passes all the properties until "Feature" object is found
         while (!jp.getText().equalsIgnoreCase(GeoJsonField.FEATURES)
@@ -976,14 +690,13 @@ public class GeoJsonReaderDriver {
             }
             jp.nextToken();
         }
-        String firstParam = jp.getText();
-        if (firstParam.equalsIgnoreCase(GeoJsonField.CRS)) {
-            firstParam = skipCRS(jp);
+        if (jp.getText().equalsIgnoreCase(GeoJsonField.CRS)) {
+            parsedSRID = readCRS(jp);
         }
-        if (firstParam.equalsIgnoreCase(GeoJsonField.FEATURES)) {
+        gf = new GeometryFactory(new PrecisionModel(), parsedSRID);
+        if (jp.getText().equalsIgnoreCase(GeoJsonField.FEATURES)) {
             jp.nextToken(); // START_ARRAY [
             JsonToken token = jp.nextToken(); // START_OBJECT {
-            long batchSize = 0;
             while (token != JsonToken.END_ARRAY) {
                 jp.nextToken(); // FIELD_NAME type
                 jp.nextToken(); // VALUE_STRING Feature
@@ -992,39 +705,70 @@ public class GeoJsonReaderDriver {
                     if (progress.isCanceled()) {
                         throw new SQLException("Canceled by user");
                     }
-                    Object[] values = parseFeature(jp);
-                    for (int i = 0; i < values.length; i++) {
-                        preparedStatement.setObject(i + 1, values[i]);
-                    }
-                    preparedStatement.addBatch();
-                    batchSize++;
-                    if (batchSize >= BATCH_MAX_SIZE) {
-                        preparedStatement.executeBatch();
-                        connection.commit();
-                        preparedStatement.clearBatch();
-                        batchSize = 0;
-                    }
-
-                    token = jp.nextToken(); //START_OBJECT new feature                    
-                    featureCounter++;
-                    progress.setStep((featureCounter / nbFeature) * 100);
-                    if (batchSize > 0) {
-                        try {
-                            preparedStatement.executeBatch();
-                            connection.commit();
-                            preparedStatement.clearBatch();
-                        }catch (SQLException ex){
-                            throw new SQLException(ex.getNextException());
-                        }
-                    }
+                    parseFeature(jp, spill);
+                    token = jp.nextToken(); //START_OBJECT new feature
+                    nbFeature++;
                 } else {
                     throw new SQLException("Malformed GeoJSON file. Expected 'Feature', found '" + geomType + "'");
                 }
             }
             //LOOP END_ARRAY ]
-            log.info(featureCounter-1 + " geojson features have been imported.");
         } else {
-            throw new SQLException("Malformed GeoJSON file. Expected 'features', found '" + firstParam + "'");
+            throw new SQLException("Malformed GeoJSON file. Expected 'features', found '" + jp.getText() + "'");
+        }
+    }
+
+    /**
+     * Inserts the features staged in the spill file
+     *
+     * @param spill
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void insertFeatures(DataInputStream spill) throws IOException, SQLException {
+        Object[] values = new Object[cachedColumnIndex.size() + 1];
+        int batchSize = 0;
+        for (int featureCounter = 1; featureCounter <= nbFeature; featureCounter++) {
+            if (progress.isCanceled()) {
+                throw new SQLException("Canceled by user");
+            }
+            Arrays.fill(values, null);
+            int index;
+            while ((index = spill.readInt()) != SPILL_END_OF_FEATURE) {
+                values[index] = readValue(spill);
+            }
+            for (int i = 0; i < values.length; i++) {
+                preparedStatement.setObject(i + 1, values[i]);
+            }
+            preparedStatement.addBatch();
+            batchSize++;
+            if (batchSize >= BATCH_MAX_SIZE) {
+                executeBatch();
+                batchSize = 0;
+            }
+            progress.setStep((int) (featureCounter * 100L / nbFeature));
+        }
+        if (batchSize > 0) {
+            executeBatch();
+        }
+        log.info(nbFeature + " geojson features have been imported.");
+    }
+
+    /**
+     * Executes and commits the current batch
+     *
+     * @throws SQLException
+     */
+    private void executeBatch() throws SQLException {
+        try {
+            preparedStatement.executeBatch();
+            connection.commit();
+            preparedStatement.clearBatch();
+        } catch (SQLException ex) {
+            if (ex.getNextException() != null) {
+                throw new SQLException(ex.getNextException());
+            }
+            throw ex;
         }
     }
 
@@ -1044,7 +788,7 @@ public class GeoJsonReaderDriver {
         String coordinatesField = jp.getText();
         if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
             jp.nextToken(); // START_ARRAY [ to parse the coordinate
-            return GF.createPoint(parseCoordinate(jp));
+            return gf.createPoint(parseCoordinate(jp));
         } else {
             throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
         }
@@ -1066,7 +810,7 @@ public class GeoJsonReaderDriver {
         String coordinatesField = jp.getText();
         if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
             jp.nextToken(); // START_ARRAY [ coordinates
-            MultiPoint mPoint = GF.createMultiPointFromCoords(parseCoordinates(jp));
+            MultiPoint mPoint = gf.createMultiPointFromCoords(parseCoordinates(jp));
             jp.nextToken();//END_OBJECT } geometry
             return mPoint;
         } else {
@@ -1089,7 +833,7 @@ public class GeoJsonReaderDriver {
         String coordinatesField = jp.getText();
         if (coordinatesField.equalsIgnoreCase(GeoJsonField.COORDINATES)) {
             jp.nextToken(); // START_ARRAY [ coordinates
-            LineString line = GF.createLineString(parseCoordinates(jp));
+            LineString line = gf.createLineString(parseCoordinates(jp));
             jp.nextToken();//END_OBJECT } geometry
             return line;
         } else {
@@ -1114,10 +858,10 @@ public class GeoJsonReaderDriver {
             jp.nextToken();//START_ARRAY [ coordinates
             jp.nextToken(); // START_ARRAY [ coordinates line
             while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
-                lineStrings.add(GF.createLineString(parseCoordinates(jp)));
+                lineStrings.add(gf.createLineString(parseCoordinates(jp)));
                 jp.nextToken();
             }
-            MultiLineString line = GF.createMultiLineString(lineStrings.toArray(new LineString[0]));
+            MultiLineString line = gf.createMultiLineString(lineStrings.toArray(new LineString[0]));
             jp.nextToken();//END_OBJECT } geometry
             return line;
         } else {
@@ -1160,19 +904,19 @@ public class GeoJsonReaderDriver {
             ArrayList<LinearRing> holes = new ArrayList<LinearRing>();
             while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
                 if (linesIndex == 0) {
-                    linearRing = GF.createLinearRing(parseCoordinates(jp));
+                    linearRing = gf.createLinearRing(parseCoordinates(jp));
                 } else {
-                    holes.add(GF.createLinearRing(parseCoordinates(jp)));
+                    holes.add(gf.createLinearRing(parseCoordinates(jp)));
                 }
                 jp.nextToken();//END RING
                 linesIndex++;
             }
             if (linesIndex > 1) {
                 jp.nextToken();//END_OBJECT } geometry
-                return GF.createPolygon(linearRing, holes.toArray(new LinearRing[0]));
+                return gf.createPolygon(linearRing, holes.toArray(new LinearRing[0]));
             } else {
                 jp.nextToken();//END_OBJECT } geometry
-                return GF.createPolygon(linearRing, null);
+                return gf.createPolygon(linearRing, null);
             }
         } else {
             throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
@@ -1207,23 +951,23 @@ public class GeoJsonReaderDriver {
                 ArrayList<LinearRing> holes = new ArrayList<LinearRing>();
                 while (jp.getCurrentToken() != JsonToken.END_ARRAY) {
                     if (linesIndex == 0) {
-                        linearRing = GF.createLinearRing(parseCoordinates(jp));
+                        linearRing = gf.createLinearRing(parseCoordinates(jp));
                     } else {
-                        holes.add(GF.createLinearRing(parseCoordinates(jp)));
+                        holes.add(gf.createLinearRing(parseCoordinates(jp)));
                     }
                     jp.nextToken();//END RING
                     linesIndex++;
                 }
                 if (linesIndex > 1) {
                     jp.nextToken();//END_OBJECT
-                    polygons.add(GF.createPolygon(linearRing, holes.toArray(new LinearRing[0])));
+                    polygons.add(gf.createPolygon(linearRing, holes.toArray(new LinearRing[0])));
                 } else {
                     jp.nextToken();//END_OBJECT
-                    polygons.add(GF.createPolygon(linearRing, null));
+                    polygons.add(gf.createPolygon(linearRing, null));
                 }
             }
             jp.nextToken();//END_OBJECT } geometry
-            return GF.createMultiPolygon(polygons.toArray(new Polygon[0]));
+            return gf.createMultiPolygon(polygons.toArray(new Polygon[0]));
 
         } else {
             throw new SQLException("Malformed GeoJSON file. Expected 'coordinates', found '" + coordinatesField + "'");
@@ -1259,7 +1003,7 @@ public class GeoJsonReaderDriver {
                 jp.nextToken();
             }
             jp.nextToken();//END_OBJECT } geometry
-            return GF.createGeometryCollection(geometries.toArray(new Geometry[0]));
+            return gf.createGeometryCollection(geometries.toArray(new Geometry[0]));
         } else {
             throw new SQLException("Malformed GeoJSON file. Expected 'geometries', found '" + coordinatesField + "'");
         }
@@ -1311,23 +1055,219 @@ public class GeoJsonReaderDriver {
                 coord = new Coordinate(x, y, 0);
             }else {
                 coord = new Coordinate(x, y);
+                has2DCoordinate = true;
             }
         } else {
             double z = jp.getDoubleValue();
             jp.nextToken(); // exit array
             coord = new Coordinate(x, y, z);
+            hasZ = true;
         }
         jp.nextToken();
         return coord;
     }
 
     /**
-     * Parses the GeoJSON data and set the values to the table.
+     * Parses a GeoJSON text sequence and writes the features to the spill file.
+     *
+     * The file is split in chunks of whole records. The chunks are parsed by a
+     * pool of workers and merged in the file order, so the columns are created
+     * and typed as if the file was parsed by a single thread.
+     *
+     * @param is the GeoJSON text sequence
+     * @param spill
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void parseSequence(InputStream is, DataOutputStream spill) throws IOException, SQLException {
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService executorService = Executors.newFixedThreadPool(workerCount);
+        LinkedList<Future<ParsedChunk>> pendingChunks = new LinkedList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, jsonEncoding.getJavaName()))) {
+            StringBuilder chunk = new StringBuilder();
+            Boolean hasRecordSeparator = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int start = 0;
+                while (start < line.length() && line.charAt(start) == RECORD_SEPARATOR) {
+                    start++;
+                }
+                if (hasRecordSeparator == null && !line.trim().isEmpty()) {
+                    hasRecordSeparator = start > 0;
+                }
+                // A text of a RFC 8142 sequence may span several lines
+                boolean startOfRecord = start > 0 || !Boolean.TRUE.equals(hasRecordSeparator);
+                if (startOfRecord && chunk.length() >= SEQUENCE_CHUNK_SIZE) {
+                    if (progress.isCanceled()) {
+                        throw new SQLException("Canceled by user");
+                    }
+                    pendingChunks.add(executorService.submit(chunkParser(chunk.toString())));
+                    chunk.setLength(0);
+                    if (pendingChunks.size() > 2 * workerCount) {
+                        mergeChunk(pendingChunks.removeFirst(), spill);
+                    }
+                }
+                chunk.append(line, start, line.length()).append('\n');
+            }
+            if (chunk.length() > 0) {
+                pendingChunks.add(executorService.submit(chunkParser(chunk.toString())));
+            }
+            while (!pendingChunks.isEmpty()) {
+                mergeChunk(pendingChunks.removeFirst(), spill);
+            }
+        } finally {
+            executorService.shutdownNow();
+            try {
+                is.close();
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
+        }
+        log.info(nbFeature + " geojson features have been parsed.");
+    }
+
+    /**
+     * Creates the task that parses a chunk of a GeoJSON text sequence
+     *
+     * @param chunk the records of the chunk
+     * @return the task
+     */
+    private Callable<ParsedChunk> chunkParser(final String chunk) {
+        return new Callable<ParsedChunk>() {
+            @Override
+            public ParsedChunk call() throws Exception {
+                return new GeoJsonReaderDriver(GeoJsonReaderDriver.this).parseChunk(chunk);
+            }
+        };
+    }
+
+    /**
+     * Parses the features of a chunk of a GeoJSON text sequence. The values are
+     * written with the local column indexes of this parser.
+     *
+     * @param chunk the records of the chunk
+     * @return the parsed features
+     * @throws IOException
+     * @throws SQLException
+     */
+    private ParsedChunk parseChunk(String chunk) throws IOException, SQLException {
+        ByteArrayOutputStream features = new ByteArrayOutputStream(chunk.length());
+        DataOutputStream spill = new DataOutputStream(features);
+        int featureCount = 0;
+        try (JsonParser jp = jsFactory.createParser(chunk)) {
+            JsonToken token = jp.nextToken(); // START_OBJECT {
+            while (token != null) {
+                jp.nextToken(); // FIELD_NAME type
+                jp.nextToken(); // VALUE_STRING Feature
+                String geomType = jp.getText();
+                if (!geomType.equalsIgnoreCase(GeoJsonField.FEATURE)) {
+                    throw new SQLException("Malformed GeoJSON file. Expected 'Feature', found '" + geomType + "'");
+                }
+                parseFeature(jp, spill);
+                featureCount++;
+                token = jp.nextToken(); //START_OBJECT new feature
+            }
+        }
+        spill.flush();
+        return new ParsedChunk(features.toByteArray(), featureCount,
+                cachedColumnIndex.keySet().toArray(new String[0]), finalGeometryTypes, hasZ, hasGeometryField);
+    }
+
+    /**
+     * Merges the metadata of a parsed chunk and copies its features to the
+     * spill file with the column indexes of the table.
+     *
+     * @param parsedChunk the parsed chunk
+     * @param spill
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void mergeChunk(Future<ParsedChunk> parsedChunk, DataOutputStream spill) throws IOException, SQLException {
+        ParsedChunk chunk;
+        try {
+            chunk = parsedChunk.get();
+        } catch (InterruptedException ex) {
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
+            } else if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new SQLException(ex.getCause());
+        }
+        hasGeometryField |= chunk.hasGeometryField;
+        hasZ |= chunk.hasZ;
+        finalGeometryTypes.addAll(chunk.geometryTypes);
+        DataInputStream features = new DataInputStream(new ByteArrayInputStream(chunk.features));
+        for (int i = 0; i < chunk.featureCount; i++) {
+            int index;
+            while ((index = features.readInt()) != SPILL_END_OF_FEATURE) {
+                byte tag = features.readByte();
+                if (index > 0) {
+                    index = updateColumnType(chunk.columnNames[index - 1], tokenOf(tag));
+                }
+                spill.writeInt(index);
+                spill.writeByte(tag);
+                int length;
+                switch (tag) {
+                    case SPILL_NULL:
+                        length = 0;
+                        break;
+                    case SPILL_BOOLEAN:
+                        length = 1;
+                        break;
+                    case SPILL_INT:
+                        length = 4;
+                        break;
+                    case SPILL_DOUBLE:
+                    case SPILL_LONG:
+                        length = 8;
+                        break;
+                    default:
+                        length = features.readInt();
+                        spill.writeInt(length);
+                }
+                byte[] value = new byte[length];
+                features.readFully(value);
+                spill.write(value);
+            }
+            spill.writeInt(SPILL_END_OF_FEATURE);
+        }
+        nbFeature += chunk.featureCount;
+    }
+
+    /**
+     * Returns the JSON token that has been parsed for a property value
+     *
+     * @param tag the tag of the value in the spill file
+     * @return the JSON token
+     */
+    private static JsonToken tokenOf(byte tag) {
+        switch (tag) {
+            case SPILL_STRING:
+                return JsonToken.VALUE_STRING;
+            case SPILL_BOOLEAN:
+                return JsonToken.VALUE_TRUE;
+            case SPILL_DOUBLE:
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case SPILL_INT:
+            case SPILL_LONG:
+                return JsonToken.VALUE_NUMBER_INT;
+            case SPILL_JSON:
+                return JsonToken.START_OBJECT;
+            default:
+                return JsonToken.VALUE_NULL;
+        }
+    }
+
+    /**
+     * Parses the GeoJSON data and writes the features to the spill file.
      *
      * @throws IOException
      * @throws SQLException
      */
-    private void parseData(InputStream is) throws IOException, SQLException {
+    private void parseData(InputStream is, DataOutputStream spill) throws IOException, SQLException {
         try {
             try (JsonParser jp = jsFactory.createParser(new InputStreamReader(is, jsonEncoding.getJavaName()))) {
                 jp.nextToken();//START_OBJECT
@@ -1335,7 +1275,7 @@ public class GeoJsonReaderDriver {
                 jp.nextToken(); // value_string (FeatureCollection)
                 String geomType = jp.getText();
                 if (geomType.equalsIgnoreCase(GeoJsonField.FEATURECOLLECTION)) {
-                    parseFeatures(jp);
+                    parseFeatures(jp, spill);
                 } else {
                     throw new SQLException("Malformed GeoJSON file. Expected 'FeatureCollection', found '" + geomType + "'");
                 }
@@ -1409,58 +1349,6 @@ public class GeoJsonReaderDriver {
         return srid;
     }
 
-    /**
-     * We skip the CRS because it has been already parsed.
-     *
-     *
-     * @param jp
-     */
-    private String skipCRS(JsonParser jp) throws IOException {
-        jp.nextToken(); //START_OBJECT {
-        jp.skipChildren();
-        jp.nextToken(); //Go to features
-        return jp.getText();
-    }
-
-
-    /**
-     * Parses Json Array. Syntax: Json Array: {"member1": value1}, value2,
-     * value3, {"member4": value4}]
-     *
-     * @param jp the json parser
-     * @return the array but written like a String
-     */
-    private void parseArrayMetadata(JsonParser jp) throws IOException {
-        JsonToken value = jp.nextToken();
-        while (value != JsonToken.END_ARRAY) {
-            if (value == JsonToken.START_OBJECT) {
-                parseObjectMetadata(jp);
-            } else if (value == JsonToken.START_ARRAY) {
-                parseArrayMetadata(jp);
-            }
-            value = jp.nextToken();
-        }
-    }
-
-    /**
-     * Parses Json Object. Syntax: Json Object: "member1": value1, "member2":
-     * value2}
-     *
-     * @param jp the json parser
-     * @return the object but written like a String
-     */
-    private void parseObjectMetadata(JsonParser jp) throws IOException {
-        JsonToken value;
-        while (jp.nextToken() != JsonToken.END_OBJECT) {
-            value = jp.nextToken();
-            if (value == JsonToken.START_OBJECT) {
-                parseObjectMetadata(jp);
-            } else if (value == JsonToken.START_ARRAY) {
-                parseArrayMetadata(jp);
-            }
-        }
-    }
-
     /**
      * Parses Json Array and returns an ArrayList Syntax: Json Array:
      * {"member1": value1}, value2, value3, {"member4": value4}]
@@ -1537,32 +1425,6 @@ public class GeoJsonReaderDriver {
         sb.append(jp.currentToken().asCharArray());
     }
 
-
-
-        /**
-         * Parses Json Object. Since their elements could be anything and H2GIS
-         * doesn't support such complicated structure, this parser will just write
-         * ordinary String object "{}". Syntax: Json Object: "member1": value1,
-         * "member2": value2}
-         *
-         * @param jp the json parser
-         * @return the object but written like a String
-         */
-    private String parseObject(JsonParser jp) throws IOException {
-        String ret = "{";
-        JsonToken value;
-        while (jp.nextToken() != JsonToken.END_OBJECT) {
-            value = jp.nextToken();
-            if (value == JsonToken.START_OBJECT) {
-                parseObjectMetadata(jp);
-            } else if (value == JsonToken.START_ARRAY) {
-                parseArrayMetadata(jp);
-            }
-        }
-        ret += "}";
-        return ret;
-    }
-
     /**
      * Return a SQL representation of the SQL type
      *
@@ -1587,4 +1449,26 @@ public class GeoJsonReaderDriver {
                 throw new SQLException("Unkown data type");
         }
     }
+
+    /**
+     * Features and metadata of a parsed chunk of a GeoJSON text sequence
+     */
+    private static final class ParsedChunk {
+        private final byte[] features;
+        private final int featureCount;
+        private final String[] columnNames;
+        private final Set<String> geometryTypes;
+        private final boolean hasZ;
+        private final boolean hasGeometryField;
+
+        private ParsedChunk(byte[] features, int featureCount, String[] columnNames, Set<String> geometryTypes,
+                            boolean hasZ, boolean hasGeometryField) {
+            this.features = features;
+            this.featureCount = featureCount;
+            this.columnNames = columnNames;
+            this.geometryTypes = geometryTypes;
+            this.hasZ = hasZ;
+            this.hasGeometryField = hasGeometryField;
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import java.util.Arrays;
+
+/**
+ * Set of OSM identifiers stored as a bitmap. The bitmap is split into pages of {@link #PAGE_SIZE} identifiers that
+ * are allocated on the first identifier set in their range, so the memory depends on the identifier range of the
+ * file and not on the largest identifier. Negative identifiers (elements created by an editor) are supported.
+ */
+public class IdBitmap {
+    private static final int PAGE_BITS = 20;
+    /**
+     * Number of identifiers in a page
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private long[][] pages = new long[0][];
+    private long[][] negativePages = new long[0][];
+    private long count = 0;
+
+    /**
+     * Add an identifier
+     * @param id Identifier
+     */
+    public void set(long id) {
+        long[] page;
+        if (id >= 0) {
+            pages = ensureCapacity(pages, id);
+            page = getOrCreatePage(pages, id);
+        } else {
+            negativePages = ensureCapacity(negativePages, -(id + 1));
+            page = getOrCreatePage(negativePages, -(id + 1));
+        }
+        long index = (id >= 0 ? id : -(id + 1)) & PAGE_MASK;
+        long mask = 1L << index;
+        int word = (int) (index >>> 6);
+        if ((page[word] & mask) == 0) {
+            page[word] |= mask;
+            count++;
+        }
+    }
+
+    /**
+     * @param id Identifier
+     * @return True if the identifier has been added
+     */
+    public boolean get(long id) {
+        long[][] table = id >= 0 ? pages : negativePages;
+        long value = id >= 0 ? id : -(id + 1);
+        long pageIndex = value >>> PAGE_BITS;
+        if (pageIndex >= table.length || table[(int) pageIndex] == null) {
+            return false;
+        }
+        long index = value & PAGE_MASK;
+        return (table[(int) pageIndex][(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return Number of identifiers in the set
+     */
+    public long size() {
+        return count;
+    }
+
+    private static long[][] ensureCapacity(long[][] table, long value) {
+        long pageIndex = value >>> PAGE_BITS;
+        if (pageIndex < table.length) {
+            return table;
+        }
+        return Arrays.copyOf(table, (int) Math.max(pageIndex + 1, table.length * 2L));
+    }
+
+    private static long[] getOrCreatePage(long[][] table, long value) {
+        int pageIndex = (int) (value >>> PAGE_BITS);
+        long[] page = table[pageIndex];
+        if (page == null) {
+            page = new long[PAGE_SIZE / Long.SIZE];
+            table[pageIndex] = page;
+        }
+        return page;
+    }
+}
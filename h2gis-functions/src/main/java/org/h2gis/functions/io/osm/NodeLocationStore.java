@@ -0,0 +1,175 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+
+/**
+ * Store the location of the OSM nodes outside of the java heap, in order to build the way geometries while the file
+ * is parsed.
+ *
+ * The identifiers and the coordinates are kept in sorted arrays split into direct buffers of {@link #CHUNK_SIZE}
+ * nodes. OSM files are sorted by node identifier so the nodes are usually appended in order, otherwise the arrays
+ * are sorted before the first lookup. A node costs 24 bytes whatever the identifier value.
+ */
+public class NodeLocationStore {
+    private static final int CHUNK_BITS = 16;
+    /**
+     * Number of nodes in each direct buffer
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private final ArrayList<LongBuffer> ids = new ArrayList<>();
+    private final ArrayList<DoubleBuffer> coordinates = new ArrayList<>();
+    private long size = 0;
+    private long lastId = Long.MIN_VALUE;
+    private boolean sorted = true;
+
+    /**
+     * Add a node location
+     * @param id Node identifier
+     * @param x Longitude
+     * @param y Latitude
+     */
+    public void put(long id, double x, double y) {
+        int chunk = (int) (size >>> CHUNK_BITS);
+        int index = (int) (size & CHUNK_MASK);
+        if (chunk == ids.size()) {
+            ids.add(ByteBuffer.allocateDirect(CHUNK_SIZE * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer());
+            coordinates.add(ByteBuffer.allocateDirect(2 * CHUNK_SIZE * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer());
+        }
+        ids.get(chunk).put(index, id);
+        DoubleBuffer xy = coordinates.get(chunk);
+        xy.put(2 * index, x);
+        xy.put(2 * index + 1, y);
+        if (id <= lastId) {
+            sorted = false;
+        }
+        lastId = id;
+        size++;
+    }
+
+    /**
+     * @return Number of stored nodes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param id Node identifier
+     * @return The node location or null if the node is not in the store
+     */
+    public Coordinate get(long id) {
+        long index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        DoubleBuffer xy = coordinates.get((int) (index >>> CHUNK_BITS));
+        int position = 2 * (int) (index & CHUNK_MASK);
+        return new Coordinate(xy.get(position), xy.get(position + 1));
+    }
+
+    /**
+     * @param id Node identifier
+     * @return The position of the node in the store or -1 if the node is not in the store
+     */
+    private long indexOf(long id) {
+        if (!sorted) {
+            sort(0, size - 1);
+            sorted = true;
+            // The next nodes are appended after the greatest identifier
+            lastId = getId(size - 1);
+        }
+        long low = 0;
+        long high = size - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            long midId = getId(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long getId(long index) {
+        return ids.get((int) (index >>> CHUNK_BITS)).get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * Quick sort of the nodes by identifier, the recursion is done on the smallest part.
+     * @param low First index
+     * @param high Last index
+     */
+    private void sort(long low, long high) {
+        while (low < high) {
+            long pivot = getId(low + ((high - low) >>> 1));
+            long i = low;
+            long j = high;
+            while (i <= j) {
+                while (getId(i) < pivot) {
+                    i++;
+                }
+                while (getId(j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+    }
+
+    private void swap(long a, long b) {
+        LongBuffer idsA = ids.get((int) (a >>> CHUNK_BITS));
+        LongBuffer idsB = ids.get((int) (b >>> CHUNK_BITS));
+        DoubleBuffer xyA = coordinates.get((int) (a >>> CHUNK_BITS));
+        DoubleBuffer xyB = coordinates.get((int) (b >>> CHUNK_BITS));
+        int indexA = (int) (a & CHUNK_MASK);
+        int indexB = (int) (b & CHUNK_MASK);
+        long id = idsA.get(indexA);
+        idsA.put(indexA, idsB.get(indexB));
+        idsB.put(indexB, id);
+        for (int i = 0; i < 2; i++) {
+            double v = xyA.get(2 * indexA + i);
+            xyA.put(2 * indexA + i, xyB.get(2 * indexB + i));
+            xyB.put(2 * indexB + i, v);
+        }
+    }
+}
@@ -53,6 +53,20 @@ public class NodeOSMElement extends OSMElement {
         this.elevation = elevation;
     }
 
+    /**
+     * @return Latitude value
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return Longitude value
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
     /**
      * The geometry of the node
      *
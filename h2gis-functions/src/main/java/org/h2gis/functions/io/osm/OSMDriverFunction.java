@@ -40,6 +40,7 @@ public class OSMDriverFunction implements DriverFunction {
     public static String DESCRIPTION = "OSM file (0.6)";
     public static String DESCRIPTION_GZ = "OSM Gzipped file (0.6)";
     public static String DESCRIPTION_BZ2 = "OSM Bzipped file (0.6)";
+    public static String DESCRIPTION_PBF = "OSM Protocolbuffer Binary Format file (0.6)";
 
 
     @Override
@@ -60,6 +61,8 @@ public class OSMDriverFunction implements DriverFunction {
             return DESCRIPTION_GZ;
         } else  if (format.equalsIgnoreCase("bz2")) {
             return DESCRIPTION_BZ2;
+        } else  if (format.equalsIgnoreCase("pbf")) {
+            return DESCRIPTION_PBF;
         } else {
             return "";
         }
@@ -69,7 +72,8 @@ public class OSMDriverFunction implements DriverFunction {
     public boolean isSpatialFormat(String extension) {
         return extension.equalsIgnoreCase("osm") ||
                 extension.equalsIgnoreCase("gz") ||
-                extension.equalsIgnoreCase("bz2");
+                extension.equalsIgnoreCase("bz2") ||
+                extension.equalsIgnoreCase("pbf");
     }
 
     @Override
@@ -103,7 +107,7 @@ public class OSMDriverFunction implements DriverFunction {
     @Override
     public String[] importFile(Connection connection, String tableReference, File fileName,String options, ProgressVisitor progress
                            ) throws SQLException, IOException {
-        return importFile(connection, tableReference, fileName,false, progress);
+        return importFile(connection, tableReference, fileName, options, false, progress);
     }
 
     /**
@@ -130,7 +134,7 @@ public class OSMDriverFunction implements DriverFunction {
 
     @Override
     public String[] getImportFormats() {
-        return new String[]{"osm","osm.gz","osm.bz2"};
+        return new String[]{"osm","osm.gz","osm.bz2","osm.pbf"};
     }
 
 }
@@ -34,8 +34,9 @@ import java.util.HashMap;
  */
 public class OSMElement {
 
-    private final SimpleDateFormat dataFormat1 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-    private final SimpleDateFormat dataFormat2 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+    // Created on the first parsed timestamp, elements read from a PBF file do not need them
+    private SimpleDateFormat dataFormat1;
+    private SimpleDateFormat dataFormat2;
     private final HashMap<String, String> tags;
     private long id, uid;
     private String user;
@@ -66,6 +67,15 @@ public class OSMElement {
         this.id = Long.valueOf(id);
     }
 
+    /**
+     * Set an id to the element
+     *
+     * @param id
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     /**
      * The user
      *
@@ -89,6 +99,10 @@ public class OSMElement {
         }
     }
 
+    public void setUid(long uid) {
+        this.uid = uid;
+    }
+
     /**
      * @return The way name (extracted from tag)
      */
@@ -117,6 +131,10 @@ public class OSMElement {
         }
     }
 
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
     /**
      *
      * @return
@@ -129,6 +147,10 @@ public class OSMElement {
         this.version = version != null ? Integer.valueOf(version) : 0;
     }
 
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      *
      * @return
@@ -143,6 +165,10 @@ public class OSMElement {
         }
     }
 
+    public void setChangeset(int changeset) {
+        this.changeset = changeset;
+    }
+
     /**
      *
      * @return
@@ -152,8 +178,16 @@ public class OSMElement {
 
     }
 
+    public void setTimestamp(Timestamp timestamp) {
+        this.timestamp = timestamp;
+    }
+
     public void setTimestamp(String OSMtime) throws SAXException {
         if(OSMtime!=null){
+        if (dataFormat1 == null) {
+            dataFormat1 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+            dataFormat2 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        }
         try {
             timestamp = new Timestamp(dataFormat1.parse(OSMtime).getTime());
         } catch (ParseException ex) {
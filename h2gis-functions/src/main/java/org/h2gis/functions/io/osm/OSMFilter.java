@@ -0,0 +1,196 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.locationtech.jts.algorithm.locate.IndexedPointInAreaLocator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Select the OSM elements to import while the file is parsed.
+ *
+ * The nodes are kept when they are in the area. The ways are kept when one of their nodes has been kept, the
+ * relations when one of their members has been kept. The ids of the kept elements are stored in {@link IdBitmap}s,
+ * OSM files list the nodes, then the ways, then the relations.
+ *
+ * The tag predicate is a list of key=value or key=* conditions, an element matches if one condition is true.
+ * The untagged nodes are not filtered by the tags because they are the vertices of the ways. The parser also imports
+ * the tagged nodes rejected by the tags when a kept way uses them.
+ */
+public class OSMFilter {
+    private Envelope envelope;
+    private IndexedPointInAreaLocator areaLocator;
+    private final List<String> tagKeys = new ArrayList<>();
+    // Expected tag values, null for any value
+    private final List<String> tagValues = new ArrayList<>();
+    private final IdBitmap nodeIds = new IdBitmap();
+    private final IdBitmap wayIds = new IdBitmap();
+    private final IdBitmap relationIds = new IdBitmap();
+
+    /**
+     * Keep the elements inside a bounding box
+     *
+     * @param envelope Bounding box in longitude, latitude
+     */
+    public void setBoundingBox(Envelope envelope) {
+        this.envelope = envelope;
+        this.areaLocator = null;
+    }
+
+    /**
+     * Keep the elements inside a polygon
+     *
+     * @param area Polygon or multipolygon in longitude, latitude
+     */
+    public void setArea(Geometry area) {
+        this.envelope = area.getEnvelopeInternal();
+        this.areaLocator = new IndexedPointInAreaLocator(area);
+    }
+
+    /**
+     * Add a tag condition
+     *
+     * @param key Tag key
+     * @param value Tag value or null for any value
+     */
+    public void addTagCondition(String key, String value) {
+        tagKeys.add(key);
+        tagValues.add(value);
+    }
+
+    /**
+     * @return True if the elements are filtered by location
+     */
+    public boolean hasArea() {
+        return envelope != null;
+    }
+
+    /**
+     * Test the location of a node and remember the nodes inside the area
+     *
+     * @param node Node element
+     * @return True if the node is in the area
+     */
+    public boolean acceptLocation(NodeOSMElement node) {
+        if (envelope == null) {
+            return true;
+        }
+        double x = node.getLongitude();
+        double y = node.getLatitude();
+        if (!envelope.contains(x, y)) {
+            return false;
+        }
+        if (areaLocator != null && areaLocator.locate(new Coordinate(x, y)) == Location.EXTERIOR) {
+            return false;
+        }
+        nodeIds.set(node.getID());
+        return true;
+    }
+
+    /**
+     * @param node Node element inside the area
+     * @return True if the node must be imported
+     */
+    public boolean acceptNode(NodeOSMElement node) {
+        if (node.getTags().isEmpty() && (node.getName() == null || node.getName().isEmpty())) {
+            return true;
+        }
+        return acceptTags(node);
+    }
+
+    /**
+     * @param way Way element
+     * @return True if the way must be imported
+     */
+    public boolean acceptWay(WayOSMElement way) {
+        if (!acceptTags(way)) {
+            return false;
+        }
+        if (envelope != null) {
+            boolean inArea = false;
+            for (long ref : way.getNodesRef()) {
+                if (nodeIds.get(ref)) {
+                    inArea = true;
+                    break;
+                }
+            }
+            if (!inArea) {
+                return false;
+            }
+        }
+        wayIds.set(way.getID());
+        return true;
+    }
+
+    /**
+     * @param relation Relation element
+     * @return True if the relation must be imported
+     */
+    public boolean acceptRelation(RelationOSMElement relation) {
+        if (!acceptTags(relation)) {
+            return false;
+        }
+        if (envelope != null) {
+            boolean inArea = false;
+            for (int i = 0; i < relation.getMemberCount() && !inArea; i++) {
+                String type = relation.getMemberType(i);
+                long ref = relation.getMemberRef(i);
+                if (type.equalsIgnoreCase("node")) {
+                    inArea = nodeIds.get(ref);
+                } else if (type.equalsIgnoreCase("way")) {
+                    inArea = wayIds.get(ref);
+                } else if (type.equalsIgnoreCase("relation")) {
+                    inArea = relationIds.get(ref);
+                }
+            }
+            if (!inArea) {
+                return false;
+            }
+        }
+        relationIds.set(relation.getID());
+        return true;
+    }
+
+    private boolean acceptTags(OSMElement element) {
+        if (tagKeys.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < tagKeys.size(); i++) {
+            String key = tagKeys.get(i);
+            String value;
+            if (key.equalsIgnoreCase("name")) {
+                // The name is not stored with the other tags
+                value = element.getName() == null || element.getName().isEmpty() ? null : element.getName();
+            } else {
+                value = element.getTags().get(key);
+            }
+            if (value != null && (tagValues.get(i) == null || tagValues.get(i).equals(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -27,8 +27,13 @@ import org.h2gis.api.ProgressVisitor;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.TableUtilities;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateList;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.WKTReader;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -36,6 +41,7 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -47,6 +53,7 @@ import java.sql.Types;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
@@ -64,7 +71,7 @@ public class OSMParser extends DefaultHandler {
 
 
     private final File fileName;
-    private final String encoding;
+    private String encoding;
     private final boolean deleteTable;
     // Set the same batch size as OSMOSIS
     private static final int BATCH_SIZE = 8000;
@@ -94,7 +101,7 @@ public class OSMParser extends DefaultHandler {
     private final GeometryFactory gf = new GeometryFactory(new PrecisionModel(), 4326);
     private NodeOSMElement nodeOSMElement;
     private WayOSMElement wayOSMElement;
-    private OSMElement relationOSMElement;
+    private RelationOSMElement relationOSMElement;
     private ProgressVisitor progress = new EmptyProgressVisitor();
     private FileChannel fc;
     private long fileSize = 0;
@@ -103,13 +110,92 @@ public class OSMParser extends DefaultHandler {
     // For progression information return
     private static final int AVERAGE_NODE_SIZE = 500;
     private static String TAG_DUPLICATE_EXCEPTION = String.valueOf(ErrorCode.DUPLICATE_KEY_1);
+    // Closed ways with one of these keys are lines, unless they are tagged area=yes
+    private static final String[] LINEAR_TAG_KEYS = new String[]{"highway", "barrier", "railway", "waterway", "aerialway"};
     private Connection connection;
+    // Location of the parsed nodes, only used when the way geometries are built
+    private NodeLocationStore nodeLocations;
+    // Selection of the imported elements, null to import the whole file
+    private OSMFilter filter;
+    // Nodes in the area rejected by the tag filter, they are imported if a kept way uses them
+    private final Map<Long, NodeOSMElement> rejectedNodes = new HashMap<>();
 
-    public OSMParser(Connection connection, File fileName, String encoding, boolean deleteTable) {
+    /**
+     * @param connection Active connection
+     * @param fileName OSM file
+     * @param options The file encoding or a list of space separated options ie "charset=UTF-8 geometry=true".
+     *                With geometry=true the way geometries are built while the file is parsed and stored in the
+     *                THE_GEOM column of the way table.
+     *                bbox=minLon,minLat,maxLon,maxLat or polygon=WKT import only the elements in this area, the
+     *                nodes outside the area of the ways crossing its boundary are not imported.
+     *                tags=building,highway=primary import only the elements with one of these tags, the untagged
+     *                nodes and the nodes of the imported ways are kept.
+     * @param deleteTable true to delete the existing tables
+     */
+    public OSMParser(Connection connection, File fileName, String options, boolean deleteTable) throws SQLException {
         this.connection=connection;
         this.fileName=fileName;
-        this.encoding=encoding;
         this.deleteTable=deleteTable;
+        if (options != null && options.contains("=")) {
+            // The WKT of the polygon option contains spaces
+            for (String option : options.trim().split("\\s+(?=\\w+=)")) {
+                int separator = option.indexOf('=');
+                if (separator < 0) {
+                    throw new SQLException("Unknown OSM option " + option);
+                }
+                String key = option.substring(0, separator);
+                String value = option.substring(separator + 1);
+                if (key.equalsIgnoreCase("charset")) {
+                    encoding = value;
+                } else if (key.equalsIgnoreCase("geometry")) {
+                    if (Boolean.parseBoolean(value)) {
+                        nodeLocations = new NodeLocationStore();
+                    }
+                } else if (key.equalsIgnoreCase("bbox")) {
+                    String[] bounds = value.split(",");
+                    if (bounds.length != 4) {
+                        throw new SQLException("The bbox option must be minLon,minLat,maxLon,maxLat");
+                    }
+                    try {
+                        getFilter().setBoundingBox(new Envelope(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[2]),
+                                Double.parseDouble(bounds[1]), Double.parseDouble(bounds[3])));
+                    } catch (NumberFormatException ex) {
+                        throw new SQLException("The bbox option must be minLon,minLat,maxLon,maxLat", ex);
+                    }
+                } else if (key.equalsIgnoreCase("polygon")) {
+                    Geometry area;
+                    try {
+                        area = new WKTReader().read(value);
+                    } catch (org.locationtech.jts.io.ParseException ex) {
+                        throw new SQLException("Cannot read the polygon option", ex);
+                    }
+                    if (area.getDimension() != 2) {
+                        throw new SQLException("The polygon option must be a polygon or a multipolygon");
+                    }
+                    getFilter().setArea(area);
+                } else if (key.equalsIgnoreCase("tags")) {
+                    for (String tag : value.split(",")) {
+                        int tagSeparator = tag.indexOf('=');
+                        if (tagSeparator < 0 || tag.substring(tagSeparator + 1).equals("*")) {
+                            getFilter().addTagCondition(tagSeparator < 0 ? tag : tag.substring(0, tagSeparator), null);
+                        } else {
+                            getFilter().addTagCondition(tag.substring(0, tagSeparator), tag.substring(tagSeparator + 1));
+                        }
+                    }
+                } else {
+                    throw new SQLException("Unknown OSM option " + key);
+                }
+            }
+        } else {
+            this.encoding = options;
+        }
+    }
+
+    private OSMFilter getFilter() {
+        if (filter == null) {
+            filter = new OSMFilter();
+        }
+        return filter;
     }
 
     /**
@@ -121,8 +207,9 @@ public class OSMParser extends DefaultHandler {
      * @throws SQLException
      */
     public String[] read(String tableName, ProgressVisitor progress) throws SQLException {
-        if(fileName == null || !(fileName.getName().endsWith(".osm") || fileName.getName().endsWith("osm.gz") || fileName.getName().endsWith("osm.bz2"))) {
-            throw new SQLException(new IllegalArgumentException("This driver handle only .osm, .osm.gz and .osm.bz2 files"));
+        if(fileName == null || !(fileName.getName().endsWith(".osm") || fileName.getName().endsWith("osm.gz") || fileName.getName().endsWith("osm.bz2")
+                || fileName.getName().endsWith("osm.pbf"))) {
+            throw new SQLException(new IllegalArgumentException("This driver handle only .osm, .osm.gz, .osm.bz2 and .osm.pbf files"));
         }
         this.progress = progress.subProcess(100);
         // Initialisation
@@ -147,6 +234,10 @@ public class OSMParser extends DefaultHandler {
                 // Skip how many nodes in order to update progression at a step of 1%
                 readFileSizeEachNode = Math.max(1, (this.fileSize / AVERAGE_NODE_SIZE) / 100);
                 nodeCountProgress = 0;
+                if (fileName.getName().endsWith(".osm.pbf")) {
+                    new OSMPbfParser(this).read(new BufferedInputStream(fs), fileSize, this.progress);
+                    return outputOSMTableNames;
+                }
                 XMLReader parser = XMLReaderFactory.createXMLReader();
                 parser.setErrorHandler(this);
                 parser.setContentHandler(this);
@@ -172,7 +263,7 @@ public class OSMParser extends DefaultHandler {
                     parser.parse(is);
                     return outputOSMTableNames;
                 } else {
-                    throw new SQLException("Supported formats are .osm, .osm.gz, .osm.bz2");
+                    throw new SQLException("Supported formats are .osm, .osm.gz, .osm.bz2, .osm.pbf");
                 }
             }
         } catch (SAXException ex) {
@@ -261,7 +352,7 @@ public class OSMParser extends DefaultHandler {
         String nodeTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE_TAG, dbType);
         nodeTagPreparedStmt = OSMTablesFactory.createNodeTagTable(connection, nodeTagTableName);
         String wayTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY, dbType);
-        wayPreparedStmt = OSMTablesFactory.createWayTable(connection, wayTableName);
+        wayPreparedStmt = OSMTablesFactory.createWayTable(connection, wayTableName, nodeLocations != null);
         String wayTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_TAG, dbType);
         wayTagPreparedStmt = OSMTablesFactory.createWayTagTable(connection, wayTagTableName);
         String wayNodeTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_NODE, dbType);
@@ -312,44 +403,12 @@ public class OSMParser extends DefaultHandler {
         } else if (localName.compareToIgnoreCase("nd") == 0) {
             wayOSMElement.addRef(attributes.getValue("ref"));
         } else if (localName.compareToIgnoreCase("relation") == 0) {
-            relationOSMElement = new OSMElement();
+            relationOSMElement = new RelationOSMElement();
             setCommonsAttributes(relationOSMElement, attributes);
             tagLocation = TAG_LOCATION.RELATION;
         } else if (localName.compareToIgnoreCase("member") == 0) {
-            if (type.equalsIgnoreCase("node")) {
-                try {
-                    nodeMemberPreparedStmt.setObject(1, relationOSMElement.getID());
-                    nodeMemberPreparedStmt.setObject(2, Long.valueOf(attributes.getValue("ref")));
-                    nodeMemberPreparedStmt.setObject(3, attributes.getValue("role"));
-                    nodeMemberPreparedStmt.setObject(4, idMemberOrder);
-                    nodeMemberPreparedStmt.addBatch();
-                    nodeMemberPreparedStmtBatchSize++;
-                } catch (SQLException ex) {
-                    throw new SAXException("Cannot insert the node member for the relation :  " + relationOSMElement.getID(), ex);
-                }
-            } else if (type.equalsIgnoreCase("way")) {
-                try {
-                    wayMemberPreparedStmt.setObject(1, relationOSMElement.getID());
-                    wayMemberPreparedStmt.setObject(2, Long.valueOf(attributes.getValue("ref")));
-                    wayMemberPreparedStmt.setObject(3, attributes.getValue("role"));
-                    wayMemberPreparedStmt.setObject(4, idMemberOrder);
-                    wayMemberPreparedStmt.addBatch();
-                    wayMemberPreparedStmtBatchSize++;
-                } catch (SQLException ex) {
-                    throw new SAXException("Cannot insert the way member for the relation :  " + relationOSMElement.getID(), ex);
-                }
-            } else if (type.equalsIgnoreCase("relation")) {
-                try {
-                    relationMemberPreparedStmt.setObject(1, relationOSMElement.getID());
-                    relationMemberPreparedStmt.setObject(2, Long.valueOf(attributes.getValue("ref")));
-                    relationMemberPreparedStmt.setObject(3, attributes.getValue("role"));
-                    relationMemberPreparedStmt.setObject(4, idMemberOrder);
-                    relationMemberPreparedStmt.addBatch();
-                    relationMemberPreparedStmtBatchSize++;
-                } catch (SQLException ex) {
-                    throw new SAXException("Cannot insert the relation member for the relation :  " + relationOSMElement.getID(), ex);
-                }
-            }
+            // The members are inserted with the relation, once its tags are known
+            relationOSMElement.addMember(type, Long.valueOf(attributes.getValue("ref")), attributes.getValue("role"), idMemberOrder);
         }
     }
 
@@ -357,16 +416,7 @@ public class OSMParser extends DefaultHandler {
     public void endDocument() throws SAXException {
         // Execute remaining batch
         try {
-            nodePreparedStmtBatchSize = insertBatch(nodePreparedStmt, nodePreparedStmtBatchSize, 1);
-            nodeTagPreparedStmtBatchSize = insertBatch(nodeTagPreparedStmt, nodeTagPreparedStmtBatchSize, 1);
-            wayPreparedStmtBatchSize = insertBatch(wayPreparedStmt, wayPreparedStmtBatchSize, 1);
-            wayTagPreparedStmtBatchSize = insertBatch(wayTagPreparedStmt, wayTagPreparedStmtBatchSize, 1);
-            relationPreparedStmtBatchSize = insertBatch(relationPreparedStmt, relationPreparedStmtBatchSize, 1);
-            relationTagPreparedStmtBatchSize = insertBatch(relationTagPreparedStmt, relationTagPreparedStmtBatchSize, 1);
-            nodeMemberPreparedStmtBatchSize = insertBatch(nodeMemberPreparedStmt,nodeMemberPreparedStmtBatchSize, 1);
-            wayMemberPreparedStmtBatchSize = insertBatch(wayMemberPreparedStmt, wayMemberPreparedStmtBatchSize, 1);
-            relationMemberPreparedStmtBatchSize = insertBatch(relationMemberPreparedStmt, relationMemberPreparedStmtBatchSize, 1);
-            wayNodePreparedStmtBatchSize = insertBatch(wayNodePreparedStmt, wayNodePreparedStmtBatchSize, 1);
+            flushBatches();
         } catch (SQLException ex) {
             throw new SAXException("Could not insert sql batch", ex);
         }
@@ -377,82 +427,22 @@ public class OSMParser extends DefaultHandler {
         if (localName.compareToIgnoreCase("node") == 0) {
             tagLocation = TAG_LOCATION.OTHER;
             try {
-                nodePreparedStmt.setObject(1, nodeOSMElement.getID());
-                nodePreparedStmt.setObject(2, nodeOSMElement.getPoint(gf));
-                nodePreparedStmt.setObject(3, nodeOSMElement.getElevation());
-                nodePreparedStmt.setObject(4, nodeOSMElement.getUser());
-                nodePreparedStmt.setObject(5, nodeOSMElement.getUID());
-                nodePreparedStmt.setObject(6, nodeOSMElement.getVisible());
-                nodePreparedStmt.setObject(7, nodeOSMElement.getVersion());
-                nodePreparedStmt.setObject(8, nodeOSMElement.getChangeSet());
-                nodePreparedStmt.setObject(9, nodeOSMElement.getTimeStamp(), Types.DATE);
-                nodePreparedStmt.setString(10, nodeOSMElement.getName());
-                nodePreparedStmt.addBatch();
-                nodePreparedStmtBatchSize++;
-                HashMap<String, String> tags = nodeOSMElement.getTags();
-                for (Map.Entry<String, String> entry : tags.entrySet()) {
-                    nodeTagPreparedStmt.setObject(1, nodeOSMElement.getID());
-                    nodeTagPreparedStmt.setObject(2, entry.getKey());
-                    nodeTagPreparedStmt.setObject(3, entry.getValue());
-                    nodeTagPreparedStmt.addBatch();
-                    nodeTagPreparedStmtBatchSize++;
-                }
+                insertNode(nodeOSMElement);
             } catch (SQLException ex) {
                 throw new SAXException("Cannot insert the node  :  " + nodeOSMElement.getID(), ex);
             }
         } else if (localName.compareToIgnoreCase("way") == 0) {
             tagLocation = TAG_LOCATION.OTHER;
             try {
-                wayPreparedStmt.setObject(1, wayOSMElement.getID());
-                wayPreparedStmt.setObject(2, wayOSMElement.getUser());
-                wayPreparedStmt.setObject(3, wayOSMElement.getUID());
-                wayPreparedStmt.setObject(4, wayOSMElement.getVisible());
-                wayPreparedStmt.setObject(5, wayOSMElement.getVersion());
-                wayPreparedStmt.setObject(6, wayOSMElement.getChangeSet());
-                wayPreparedStmt.setTimestamp(7, wayOSMElement.getTimeStamp());
-                wayPreparedStmt.setString(8, wayOSMElement.getName());
-                wayPreparedStmt.addBatch();
-                wayPreparedStmtBatchSize++;
-                HashMap<String, String> tags = wayOSMElement.getTags();
-                for (Map.Entry<String, String> entry : tags.entrySet()) {
-                    wayTagPreparedStmt.setObject(1, wayOSMElement.getID());
-                    wayTagPreparedStmt.setObject(2, entry.getKey());
-                    wayTagPreparedStmt.setObject(3, entry.getValue());
-                    wayTagPreparedStmt.addBatch();
-                    wayTagPreparedStmtBatchSize++;
-                }
-                int order = 1;
-                for (long ref :  wayOSMElement.getNodesRef()) {
-                    wayNodePreparedStmt.setObject(1, wayOSMElement.getID());
-                    wayNodePreparedStmt.setObject(2, ref);
-                    wayNodePreparedStmt.setObject(3, order++);
-                    wayNodePreparedStmt.addBatch();
-                    wayNodePreparedStmtBatchSize++;
-                }
+                insertWay(wayOSMElement);
             } catch (SQLException ex) {
                 throw new SAXException("Cannot insert the way  :  " + wayOSMElement.getID(), ex);
             }
         } else if (localName.compareToIgnoreCase("relation") == 0) {
             tagLocation = TAG_LOCATION.OTHER;
             try {
-                relationPreparedStmt.setObject(1, relationOSMElement.getID());
-                relationPreparedStmt.setObject(2, relationOSMElement.getUser());
-                relationPreparedStmt.setObject(3, relationOSMElement.getUID());
-                relationPreparedStmt.setObject(4, relationOSMElement.getVisible());
-                relationPreparedStmt.setObject(5, relationOSMElement.getVersion());
-                relationPreparedStmt.setObject(6, relationOSMElement.getChangeSet());
-                relationPreparedStmt.setTimestamp(7, relationOSMElement.getTimeStamp());
-                relationPreparedStmt.addBatch();
-                relationPreparedStmtBatchSize++;
-                HashMap<String, String> tags = relationOSMElement.getTags();
-                for (Map.Entry<String, String> entry : tags.entrySet()) {
-                    relationTagPreparedStmt.setObject(1, relationOSMElement.getID());
-                    relationTagPreparedStmt.setObject(2, entry.getKey());
-                    relationTagPreparedStmt.setObject(3, entry.getValue());
-                    relationTagPreparedStmt.addBatch();
-                    relationTagPreparedStmtBatchSize++;
-                }
-                idMemberOrder = 0;
+                insertRelation(relationOSMElement);
+                idMemberOrder = 1;
             } catch (SQLException ex) {
                 throw new SAXException("Cannot insert the relation  :  " + relationOSMElement.getID(), ex);
             }
@@ -474,7 +464,193 @@ public class OSMParser extends DefaultHandler {
         }
     }
 
-    private void insertBatch() throws SQLException {
+    /**
+     * Add a node and its tags to the batches
+     *
+     * @param node Node element
+     * @throws SQLException
+     */
+    void insertNode(NodeOSMElement node) throws SQLException {
+        // The ways crossing the area boundary also need the locations of their nodes outside the area
+        if (nodeLocations != null) {
+            nodeLocations.put(node.getID(), node.getLongitude(), node.getLatitude());
+        }
+        if (filter != null && !filter.acceptLocation(node)) {
+            return;
+        }
+        if (filter != null && !filter.acceptNode(node)) {
+            rejectedNodes.put(node.getID(), node);
+            return;
+        }
+        addNode(node);
+    }
+
+    /**
+     * Add a node and its tags to the batches without filtering
+     *
+     * @param node Node element
+     * @throws SQLException
+     */
+    private void addNode(NodeOSMElement node) throws SQLException {
+        nodePreparedStmt.setObject(1, node.getID());
+        nodePreparedStmt.setObject(2, node.getPoint(gf));
+        nodePreparedStmt.setObject(3, node.getElevation());
+        nodePreparedStmt.setObject(4, node.getUser());
+        nodePreparedStmt.setObject(5, node.getUID());
+        nodePreparedStmt.setObject(6, node.getVisible());
+        nodePreparedStmt.setObject(7, node.getVersion());
+        nodePreparedStmt.setObject(8, node.getChangeSet());
+        nodePreparedStmt.setObject(9, node.getTimeStamp(), Types.DATE);
+        nodePreparedStmt.setString(10, node.getName());
+        nodePreparedStmt.addBatch();
+        nodePreparedStmtBatchSize++;
+        HashMap<String, String> tags = node.getTags();
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            nodeTagPreparedStmt.setObject(1, node.getID());
+            nodeTagPreparedStmt.setObject(2, entry.getKey());
+            nodeTagPreparedStmt.setObject(3, entry.getValue());
+            nodeTagPreparedStmt.addBatch();
+            nodeTagPreparedStmtBatchSize++;
+        }
+    }
+
+    /**
+     * Add a way, its tags and its nodes to the batches
+     *
+     * @param way Way element
+     * @throws SQLException
+     */
+    void insertWay(WayOSMElement way) throws SQLException {
+        if (filter != null && !filter.acceptWay(way)) {
+            return;
+        }
+        wayPreparedStmt.setObject(1, way.getID());
+        wayPreparedStmt.setObject(2, way.getUser());
+        wayPreparedStmt.setObject(3, way.getUID());
+        wayPreparedStmt.setObject(4, way.getVisible());
+        wayPreparedStmt.setObject(5, way.getVersion());
+        wayPreparedStmt.setObject(6, way.getChangeSet());
+        wayPreparedStmt.setTimestamp(7, way.getTimeStamp());
+        wayPreparedStmt.setString(8, way.getName());
+        if (nodeLocations != null) {
+            wayPreparedStmt.setObject(9, createWayGeometry(way));
+        }
+        wayPreparedStmt.addBatch();
+        wayPreparedStmtBatchSize++;
+        HashMap<String, String> tags = way.getTags();
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            wayTagPreparedStmt.setObject(1, way.getID());
+            wayTagPreparedStmt.setObject(2, entry.getKey());
+            wayTagPreparedStmt.setObject(3, entry.getValue());
+            wayTagPreparedStmt.addBatch();
+            wayTagPreparedStmtBatchSize++;
+        }
+        int order = 1;
+        for (long ref : way.getNodesRef()) {
+            if (!rejectedNodes.isEmpty()) {
+                // A vertex of a kept way is imported even if its tags do not match
+                NodeOSMElement node = rejectedNodes.remove(ref);
+                if (node != null) {
+                    addNode(node);
+                }
+            }
+            wayNodePreparedStmt.setObject(1, way.getID());
+            wayNodePreparedStmt.setObject(2, ref);
+            wayNodePreparedStmt.setObject(3, order++);
+            wayNodePreparedStmt.addBatch();
+            wayNodePreparedStmtBatchSize++;
+        }
+    }
+
+    /**
+     * Add a relation, its tags and its members to the batches
+     *
+     * @param relation Relation element
+     * @throws SQLException
+     */
+    void insertRelation(RelationOSMElement relation) throws SQLException {
+        // The relations come after the ways
+        rejectedNodes.clear();
+        if (filter != null && !filter.acceptRelation(relation)) {
+            return;
+        }
+        relationPreparedStmt.setObject(1, relation.getID());
+        relationPreparedStmt.setObject(2, relation.getUser());
+        relationPreparedStmt.setObject(3, relation.getUID());
+        relationPreparedStmt.setObject(4, relation.getVisible());
+        relationPreparedStmt.setObject(5, relation.getVersion());
+        relationPreparedStmt.setObject(6, relation.getChangeSet());
+        relationPreparedStmt.setTimestamp(7, relation.getTimeStamp());
+        relationPreparedStmt.addBatch();
+        relationPreparedStmtBatchSize++;
+        HashMap<String, String> tags = relation.getTags();
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            relationTagPreparedStmt.setObject(1, relation.getID());
+            relationTagPreparedStmt.setObject(2, entry.getKey());
+            relationTagPreparedStmt.setObject(3, entry.getValue());
+            relationTagPreparedStmt.addBatch();
+            relationTagPreparedStmtBatchSize++;
+        }
+        for (int i = 0; i < relation.getMemberCount(); i++) {
+            insertMember(relation.getID(), relation.getMemberType(i), relation.getMemberRef(i),
+                    relation.getMemberRole(i), relation.getMemberOrder(i));
+        }
+    }
+
+    /**
+     * Add a relation member to the batches
+     *
+     * @param relationId Identifier of the relation
+     * @param type Member type : node, way or relation
+     * @param ref Identifier of the member
+     * @param role Member role
+     * @param order Member order in the relation
+     * @throws SQLException
+     */
+    private void insertMember(long relationId, String type, long ref, String role, int order) throws SQLException {
+        if (type.equalsIgnoreCase("node")) {
+            nodeMemberPreparedStmt.setObject(1, relationId);
+            nodeMemberPreparedStmt.setObject(2, ref);
+            nodeMemberPreparedStmt.setObject(3, role);
+            nodeMemberPreparedStmt.setObject(4, order);
+            nodeMemberPreparedStmt.addBatch();
+            nodeMemberPreparedStmtBatchSize++;
+        } else if (type.equalsIgnoreCase("way")) {
+            wayMemberPreparedStmt.setObject(1, relationId);
+            wayMemberPreparedStmt.setObject(2, ref);
+            wayMemberPreparedStmt.setObject(3, role);
+            wayMemberPreparedStmt.setObject(4, order);
+            wayMemberPreparedStmt.addBatch();
+            wayMemberPreparedStmtBatchSize++;
+        } else if (type.equalsIgnoreCase("relation")) {
+            relationMemberPreparedStmt.setObject(1, relationId);
+            relationMemberPreparedStmt.setObject(2, ref);
+            relationMemberPreparedStmt.setObject(3, role);
+            relationMemberPreparedStmt.setObject(4, order);
+            relationMemberPreparedStmt.addBatch();
+            relationMemberPreparedStmtBatchSize++;
+        }
+    }
+
+    /**
+     * Execute the remaining batches
+     *
+     * @throws SQLException
+     */
+    void flushBatches() throws SQLException {
+        nodePreparedStmtBatchSize = insertBatch(nodePreparedStmt, nodePreparedStmtBatchSize, 1);
+        nodeTagPreparedStmtBatchSize = insertBatch(nodeTagPreparedStmt, nodeTagPreparedStmtBatchSize, 1);
+        wayPreparedStmtBatchSize = insertBatch(wayPreparedStmt, wayPreparedStmtBatchSize, 1);
+        wayTagPreparedStmtBatchSize = insertBatch(wayTagPreparedStmt, wayTagPreparedStmtBatchSize, 1);
+        relationPreparedStmtBatchSize = insertBatch(relationPreparedStmt, relationPreparedStmtBatchSize, 1);
+        relationTagPreparedStmtBatchSize = insertBatch(relationTagPreparedStmt, relationTagPreparedStmtBatchSize, 1);
+        nodeMemberPreparedStmtBatchSize = insertBatch(nodeMemberPreparedStmt,nodeMemberPreparedStmtBatchSize, 1);
+        wayMemberPreparedStmtBatchSize = insertBatch(wayMemberPreparedStmt, wayMemberPreparedStmtBatchSize, 1);
+        relationMemberPreparedStmtBatchSize = insertBatch(relationMemberPreparedStmt, relationMemberPreparedStmtBatchSize, 1);
+        wayNodePreparedStmtBatchSize = insertBatch(wayNodePreparedStmt, wayNodePreparedStmtBatchSize, 1);
+    }
+
+    void insertBatch() throws SQLException {
         nodePreparedStmtBatchSize = insertBatch(nodePreparedStmt, nodePreparedStmtBatchSize);
         nodeTagPreparedStmtBatchSize = insertBatch(nodeTagPreparedStmt, nodeTagPreparedStmtBatchSize);
         wayPreparedStmtBatchSize = insertBatch(wayPreparedStmt, wayPreparedStmtBatchSize);
@@ -501,6 +677,52 @@ public class OSMParser extends DefaultHandler {
         return insertBatch(st, batchSize, BATCH_SIZE);
     }
 
+    /**
+     * Build the geometry of a way from the stored node locations. A closed way is a polygon unless it is tagged as
+     * a linear feature. The nodes missing in the file are skipped.
+     *
+     * @param way Way element
+     * @return A LINESTRING, a POLYGON or null if less than two nodes are found
+     */
+    private Geometry createWayGeometry(WayOSMElement way) {
+        List<Long> refs = way.getNodesRef();
+        CoordinateList coordinates = new CoordinateList();
+        boolean missingNode = false;
+        for (long ref : refs) {
+            Coordinate coordinate = nodeLocations.get(ref);
+            if (coordinate != null) {
+                coordinates.add(coordinate, false);
+            } else {
+                missingNode = true;
+            }
+        }
+        if (coordinates.size() < 2) {
+            return null;
+        }
+        if (!missingNode && coordinates.size() >= 4 && refs.get(0).equals(refs.get(refs.size() - 1))
+                && isArea(way.getTags())) {
+            return gf.createPolygon(coordinates.toCoordinateArray());
+        }
+        return gf.createLineString(coordinates.toCoordinateArray());
+    }
+
+    /**
+     * @param tags Way tags
+     * @return True if a closed way with these tags describes an area
+     */
+    private static boolean isArea(Map<String, String> tags) {
+        String area = tags.get("area");
+        if (area != null) {
+            return !area.equalsIgnoreCase("no");
+        }
+        for (String key : LINEAR_TAG_KEYS) {
+            if (tags.containsKey(key)) {
+                return false;
+            }
+        }
+        return !"coastline".equals(tags.get("natural"));
+    }
+
     /**
      *
      * @param osmElement
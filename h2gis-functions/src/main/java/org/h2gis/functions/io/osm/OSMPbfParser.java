@@ -0,0 +1,775 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.h2gis.api.ProgressVisitor;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Parse an OSM PBF file (https://wiki.openstreetmap.org/wiki/PBF_Format) and store the elements with the
+ * statements of an {@link OSMParser}.
+ *
+ * The blobs are read in the file order, their decompression and the decoding of the primitive blocks are done by a
+ * pool of workers. The decoded blocks are inserted in the file order, so the tables have the same content as with
+ * the XML files.
+ */
+class OSMPbfParser {
+    // Limits given by the PBF specification
+    private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    private static final String[] MEMBER_TYPES = new String[]{"node", "way", "relation"};
+    private final OSMParser osmParser;
+
+    /**
+     * @param osmParser Parser that holds the prepared statements of the OSM tables
+     */
+    OSMPbfParser(OSMParser osmParser) {
+        this.osmParser = osmParser;
+    }
+
+    /**
+     * Read the PBF file and insert its elements
+     *
+     * @param inputStream PBF file content
+     * @param fileSize Size of the file, used for the progression
+     * @param progress Progress visitor
+     * @throws IOException
+     * @throws SQLException
+     */
+    void read(InputStream inputStream, long fileSize, ProgressVisitor progress) throws IOException, SQLException {
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService executorService = Executors.newFixedThreadPool(workerCount);
+        LinkedList<Future<ArrayList<OSMElement>>> pendingBlocks = new LinkedList<>();
+        DataInputStream input = new DataInputStream(inputStream);
+        long position = 0;
+        try {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = input.readInt();
+                } catch (EOFException ex) {
+                    break;
+                }
+                if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+                    throw new IOException("Invalid PBF blob header size " + headerSize);
+                }
+                byte[] header = new byte[headerSize];
+                input.readFully(header);
+                String type = null;
+                int blobSize = -1;
+                ProtoReader headerReader = new ProtoReader(header, 0, headerSize);
+                while (headerReader.hasNext()) {
+                    int tag = headerReader.readTag();
+                    switch (tag >>> 3) {
+                        case 1:
+                            type = headerReader.readString();
+                            break;
+                        case 3:
+                            blobSize = (int) headerReader.readVarint();
+                            break;
+                        default:
+                            headerReader.skip(tag);
+                    }
+                }
+                if (type == null || blobSize < 0 || blobSize > MAX_BLOB_SIZE) {
+                    throw new IOException("Invalid PBF blob header");
+                }
+                byte[] blob = new byte[blobSize];
+                input.readFully(blob);
+                position += 4 + headerSize + blobSize;
+                if (progress.isCanceled()) {
+                    throw new SQLException("Canceled by user");
+                }
+                if (type.equals("OSMHeader")) {
+                    checkHeaderBlock(uncompress(blob));
+                } else if (type.equals("OSMData")) {
+                    pendingBlocks.add(executorService.submit(blockDecoder(blob)));
+                    if (pendingBlocks.size() > 2 * workerCount) {
+                        insertBlock(pendingBlocks.removeFirst());
+                    }
+                }
+                // Other blob types are ignored as required by the specification
+                if (fileSize > 0) {
+                    progress.setStep((int) (((double) position / fileSize) * 100));
+                }
+            }
+            while (!pendingBlocks.isEmpty()) {
+                insertBlock(pendingBlocks.removeFirst());
+            }
+            osmParser.flushBatches();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @param blob Blob content
+     * @return Task that decodes the blob in a worker
+     */
+    private static Callable<ArrayList<OSMElement>> blockDecoder(final byte[] blob) {
+        return new Callable<ArrayList<OSMElement>>() {
+            @Override
+            public ArrayList<OSMElement> call() throws Exception {
+                return decodePrimitiveBlock(uncompress(blob));
+            }
+        };
+    }
+
+    /**
+     * Insert the elements of a decoded block
+     *
+     * @param decodedBlock Elements of the block
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void insertBlock(Future<ArrayList<OSMElement>> decodedBlock) throws IOException, SQLException {
+        ArrayList<OSMElement> elements;
+        try {
+            elements = decodedBlock.get();
+        } catch (InterruptedException ex) {
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Cannot decode the PBF block", ex.getCause());
+        }
+        for (OSMElement element : elements) {
+            if (element instanceof NodeOSMElement) {
+                osmParser.insertNode((NodeOSMElement) element);
+            } else if (element instanceof WayOSMElement) {
+                osmParser.insertWay((WayOSMElement) element);
+            } else {
+                osmParser.insertRelation((RelationOSMElement) element);
+            }
+            osmParser.insertBatch();
+        }
+    }
+
+    /**
+     * Uncompress the content of a blob
+     *
+     * @param blob Blob message
+     * @return The uncompressed block
+     * @throws IOException
+     */
+    static byte[] uncompress(byte[] blob) throws IOException {
+        ProtoReader reader = new ProtoReader(blob, 0, blob.length);
+        int rawSize = -1;
+        ProtoReader zlibData = null;
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    ProtoReader raw = reader.readMessage();
+                    byte[] content = new byte[raw.limit - raw.position];
+                    System.arraycopy(raw.buffer, raw.position, content, 0, content.length);
+                    return content;
+                case 2:
+                    rawSize = (int) reader.readVarint();
+                    break;
+                case 3:
+                    zlibData = reader.readMessage();
+                    break;
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                    throw new IOException("Only raw and zlib PBF blobs are supported");
+                default:
+                    reader.skip(tag);
+            }
+        }
+        if (zlibData == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+            throw new IOException("Invalid PBF blob");
+        }
+        byte[] content = new byte[rawSize];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlibData.buffer, zlibData.position, zlibData.limit - zlibData.position);
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int read = inflater.inflate(content, length, rawSize - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawSize) {
+                throw new IOException("Invalid PBF blob size");
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Cannot uncompress the PBF blob", ex);
+        } finally {
+            inflater.end();
+        }
+        return content;
+    }
+
+    /**
+     * Check that the features required by the file are supported
+     *
+     * @param headerBlock Header block
+     * @throws IOException
+     */
+    private static void checkHeaderBlock(byte[] headerBlock) throws IOException {
+        ProtoReader reader = new ProtoReader(headerBlock, 0, headerBlock.length);
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            if (tag >>> 3 == 4) {
+                String feature = reader.readString();
+                if (!feature.equals("OsmSchema-V0.6") && !feature.equals("DenseNodes")) {
+                    throw new IOException("The PBF feature " + feature + " is not supported");
+                }
+            } else {
+                reader.skip(tag);
+            }
+        }
+    }
+
+    /**
+     * Decode the elements of a primitive block
+     *
+     * @param block Uncompressed primitive block
+     * @return The elements in the block order
+     * @throws IOException
+     */
+    static ArrayList<OSMElement> decodePrimitiveBlock(byte[] block) throws IOException {
+        ProtoReader reader = new ProtoReader(block, 0, block.length);
+        ArrayList<String> strings = new ArrayList<>();
+        ArrayList<ProtoReader> groups = new ArrayList<>();
+        BlockContext context = new BlockContext();
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    ProtoReader stringTable = reader.readMessage();
+                    while (stringTable.hasNext()) {
+                        int stringTag = stringTable.readTag();
+                        if (stringTag >>> 3 == 1) {
+                            strings.add(stringTable.readString());
+                        } else {
+                            stringTable.skip(stringTag);
+                        }
+                    }
+                    break;
+                case 2:
+                    groups.add(reader.readMessage());
+                    break;
+                case 17:
+                    context.granularity = reader.readVarint();
+                    break;
+                case 18:
+                    context.dateGranularity = reader.readVarint();
+                    break;
+                case 19:
+                    context.latOffset = reader.readVarint();
+                    break;
+                case 20:
+                    context.lonOffset = reader.readVarint();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        context.strings = strings.toArray(new String[0]);
+        ArrayList<OSMElement> elements = new ArrayList<>();
+        for (ProtoReader group : groups) {
+            while (group.hasNext()) {
+                int tag = group.readTag();
+                switch (tag >>> 3) {
+                    case 1:
+                        elements.add(decodeNode(group.readMessage(), context));
+                        break;
+                    case 2:
+                        decodeDenseNodes(group.readMessage(), context, elements);
+                        break;
+                    case 3:
+                        elements.add(decodeWay(group.readMessage(), context));
+                        break;
+                    case 4:
+                        elements.add(decodeRelation(group.readMessage(), context));
+                        break;
+                    default:
+                        group.skip(tag);
+                }
+            }
+        }
+        return elements;
+    }
+
+    private static NodeOSMElement decodeNode(ProtoReader reader, BlockContext context) throws IOException {
+        long id = 0, lat = 0, lon = 0;
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        ProtoReader info = null;
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    id = reader.readSignedVarint();
+                    break;
+                case 2:
+                    keys = reader.readPackedVarints(tag, keys);
+                    break;
+                case 3:
+                    values = reader.readPackedVarints(tag, values);
+                    break;
+                case 4:
+                    info = reader.readMessage();
+                    break;
+                case 8:
+                    lat = reader.readSignedVarint();
+                    break;
+                case 9:
+                    lon = reader.readSignedVarint();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        NodeOSMElement node = new NodeOSMElement(context.latitude(lat), context.longitude(lon));
+        node.setId(id);
+        setInfo(node, info, context);
+        setTags(node, keys, values, context);
+        return node;
+    }
+
+    private static void decodeDenseNodes(ProtoReader reader, BlockContext context, ArrayList<OSMElement> elements) throws IOException {
+        long[] ids = new long[0];
+        long[] lats = new long[0];
+        long[] lons = new long[0];
+        long[] keysValues = null;
+        long[] versions = null, timestamps = null, changesets = null, uids = null, userSids = null, visibles = null;
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    ids = reader.readPackedVarints(tag, ids);
+                    break;
+                case 5:
+                    ProtoReader denseInfo = reader.readMessage();
+                    while (denseInfo.hasNext()) {
+                        int infoTag = denseInfo.readTag();
+                        switch (infoTag >>> 3) {
+                            case 1:
+                                versions = denseInfo.readPackedVarints(infoTag, versions);
+                                break;
+                            case 2:
+                                timestamps = denseInfo.readPackedVarints(infoTag, timestamps);
+                                break;
+                            case 3:
+                                changesets = denseInfo.readPackedVarints(infoTag, changesets);
+                                break;
+                            case 4:
+                                uids = denseInfo.readPackedVarints(infoTag, uids);
+                                break;
+                            case 5:
+                                userSids = denseInfo.readPackedVarints(infoTag, userSids);
+                                break;
+                            case 6:
+                                visibles = denseInfo.readPackedVarints(infoTag, visibles);
+                                break;
+                            default:
+                                denseInfo.skip(infoTag);
+                        }
+                    }
+                    break;
+                case 8:
+                    lats = reader.readPackedVarints(tag, lats);
+                    break;
+                case 9:
+                    lons = reader.readPackedVarints(tag, lons);
+                    break;
+                case 10:
+                    keysValues = reader.readPackedVarints(tag, keysValues);
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        if (lats.length != ids.length || lons.length != ids.length) {
+            throw new IOException("Invalid PBF dense nodes");
+        }
+        // Identifiers, coordinates and most of the information are delta coded
+        long id = 0, lat = 0, lon = 0, timestamp = 0, changeset = 0, uid = 0, userSid = 0;
+        int keyValueIndex = 0;
+        for (int i = 0; i < ids.length; i++) {
+            id += ProtoReader.decodeZigZag(ids[i]);
+            lat += ProtoReader.decodeZigZag(lats[i]);
+            lon += ProtoReader.decodeZigZag(lons[i]);
+            NodeOSMElement node = new NodeOSMElement(context.latitude(lat), context.longitude(lon));
+            node.setId(id);
+            node.setVisible(true);
+            if (versions != null && i < versions.length) {
+                node.setVersion((int) versions[i]);
+            }
+            if (timestamps != null && i < timestamps.length) {
+                timestamp += ProtoReader.decodeZigZag(timestamps[i]);
+                node.setTimestamp(context.timestamp(timestamp));
+            }
+            if (changesets != null && i < changesets.length) {
+                changeset += ProtoReader.decodeZigZag(changesets[i]);
+                node.setChangeset((int) changeset);
+            }
+            if (uids != null && i < uids.length) {
+                uid += ProtoReader.decodeZigZag(uids[i]);
+                node.setUid(uid);
+            }
+            if (userSids != null && i < userSids.length) {
+                userSid += ProtoReader.decodeZigZag(userSids[i]);
+                node.setUser(context.user((int) userSid));
+            }
+            if (visibles != null && i < visibles.length) {
+                node.setVisible(visibles[i] != 0);
+            }
+            if (keysValues != null) {
+                // The tags of the nodes are separated by a 0
+                while (keyValueIndex < keysValues.length && keysValues[keyValueIndex] != 0) {
+                    if (keyValueIndex + 1 >= keysValues.length) {
+                        throw new IOException("Invalid PBF dense nodes tags");
+                    }
+                    node.addTag(context.string(keysValues[keyValueIndex]), context.string(keysValues[keyValueIndex + 1]));
+                    keyValueIndex += 2;
+                }
+                keyValueIndex++;
+            }
+            elements.add(node);
+        }
+    }
+
+    private static WayOSMElement decodeWay(ProtoReader reader, BlockContext context) throws IOException {
+        WayOSMElement way = new WayOSMElement();
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        long[] refs = new long[0];
+        ProtoReader info = null;
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    way.setId(reader.readVarint());
+                    break;
+                case 2:
+                    keys = reader.readPackedVarints(tag, keys);
+                    break;
+                case 3:
+                    values = reader.readPackedVarints(tag, values);
+                    break;
+                case 4:
+                    info = reader.readMessage();
+                    break;
+                case 8:
+                    refs = reader.readPackedVarints(tag, refs);
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        long ref = 0;
+        for (long delta : refs) {
+            ref += ProtoReader.decodeZigZag(delta);
+            way.addRef(ref);
+        }
+        setInfo(way, info, context);
+        setTags(way, keys, values, context);
+        return way;
+    }
+
+    private static RelationOSMElement decodeRelation(ProtoReader reader, BlockContext context) throws IOException {
+        RelationOSMElement relation = new RelationOSMElement();
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        long[] roles = new long[0];
+        long[] memberIds = new long[0];
+        long[] types = new long[0];
+        ProtoReader info = null;
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    relation.setId(reader.readVarint());
+                    break;
+                case 2:
+                    keys = reader.readPackedVarints(tag, keys);
+                    break;
+                case 3:
+                    values = reader.readPackedVarints(tag, values);
+                    break;
+                case 4:
+                    info = reader.readMessage();
+                    break;
+                case 8:
+                    roles = reader.readPackedVarints(tag, roles);
+                    break;
+                case 9:
+                    memberIds = reader.readPackedVarints(tag, memberIds);
+                    break;
+                case 10:
+                    types = reader.readPackedVarints(tag, types);
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        if (roles.length != memberIds.length || types.length != memberIds.length) {
+            throw new IOException("Invalid PBF relation " + relation.getID());
+        }
+        long memberId = 0;
+        for (int i = 0; i < memberIds.length; i++) {
+            memberId += ProtoReader.decodeZigZag(memberIds[i]);
+            if (types[i] < 0 || types[i] >= MEMBER_TYPES.length) {
+                throw new IOException("Invalid PBF member type for the relation " + relation.getID());
+            }
+            relation.addMember(MEMBER_TYPES[(int) types[i]], memberId, context.string(roles[i]), i + 1);
+        }
+        setInfo(relation, info, context);
+        setTags(relation, keys, values, context);
+        return relation;
+    }
+
+    private static void setTags(OSMElement element, long[] keys, long[] values, BlockContext context) throws IOException {
+        if (keys.length != values.length) {
+            throw new IOException("Invalid PBF tags for the element " + element.getID());
+        }
+        for (int i = 0; i < keys.length; i++) {
+            element.addTag(context.string(keys[i]), context.string(values[i]));
+        }
+    }
+
+    private static void setInfo(OSMElement element, ProtoReader info, BlockContext context) throws IOException {
+        element.setVisible(true);
+        if (info == null) {
+            return;
+        }
+        while (info.hasNext()) {
+            int tag = info.readTag();
+            switch (tag >>> 3) {
+                case 1:
+                    element.setVersion((int) info.readVarint());
+                    break;
+                case 2:
+                    element.setTimestamp(context.timestamp(info.readVarint()));
+                    break;
+                case 3:
+                    element.setChangeset((int) info.readVarint());
+                    break;
+                case 4:
+                    element.setUid((int) info.readVarint());
+                    break;
+                case 5:
+                    element.setUser(context.user((int) info.readVarint()));
+                    break;
+                case 6:
+                    element.setVisible(info.readVarint() != 0);
+                    break;
+                default:
+                    info.skip(tag);
+            }
+        }
+    }
+
+    /**
+     * Properties of a primitive block used to decode its elements
+     */
+    private static class BlockContext {
+        String[] strings;
+        long granularity = 100;
+        long dateGranularity = 1000;
+        long latOffset = 0;
+        long lonOffset = 0;
+
+        double latitude(long lat) {
+            // Divide the nanodegrees to get the same values than the decimal degrees of the XML files
+            return (latOffset + granularity * lat) / 1e9;
+        }
+
+        double longitude(long lon) {
+            return (lonOffset + granularity * lon) / 1e9;
+        }
+
+        Timestamp timestamp(long timestamp) {
+            long millis = timestamp * dateGranularity;
+            // Same value as the timestamps parsed from the XML files
+            return Timestamp.valueOf(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC).toLocalDateTime());
+        }
+
+        String string(long index) throws IOException {
+            if (index < 0 || index >= strings.length) {
+                throw new IOException("Invalid PBF string index " + index);
+            }
+            return strings[(int) index];
+        }
+
+        String user(int index) throws IOException {
+            String user = string(index);
+            return user.isEmpty() ? null : user;
+        }
+    }
+
+    /**
+     * Minimal reader of the protocol buffers messages used by the PBF format
+     */
+    static class ProtoReader {
+        private static final int WIRE_VARINT = 0;
+        private static final int WIRE_FIXED64 = 1;
+        private static final int WIRE_LENGTH_DELIMITED = 2;
+        private static final int WIRE_FIXED32 = 5;
+        final byte[] buffer;
+        int position;
+        final int limit;
+
+        ProtoReader(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        boolean hasNext() {
+            return position < limit;
+        }
+
+        /**
+         * @return The field number and the wire type of the next field
+         */
+        int readTag() throws IOException {
+            return (int) readVarint();
+        }
+
+        long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw new IOException("Truncated PBF message");
+                }
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed PBF varint");
+        }
+
+        long readSignedVarint() throws IOException {
+            return decodeZigZag(readVarint());
+        }
+
+        static long decodeZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * @return Reader of the embedded message or bytes field
+         */
+        ProtoReader readMessage() throws IOException {
+            long length = readVarint();
+            if (length < 0 || length > limit - position) {
+                throw new IOException("Truncated PBF message");
+            }
+            ProtoReader message = new ProtoReader(buffer, position, position + (int) length);
+            position += (int) length;
+            return message;
+        }
+
+        String readString() throws IOException {
+            ProtoReader bytes = readMessage();
+            return new String(buffer, bytes.position, bytes.limit - bytes.position, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Read a repeated varint field, packed or not. The values of a field may be split in several occurrences.
+         *
+         * @param tag Tag of the field
+         * @param previousValues Values of the previous occurrences of the field or null
+         * @return The raw values, signed values must be decoded by the caller
+         */
+        long[] readPackedVarints(int tag, long[] previousValues) throws IOException {
+            int previousCount = previousValues == null ? 0 : previousValues.length;
+            long[] values;
+            if ((tag & 7) == WIRE_VARINT) {
+                values = new long[previousCount + 1];
+                values[previousCount] = readVarint();
+            } else {
+                ProtoReader packed = readMessage();
+                int count = 0;
+                for (int i = packed.position; i < packed.limit; i++) {
+                    if (buffer[i] >= 0) {
+                        count++;
+                    }
+                }
+                values = new long[previousCount + count];
+                for (int i = previousCount; i < values.length; i++) {
+                    values[i] = packed.readVarint();
+                }
+            }
+            if (previousCount > 0) {
+                System.arraycopy(previousValues, 0, values, 0, previousCount);
+            }
+            return values;
+        }
+
+        /**
+         * Skip the value of an unused field
+         *
+         * @param tag Tag of the field
+         */
+        void skip(int tag) throws IOException {
+            switch (tag & 7) {
+                case WIRE_VARINT:
+                    readVarint();
+                    break;
+                case WIRE_FIXED64:
+                    position += 8;
+                    break;
+                case WIRE_LENGTH_DELIMITED:
+                    readMessage();
+                    break;
+                case WIRE_FIXED32:
+                    position += 4;
+                    break;
+                default:
+                    throw new IOException("Unsupported PBF wire type " + (tag & 7));
+            }
+            if (position > limit) {
+                throw new IOException("Truncated PBF message");
+            }
+        }
+    }
+}
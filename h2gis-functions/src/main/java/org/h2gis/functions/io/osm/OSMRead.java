@@ -49,8 +49,15 @@ public class OSMRead extends AbstractFunction implements ScalarFunction {
                 + "\n path of the file"
                 + "\n path of the file, table name"
                 + "\n path of the file, true for delete the table with the same file name"
-                + "\n path of the file, table name, encoding chartset"
-                + "\n path of the file, table name, encoding chartset, true to delete the table name");
+                + "\n path of the file, table name, encoding chartset or options"
+                + "\n path of the file, table name, encoding chartset or options, true to delete the table name"
+                + "\n Options are space separated, ie 'charset=UTF-8 geometry=true'."
+                + "\n geometry=true builds the way geometries during the import."
+                + "\n bbox=minLon,minLat,maxLon,maxLat or polygon=WKT imports only the elements in this area."
+                + " A way crossing the area boundary is imported with its full geometry, but its nodes outside"
+                + " the area are not in the node table."
+                + "\n tags=building,highway=primary imports only the elements with one of these tags."
+                + " The untagged nodes and the nodes of the imported ways are kept.");
     }
 
     @Override
@@ -63,8 +70,8 @@ public class OSMRead extends AbstractFunction implements ScalarFunction {
      * @param connection
      * @param fileName
      * @param tableReference
-     * @param option true to delete the existing tables or set a chartset
-     * encoding
+     * @param option true to delete the existing tables, a chartset encoding
+     * or the options ie 'charset=UTF-8 geometry=true'
      * @throws FileNotFoundException
      * @throws SQLException
      */
@@ -112,7 +119,7 @@ public class OSMRead extends AbstractFunction implements ScalarFunction {
      * @param connection
      * @param fileName
      * @param tableReference
-     * @param encoding
+     * @param encoding chartset encoding or options ie 'charset=UTF-8 geometry=true'
      * @param deleteTables
      * @throws FileNotFoundException
      * @throws SQLException
@@ -131,12 +131,32 @@ public class OSMTablesFactory {
      * @throws SQLException
      */
     public static PreparedStatement createWayTable(Connection connection, String wayTableName) throws SQLException {
+        return createWayTable(connection, wayTableName, false);
+    }
+
+    /**
+     * Create the ways table that will be used to import OSM ways
+     *
+     * @param connection
+     * @param wayTableName
+     * @param hasGeometry true to add a THE_GEOM column that stores the way geometry
+     * @return
+     * @throws SQLException
+     */
+    public static PreparedStatement createWayTable(Connection connection, String wayTableName, boolean hasGeometry) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             StringBuilder sb = new StringBuilder("CREATE TABLE ");
             sb.append(wayTableName);
-            sb.append("(ID_WAY BIGINT PRIMARY KEY, USER_NAME VARCHAR, UID BIGINT, VISIBLE BOOLEAN, VERSION INTEGER, CHANGESET INTEGER, LAST_UPDATE TIMESTAMP, NAME VARCHAR);");
+            sb.append("(ID_WAY BIGINT PRIMARY KEY, USER_NAME VARCHAR, UID BIGINT, VISIBLE BOOLEAN, VERSION INTEGER, CHANGESET INTEGER, LAST_UPDATE TIMESTAMP, NAME VARCHAR");
+            if (hasGeometry) {
+                sb.append(", THE_GEOM GEOMETRY(GEOMETRY, 4326)");
+            }
+            sb.append(");");
             stmt.execute(sb.toString());
         }
+        if (hasGeometry) {
+            return connection.prepareStatement("INSERT INTO " + wayTableName + " VALUES (?,?,?,?,?,?,?,?,?);");
+        }
         return connection.prepareStatement("INSERT INTO " + wayTableName + " VALUES (?,?,?,?,?,?,?,?);");
     }
 
@@ -0,0 +1,93 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to manage the relation element properties.
+ */
+public class RelationOSMElement extends OSMElement {
+
+    private final List<String> memberTypes = new ArrayList<String>();
+    private final List<Long> memberRefs = new ArrayList<Long>();
+    private final List<String> memberRoles = new ArrayList<String>();
+    private final List<Integer> memberOrders = new ArrayList<Integer>();
+
+    public RelationOSMElement() {
+        super();
+    }
+
+    /**
+     * Add a member to the relation
+     *
+     * @param type Member type : node, way or relation
+     * @param ref Identifier of the member
+     * @param role Member role
+     * @param order Member order in the relation
+     */
+    public void addMember(String type, long ref, String role, int order) {
+        memberTypes.add(type);
+        memberRefs.add(ref);
+        memberRoles.add(role);
+        memberOrders.add(order);
+    }
+
+    /**
+     * @return Number of members
+     */
+    public int getMemberCount() {
+        return memberRefs.size();
+    }
+
+    /**
+     * @param index Member index
+     * @return Member type : node, way or relation
+     */
+    public String getMemberType(int index) {
+        return memberTypes.get(index);
+    }
+
+    /**
+     * @param index Member index
+     * @return Identifier of the member
+     */
+    public long getMemberRef(int index) {
+        return memberRefs.get(index);
+    }
+
+    /**
+     * @param index Member index
+     * @return Member role
+     */
+    public String getMemberRole(int index) {
+        return memberRoles.get(index);
+    }
+
+    /**
+     * @param index Member index
+     * @return Member order in the relation
+     */
+    public int getMemberOrder(int index) {
+        return memberOrders.get(index);
+    }
+}
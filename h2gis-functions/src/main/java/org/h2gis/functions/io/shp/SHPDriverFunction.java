@@ -42,8 +42,17 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.sql.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -64,6 +73,43 @@ public class SHPDriverFunction implements DriverFunction {
 
     public static String DESCRIPTION = "ESRI shapefile";
     private static final int BATCH_MAX_SIZE = 200;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private int batchSize = BATCH_MAX_SIZE;
+    private int commitInterval = BATCH_MAX_SIZE;
+    private int threadCount = 1;
+
+    /**
+     * @param batchSize Number of rows sent to the database in a single JDBC batch on import
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param commitInterval Minimal number of rows inserted between two commits on import.
+     * The commit is done after the batch that reaches this number.
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("The commit interval must be greater than 0");
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * @param threadCount Number of threads used to decode the geometries and the dbf values on import.
+     * With more than one thread the file is split in chunks of batch size rows, each thread decodes chunks with
+     * its own file readers and the rows are inserted in the file order.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The thread count must be greater than 0");
+        }
+        this.threadCount = threadCount;
+    }
 
     @Override
     public String[] exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
@@ -105,18 +151,51 @@ public class SHPDriverFunction implements DriverFunction {
         Matcher matcher = pattern.matcher(tableReference);
         if (matcher.find()) {
             if (tableReference.startsWith("(") && tableReference.endsWith(")")) {
-                PreparedStatement ps = connection.prepareStatement(tableReference, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                JDBCUtilities.attachCancelResultSet(ps, progress);
-                ResultSet resultSet = ps.executeQuery();
-                int recordCount = 0;
-                resultSet.last();
-                recordCount = resultSet.getRow();
-                resultSet.beforeFirst();
-                ProgressVisitor copyProgress = progress.subProcess(recordCount);
-                Tuple<String, Integer> spatialFieldNameAndIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(resultSet);
-                String[] files = doExport(connection, spatialFieldNameAndIndex.second(), resultSet, recordCount, fileName, progress, options);
-                copyProgress.endOfProgress();
-                return files;
+                // Forward only cursor, the record count and the bounds are written
+                // in the file headers when the export is done.
+                boolean autoCommit = connection.getAutoCommit();
+                boolean isH2 = dbType == DBTypes.H2 || dbType == DBTypes.H2GIS;
+                if (dbType == DBTypes.POSTGIS && autoCommit) {
+                    // PostgreSQL only uses a cursor outside of the auto-commit mode
+                    connection.setAutoCommit(false);
+                }
+                if (isH2) {
+                    // H2 builds the whole result before the first row unless the
+                    // query is executed lazily. The setting is not readable, it is
+                    // set back to its default value after the export.
+                    try (Statement st = connection.createStatement()) {
+                        st.execute("SET LAZY_QUERY_EXECUTION TRUE");
+                    }
+                }
+                try {
+                    String[] files;
+                    try (PreparedStatement ps = connection.prepareStatement(tableReference, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        ps.setFetchSize(EXPORT_FETCH_SIZE);
+                        JDBCUtilities.attachCancelResultSet(ps, progress);
+                        try (ResultSet resultSet = ps.executeQuery()) {
+                            Tuple<String, Integer> spatialFieldNameAndIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(resultSet);
+                            files = doExport(connection, spatialFieldNameAndIndex.second(), resultSet, 0, fileName, progress, options);
+                        }
+                    }
+                    if (autoCommit != connection.getAutoCommit()) {
+                        connection.commit();
+                    }
+                    return files;
+                } catch (SQLException | IOException | RuntimeException ex) {
+                    if (autoCommit != connection.getAutoCommit()) {
+                        connection.rollback();
+                    }
+                    throw ex;
+                } finally {
+                    if (autoCommit != connection.getAutoCommit()) {
+                        connection.setAutoCommit(autoCommit);
+                    }
+                    if (isH2) {
+                        try (Statement st = connection.createStatement()) {
+                            st.execute("SET LAZY_QUERY_EXECUTION FALSE");
+                        }
+                    }
+                }
             } else {
                 throw new SQLException("The select query must be enclosed in parenthesis: '(SELECT * FROM ORDERS)'.");
             }
@@ -290,7 +369,7 @@ public class SHPDriverFunction implements DriverFunction {
             }
             SHPDriver shpDriver = new SHPDriver();
             shpDriver.initDriverFromFile(fileName, options);
-            ProgressVisitor copyProgress = progress.subProcess((int) (shpDriver.getRowCount() / BATCH_MAX_SIZE));
+            ProgressVisitor copyProgress = progress.subProcess((int) (shpDriver.getRowCount() / batchSize));
             // PostGIS does not show sql
             String lastSql = "";
             try {
@@ -325,27 +404,19 @@ public class SHPDriverFunction implements DriverFunction {
                     lastSql = String.format("INSERT INTO %s VALUES (DEFAULT, %s )", outputTableName,
                             DBFDriverFunction.getQuestionMark(dbfHeader.getNumFields() + 1));
                     connection.setAutoCommit(false);
-                    final int columnCount = shpDriver.getFieldCount();
                     try (PreparedStatement preparedStatement = connection.prepareStatement(lastSql)) {
-                        long batchSize = 0;
-                        for (int rowId = 0; rowId < shpDriver.getRowCount(); rowId++) {
-                            for (int columnId = 0; columnId < columnCount; columnId++) {
-                                JdbcUtils.set(preparedStatement,columnId + 1, shpDriver.getField(rowId, columnId), null);
-                            }
-                            preparedStatement.addBatch();
-                            batchSize++;
-                            if (batchSize >= BATCH_MAX_SIZE) {
-                                preparedStatement.executeBatch();
-                                connection.commit();
-                                preparedStatement.clearBatch();
-                                batchSize = 0;
-                                copyProgress.endStep();
+                        BatchInserter inserter = new BatchInserter(connection, preparedStatement, copyProgress);
+                        if (threadCount > 1) {
+                            insertRowsInParallel(shpDriver, fileName, options, inserter);
+                        } else {
+                            final int columnCount = shpDriver.getFieldCount();
+                            for (int rowId = 0; rowId < shpDriver.getRowCount(); rowId++) {
+                                Object[] row = new Object[columnCount];
+                                shpDriver.readRecord(rowId, row);
+                                inserter.insert(row);
                             }
                         }
-                        if (batchSize > 0) {
-                            preparedStatement.executeBatch();
-                            connection.commit();
-                        }
+                        inserter.finish();
                         connection.setAutoCommit(true);
                         return new String[]{outputTableName};
                     }
@@ -363,6 +434,144 @@ public class SHPDriverFunction implements DriverFunction {
         return null;
     }
 
+    /**
+     * Decode the rows of the shape file on a pool of threads and insert them in the file order.
+     * The rows are split in chunks of batch size rows, a few chunks are decoded ahead of the writer.
+     *
+     * @param shpDriver Opened driver, used by one of the threads
+     * @param fileName Shape file
+     * @param forceEncoding If defined use this encoding instead of the one defined in dbf header.
+     * @param inserter Ordered writer
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void insertRowsInParallel(SHPDriver shpDriver, File fileName, String forceEncoding,
+                                      BatchInserter inserter) throws IOException, SQLException {
+        final long rowCount = shpDriver.getRowCount();
+        final int columnCount = shpDriver.getFieldCount();
+        final BlockingQueue<SHPDriver> drivers = new ArrayBlockingQueue<>(threadCount);
+        ArrayList<SHPDriver> openedDrivers = new ArrayList<>(threadCount - 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            drivers.add(shpDriver);
+            for (int i = 1; i < threadCount; i++) {
+                // Each thread reads the files with its own buffers
+                SHPDriver driver = new SHPDriver();
+                openedDrivers.add(driver);
+                driver.initDriverFromFile(fileName, forceEncoding);
+                driver.setSRID(shpDriver.getSrid());
+                drivers.add(driver);
+            }
+            ArrayDeque<Future<Object[][]>> pendingChunks = new ArrayDeque<>();
+            long nextRow = 0;
+            while (nextRow < rowCount || !pendingChunks.isEmpty()) {
+                while (nextRow < rowCount && pendingChunks.size() < threadCount * 2) {
+                    final long start = nextRow;
+                    final long end = Math.min(rowCount, start + batchSize);
+                    pendingChunks.add(executor.submit(new Callable<Object[][]>() {
+                        @Override
+                        public Object[][] call() throws Exception {
+                            return readRows(drivers, start, end, columnCount);
+                        }
+                    }));
+                    nextRow = end;
+                }
+                Object[][] rows;
+                try {
+                    rows = pendingChunks.poll().get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("The import has been interrupted", ex);
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof IOException) {
+                        throw (IOException) ex.getCause();
+                    }
+                    throw new IOException(ex.getCause());
+                }
+                for (Object[] row : rows) {
+                    inserter.insert(row);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            for (SHPDriver driver : openedDrivers) {
+                driver.close();
+            }
+        }
+    }
+
+    /**
+     * Decode the rows [start, end[ with one of the available drivers
+     */
+    private static Object[][] readRows(BlockingQueue<SHPDriver> drivers, long start, long end, int columnCount)
+            throws IOException, InterruptedException {
+        SHPDriver driver = drivers.take();
+        try {
+            Object[][] rows = new Object[(int) (end - start)][];
+            for (long rowId = start; rowId < end; rowId++) {
+                Object[] row = new Object[columnCount];
+                driver.readRecord(rowId, row);
+                rows[(int) (rowId - start)] = row;
+            }
+            return rows;
+        } finally {
+            drivers.add(driver);
+        }
+    }
+
+    /**
+     * Insert the rows by batch, commit the transaction at the commit interval
+     */
+    private class BatchInserter {
+        private final Connection connection;
+        private final PreparedStatement preparedStatement;
+        private final ProgressVisitor progress;
+        private int batchRows = 0;
+        private long uncommittedRows = 0;
+
+        private BatchInserter(Connection connection, PreparedStatement preparedStatement, ProgressVisitor progress) {
+            this.connection = connection;
+            this.preparedStatement = preparedStatement;
+            this.progress = progress;
+        }
+
+        private void insert(Object[] row) throws SQLException {
+            for (int columnId = 0; columnId < row.length; columnId++) {
+                JdbcUtils.set(preparedStatement, columnId + 1, row[columnId], null);
+            }
+            preparedStatement.addBatch();
+            batchRows++;
+            if (batchRows >= batchSize) {
+                executeBatch();
+                progress.endStep();
+            }
+        }
+
+        private void executeBatch() throws SQLException {
+            preparedStatement.executeBatch();
+            preparedStatement.clearBatch();
+            uncommittedRows += batchRows;
+            batchRows = 0;
+            if (uncommittedRows >= commitInterval) {
+                connection.commit();
+                uncommittedRows = 0;
+            }
+        }
+
+        private void finish() throws SQLException {
+            if (batchRows > 0) {
+                preparedStatement.executeBatch();
+                preparedStatement.clearBatch();
+            }
+            connection.commit();
+        }
+    }
+
     /**
      * Return the shape type supported by the shapefile format
      *
@@ -21,12 +21,15 @@
 package org.h2gis.functions.io.shp;
 
 import org.h2.command.ddl.CreateTableData;
+import org.h2.result.SortOrder;
 import org.h2.table.Column;
+import org.h2.table.IndexColumn;
 import org.h2.value.ExtTypeInfo;
 import org.h2.value.ExtTypeInfoGeometry;
 import org.h2.value.TypeInfo;
 import org.h2gis.functions.io.dbf.DBFEngine;
 import org.h2gis.functions.io.file_table.FileEngine;
+import org.h2gis.functions.io.file_table.H2MVTable;
 import org.h2gis.functions.io.shp.internal.SHPDriver;
 import org.h2gis.functions.io.shp.internal.ShapeType;
 import org.h2gis.functions.io.utility.PRJUtil;
@@ -76,4 +79,14 @@ public class SHPEngine extends FileEngine<SHPDriver> {
 
         DBFEngine.feedTableDataFromHeader(driver.getDbaseFileHeader(), data);
     }
+
+    @Override
+    protected void addFileIndexes(SHPDriver driver, H2MVTable table) {
+        // The first column is the primary key
+        Column geometryColumn = table.getColumns()[driver.getGeometryFieldIndex() + 1];
+        IndexColumn indexColumn = new IndexColumn(geometryColumn.getName());
+        indexColumn.column = geometryColumn;
+        indexColumn.sortType = SortOrder.ASCENDING;
+        table.addFileIndex(new SHPSpatialIndex(driver, table, table.getId(), indexColumn));
+    }
 }
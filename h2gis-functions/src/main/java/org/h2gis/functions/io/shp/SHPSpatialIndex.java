@@ -0,0 +1,299 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+
+package org.h2gis.functions.io.shp;
+
+import org.h2.api.ErrorCode;
+import org.h2.command.dml.AllColumnsForPlan;
+import org.h2.engine.Session;
+import org.h2.index.BaseIndex;
+import org.h2.index.Cursor;
+import org.h2.index.IndexCondition;
+import org.h2.index.IndexType;
+import org.h2.index.SpatialIndex;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.IndexColumn;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueGeometry;
+import org.h2gis.functions.io.file_table.H2TableIndex;
+import org.h2gis.functions.io.shp.internal.SHPDriver;
+import org.h2gis.functions.io.utility.PackedRTree;
+import org.locationtech.jts.geom.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Spatial index of a linked shape file. The index is built on first use from
+ * the bounding boxes stored in the records of the shape file, geometries are
+ * not read. The index is saved next to the shape file and reused until the
+ * shape file is modified.
+ */
+public class SHPSpatialIndex extends BaseIndex implements SpatialIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(SHPSpatialIndex.class);
+
+    private final SHPDriver driver;
+    private PackedRTree tree;
+
+    /**
+     * Constructor
+     * @param driver Linked shape file driver
+     * @param table Linked table
+     * @param id Index identifier
+     * @param indexColumn Geometry column
+     */
+    public SHPSpatialIndex(SHPDriver driver, Table table, int id, IndexColumn indexColumn) {
+        super(table, id, table.getName() + "_" + indexColumn.columnName + "_SPATIAL_INDEX_",
+                new IndexColumn[]{indexColumn}, IndexType.createNonUnique(false, false, true));
+        this.driver = driver;
+    }
+
+    /**
+     * Open the index file or build it if it does not exist or is outdated.
+     * @return The tree
+     */
+    private synchronized PackedRTree getTree() {
+        if (tree == null) {
+            try {
+                File indexFile = driver.getSpatialIndexFile();
+                tree = PackedRTree.open(indexFile, driver.shpFile);
+                if (tree == null) {
+                    if (!build(indexFile)) {
+                        // The shape file folder is read only, use a temporary file
+                        indexFile = File.createTempFile(indexFile.getName(), "." + SHPDriver.SPATIAL_INDEX_EXTENSION);
+                        indexFile.deleteOnExit();
+                        build(indexFile);
+                    }
+                    tree = PackedRTree.open(indexFile, driver.shpFile);
+                    if (tree == null) {
+                        throw new IOException("Cannot read the spatial index file " + indexFile.getAbsolutePath());
+                    }
+                }
+            } catch (IOException ex) {
+                throw DbException.get(ErrorCode.IO_EXCEPTION_1, ex);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Write the index file from the bounding boxes of the records
+     * @param indexFile Index file
+     * @return False if the index file cannot be written
+     * @throws IOException
+     */
+    private boolean build(File indexFile) throws IOException {
+        long rowCount = driver.getRowCount();
+        int[] ids = new int[(int) Math.min(rowCount, 1024)];
+        double[] boxes = new double[ids.length * 4];
+        int numItems = 0;
+        for (int rowId = 0; rowId < rowCount; rowId++) {
+            Envelope envelope = driver.getEnvelope(rowId);
+            if (envelope == null) {
+                // Null geometries are not indexed
+                continue;
+            }
+            if (numItems == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                boxes = Arrays.copyOf(boxes, ids.length * 4);
+            }
+            ids[numItems] = rowId;
+            boxes[4 * numItems] = envelope.getMinX();
+            boxes[4 * numItems + 1] = envelope.getMinY();
+            boxes[4 * numItems + 2] = envelope.getMaxX();
+            boxes[4 * numItems + 3] = envelope.getMaxY();
+            numItems++;
+        }
+        try {
+            PackedRTree.write(indexFile, driver.shpFile, ids, boxes, numItems, PackedRTree.DEFAULT_NODE_SIZE);
+            return true;
+        } catch (IOException ex) {
+            LOG.warn("Cannot write the spatial index file " + indexFile.getAbsolutePath(), ex);
+            indexFile.delete();
+            return false;
+        }
+    }
+
+    @Override
+    public Cursor findByGeometry(Session session, SearchRow first, SearchRow last, SearchRow intersection) {
+        if (intersection == null) {
+            return find(session, first, last);
+        }
+        Value value = intersection.getValue(columnIds[0]);
+        if (!(value instanceof ValueGeometry)) {
+            return find(session, first, last);
+        }
+        try {
+            return new SHPSpatialCursor(driver, getTree().query(((ValueGeometry) value).getGeometry().getEnvelopeInternal()));
+        } catch (IOException ex) {
+            throw DbException.get(ErrorCode.IO_EXCEPTION_1, ex);
+        }
+    }
+
+    @Override
+    public Cursor find(Session session, SearchRow first, SearchRow last) {
+        Envelope all = new Envelope(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        try {
+            return new SHPSpatialCursor(driver, getTree().query(all));
+        } catch (IOException ex) {
+            throw DbException.get(ErrorCode.IO_EXCEPTION_1, ex);
+        }
+    }
+
+    @Override
+    public double getCost(Session session, int[] masks, TableFilter[] tableFilters, int filter, SortOrder sortOrder,
+                          AllColumnsForPlan allColumnsForPlan) {
+        // Same cost as the H2 spatial index, never used without spatial filter
+        if (masks == null) {
+            return Long.MAX_VALUE;
+        }
+        for (int columnId : columnIds) {
+            if ((masks[columnId] & IndexCondition.SPATIAL_INTERSECTS) != IndexCondition.SPATIAL_INTERSECTS) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return 2;
+    }
+
+    @Override
+    public void checkRename() {
+        // Nothing to check
+    }
+
+    @Override
+    public Row getRow(Session session, long key) {
+        return new H2TableIndex.DriverRow(driver, key);
+    }
+
+    @Override
+    public synchronized void close(Session session) {
+        if (tree != null) {
+            try {
+                tree.close();
+            } catch (IOException ex) {
+                LOG.error("Error while closing the spatial index file", ex);
+            }
+            tree = null;
+        }
+    }
+
+    @Override
+    public void add(Session session, Row row) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "add in Shape files");
+    }
+
+    @Override
+    public void remove(Session session, Row row) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "remove in Shape files");
+    }
+
+    @Override
+    public void remove(Session session) {
+        close(session);
+    }
+
+    @Override
+    public void truncate(Session session) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "truncate in Shape files");
+    }
+
+    @Override
+    public boolean canGetFirstOrLast() {
+        return false;
+    }
+
+    @Override
+    public Cursor findFirstOrLast(Session session, boolean first) {
+        throw DbException.get(ErrorCode.FEATURE_NOT_SUPPORTED_1, "findFirstOrLast in spatial index");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(Session session) {
+        return driver.getRowCount();
+    }
+
+    @Override
+    public long getRowCountApproximation() {
+        return driver.getRowCount();
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        return 0;
+    }
+
+    /**
+     * Iterates over the rows found in the tree
+     */
+    private static class SHPSpatialCursor implements Cursor {
+        private final SHPDriver driver;
+        private final int[] rowIds;
+        private int position = -1;
+
+        private SHPSpatialCursor(SHPDriver driver, int[] rowIds) {
+            this.driver = driver;
+            this.rowIds = rowIds;
+        }
+
+        @Override
+        public Row get() {
+            // Row key is [1-n]
+            return new H2TableIndex.DriverRow(driver, rowIds[position] + 1L);
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return get();
+        }
+
+        @Override
+        public boolean next() {
+            if (position + 1 < rowIds.length) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            if (position > 0) {
+                position--;
+                return true;
+            }
+            return false;
+        }
+    }
+}
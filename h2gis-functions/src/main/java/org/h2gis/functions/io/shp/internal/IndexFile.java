@@ -64,7 +64,7 @@ public class IndexFile {
 			throws IOException {
 		readHeader(channel);
 		this.channel = channel;
-		this.buf = new ReadBufferManager(channel, 8 * 128);
+		this.buf = ReadBufferManager.open(channel, 8 * 128);
 	}
 
 	/**
@@ -97,6 +97,9 @@ public class IndexFile {
 		if (channel != null && channel.isOpen()) {
 			channel.close();
 		}
+		if (buf != null) {
+			buf.close();
+		}
 		this.buf = null;
 	}
 
@@ -26,6 +26,8 @@ import org.h2.value.ValueNull;
 import org.h2gis.api.FileDriver;
 import org.h2gis.functions.io.dbf.internal.DBFDriver;
 import org.h2gis.functions.io.dbf.internal.DbaseFileHeader;
+import org.h2gis.functions.io.dbf.internal.DbaseFileReader;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 
 import java.io.*;
@@ -47,6 +49,10 @@ import java.nio.file.Path;
  * @author Nicolas Fortin
  */
 public class SHPDriver implements FileDriver {
+    /**
+     * Extension of the spatial index file created next to the shape file
+     */
+    public static final String SPATIAL_INDEX_EXTENSION = "h2idx";
     private DBFDriver dbfDriver = new DBFDriver();
     public File shpFile;
     public File shxFile;
@@ -58,6 +64,8 @@ public class SHPDriver implements FileDriver {
     private ShapeType shapeType;
     public File prjFile;
     private int srid =0;
+    // DBF values of the last read record
+    private Value[] dbfValues;
 
     /**
      * @param geometryFieldIndex The geometry field index in getRow() array.
@@ -259,6 +267,38 @@ public class SHPDriver implements FileDriver {
         }
     }
 
+    @Override
+    public void readRecord(long rowId, Object[] target) throws IOException {
+        DbaseFileReader dbaseFileReader = dbfDriver.getDbaseFileReader();
+        if (dbfValues == null) {
+            dbfValues = new Value[dbaseFileReader.getFieldCount()];
+        }
+        dbaseFileReader.readRecord((int) rowId, dbfValues);
+        // Copy DBF data before and after geometryFieldIndex
+        System.arraycopy(dbfValues, 0, target, 0, geometryFieldIndex);
+        System.arraycopy(dbfValues, geometryFieldIndex, target, geometryFieldIndex + 1,
+                dbfValues.length - geometryFieldIndex);
+        target[geometryFieldIndex] = getField(rowId, geometryFieldIndex);
+    }
+
+    /**
+     * Read the bounding box of a row without reading its geometry.
+     * @param rowId Row index [0-getRowCount()[
+     * @return The bounding box or null if the geometry is null
+     * @throws IOException
+     */
+    public Envelope getEnvelope(long rowId) throws IOException {
+        return shapefileReader.envelopeAt(shxFileReader.getOffset((int) rowId));
+    }
+
+    /**
+     * @return The spatial index file associated with the shape file
+     */
+    public File getSpatialIndexFile() {
+        String path = shpFile.getAbsolutePath();
+        return new File(path.substring(0, path.lastIndexOf('.') + 1) + SPATIAL_INDEX_EXTENSION);
+    }
+
     /**
      * Set a SRID code that will be used for geometries.
      * @param srid 
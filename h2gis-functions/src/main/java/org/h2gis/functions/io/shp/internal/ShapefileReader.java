@@ -21,6 +21,7 @@
 package org.h2gis.functions.io.shp.internal;
 
 import org.h2gis.functions.io.utility.ReadBufferManager;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 
 import java.io.EOFException;
@@ -104,7 +105,7 @@ public class ShapefileReader {
                 if (handler == null) {
                         throw new IOException("Unsuported shape type:" + fileShapeType);
                 }
-                buffer = new ReadBufferManager(channel);
+                buffer = ReadBufferManager.open(channel);
         }
 
         /**
@@ -128,6 +129,10 @@ public class ShapefileReader {
                 if (channel != null && channel.isOpen()) {
                         channel.close();
                 }
+                if (buffer != null) {
+                        buffer.close();
+                }
+                buffer = null;
                 channel = null;
                 header = null;
         }
@@ -163,6 +168,34 @@ public class ShapefileReader {
                 return handler.read(buffer, recordType);
         }
 
+        /**
+         * Read the bounding box of the record without reading the geometry.
+         *
+         * @param offset
+         * @throws java.io.IOException
+         * @return The bounding box of the record or null if the shape is null
+         */
+        public Envelope envelopeAt(int offset) throws IOException {
+                buffer.position(offset);
+                buffer.skip(8);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                ShapeType recordType = ShapeType.forID(buffer.getInt());
+                if (recordType == ShapeType.NULL) {
+                        return null;
+                }
+                if (recordType.isPointType()) {
+                        double x = buffer.getDouble();
+                        double y = buffer.getDouble();
+                        return new Envelope(x, x, y, y);
+                }
+                // Bounding box stored in the record: xmin, ymin, xmax, ymax
+                double minX = buffer.getDouble();
+                double minY = buffer.getDouble();
+                double maxX = buffer.getDouble();
+                double maxY = buffer.getDouble();
+                return new Envelope(minX, maxX, minY, maxY);
+        }
+
         /**
          * @param handler
          *            The handler to set.
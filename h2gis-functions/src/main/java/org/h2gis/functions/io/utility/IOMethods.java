@@ -19,14 +19,23 @@
  */
 package org.h2gis.functions.io.utility;
 
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.EmptyProgressVisitor;
+import org.h2gis.api.ProgressVisitor;
 import org.h2gis.functions.io.asc.AscDriverFunction;
 import org.h2gis.functions.io.csv.CSVDriverFunction;
 import org.h2gis.functions.io.dbf.DBFDriverFunction;
@@ -38,16 +47,21 @@ import org.h2gis.functions.io.osm.OSMDriverFunction;
 import org.h2gis.functions.io.shp.SHPDriverFunction;
 import org.h2gis.functions.io.tsv.TSVDriverFunction;
 import org.h2gis.utilities.FileUtilities;
+import org.h2gis.utilities.GeometryTableUtilities;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.Tuple;
 import org.h2gis.utilities.URIUtilities;
 import org.h2gis.utilities.dbtypes.DBTypes;
 import org.h2gis.utilities.dbtypes.DBUtils;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.osgi.service.jdbc.DataSourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
+
 /**
  * Utility methods to :
  *
@@ -67,6 +81,15 @@ public class IOMethods {
 
     private static final String ENCODING_OPTION = "charset=";
     private static final String UTF_ENCODING = "UTF-8";
+    /**
+     * Number of partitions of each worker in a parallel export, to balance the
+     * workload of the workers
+     */
+    private static final int PARTITIONS_PER_WORKER = 4;
+    /**
+     * SRID stored for a geometry column which contains several SRID
+     */
+    static final int MIXED_SRID = -1;
 
     /**
      * Create a new instance of IOMethods in order to be able to use custom file
@@ -443,8 +466,19 @@ public class IOMethods {
             query = "SELECT * FROM " + sourceTableLocation.toString(sourceDBType);
         }
 
+        // Read a PostgreSQL table with a cursor instead of loading all the rows in memory
+        boolean useCursor = (sourceDBType == DBTypes.POSTGIS || sourceDBType == DBTypes.POSTGRESQL)
+                && sourceConnection != targetConnection;
+        boolean isSourceAutoCommit = sourceConnection.getAutoCommit();
+        Statement inputStat = null;
         try {
-            Statement inputStat = sourceConnection.createStatement();
+            if (useCursor) {
+                sourceConnection.setAutoCommit(false);
+            }
+            inputStat = sourceConnection.createStatement();
+            if (useCursor) {
+                inputStat.setFetchSize(batch_size);
+            }
             ResultSet inputRes = inputStat.executeQuery(query);
             ResultSetMetaData inputMetadata = inputRes.getMetaData();
 
@@ -510,97 +544,485 @@ public class IOMethods {
                     }
                 }
             }
-            PreparedStatement preparedStatement = null;
             try {
-                int columnsCount = inputMetadata.getColumnCount();
                 HashMap<String, Integer> geomColumnAndSRID = new HashMap<>();
-                StringBuilder insertTable = new StringBuilder("INSERT INTO ");
-                insertTable.append(ouputTableName).append(" VALUES(?");
-                for (int i = 1; i < columnsCount; i++) {
-                    insertTable.append(",").append("?");
+                transferRows(inputRes, sourceDBType, targetConnection, targetDBType, ouputTableName, batch_size, geomColumnAndSRID);
+                alterSRID(targetConnection, targetDBType, ouputTableName, geomColumnAndSRID);
+            } catch (SQLException e) {
+                try {
+                    targetConnection.rollback();
+                } catch (SQLException e1) {
+                    throw new SQLException("Unable to rollback.", e1);
                 }
-                insertTable.append(")");
+                throw new SQLException("Cannot insert the data in the table", e);
+            } finally {
+                targetConnection.setAutoCommit(isTargetAutoCommit);
 
-                preparedStatement = targetConnection.prepareStatement(insertTable.toString());
-                //Check the first row in order to limit the batch size if the query doesn't work
-                inputRes.next();
-                for (int i = 0; i < columnsCount; i++) {
-                    int index = i + 1;
-                    Object value = inputRes.getObject(index);
-                    if(inputMetadata.getColumnTypeName(index).equalsIgnoreCase("GEOMETRY")) {
-                        geomColumnAndSRID.put(inputMetadata.getColumnName(index), ((Geometry) value).getSRID());
-                    }
-                    preparedStatement.setObject(index, value);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Cannot save the table " + sourceTable + " to the " + targetTable + "\n", e);
+
+        } finally {
+            if (inputStat != null) {
+                inputStat.close();
+            }
+            if (useCursor) {
+                sourceConnection.setAutoCommit(isSourceAutoCommit);
+            }
+        }
+        return ouputTableName;
+    }
+
+    /**
+     * Method to export a table into another database with several concurrent
+     * connections.
+     *
+     * The source table is split in partitions, by ranges of its integer primary
+     * key or, if it has no such key, by strips of the estimated extent of its
+     * first geometry column. The partitions are shared between the workers,
+     * each worker reads and writes its partitions with its own source and
+     * target connections and commits each partition. If the source is a query
+     * or if the table cannot be split, the table is exported with a single
+     * connection.
+     *
+     * When the process is canceled the running queries are canceled, the
+     * remaining partitions are not exported and the partitions already
+     * committed are kept in the target table.
+     *
+     * @param sourceDataSource source database
+     * @param sourceTable the name of the table to export or a select query
+     * @param targetDataSource target database
+     * @param targetTable target table name
+     * @param mode -1 delete the target table if exists and create a new table,
+     * 0 create a new table, 1 update the target table if exists
+     * @param batch_size batch size value before sending the data
+     * @param workerCount number of concurrent source and target connections
+     * @param progress progress visitor, with one step for each partition
+     *
+     * @throws java.sql.SQLException
+     * @return name of the export table formatted according the database target
+     */
+    public static String exportToDataBase(DataSource sourceDataSource, String sourceTable,
+            DataSource targetDataSource, String targetTable, int mode, int batch_size, int workerCount,
+            ProgressVisitor progress) throws SQLException {
+        if (sourceDataSource == null) {
+            throw new SQLException("The source database cannot be null.\n");
+        }
+        if (targetDataSource == null) {
+            throw new SQLException("The output database cannot be null.\n");
+        }
+        if (workerCount <= 0) {
+            throw new SQLException("The number of workers must be greater than 0.\n");
+        }
+        if (progress == null) {
+            progress = new EmptyProgressVisitor();
+        }
+        try (Connection sourceConnection = sourceDataSource.getConnection();
+                Connection targetConnection = targetDataSource.getConnection()) {
+            final DBTypes sourceDBType = DBUtils.getDBType(sourceConnection);
+            final DBTypes targetDBType = DBUtils.getDBType(targetConnection);
+            List<String> partitions = Collections.emptyList();
+            TableLocation sourceTableLocation = null;
+            if (workerCount > 1 && sourceTable != null && !sourceTable.isEmpty() && !sourceTable.startsWith("(")) {
+                sourceTableLocation = TableLocation.parse(sourceTable, sourceDBType);
+                if (JDBCUtilities.tableExists(sourceConnection, sourceTableLocation)) {
+                    partitions = getPartitionFilters(sourceConnection, sourceTableLocation,
+                            workerCount * PARTITIONS_PER_WORKER);
                 }
-                preparedStatement.execute();
-                long batchSize = 0;
-                while (inputRes.next()) {
-                    for (int i = 0; i < columnsCount; i++) {
-                        int index = i + 1;
-                        Object value = inputRes.getObject(index);
-                        String columnName = inputMetadata.getColumnName(index);
-                         if(geomColumnAndSRID.containsKey(columnName)) {
-                             Geometry geometry = (Geometry) value;
-                             int currentSRID = geometry.getSRID();
-                             Integer tmpSRID = geomColumnAndSRID.get(columnName);
-                             if (tmpSRID != currentSRID) {
-                                 geomColumnAndSRID.remove(inputMetadata.getColumnName(index));
-                             }
-                         }
-                       preparedStatement.setObject(index, value);
-                    }
-                    preparedStatement.addBatch();
-                    batchSize++;
-                    if (batchSize >= batch_size) {
-                        preparedStatement.executeBatch();
-                        preparedStatement.clearBatch();
-                        batchSize = 0;
+            }
+            if (partitions.size() < 2) {
+                String ouputTableName = exportToDataBase(sourceConnection, sourceTable, targetConnection, targetTable, mode, batch_size);
+                progress.endOfProgress();
+                return ouputTableName;
+            }
+            // Create the target table from the structure of the source table
+            final String sourceTableName = sourceTableLocation.toString(sourceDBType);
+            final String ouputTableName = exportToDataBase(sourceConnection, "(SELECT * FROM " + sourceTableName + " WHERE 1 = 0)",
+                    targetConnection, targetTable, mode, batch_size);
+            final ProgressVisitor rootProgress = progress;
+            final ProgressVisitor partitionProgress = progress.subProcess(partitions.size());
+            final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>(partitions);
+            final AtomicBoolean failed = new AtomicBoolean(false);
+            final int batchSize = batch_size;
+            ExecutorService executorService = Executors.newFixedThreadPool(workerCount);
+            List<Future<List<Map<String, Integer>>>> workers = new ArrayList<>(workerCount);
+            try {
+                for (int i = 0; i < workerCount; i++) {
+                    workers.add(executorService.submit(new Callable<List<Map<String, Integer>>>() {
+                        @Override
+                        public List<Map<String, Integer>> call() throws SQLException {
+                            List<Map<String, Integer>> partitionsSRID = new ArrayList<>();
+                            try (Connection workerSource = sourceDataSource.getConnection();
+                                    Connection workerTarget = targetDataSource.getConnection()) {
+                                String filter;
+                                while (!failed.get() && !rootProgress.isCanceled() && (filter = queue.poll()) != null) {
+                                    Map<String, Integer> geomColumnAndSRID = new HashMap<>();
+                                    try {
+                                        exportPartition(workerSource, sourceDBType, "SELECT * FROM " + sourceTableName + " WHERE " + filter,
+                                                workerTarget, targetDBType, ouputTableName, batchSize, geomColumnAndSRID, rootProgress);
+                                    } catch (SQLException | RuntimeException e) {
+                                        failed.set(true);
+                                        throw e;
+                                    }
+                                    partitionsSRID.add(geomColumnAndSRID);
+                                    synchronized (partitionProgress) {
+                                        partitionProgress.endStep();
+                                    }
+                                }
+                            }
+                            return partitionsSRID;
+                        }
+                    }));
+                }
+                List<Map<String, Integer>> partitionsSRID = new ArrayList<>(partitions.size());
+                SQLException error = null;
+                for (Future<List<Map<String, Integer>>> worker : workers) {
+                    try {
+                        partitionsSRID.addAll(worker.get());
+                    } catch (ExecutionException e) {
+                        if (error == null) {
+                            error = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                                    : new SQLException(e.getCause());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.set(true);
+                        throw new SQLException("The export has been interrupted", e);
                     }
                 }
-                if (batchSize > 0) {
-                    preparedStatement.executeBatch();
+                if (progress.isCanceled()) {
+                    throw new SQLException("The export has been canceled", error);
                 }
-                //Alter SRID
-                if(!geomColumnAndSRID.isEmpty()){
-                    StringBuilder querySRID = new StringBuilder();
-                    for (Map.Entry<String, Integer> entry : geomColumnAndSRID.entrySet()) {
-                        String fieldName = TableLocation.capsIdentifier(entry.getKey(), targetDBType);
-                        Integer srid = entry.getValue();
-                        querySRID.append("ALTER TABLE ").append(ouputTableName).append(" ALTER COLUMN ").append(fieldName);
-                        querySRID.append(" TYPE GEOMETRY(GEOMETRY, ").append(srid).append(") USING ST_SetSRID(").append(fieldName).append(",").append(srid).append(");\n");
+                if (error != null) {
+                    throw error;
+                }
+                // A SRID is kept only if it is the same in all the partitions, the
+                // partitions without geometries do not change it
+                Map<String, Integer> geomColumnAndSRID = new HashMap<>();
+                for (Map<String, Integer> partitionSRID : partitionsSRID) {
+                    for (Map.Entry<String, Integer> entry : partitionSRID.entrySet()) {
+                        mergeSRID(geomColumnAndSRID, entry.getKey(), entry.getValue());
                     }
+                }
+                boolean isTargetAutoCommit = targetConnection.getAutoCommit();
+                targetConnection.setAutoCommit(false);
+                try {
+                    alterSRID(targetConnection, targetDBType, ouputTableName, geomColumnAndSRID);
+                } finally {
+                    targetConnection.setAutoCommit(isTargetAutoCommit);
+                }
+                return ouputTableName;
+            } catch (SQLException e) {
+                throw new SQLException("Cannot save the table " + sourceTable + " to the " + targetTable + "\n", e);
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+    }
 
-                    try (Statement outputST = targetConnection.createStatement()) {
-                        outputST.execute(querySRID.toString());
-                        targetConnection.commit();
-                    } catch (SQLException e) {
-                        try {
-                            targetConnection.rollback();
-                        } catch (SQLException e1) {
-                            LOGGER.error("Unable to rollback.", e1);
-                        }
-                        throw new SQLException("Cannot alter the table with the SRID", e);
+    /**
+     * Compute SQL conditions that split a table in disjoint partitions
+     *
+     * @param connection source database connection
+     * @param tableLocation table to split
+     * @param partitionCount number of partitions
+     * @return the conditions, or an empty list if the table has no integer
+     * primary key and no geometry column with an extent
+     * @throws SQLException
+     */
+    private static List<String> getPartitionFilters(Connection connection, TableLocation tableLocation,
+            int partitionCount) throws SQLException {
+        DBTypes dbType = tableLocation.getDbTypes();
+        List<String> filters = new ArrayList<>(partitionCount);
+        Tuple<String, Integer> primaryKey = JDBCUtilities.getIntegerPrimaryKeyNameAndIndex(connection, tableLocation);
+        if (primaryKey != null) {
+            String key = TableLocation.quoteIdentifier(primaryKey.first(), dbType);
+            try (Statement st = connection.createStatement();
+                    ResultSet rs = st.executeQuery("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + tableLocation.toString(dbType))) {
+                rs.next();
+                long min = rs.getLong(1);
+                long max = rs.getLong(2);
+                if (rs.wasNull() || max - min < 0) {
+                    return filters;
+                }
+                long step = Math.max(1, (max - min) / partitionCount + 1);
+                for (long start = min; start <= max; start += step) {
+                    String filter;
+                    if (start == min) {
+                        filter = key + " < " + (start + step);
+                    } else if (start > max - step) {
+                        filter = key + " >= " + start;
+                    } else {
+                        filter = key + " >= " + start + " AND " + key + " < " + (start + step);
+                    }
+                    filters.add(filter);
+                    if (start > max - step) {
+                        break;
                     }
-
                 }
+            }
+            return filters;
+        }
+        if (dbType != DBTypes.H2GIS && dbType != DBTypes.POSTGIS) {
+            return filters;
+        }
+        List<String> geometryColumns = GeometryTableUtilities.getGeometryColumnNames(connection, tableLocation);
+        if (geometryColumns.isEmpty()) {
+            return filters;
+        }
+        Geometry extent;
+        try {
+            extent = GeometryTableUtilities.getEstimatedExtent(connection, tableLocation, geometryColumns.get(0));
+        } catch (SQLException e) {
+            // Empty table
+            return filters;
+        }
+        if (extent == null || extent.isEmpty() || extent.getEnvelopeInternal().getWidth() == 0) {
+            return filters;
+        }
+        Envelope envelope = extent.getEnvelopeInternal();
+        String geometryColumn = TableLocation.quoteIdentifier(geometryColumns.get(0), dbType);
+        String xMin = "ST_XMin(" + geometryColumn + ")";
+        double width = envelope.getWidth() / partitionCount;
+        for (int i = 0; i < partitionCount; i++) {
+            double start = envelope.getMinX() + i * width;
+            double end = envelope.getMinX() + (i + 1) * width;
+            if (i == 0) {
+                filters.add(geometryColumn + " IS NULL OR " + xMin + " IS NULL OR " + xMin + " < " + end);
+            } else if (i == partitionCount - 1) {
+                filters.add(xMin + " >= " + start);
+            } else {
+                filters.add(xMin + " >= " + start + " AND " + xMin + " < " + end);
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * Export the rows of a query into an existing table and commit them
+     *
+     * @param sourceConnection source database connection
+     * @param sourceDBType type of the source database
+     * @param query query of the rows
+     * @param targetConnection target database connection
+     * @param targetDBType type of the target database
+     * @param ouputTableName target table name
+     * @param batch_size batch size value before sending the data
+     * @param geomColumnAndSRID filled with the SRID of the geometry columns,
+     * {@link #MIXED_SRID} if a column contains several SRID
+     * @param progress progress visitor used to cancel the query
+     * @throws SQLException
+     */
+    private static void exportPartition(Connection sourceConnection, DBTypes sourceDBType, String query,
+            Connection targetConnection, DBTypes targetDBType, String ouputTableName, int batch_size,
+            Map<String, Integer> geomColumnAndSRID, ProgressVisitor progress) throws SQLException {
+        boolean useCursor = sourceDBType == DBTypes.POSTGIS || sourceDBType == DBTypes.POSTGRESQL;
+        // The connections may come from a pool, they are given back as they were borrowed
+        boolean isSourceAutoCommit = sourceConnection.getAutoCommit();
+        boolean isTargetAutoCommit = targetConnection.getAutoCommit();
+        if (useCursor) {
+            sourceConnection.setAutoCommit(false);
+        }
+        targetConnection.setAutoCommit(false);
+        try (Statement inputStat = sourceConnection.createStatement()) {
+            if (useCursor) {
+                inputStat.setFetchSize(batch_size);
+            }
+            PropertyChangeListener listener = JDBCUtilities.attachCancelResultSet(inputStat, progress);
+            try (ResultSet inputRes = inputStat.executeQuery(query)) {
+                transferRows(inputRes, sourceDBType, targetConnection, targetDBType, ouputTableName, batch_size, geomColumnAndSRID);
+                targetConnection.commit();
+            } finally {
+                progress.removePropertyChangeListener(listener);
+            }
+        } catch (SQLException e) {
+            try {
+                targetConnection.rollback();
+            } catch (SQLException e1) {
+                LOGGER.error("Unable to rollback.", e1);
+            }
+            throw e;
+        } finally {
+            targetConnection.setAutoCommit(isTargetAutoCommit);
+            if (useCursor) {
+                sourceConnection.setAutoCommit(isSourceAutoCommit);
+            }
+        }
+    }
+
+    /**
+     * Write the rows of a result set in the target table, with a binary COPY
+     * for PostgreSQL or with batches of INSERT statements
+     *
+     * @param inputRes rows to write
+     * @param sourceDBType type of the source database
+     * @param targetConnection target database connection
+     * @param targetDBType type of the target database
+     * @param ouputTableName target table name
+     * @param batch_size batch size value before sending the data
+     * @param geomColumnAndSRID filled with the SRID of the geometry columns,
+     * {@link #MIXED_SRID} if a column contains several SRID
+     * @throws SQLException
+     */
+    private static void transferRows(ResultSet inputRes, DBTypes sourceDBType, Connection targetConnection,
+            DBTypes targetDBType, String ouputTableName, int batch_size, Map<String, Integer> geomColumnAndSRID)
+            throws SQLException {
+        if (!(targetDBType == DBTypes.POSTGIS || targetDBType == DBTypes.POSTGRESQL)
+                || !copyToPostgreSQL(inputRes, sourceDBType, targetConnection, ouputTableName, geomColumnAndSRID)) {
+            insertBatch(inputRes, targetConnection, ouputTableName, batch_size, geomColumnAndSRID);
+        }
+    }
+
+    /**
+     * Set the SRID constraint of the geometry columns of the target table
+     *
+     * @param targetConnection target database connection
+     * @param targetDBType type of the target database
+     * @param ouputTableName target table name
+     * @param geomColumnAndSRID geometry columns and their SRID, the columns
+     * with {@link #MIXED_SRID} are not altered
+     * @throws SQLException
+     */
+    private static void alterSRID(Connection targetConnection, DBTypes targetDBType, String ouputTableName,
+            Map<String, Integer> geomColumnAndSRID) throws SQLException {
+        StringBuilder querySRID = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : geomColumnAndSRID.entrySet()) {
+            Integer srid = entry.getValue();
+            if (srid == MIXED_SRID) {
+                continue;
+            }
+            String fieldName = TableLocation.capsIdentifier(entry.getKey(), targetDBType);
+            querySRID.append("ALTER TABLE ").append(ouputTableName).append(" ALTER COLUMN ").append(fieldName);
+            querySRID.append(" TYPE GEOMETRY(GEOMETRY, ").append(srid).append(") USING ST_SetSRID(").append(fieldName).append(",").append(srid).append(");\n");
+        }
+        if (querySRID.length() > 0) {
+            try (Statement outputST = targetConnection.createStatement()) {
+                outputST.execute(querySRID.toString());
+                targetConnection.commit();
             } catch (SQLException e) {
                 try {
                     targetConnection.rollback();
                 } catch (SQLException e1) {
-                    throw new SQLException("Unable to rollback.", e1);
-                }
-                throw new SQLException("Cannot insert the data in the table", e);
-            } finally {
-                if (preparedStatement != null) {
-                    preparedStatement.close();
+                    LOGGER.error("Unable to rollback.", e1);
                 }
-                targetConnection.setAutoCommit(isTargetAutoCommit);
+                throw new SQLException("Cannot alter the table with the SRID", e);
+            }
+        }
+    }
 
+    /**
+     * Fill a PostgreSQL table with a binary COPY command
+     *
+     * @param inputRes rows to copy
+     * @param sourceDBType type of the source database
+     * @param targetConnection target database connection
+     * @param ouputTableName target table name
+     * @param geomColumnAndSRID filled with the SRID of the geometry columns,
+     * {@link #MIXED_SRID} if a column contains several SRID
+     * @return false if the target table contains a column type that cannot be
+     * copied, nothing is written in that case
+     * @throws SQLException
+     */
+    private static boolean copyToPostgreSQL(ResultSet inputRes, DBTypes sourceDBType, Connection targetConnection,
+            String ouputTableName, Map<String, Integer> geomColumnAndSRID) throws SQLException {
+        try (Statement outputST = targetConnection.createStatement();
+                ResultSet outputRes = outputST.executeQuery("SELECT * FROM " + ouputTableName + " LIMIT 0")) {
+            ResultSetMetaData outputMetadata = outputRes.getMetaData();
+            if (!PGCopyWriter.isSupported(targetConnection, outputMetadata)) {
+                return false;
             }
-        } catch (SQLException e) {
-            throw new SQLException("Cannot save the table " + sourceTable + " to the " + targetTable + "\n", e);
+            boolean sourceIsH2 = sourceDBType == DBTypes.H2GIS || sourceDBType == DBTypes.H2;
+            PGCopyWriter.copy(inputRes, sourceIsH2, targetConnection, ouputTableName, outputMetadata, geomColumnAndSRID);
+            return true;
+        } catch (NoClassDefFoundError e) {
+            // The PostgreSQL driver is not visible from this library
+            return false;
+        }
+    }
 
+    /**
+     * Add the SRID of a geometry to the SRID of its column
+     *
+     * @param geomColumnAndSRID geometry columns and their SRID
+     * @param columnName geometry column name
+     * @param srid SRID of the geometry, or {@link #MIXED_SRID}
+     */
+    private static void mergeSRID(Map<String, Integer> geomColumnAndSRID, String columnName, int srid) {
+        Integer previous = geomColumnAndSRID.get(columnName);
+        if (previous == null) {
+            geomColumnAndSRID.put(columnName, srid);
+        } else if (previous != srid) {
+            geomColumnAndSRID.put(columnName, MIXED_SRID);
+        }
+    }
+
+    /**
+     * Fill a table with batches of INSERT statements
+     *
+     * @param inputRes rows to insert
+     * @param targetConnection target database connection
+     * @param ouputTableName target table name
+     * @param batch_size batch size value before sending the data
+     * @param geomColumnAndSRID filled with the SRID of the geometry columns,
+     * {@link #MIXED_SRID} if a column contains several SRID
+     * @throws SQLException
+     */
+    private static void insertBatch(ResultSet inputRes, Connection targetConnection, String ouputTableName,
+            int batch_size, Map<String, Integer> geomColumnAndSRID) throws SQLException {
+        ResultSetMetaData inputMetadata = inputRes.getMetaData();
+        PreparedStatement preparedStatement = null;
+        try {
+            int columnsCount = inputMetadata.getColumnCount();
+            StringBuilder insertTable = new StringBuilder("INSERT INTO ");
+            insertTable.append(ouputTableName).append(" VALUES(?");
+            for (int i = 1; i < columnsCount; i++) {
+                insertTable.append(",").append("?");
+            }
+            insertTable.append(")");
+
+            preparedStatement = targetConnection.prepareStatement(insertTable.toString());
+            boolean[] geometryColumns = new boolean[columnsCount];
+            for (int i = 0; i < columnsCount; i++) {
+                geometryColumns[i] = inputMetadata.getColumnTypeName(i + 1).equalsIgnoreCase("GEOMETRY");
+            }
+            //Check the first row in order to limit the batch size if the query doesn't work
+            if (!inputRes.next()) {
+                return;
+            }
+            for (int i = 0; i < columnsCount; i++) {
+                int index = i + 1;
+                Object value = inputRes.getObject(index);
+                if (value != null && geometryColumns[i]) {
+                    mergeSRID(geomColumnAndSRID, inputMetadata.getColumnName(index), ((Geometry) value).getSRID());
+                }
+                preparedStatement.setObject(index, value);
+            }
+            preparedStatement.execute();
+            long batchSize = 0;
+            while (inputRes.next()) {
+                for (int i = 0; i < columnsCount; i++) {
+                    int index = i + 1;
+                    Object value = inputRes.getObject(index);
+                    if (value != null && geometryColumns[i]) {
+                        mergeSRID(geomColumnAndSRID, inputMetadata.getColumnName(index), ((Geometry) value).getSRID());
+                    }
+                    preparedStatement.setObject(index, value);
+                }
+                preparedStatement.addBatch();
+                batchSize++;
+                if (batchSize >= batch_size) {
+                    preparedStatement.executeBatch();
+                    preparedStatement.clearBatch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                preparedStatement.executeBatch();
+            }
+        } finally {
+            if (preparedStatement != null) {
+                preparedStatement.close();
+            }
         }
-        return ouputTableName;
     }
 }
@@ -0,0 +1,160 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+
+package org.h2gis.functions.io.utility;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * ReadBufferManager backed by memory-mapped segments of the channel. Values are
+ * read in place from the mapped pages, nothing is copied in the java heap.
+ * The file is mapped lazily by chunks of {@link #DEFAULT_SEGMENT_SIZE} bytes
+ * so files larger than 2GB can be read.
+ * <p>
+ * The JVM does not offer a way to unmap a buffer, {@link #close()} only drops
+ * the references to the segments and the pages are released when the
+ * segments are garbage collected. Until then, the file cannot be deleted or
+ * replaced on Windows.
+ */
+public final class MappedReadBufferManager extends ReadBufferManager {
+
+        /**
+         * Default size of a mapped segment (256 MB)
+         */
+        public static final long DEFAULT_SEGMENT_SIZE = 256L * 1024 * 1024;
+
+        /**
+         * Each segment also maps the first bytes of the next one, so that a value
+         * which overlaps the segment limit can be read in a single segment.
+         */
+        private static final int SEGMENT_OVERLAP = 64 * 1024;
+
+        private final long segmentSize;
+        private final int segmentOverlap;
+        private final long channelSize;
+        private final MappedByteBuffer[] segments;
+        private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+        /**
+         * Instantiates a MappedReadBufferManager to read the specified channel
+         *
+         * @param channel
+         * @throws java.io.IOException if the channel cannot be mapped
+         */
+        public MappedReadBufferManager(FileChannel channel) throws IOException {
+                this(channel, DEFAULT_SEGMENT_SIZE);
+        }
+
+        /**
+         * Instantiates a MappedReadBufferManager to read the specified channel.
+         * The specified segmentSize is the size of the chunks of the file mapped
+         * in memory.
+         *
+         * @param channel
+         * @param segmentSize
+         * @throws java.io.IOException if the channel cannot be mapped
+         */
+        public MappedReadBufferManager(FileChannel channel, long segmentSize) throws IOException {
+                super(channel, ByteBuffer.allocate(0));
+                if (segmentSize <= 0 || segmentSize + SEGMENT_OVERLAP > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("The segment size must be between 1 and "
+                                + (Integer.MAX_VALUE - SEGMENT_OVERLAP));
+                }
+                this.segmentSize = segmentSize;
+                this.segmentOverlap = (int) Math.min(SEGMENT_OVERLAP, segmentSize);
+                this.channelSize = channel.size();
+                this.segments = new MappedByteBuffer[(int) ((channelSize + segmentSize - 1) / segmentSize)];
+                if (segments.length > 0) {
+                        // Map the first segment now, so that a mapping failure is thrown by the constructor
+                        getWindowOffset(0, 1);
+                }
+        }
+
+        @Override
+        protected int getWindowOffset(long bytePos, int length) throws IOException {
+                if (bytePos >= windowStart && bytePos + length <= windowStart + buffer.capacity()) {
+                        return (int) (bytePos - windowStart);
+                }
+                if (bytePos < 0 || bytePos + length > channelSize) {
+                        throw new EOFException("Cannot read " + length + " bytes at position " + bytePos
+                                + ", the file length is " + channelSize);
+                }
+                int index = (int) (bytePos / segmentSize);
+                long segmentStart = index * segmentSize;
+                long segmentLength = Math.min(segmentSize + segmentOverlap, channelSize - segmentStart);
+                if (bytePos + length <= segmentStart + segmentLength) {
+                        MappedByteBuffer segment = segments[index];
+                        if (segment == null) {
+                                segment = map(segmentStart, segmentLength);
+                                segments[index] = segment;
+                        }
+                        buffer = segment;
+                        windowStart = segmentStart;
+                } else {
+                        // The value is larger than the overlap, map a dedicated window
+                        buffer = map(bytePos, length);
+                        windowStart = bytePos;
+                }
+                return (int) (bytePos - windowStart);
+        }
+
+        private MappedByteBuffer map(long position, long size) throws IOException {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                mapped.order(order);
+                return mapped;
+        }
+
+        /**
+         * Drops the references to the mapped segments, so that they can be
+         * garbage collected. The channel is not closed.
+         */
+        @Override
+        public void close() {
+                super.close();
+                Arrays.fill(segments, null);
+        }
+
+        @Override
+        public void order(ByteOrder order) {
+                this.order = order;
+                buffer.order(order);
+                for (MappedByteBuffer segment : segments) {
+                        if (segment != null) {
+                                segment.order(order);
+                        }
+                }
+        }
+
+        /**
+         * Gets the size of the mapped segments
+         *
+         * @return
+         */
+        public long getSegmentSize() {
+                return segmentSize;
+        }
+}
@@ -0,0 +1,311 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; you can
+ * redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License as published by the Free Software Foundation; version 3.0 of
+ * the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.io.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKBWriter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Stream the rows of a result set into a PostgreSQL table with a
+ * {@code COPY ... FROM STDIN (FORMAT binary)} command.
+ *
+ * Each value is written with the binary representation of the target column
+ * type and the geometries are sent as EWKB. Only the column types listed in
+ * {@link #SUPPORTED_TYPES} can be copied, the other tables must be filled with
+ * INSERT statements.
+ *
+ * This class uses the PostgreSQL driver, so it must only be loaded for a
+ * PostgreSQL connection.
+ */
+final class PGCopyWriter {
+
+    /**
+     * Signature, flags and header extension length of the binary copy format
+     */
+    private static final byte[] HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+        0, 0, 0, 0,
+        0, 0, 0, 0};
+    private static final int BUFFER_SIZE = 65536;
+    private static final Set<String> SUPPORTED_TYPES = new HashSet<>(Arrays.asList("bool", "int2", "int4", "int8",
+            "float4", "float8", "varchar", "text", "bpchar", "bytea", "geometry", "date", "timestamp"));
+    /**
+     * Dates and timestamps are counted from 2000-01-01
+     */
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final long EPOCH_DAY = EPOCH.toLocalDate().toEpochDay();
+    private static final int EWKB_SRID_FLAG = 0x20000000;
+
+    private PGCopyWriter() {
+    }
+
+    /**
+     * Check if the table can be filled with a binary copy
+     *
+     * @param connection target connection
+     * @param targetMetadata metadata of the target table
+     * @return true if all the column types are supported
+     * @throws SQLException
+     */
+    static boolean isSupported(Connection connection, ResultSetMetaData targetMetadata) throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            return false;
+        }
+        for (int i = 1; i <= targetMetadata.getColumnCount(); i++) {
+            if (!SUPPORTED_TYPES.contains(targetMetadata.getColumnTypeName(i).toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy all the remaining rows of the result set into the target table.
+     *
+     * @param source rows to copy, the columns must be in the order of the
+     * target table
+     * @param sourceIsH2 true if the source is a H2 database, the geometries
+     * are then read as EWKB without building the JTS geometries
+     * @param connection target connection
+     * @param tableName target table name
+     * @param targetMetadata metadata of the target table
+     * @param geomColumnAndSRID filled with the SRID of the geometry columns,
+     * keyed by source column name, {@link IOMethods#MIXED_SRID} if a column
+     * contains several SRID
+     * @return the number of copied rows
+     * @throws SQLException
+     */
+    static long copy(ResultSet source, boolean sourceIsH2, Connection connection, String tableName,
+            ResultSetMetaData targetMetadata, Map<String, Integer> geomColumnAndSRID) throws SQLException {
+        ResultSetMetaData sourceMetadata = source.getMetaData();
+        int columnCount = targetMetadata.getColumnCount();
+        if (sourceMetadata.getColumnCount() != columnCount) {
+            throw new SQLException("The source and the target tables must have the same number of columns");
+        }
+        String[] types = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            types[i] = targetMetadata.getColumnTypeName(i + 1).toLowerCase(Locale.ROOT);
+        }
+        // SRID found in each geometry column, null until the first geometry
+        Integer[] srids = new Integer[columnCount];
+        WKBWriter[] wkbWriters = {new WKBWriter(2, true), new WKBWriter(3, true)};
+        PGCopyOutputStream copyStream = new PGCopyOutputStream(connection.unwrap(PGConnection.class),
+                "COPY " + tableName + " FROM STDIN (FORMAT binary)");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(copyStream, BUFFER_SIZE));
+            out.write(HEADER);
+            while (source.next()) {
+                out.writeShort(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    int index = i + 1;
+                    switch (types[i]) {
+                        case "bool": {
+                            boolean value = source.getBoolean(index);
+                            if (source.wasNull()) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(1);
+                                out.writeBoolean(value);
+                            }
+                            break;
+                        }
+                        case "int2": {
+                            short value = source.getShort(index);
+                            if (source.wasNull()) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(2);
+                                out.writeShort(value);
+                            }
+                            break;
+                        }
+                        case "int4": {
+                            int value = source.getInt(index);
+                            if (source.wasNull()) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(4);
+                                out.writeInt(value);
+                            }
+                            break;
+                        }
+                        case "int8": {
+                            long value = source.getLong(index);
+                            if (source.wasNull()) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(8);
+                                out.writeLong(value);
+                            }
+                            break;
+                        }
+                        case "float4": {
+                            float value = source.getFloat(index);
+                            if (source.wasNull()) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(4);
+                                out.writeFloat(value);
+                            }
+                            break;
+                        }
+                        case "float8": {
+                            double value = source.getDouble(index);
+                            if (source.wasNull()) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(8);
+                                out.writeDouble(value);
+                            }
+                            break;
+                        }
+                        case "date": {
+                            Date value = source.getDate(index);
+                            if (value == null) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(4);
+                                out.writeInt((int) (value.toLocalDate().toEpochDay() - EPOCH_DAY));
+                            }
+                            break;
+                        }
+                        case "timestamp": {
+                            Timestamp value = source.getTimestamp(index);
+                            if (value == null) {
+                                out.writeInt(-1);
+                            } else {
+                                out.writeInt(8);
+                                out.writeLong(ChronoUnit.MICROS.between(EPOCH, value.toLocalDateTime()));
+                            }
+                            break;
+                        }
+                        case "bytea":
+                            writeBytes(out, source.getBytes(index));
+                            break;
+                        case "geometry": {
+                            byte[] ewkb;
+                            if (sourceIsH2) {
+                                ewkb = source.getBytes(index);
+                            } else {
+                                Geometry geometry = (Geometry) source.getObject(index);
+                                if (geometry == null) {
+                                    ewkb = null;
+                                } else {
+                                    Coordinate coordinate = geometry.getCoordinate();
+                                    boolean hasZ = coordinate != null && !Double.isNaN(coordinate.getZ());
+                                    ewkb = wkbWriters[hasZ ? 1 : 0].write(geometry);
+                                }
+                            }
+                            if (ewkb != null) {
+                                int srid = getSRID(ewkb);
+                                if (srids[i] == null) {
+                                    srids[i] = srid;
+                                } else if (srids[i] != srid) {
+                                    srids[i] = IOMethods.MIXED_SRID;
+                                }
+                            }
+                            writeBytes(out, ewkb);
+                            break;
+                        }
+                        default: {
+                            String value = source.getString(index);
+                            writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            }
+            out.writeShort(-1);
+            out.flush();
+            long rowCount = copyStream.endCopy();
+            for (int i = 0; i < columnCount; i++) {
+                if (srids[i] != null) {
+                    geomColumnAndSRID.put(sourceMetadata.getColumnName(i + 1), srids[i]);
+                }
+            }
+            return rowCount;
+        } catch (IOException | SQLException | RuntimeException e) {
+            if (copyStream.isActive()) {
+                copyStream.cancelCopy();
+            }
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            }
+            throw new SQLException("Cannot copy the data in the table " + tableName, e);
+        }
+    }
+
+    /**
+     * Write a variable length value, or the null marker
+     *
+     * @param out copy stream
+     * @param value bytes of the value
+     * @throws IOException
+     */
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    /**
+     * Read the SRID stored in a EWKB header
+     *
+     * @param ewkb geometry as EWKB
+     * @return the SRID or 0 if there is no SRID
+     */
+    private static int getSRID(byte[] ewkb) {
+        boolean bigEndian = ewkb[0] == 0;
+        if ((readInt(ewkb, 1, bigEndian) & EWKB_SRID_FLAG) == 0) {
+            return 0;
+        }
+        return readInt(ewkb, 5, bigEndian);
+    }
+
+    private static int readInt(byte[] bytes, int offset, boolean bigEndian) {
+        if (bigEndian) {
+            return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                    | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+        }
+        return (bytes[offset + 3] & 0xFF) << 24 | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset] & 0xFF);
+    }
+}
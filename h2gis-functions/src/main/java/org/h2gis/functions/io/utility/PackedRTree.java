@@ -0,0 +1,404 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+
+package org.h2gis.functions.io.utility;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Static R-Tree packed along a Hilbert curve and stored in a file.
+ * The tree is built once from the bounding boxes of the items, then written in
+ * a file that is read through a {@link ReadBufferManager}, so the tree is not
+ * loaded in the java heap.
+ *
+ * The file starts with a header that holds the last modification date and
+ * the length of the source file, it is used to detect that the index is outdated.
+ */
+public final class PackedRTree {
+
+        public static final int DEFAULT_NODE_SIZE = 16;
+        private static final int MAGIC = 0x48325254; // H2RT
+        private static final int VERSION = 1;
+        private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+        private static final int HILBERT_MAX = (1 << 16) - 1;
+
+        private final FileInputStream inputStream;
+        private final ReadBufferManager buffer;
+        private final int numItems;
+        private final int nodeSize;
+        private final long[] levelBounds;
+        private final long boxesPosition;
+        private final long indicesPosition;
+
+        private PackedRTree(FileInputStream inputStream, ReadBufferManager buffer, int numItems, int nodeSize,
+                            int numNodes) {
+                this.inputStream = inputStream;
+                this.buffer = buffer;
+                this.numItems = numItems;
+                this.nodeSize = nodeSize;
+                this.levelBounds = computeLevelBounds(numItems, nodeSize);
+                this.boxesPosition = HEADER_SIZE;
+                this.indicesPosition = HEADER_SIZE + 32L * numNodes;
+        }
+
+        /**
+         * Position of the first node of each level, the leaves are in [0, levelBounds[0][
+         */
+        private static long[] computeLevelBounds(int numItems, int nodeSize) {
+                long[] bounds = new long[]{numItems};
+                long n = numItems;
+                long numNodes = numItems;
+                do {
+                        n = (n + nodeSize - 1) / nodeSize;
+                        numNodes += n;
+                        bounds = Arrays.copyOf(bounds, bounds.length + 1);
+                        bounds[bounds.length - 1] = numNodes;
+                } while (n > 1);
+                return bounds;
+        }
+
+        /**
+         * Opens an existing index file.
+         *
+         * @param indexFile Index file
+         * @param sourceFile Indexed file
+         * @return The tree or null if the index file does not exists or has not
+         * been created from the current version of the source file
+         * @throws IOException
+         */
+        public static PackedRTree open(File indexFile, File sourceFile) throws IOException {
+                if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+                        return null;
+                }
+                FileInputStream inputStream = new FileInputStream(indexFile);
+                try {
+                        ReadBufferManager buffer = ReadBufferManager.open(inputStream.getChannel());
+                        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                                || buffer.getLong() != sourceFile.lastModified()
+                                || buffer.getLong() != sourceFile.length()) {
+                                buffer.close();
+                                inputStream.close();
+                                return null;
+                        }
+                        int numItems = buffer.getInt();
+                        int nodeSize = buffer.getInt();
+                        int numNodes = buffer.getInt();
+                        if (indexFile.length() != HEADER_SIZE + 36L * numNodes) {
+                                buffer.close();
+                                inputStream.close();
+                                return null;
+                        }
+                        return new PackedRTree(inputStream, buffer, numItems, nodeSize, numNodes);
+                } catch (IOException ex) {
+                        inputStream.close();
+                        throw ex;
+                }
+        }
+
+        /**
+         * Builds the tree and writes it in the index file.
+         *
+         * @param indexFile Index file to create
+         * @param sourceFile Indexed file
+         * @param itemIds Identifier of the items
+         * @param itemBoxes Bounding boxes of the items, stored as [minX, minY, maxX, maxY]
+         * @param numItems Number of items to read in itemIds and itemBoxes
+         * @param nodeSize Maximum number of children per node
+         * @throws IOException
+         */
+        public static void write(File indexFile, File sourceFile, int[] itemIds, double[] itemBoxes, int numItems,
+                                 int nodeSize) throws IOException {
+                long[] levelBounds = computeLevelBounds(numItems, nodeSize);
+                long numNodesLong = levelBounds[levelBounds.length - 1];
+                if (4 * numNodesLong > Integer.MAX_VALUE) {
+                        throw new IOException("Too many items to index: " + numItems);
+                }
+                int numNodes = (int) numNodesLong;
+                double[] boxes = Arrays.copyOf(itemBoxes, numNodes * 4);
+                int[] indices = Arrays.copyOf(itemIds, numNodes);
+                if (numItems > 0) {
+                        sortItems(boxes, indices, numItems, nodeSize);
+                }
+                // Generate the nodes of each level, bottom-up
+                int pos = 0;
+                int nodePos = numItems;
+                for (int level = 0; level < levelBounds.length - 1; level++) {
+                        int end = (int) levelBounds[level];
+                        while (pos < end) {
+                                int nodeIndex = pos;
+                                double minX = boxes[4 * pos];
+                                double minY = boxes[4 * pos + 1];
+                                double maxX = boxes[4 * pos + 2];
+                                double maxY = boxes[4 * pos + 3];
+                                pos++;
+                                for (int j = 1; j < nodeSize && pos < end; j++, pos++) {
+                                        minX = Math.min(minX, boxes[4 * pos]);
+                                        minY = Math.min(minY, boxes[4 * pos + 1]);
+                                        maxX = Math.max(maxX, boxes[4 * pos + 2]);
+                                        maxY = Math.max(maxY, boxes[4 * pos + 3]);
+                                }
+                                indices[nodePos] = nodeIndex;
+                                boxes[4 * nodePos] = minX;
+                                boxes[4 * nodePos + 1] = minY;
+                                boxes[4 * nodePos + 2] = maxX;
+                                boxes[4 * nodePos + 3] = maxY;
+                                nodePos++;
+                        }
+                }
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(indexFile), 64 * 1024))) {
+                        out.writeInt(MAGIC);
+                        out.writeInt(VERSION);
+                        out.writeLong(sourceFile.lastModified());
+                        out.writeLong(sourceFile.length());
+                        out.writeInt(numItems);
+                        out.writeInt(nodeSize);
+                        out.writeInt(numNodes);
+                        for (double value : boxes) {
+                                out.writeDouble(value);
+                        }
+                        for (int index : indices) {
+                                out.writeInt(index);
+                        }
+                }
+        }
+
+        /**
+         * Sort the items along a Hilbert curve. Items are only sorted between
+         * nodes, not inside a node.
+         */
+        private static void sortItems(double[] boxes, int[] indices, int numItems, int nodeSize) {
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < numItems; i++) {
+                        minX = Math.min(minX, boxes[4 * i]);
+                        minY = Math.min(minY, boxes[4 * i + 1]);
+                        maxX = Math.max(maxX, boxes[4 * i + 2]);
+                        maxY = Math.max(maxY, boxes[4 * i + 3]);
+                }
+                double width = maxX - minX > 0 ? maxX - minX : 1;
+                double height = maxY - minY > 0 ? maxY - minY : 1;
+                long[] hilbertValues = new long[numItems];
+                for (int i = 0; i < numItems; i++) {
+                        int x = (int) Math.floor(HILBERT_MAX * ((boxes[4 * i] + boxes[4 * i + 2]) / 2 - minX) / width);
+                        int y = (int) Math.floor(HILBERT_MAX * ((boxes[4 * i + 1] + boxes[4 * i + 3]) / 2 - minY) / height);
+                        hilbertValues[i] = hilbert(x, y);
+                }
+                sort(hilbertValues, boxes, indices, 0, numItems - 1, nodeSize);
+        }
+
+        /**
+         * Quicksort that stops when the items of the range are in the same node
+         */
+        private static void sort(long[] values, double[] boxes, int[] indices, int left, int right, int nodeSize) {
+                while (left / nodeSize < right / nodeSize) {
+                        long pivot = values[(left + right) >>> 1];
+                        int i = left - 1;
+                        int j = right + 1;
+                        while (true) {
+                                do {
+                                        i++;
+                                } while (values[i] < pivot);
+                                do {
+                                        j--;
+                                } while (values[j] > pivot);
+                                if (i >= j) {
+                                        break;
+                                }
+                                swap(values, boxes, indices, i, j);
+                        }
+                        // Recurse on the smallest part to bound the stack depth
+                        if (j - left < right - j) {
+                                sort(values, boxes, indices, left, j, nodeSize);
+                                left = j + 1;
+                        } else {
+                                sort(values, boxes, indices, j + 1, right, nodeSize);
+                                right = j;
+                        }
+                }
+        }
+
+        private static void swap(long[] values, double[] boxes, int[] indices, int i, int j) {
+                long value = values[i];
+                values[i] = values[j];
+                values[j] = value;
+                for (int k = 0; k < 4; k++) {
+                        double box = boxes[4 * i + k];
+                        boxes[4 * i + k] = boxes[4 * j + k];
+                        boxes[4 * j + k] = box;
+                }
+                int index = indices[i];
+                indices[i] = indices[j];
+                indices[j] = index;
+        }
+
+        /**
+         * Position of (x, y) on a Hilbert curve of order 16
+         * From "Fast Hilbert curve generation, sorting, and range queries"
+         * http://threadlocalmutex.com/?p=126
+         */
+        private static long hilbert(int x, int y) {
+                int a = x ^ y;
+                int b = 0xFFFF ^ a;
+                int c = 0xFFFF ^ (x | y);
+                int d = x & (y ^ 0xFFFF);
+
+                int A = a | (b >> 1);
+                int B = (a >> 1) ^ a;
+                int C = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+                int D = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+                a = A;
+                b = B;
+                c = C;
+                d = D;
+                A = ((a & (a >> 2)) ^ (b & (b >> 2)));
+                B = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+                C ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+                D ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+                a = A;
+                b = B;
+                c = C;
+                d = D;
+                A = ((a & (a >> 4)) ^ (b & (b >> 4)));
+                B = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+                C ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+                D ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+                a = A;
+                b = B;
+                c = C;
+                d = D;
+                C ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+                D ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+                a = C ^ (C >> 1);
+                b = D ^ (D >> 1);
+
+                int i0 = x ^ y;
+                int i1 = b | (0xFFFF ^ (i0 | a));
+
+                i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+                i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+                i0 = (i0 | (i0 << 2)) & 0x33333333;
+                i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+                i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+                i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+                i1 = (i1 | (i1 << 2)) & 0x33333333;
+                i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+                return ((i1 << 1) | i0) & 0xFFFFFFFFL;
+        }
+
+        /**
+         * Gets the number of indexed items
+         *
+         * @return
+         */
+        public int getNumItems() {
+                return numItems;
+        }
+
+        /**
+         * Finds the items whose bounding box intersects the given envelope.
+         *
+         * @param envelope Search envelope
+         * @return Identifiers of the items, sorted in ascending order
+         * @throws IOException
+         */
+        public int[] query(Envelope envelope) throws IOException {
+                int[] results = new int[16];
+                int resultCount = 0;
+                if (numItems == 0 || envelope.isNull()) {
+                        return new int[0];
+                }
+                long[] queue = new long[16];
+                int queueSize = 0;
+                long nodeIndex = levelBounds[levelBounds.length - 1] - 1;
+                int level = levelBounds.length - 1;
+                while (true) {
+                        // Search the children of the node
+                        long end = Math.min(nodeIndex + nodeSize, levelBounds[level]);
+                        for (long pos = nodeIndex; pos < end; pos++) {
+                                long boxPosition = boxesPosition + 32 * pos;
+                                if (envelope.getMaxX() < buffer.getDouble(boxPosition)
+                                        || envelope.getMaxY() < buffer.getDouble(boxPosition + 8)
+                                        || envelope.getMinX() > buffer.getDouble(boxPosition + 16)
+                                        || envelope.getMinY() > buffer.getDouble(boxPosition + 24)) {
+                                        continue;
+                                }
+                                int index = buffer.getInt(indicesPosition + 4 * pos);
+                                if (nodeIndex >= numItems) {
+                                        if (queueSize == queue.length) {
+                                                queue = Arrays.copyOf(queue, queueSize * 2);
+                                        }
+                                        queue[queueSize++] = index;
+                                } else {
+                                        if (resultCount == results.length) {
+                                                results = Arrays.copyOf(results, resultCount * 2);
+                                        }
+                                        results[resultCount++] = index;
+                                }
+                        }
+                        if (queueSize == 0) {
+                                break;
+                        }
+                        nodeIndex = queue[--queueSize];
+                        level = upperBound(nodeIndex);
+                }
+                results = Arrays.copyOf(results, resultCount);
+                Arrays.sort(results);
+                return results;
+        }
+
+        /**
+         * @return the level of the node, the index of the first level bound greater than the node index
+         */
+        private int upperBound(long nodeIndex) {
+                int i = 0;
+                while (levelBounds[i] <= nodeIndex) {
+                        i++;
+                }
+                return i;
+        }
+
+        /**
+         * Close the index file
+         *
+         * @throws IOException
+         */
+        public void close() throws IOException {
+                buffer.close();
+                inputStream.close();
+        }
+}
@@ -25,12 +25,25 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 
-public final class ReadBufferManager {
+/**
+ * Random access reader over a file channel. This implementation copies a
+ * window of the channel in a heap buffer, see {@link MappedReadBufferManager}
+ * for the memory-mapped variant.
+ */
+public class ReadBufferManager {
+
+        /**
+         * System property used to disable the memory-mapped readers returned by
+         * {@link #open(FileChannel, int)}. The mapped readers are disabled by
+         * default on Windows, where a mapped file stays locked until the mapping
+         * is garbage collected.
+         */
+        public static final String MMAP_PROPERTY = "h2gis.mmap";
 
         private int bufferSize;
-        private ByteBuffer buffer;
-        private FileChannel channel;
-        private long windowStart;
+        protected ByteBuffer buffer;
+        protected final FileChannel channel;
+        protected long windowStart;
         private long positionInFile;
 
         /**
@@ -60,14 +73,73 @@ public final class ReadBufferManager {
                 getWindowOffset(0, bufferSize);
         }
 
+        /**
+         * Instantiates a ReadBufferManager that starts with the given window. The
+         * window is not read from the channel, it is used by subclasses that
+         * provide their own windowing.
+         *
+         * @param channel
+         * @param window
+         */
+        protected ReadBufferManager(FileChannel channel, ByteBuffer window) {
+                this.channel = channel;
+                this.buffer = window;
+                this.bufferSize = window.capacity();
+                windowStart = 0;
+        }
+
+        /**
+         * Opens a ReadBufferManager on the specified channel. The channel is
+         * memory-mapped unless the {@link #MMAP_PROPERTY} system property is set
+         * to false, the platform is Windows or the mapping fails, the buffered
+         * implementation is used in that case.
+         *
+         * @param channel
+         * @param bufferSize size of the window used by the buffered implementation
+         * @return a ReadBufferManager
+         * @throws java.io.IOException
+         */
+        public static ReadBufferManager open(FileChannel channel, int bufferSize) throws IOException {
+                String defaultMmap = Boolean.toString(!System.getProperty("os.name", "").startsWith("Windows"));
+                if (Boolean.parseBoolean(System.getProperty(MMAP_PROPERTY, defaultMmap))) {
+                        try {
+                                return new MappedReadBufferManager(channel);
+                        } catch (IOException ex) {
+                                // Cannot map the file (address space exhausted...), fall back to the heap buffer
+                        }
+                }
+                return new ReadBufferManager(channel, bufferSize);
+        }
+
+        /**
+         * Opens a ReadBufferManager on the specified channel.
+         *
+         * @param channel
+         * @return a ReadBufferManager
+         * @throws java.io.IOException
+         * @see #open(FileChannel, int)
+         */
+        public static ReadBufferManager open(FileChannel channel) throws IOException {
+                return open(channel, 1024 * 32);
+        }
+
+        /**
+         * Releases the buffers of this manager. The channel is not closed.
+         */
+        public void close() {
+                buffer = ByteBuffer.allocate(0);
+                windowStart = 0;
+        }
+
         /**
          * Moves the window if necessary to contain the desired byte and returns the
          * position of the byte in the window
          *
          * @param bytePos
+         * @param length
          * @throws java.io.IOException
          */
-        private int getWindowOffset(long bytePos, int length) throws IOException {
+        protected int getWindowOffset(long bytePos, int length) throws IOException {
                 long desiredMax = bytePos + length - 1;
                 if ((bytePos >= windowStart)
                         && (desiredMax < windowStart + buffer.capacity())) {
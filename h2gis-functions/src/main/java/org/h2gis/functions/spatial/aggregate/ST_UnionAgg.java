@@ -0,0 +1,130 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.aggregate;
+
+import org.h2.api.Aggregate;
+import org.h2.value.Value;
+import org.h2gis.api.AbstractFunction;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregate function that computes the union of a column of geometries.
+ *
+ * <p>The geometries are not all kept until the end of the aggregation. They
+ * are added to a bucket of {@link #BUCKET_SIZE} geometries, and a full bucket
+ * is replaced by its union in the bucket of the next level. So at most
+ * {@link #BUCKET_SIZE} geometries are kept by level, and the partial unions of
+ * a level cover about {@link #BUCKET_SIZE} times more input rows than the
+ * level below. Each union is done by {@link UnaryUnionOp}, which merges the
+ * geometries of a bucket in the order of an STR-tree.
+ */
+public class ST_UnionAgg extends AbstractFunction implements Aggregate {
+
+    /** Number of geometries unioned at once */
+    static final int BUCKET_SIZE = 256;
+
+    private final List<List<Geometry>> levels = new ArrayList<List<Geometry>>();
+    private int srid = -1;
+
+    public ST_UnionAgg() {
+        addProperty(PROP_REMARKS, "This aggregate function returns the union of a column of geometries.\n"
+                + "The geometries are unioned incrementally, by buckets, so it requires less memory than\n"
+                + "ST_Union(ST_Accum(the_geom)).");
+    }
+
+    @Override
+    public void init(Connection connection) throws SQLException {
+    }
+
+    @Override
+    public int getInternalType(int[] inputTypes) throws SQLException {
+        if (inputTypes.length != 1) {
+            throw new SQLException(ST_UnionAgg.class.getSimpleName() + " expects 1 argument.");
+        }
+        if (inputTypes[0] != Value.GEOMETRY) {
+            throw new SQLException(ST_UnionAgg.class.getSimpleName() + " expects a Geometry argument");
+        }
+        return Value.GEOMETRY;
+    }
+
+    @Override
+    public void add(Object o) throws SQLException {
+        if (o instanceof Geometry) {
+            Geometry geom = (Geometry) o;
+            if (srid == -1) {
+                srid = geom.getSRID();
+            }
+            if (srid != geom.getSRID()) {
+                throw new SQLException("Operation on mixed SRID geometries not supported");
+            }
+            addToLevel(0, geom);
+        } else if (o != null) {
+            throw new SQLException("ST_UnionAgg accepts only Geometry values. Input: " +
+                    o.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Add a geometry to the bucket of a level. A full bucket is replaced by
+     * the union of its geometries in the next level.
+     *
+     * @param level Level, 0 for the input geometries
+     * @param geom  Geometry
+     */
+    private void addToLevel(int level, Geometry geom) {
+        while (true) {
+            if (levels.size() == level) {
+                levels.add(new ArrayList<Geometry>(BUCKET_SIZE));
+            }
+            final List<Geometry> bucket = levels.get(level);
+            bucket.add(geom);
+            if (bucket.size() < BUCKET_SIZE) {
+                return;
+            }
+            geom = UnaryUnionOp.union(bucket);
+            bucket.clear();
+            level++;
+        }
+    }
+
+    @Override
+    public Geometry getResult() throws SQLException {
+        if (srid == -1) {
+            return null;
+        }
+        List<Geometry> remaining = new ArrayList<Geometry>();
+        for (List<Geometry> bucket : levels) {
+            remaining.addAll(bucket);
+        }
+        GeometryFactory factory = new GeometryFactory(new PrecisionModel(), srid);
+        Geometry result = UnaryUnionOp.union(remaining, factory);
+        result.setSRID(srid);
+        return result;
+    }
+}
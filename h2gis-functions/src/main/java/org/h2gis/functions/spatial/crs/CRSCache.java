@@ -0,0 +1,360 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.crs;
+
+import org.cts.CRSHelper;
+import org.cts.Identifier;
+import org.cts.crs.CRSException;
+import org.cts.crs.CoordinateReferenceSystem;
+import org.cts.crs.GeodeticCRS;
+import org.cts.op.CoordinateOperation;
+import org.cts.op.CoordinateOperationException;
+import org.cts.op.CoordinateOperationFactory;
+import org.cts.registry.RegistryException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps in memory the coordinate reference systems read from the
+ * SPATIAL_REF_SYS table and the coordinate operations built between them.
+ *
+ * <p>The cache has three levels, all keyed by SRID:
+ * <ul>
+ * <li>the proj4 parameters of a SPATIAL_REF_SYS row,</li>
+ * <li>the {@link CoordinateReferenceSystem} parsed from these parameters,</li>
+ * <li>the most precise {@link CoordinateOperation} between two SRIDs
+ * ({@link EPSGTuple}).</li>
+ * </ul>
+ *
+ * <p>The connection of the calling function is only used to read a missing
+ * SPATIAL_REF_SYS row, no shared state is bound to it. So the cache can be
+ * used by concurrent sessions. A cached entry is not refreshed when the
+ * SPATIAL_REF_SYS table is modified, call {@link #clear()} in that case.
+ *
+ * <p>Each level holds at most {@link #getMaxSize()} entries, the least
+ * recently used entries are evicted first.
+ */
+public final class CRSCache {
+
+    /** Default number of entries of each level */
+    public static final int DEFAULT_SIZE = 256;
+
+    private static final Level<Integer, Map<String, String>> PARAMETERS = new Level<Integer, Map<String, String>>(DEFAULT_SIZE);
+    private static final Level<Integer, CoordinateReferenceSystem> CRS = new Level<Integer, CoordinateReferenceSystem>(DEFAULT_SIZE);
+    private static final Level<EPSGTuple, Operation> OPERATIONS = new Level<EPSGTuple, Operation>(DEFAULT_SIZE);
+
+    private CRSCache() {
+    }
+
+    /**
+     * @return Maximum number of entries of each level
+     */
+    public static int getMaxSize() {
+        return CRS.getMaxSize();
+    }
+
+    /**
+     * Set the maximum number of entries of each level. The least recently
+     * used entries are evicted if a level is too large.
+     *
+     * @param maxSize Maximum number of entries, 0 to disable the cache
+     */
+    public static void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        PARAMETERS.setMaxSize(maxSize);
+        CRS.setMaxSize(maxSize);
+        OPERATIONS.setMaxSize(maxSize);
+    }
+
+    /**
+     * Remove all the entries and reset the hit and miss counters.
+     */
+    public static void clear() {
+        PARAMETERS.clear();
+        CRS.clear();
+        OPERATIONS.clear();
+    }
+
+    /**
+     * @return Cache of the proj4 parameters read from SPATIAL_REF_SYS
+     */
+    public static Level<Integer, ?> getParametersLevel() {
+        return PARAMETERS;
+    }
+
+    /**
+     * @return Cache of the coordinate reference systems
+     */
+    public static Level<Integer, ?> getCRSLevel() {
+        return CRS;
+    }
+
+    /**
+     * @return Cache of the coordinate operations
+     */
+    public static Level<EPSGTuple, ?> getOperationLevel() {
+        return OPERATIONS;
+    }
+
+    /**
+     * Return the coordinate reference system of a SRID.
+     *
+     * @param connection Connection used to read the SPATIAL_REF_SYS table if
+     *                   the CRS is not cached
+     * @param srid       SRID of the CRS
+     * @return The coordinate reference system
+     * @throws SQLException if the SPATIAL_REF_SYS table cannot be read
+     * @throws CRSException if the SRID is unknown or cannot be parsed
+     */
+    public static CoordinateReferenceSystem getCRS(Connection connection, int srid) throws SQLException, CRSException {
+        CoordinateReferenceSystem crs = CRS.get(srid);
+        if (crs == null) {
+            // The CRS helper may alter the parameters
+            Map<String, String> parameters = new HashMap<String, String>(getParameters(connection, srid));
+            crs = CRSHelper.createCoordinateReferenceSystem(
+                    new Identifier("epsg", String.valueOf(srid), ""), parameters);
+            if (crs == null) {
+                throw new CRSException("Cannot create the CRS epsg:" + srid);
+            }
+            crs = CRS.put(srid, crs);
+        }
+        return crs;
+    }
+
+    /**
+     * Return the most precise coordinate operation from a SRID to another.
+     *
+     * @param connection Connection used to read the SPATIAL_REF_SYS table if
+     *                   the CRSes are not cached
+     * @param inputSRID  SRID of the input CRS
+     * @param targetSRID SRID of the target CRS
+     * @return The coordinate operation, or null if both CRSes are equal
+     * @throws SQLException if the transformation is not supported
+     * @throws CRSException if a SRID is unknown or cannot be parsed
+     * @throws CoordinateOperationException if the operation cannot be built
+     */
+    public static CoordinateOperation getCoordinateOperation(Connection connection, int inputSRID, int targetSRID)
+            throws SQLException, CRSException, CoordinateOperationException {
+        EPSGTuple epsg = new EPSGTuple(inputSRID, targetSRID);
+        Operation operation = OPERATIONS.get(epsg);
+        if (operation == null) {
+            CoordinateReferenceSystem inputCRS = getCRS(connection, inputSRID);
+            CoordinateReferenceSystem targetCRS = getCRS(connection, targetSRID);
+            if (inputCRS.equals(targetCRS)) {
+                operation = new Operation(null);
+            } else if (inputCRS instanceof GeodeticCRS && targetCRS instanceof GeodeticCRS) {
+                Set<CoordinateOperation> ops = CoordinateOperationFactory
+                        .createCoordinateOperations((GeodeticCRS) inputCRS, (GeodeticCRS) targetCRS);
+                if (ops.isEmpty()) {
+                    throw new SQLException("Cannot find a transformation from "
+                            + inputCRS + " to " + targetSRID + ".");
+                }
+                operation = new Operation(CoordinateOperationFactory.getMostPrecise(ops));
+            } else {
+                throw new SQLException("The transformation from "
+                        + inputCRS + " to " + targetSRID + " is not yet supported.");
+            }
+            operation = OPERATIONS.put(epsg, operation);
+        }
+        return operation.coordinateOperation;
+    }
+
+    /**
+     * Return the proj4 parameters of a SRID.
+     *
+     * @param connection Connection used to read the SPATIAL_REF_SYS table if
+     *                   the parameters are not cached
+     * @param srid       SRID
+     * @return The parameters, must not be modified
+     */
+    private static Map<String, String> getParameters(Connection connection, int srid) throws SQLException, CRSException {
+        Map<String, String> parameters = PARAMETERS.get(srid);
+        if (parameters == null) {
+            PreparedStatement prepStmt = connection.prepareStatement(
+                    "SELECT proj4text, auth_name FROM SPATIAL_REF_SYS where srid=?");
+            try {
+                prepStmt.setInt(1, srid);
+                ResultSet rs = prepStmt.executeQuery();
+                if (!rs.next()) {
+                    throw new CRSException("Cannot find the SRID " + srid + " in the SPATIAL_REF_SYS table");
+                }
+                parameters = SpatialRefRegistry.parseProj4(rs.getString(1), rs.getString(2) + ":" + srid);
+            } catch (RegistryException ex) {
+                throw new CRSException("Cannot create the CRS", ex);
+            } finally {
+                prepStmt.close();
+            }
+            parameters = PARAMETERS.put(srid, Collections.unmodifiableMap(parameters));
+        }
+        return parameters;
+    }
+
+    /**
+     * Cached coordinate operation, null if the CRSes are equal.
+     */
+    private static final class Operation {
+        private final CoordinateOperation coordinateOperation;
+
+        private Operation(CoordinateOperation coordinateOperation) {
+            this.coordinateOperation = coordinateOperation;
+        }
+    }
+
+    /**
+     * One level of the cache. Reads do not lock, the least recently used
+     * entry is searched only when a level is full.
+     *
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    public static final class Level<K, V> {
+        private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+        /** Incremented on each insertion, entries keep the tick of their last access */
+        private final AtomicLong clock = new AtomicLong();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private volatile int maxSize;
+
+        private Level(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @param key Key
+         * @return The cached value or null
+         */
+        V get(K key) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            // Only write when the tick changed, hot entries are shared by all the threads
+            long tick = clock.get();
+            if (entry.lastAccess != tick) {
+                entry.lastAccess = tick;
+            }
+            return entry.value;
+        }
+
+        /**
+         * Add a value, unless another thread has already added one.
+         *
+         * @param key   Key
+         * @param value Value
+         * @return The value in the cache
+         */
+        V put(K key, V value) {
+            if (maxSize == 0) {
+                return value;
+            }
+            Entry<V> previous = entries.putIfAbsent(key, new Entry<V>(value, clock.incrementAndGet()));
+            if (previous != null) {
+                return previous.value;
+            }
+            if (entries.size() > maxSize) {
+                evict();
+            }
+            return value;
+        }
+
+        /**
+         * Remove the least recently used entries until the level is not
+         * larger than its maximum size.
+         */
+        private synchronized void evict() {
+            while (entries.size() > maxSize) {
+                Map.Entry<K, Entry<V>> eldest = null;
+                for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                    if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                entries.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+
+        /**
+         * @return Number of cached entries
+         */
+        public int size() {
+            return entries.size();
+        }
+
+        /**
+         * @return Maximum number of cached entries
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        private void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            evict();
+        }
+
+        /**
+         * @return Number of lookups that found a cached value
+         */
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        /**
+         * @return Number of lookups that did not find a cached value
+         */
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        private void clear() {
+            entries.clear();
+            hits.reset();
+            misses.reset();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long lastAccess;
+
+        private Entry(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
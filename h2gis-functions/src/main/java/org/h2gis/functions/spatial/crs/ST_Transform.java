@@ -20,25 +20,24 @@
 
 package org.h2gis.functions.spatial.crs;
 
-import org.cts.CRSFactory;
 import org.cts.IllegalCoordinateException;
 import org.cts.crs.CRSException;
-import org.cts.crs.CoordinateReferenceSystem;
-import org.cts.crs.GeodeticCRS;
 import org.cts.op.CoordinateOperation;
 import org.cts.op.CoordinateOperationException;
-import org.cts.op.CoordinateOperationFactory;
 import org.h2gis.api.AbstractFunction;
 import org.h2gis.api.ScalarFunction;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateFilter;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryComponentFilter;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,16 +46,13 @@ import java.util.logging.Logger;
  * This class is used to transform a geometry from one CRS to another. 
  * Only integer codes available in the spatial_ref_sys table are allowed.
  * The default source CRS is the input geometry's internal CRS.
+ * The CRSes and the coordinate operations are kept in the {@link CRSCache}.
  *
  * @author Erwan Bocher
  * @author Adam Gouge
  */
 public class ST_Transform extends AbstractFunction implements ScalarFunction {
 
-    private static CRSFactory crsf;
-    private static SpatialRefRegistry srr = new SpatialRefRegistry();
-    private static Map<EPSGTuple, CoordinateOperation> copPool = new CopCache(5);
-
     /**
      * Constructor
      */
@@ -86,57 +82,61 @@ public class ST_Transform extends AbstractFunction implements ScalarFunction {
         if (codeEpsg == null) {
             throw new IllegalArgumentException("The SRID code cannot be null.");
         }
-        if (crsf == null) {
-            crsf = new CRSFactory();
-            //Activate the CRSFactory and the internal H2 spatial_ref_sys registry to
-            // manage Coordinate Reference Systems.
-            crsf.getRegistryManager().addRegistry(srr);
+        int inputSRID = geom.getSRID();
+        if (inputSRID == 0) {
+            throw new SQLException("Cannot find a CRS");
         }
-        srr.setConnection(connection);
         try {
-            int inputSRID = geom.getSRID();
-            if (inputSRID == 0) {
-                throw new SQLException("Cannot find a CRS");
-            } else {
-                CoordinateReferenceSystem inputCRS = crsf.getCRS(srr.getRegistryName() + ":" + inputSRID);
-                CoordinateReferenceSystem targetCRS = crsf.getCRS(srr.getRegistryName() + ":" + codeEpsg);
-                if (inputCRS.equals(targetCRS)) {
-                    return geom;
-                }
-                EPSGTuple epsg = new EPSGTuple(inputSRID, codeEpsg);
-                CoordinateOperation op = copPool.get(epsg);
-                if (op != null) {
-                    Geometry outPutGeom = geom.copy();
-                    outPutGeom.geometryChanged();
-                    outPutGeom.apply(new CRSTransformFilter(op));
-                    outPutGeom.setSRID(codeEpsg);
-                    return outPutGeom;
-                } else {
-                    if (inputCRS instanceof GeodeticCRS && targetCRS instanceof GeodeticCRS) {
-                        Set<CoordinateOperation> ops = CoordinateOperationFactory
-                                .createCoordinateOperations((GeodeticCRS) inputCRS, (GeodeticCRS) targetCRS);
-                        if (!ops.isEmpty()) {
-                            op = CoordinateOperationFactory.getMostPrecise(ops);
-                            Geometry outPutGeom = geom.copy();
-                            outPutGeom.geometryChanged();
-                            outPutGeom.apply(new CRSTransformFilter(op));
-                            copPool.put(epsg, op);
-                            outPutGeom.setSRID(codeEpsg);
-                            return outPutGeom;
-                        }
-                    } else {
-                        throw new SQLException("The transformation from "
-                                + inputCRS + " to " + codeEpsg + " is not yet supported.");
-                    }
-                }
+            CoordinateOperation op = CRSCache.getCoordinateOperation(connection, inputSRID, codeEpsg);
+            if (op == null) {
+                return geom;
             }
+            return transform(geom, op, codeEpsg);
         } catch (CRSException ex) {
             throw new SQLException("Cannot create the CRS", ex);
-        } finally {
-            srr.setConnection(null);
         }
-        return null;
+    }
+
+    /**
+     * Returns a copy of the geometry transformed by a coordinate operation.
+     * The coordinates are transformed one {@link CoordinateSequence} at a time.
+     *
+     * @param geom Geometry
+     * @param op   Coordinate operation
+     * @param srid SRID of the transformed geometry
+     * @return The transformed geometry
+     */
+    public static Geometry transform(Geometry geom, CoordinateOperation op, int srid) {
+        Geometry outPutGeom = geom.copy();
+        outPutGeom.apply(new CRSTransformSequenceFilter(op));
+        outPutGeom.geometryChanged();
+        outPutGeom.setSRID(srid);
+        return outPutGeom;
+    }
 
+    /**
+     * Transform packed coordinates in place.
+     *
+     * @param op      Coordinate operation
+     * @param xyz     x, y and z of each coordinate
+     * @param count   Number of coordinates
+     */
+    public static void transform(CoordinateOperation op, double[] xyz, int count) {
+        final double[] point = new double[3];
+        for (int i = 0, j = 0; i < count; i++, j += 3) {
+            point[0] = xyz[j];
+            point[1] = xyz[j + 1];
+            point[2] = Double.isNaN(xyz[j + 2]) ? 0 : xyz[j + 2];
+            try {
+                double[] result = op.transform(point);
+                xyz[j] = result[0];
+                xyz[j + 1] = result[1];
+                xyz[j + 2] = result.length > 2 ? result[2] : Double.NaN;
+            } catch (CoordinateOperationException | IllegalCoordinateException ex) {
+                xyz[j + 2] = point[2];
+                Logger.getLogger(ST_Transform.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
     }
 
   
@@ -176,9 +176,70 @@ public class ST_Transform extends AbstractFunction implements ScalarFunction {
     
     }
 
+    /**
+     * This filter applies a {@link CoordinateOperation} to each
+     * {@link CoordinateSequence} of a geometry. The ordinates of a sequence are
+     * packed in a buffer owned by the current thread, transformed, then
+     * written back.
+     */
+    public static class CRSTransformSequenceFilter implements GeometryComponentFilter {
+
+        private static final ThreadLocal<double[]> BUFFER = new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[3 * 64];
+            }
+        };
+
+        private final CoordinateOperation coordinateOperation;
+
+        public CRSTransformSequenceFilter(final CoordinateOperation coordinateOperation) {
+            this.coordinateOperation = coordinateOperation;
+        }
+
+        @Override
+        public void filter(Geometry geom) {
+            if (geom instanceof LineString) {
+                filter(((LineString) geom).getCoordinateSequence());
+            } else if (geom instanceof Point) {
+                filter(((Point) geom).getCoordinateSequence());
+            }
+        }
+
+        private void filter(CoordinateSequence sequence) {
+            final int size = sequence.size();
+            if (size == 0) {
+                return;
+            }
+            double[] xyz = BUFFER.get();
+            if (xyz.length < 3 * size) {
+                xyz = new double[Math.max(3 * size, 2 * xyz.length)];
+                BUFFER.set(xyz);
+            }
+            for (int i = 0, j = 0; i < size; i++, j += 3) {
+                xyz[j] = sequence.getX(i);
+                xyz[j + 1] = sequence.getY(i);
+                xyz[j + 2] = sequence.getZ(i);
+            }
+            transform(coordinateOperation, xyz, size);
+            final boolean hasZ = sequence.hasZ();
+            for (int i = 0, j = 0; i < size; i++, j += 3) {
+                sequence.setOrdinate(i, CoordinateSequence.X, xyz[j]);
+                sequence.setOrdinate(i, CoordinateSequence.Y, xyz[j + 1]);
+                if (hasZ) {
+                    sequence.setOrdinate(i, CoordinateSequence.Z, xyz[j + 2]);
+                }
+            }
+        }
+    }
+
     /**
      * A simple cache to manage {@link CoordinateOperation}
+     *
+     * @deprecated Not thread safe, the coordinate operations are now kept in
+     * the {@link CRSCache}
      */
+    @Deprecated
     public static class CopCache extends LinkedHashMap<EPSGTuple, CoordinateOperation> {
 
         private final int limit;
@@ -0,0 +1,296 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.crs;
+
+import org.cts.crs.CRSException;
+import org.cts.op.CoordinateOperation;
+import org.cts.op.CoordinateOperationException;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.utilities.GeometryMetaData;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.GeometryTypeCodes;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Transform in place all the geometries of a table column to another CRS.
+ *
+ * <p>The rows are read by chunks of {@link #CHUNK_SIZE} rows, in the order of
+ * their row id. The geometries of a chunk are transformed by one thread per
+ * processor, then written back with a batch update.
+ *
+ * <p>In auto-commit mode the chunks are committed together at the end. On
+ * failure they are all rolled back and the column gets back its SRID
+ * constraint, which has to be dropped before the update because an ALTER is
+ * committed at once by H2. Otherwise the updated rows are left to the
+ * transaction of the caller and the column stays without SRID constraint.
+ */
+public class ST_TransformTable extends AbstractFunction implements ScalarFunction {
+
+    /** Number of rows read, transformed and updated at once */
+    static final int CHUNK_SIZE = 10000;
+    /** A chunk is split into parts of at least this number of geometries */
+    private static final int MIN_PART_SIZE = 256;
+
+    public static final String REMARKS =
+            "`ST_TransformTable` transforms in place all the geometries of a column to the\n" +
+            "CRS referenced by an integer code of the SPATIAL_REF_SYS table, and returns the\n" +
+            "number of updated geometries. The geometries are transformed in parallel.\n" +
+            "Signatures: \n" +
+            "* `ST_TransformTable('table', srid)`\n" +
+            "* `ST_TransformTable('table', 'geomColumn', srid)`\n" +
+            "\n" +
+            "If no geometry column is given, the first one is used. If the column is\n" +
+            "constrained to a SRID, the constraint is changed to the new SRID.\n";
+
+    /**
+     * Constructor
+     */
+    public ST_TransformTable() {
+        addProperty(PROP_REMARKS, REMARKS);
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "transformTable";
+    }
+
+    /**
+     * Transform the first geometry column of a table.
+     *
+     * @param connection Connection
+     * @param tableName  Table name
+     * @param srid       SRID of the target CRS
+     * @return Number of updated geometries
+     * @throws SQLException
+     */
+    public static long transformTable(Connection connection, String tableName, int srid) throws SQLException {
+        return transformTable(connection, tableName, null, srid);
+    }
+
+    /**
+     * Transform a geometry column of a table.
+     *
+     * @param connection     Connection
+     * @param tableName      Table name
+     * @param geometryColumn Geometry column, the first one if null
+     * @param srid           SRID of the target CRS
+     * @return Number of updated geometries
+     * @throws SQLException
+     */
+    public static long transformTable(Connection connection, String tableName, String geometryColumn, int srid)
+            throws SQLException {
+        final TableLocation table = TableLocation.parse(tableName, DBTypes.H2GIS);
+        final String column = geometryColumn == null
+                ? GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(connection, table).first()
+                : TableLocation.capsIdentifier(geometryColumn, DBTypes.H2GIS);
+        final GeometryMetaData metadata = GeometryTableUtilities.getMetaData(connection, table, column);
+        final String quotedColumn = TableLocation.quoteIdentifier(column, DBTypes.H2GIS);
+        // The SRID constraint would reject the transformed geometries
+        final boolean constrained = metadata != null && metadata.getSRID() != 0 && metadata.getSRID() != srid;
+        if (constrained) {
+            final String type = metadata.getGeometryTypeCode() == GeometryTypeCodes.GEOMETRY
+                    ? "GEOMETRY" : "GEOMETRY(" + metadata.getGeometryType() + ")";
+            alterColumn(connection, table, quotedColumn, type);
+        }
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        final ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        final boolean autoCommit = connection.getAutoCommit();
+        final PreparedStatement select = connection.prepareStatement("SELECT _ROWID_, " + quotedColumn
+                + " FROM " + table + " WHERE _ROWID_ > ? ORDER BY _ROWID_ LIMIT " + CHUNK_SIZE);
+        final PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                + " SET " + quotedColumn + " = ? WHERE _ROWID_ = ?");
+        long count = 0;
+        try {
+            connection.setAutoCommit(false);
+            final long[] rowIds = new long[CHUNK_SIZE];
+            final Geometry[] geometries = new Geometry[CHUNK_SIZE];
+            final CoordinateOperation[] operations = new CoordinateOperation[CHUNK_SIZE];
+            long lastRowId = Long.MIN_VALUE;
+            int size = CHUNK_SIZE;
+            while (size == CHUNK_SIZE) {
+                size = readChunk(connection, select, lastRowId, srid, rowIds, geometries, operations);
+                if (size == 0) {
+                    break;
+                }
+                lastRowId = rowIds[size - 1];
+                transformChunk(pool, parallelism, geometries, operations, size, srid);
+                int updated = 0;
+                for (int i = 0; i < size; i++) {
+                    if (geometries[i] != null) {
+                        update.setObject(1, geometries[i]);
+                        update.setLong(2, rowIds[i]);
+                        update.addBatch();
+                        updated++;
+                    }
+                    geometries[i] = null;
+                    operations[i] = null;
+                }
+                if (updated > 0) {
+                    update.executeBatch();
+                    count += updated;
+                }
+            }
+            if (autoCommit) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException ex) {
+            if (autoCommit) {
+                connection.rollback();
+                if (constrained) {
+                    try {
+                        alterColumn(connection, table, quotedColumn,
+                                "GEOMETRY(" + metadata.getGeometryType() + "," + metadata.getSRID() + ")");
+                    } catch (SQLException alterEx) {
+                        ex.addSuppressed(alterEx);
+                    }
+                }
+            }
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            select.close();
+            update.close();
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        if (constrained) {
+            alterColumn(connection, table, quotedColumn,
+                    "GEOMETRY(" + metadata.getGeometryType() + "," + srid + ")");
+        }
+        return count;
+    }
+
+    /**
+     * Read the next chunk of rows and find the coordinate operation of each
+     * geometry. A geometry is set to null if it does not have to be updated.
+     *
+     * @return Number of rows read
+     */
+    private static int readChunk(Connection connection, PreparedStatement select, long lastRowId, int srid,
+                                 long[] rowIds, Geometry[] geometries, CoordinateOperation[] operations)
+            throws SQLException {
+        select.setLong(1, lastRowId);
+        int size = 0;
+        int lastSRID = 0;
+        CoordinateOperation lastOperation = null;
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                rowIds[size] = rs.getLong(1);
+                Geometry geom = (Geometry) rs.getObject(2);
+                if (geom != null && geom.getSRID() != srid) {
+                    final int inputSRID = geom.getSRID();
+                    if (inputSRID == 0) {
+                        throw new SQLException("Cannot find a CRS");
+                    }
+                    if (inputSRID != lastSRID) {
+                        try {
+                            lastOperation = CRSCache.getCoordinateOperation(connection, inputSRID, srid);
+                        } catch (CRSException ex) {
+                            throw new SQLException("Cannot create the CRS", ex);
+                        } catch (CoordinateOperationException ex) {
+                            throw new SQLException("Cannot create the coordinate operation", ex);
+                        }
+                        lastSRID = inputSRID;
+                    }
+                    operations[size] = lastOperation;
+                    geometries[size] = geom;
+                } else {
+                    geometries[size] = null;
+                }
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Transform the geometries of a chunk, in parallel if a pool is given.
+     * A null operation means that only the SRID has to be changed.
+     */
+    private static void transformChunk(ForkJoinPool pool, int parallelism, final Geometry[] geometries,
+                                       final CoordinateOperation[] operations, int size, final int srid)
+            throws SQLException {
+        final int partSize = Math.max(MIN_PART_SIZE, (size + parallelism - 1) / parallelism);
+        if (pool == null || partSize >= size) {
+            transformPart(geometries, operations, 0, size, srid);
+            return;
+        }
+        List<Callable<Void>> parts = new ArrayList<Callable<Void>>();
+        for (int start = 0; start < size; start += partSize) {
+            final int from = start;
+            final int to = Math.min(size, start + partSize);
+            parts.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    transformPart(geometries, operations, from, to, srid);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> part : pool.invokeAll(parts)) {
+                part.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("The transformation has been interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new SQLException("Cannot transform the geometries", ex.getCause());
+        }
+    }
+
+    private static void transformPart(Geometry[] geometries, CoordinateOperation[] operations,
+                                      int from, int to, int srid) {
+        for (int i = from; i < to; i++) {
+            final Geometry geom = geometries[i];
+            if (geom != null) {
+                if (operations[i] == null) {
+                    geom.setSRID(srid);
+                } else {
+                    geometries[i] = ST_Transform.transform(geom, operations[i], srid);
+                }
+            }
+        }
+    }
+
+    private static void alterColumn(Connection connection, TableLocation table, String quotedColumn,
+                                    String type) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE " + table + " ALTER COLUMN " + quotedColumn + " TYPE " + type);
+        }
+    }
+}
@@ -59,29 +59,8 @@ public class SpatialRefRegistry  extends AbstractProjRegistry implements Registr
             if (rs.next()) {
                 String proj4Text = rs.getString(1);
                 String authcode = rs.getString(2) + ":" + code;
-                if(proj4Text.isEmpty()){
-                    throw new RegistryException("No translation for "+  authcode +" to PROJ format is known");
-                }
-                String[] tokens = regex.split(proj4Text);
-                Map<String, String> v = new HashMap<String, String>();
-                for (String token : tokens) {
-                    String[] keyValue = token.split("=");
-                    if (keyValue.length == 2) {
-                        String key = formatKey(keyValue[0]);
-                        ProjKeyParameters.checkUnsupported(key);
-                        v.put(key, keyValue[1]);
-                    } else {
-                        String key = formatKey(token);
-                        ProjKeyParameters.checkUnsupported(key);
-                        v.put(key, null);
-                    }
-                }
-                if (!v.containsKey(ProjKeyParameters.title)) {
-                    v.put(ProjKeyParameters.title, authcode);
-                }
                 prepStmt.close();
-                
-                return v;
+                return parseProj4(proj4Text, authcode);
             }
         } catch (SQLException ex) {
             throw new RegistryException("Cannot obtain the CRS parameters", ex);
@@ -89,6 +68,38 @@ public class SpatialRefRegistry  extends AbstractProjRegistry implements Registr
         return null;
     }
 
+    /**
+     * Split a proj4 definition into its parameters
+     *
+     * @param proj4Text proj4 definition read from the spatial_ref_sys table
+     * @param authcode  authority and code of the CRS, used as default title
+     * @return the proj parameters
+     * @throws RegistryException if the definition is empty or not supported
+     */
+    static Map<String, String> parseProj4(String proj4Text, String authcode) throws RegistryException {
+        if (proj4Text == null || proj4Text.isEmpty()) {
+            throw new RegistryException("No translation for " + authcode + " to PROJ format is known");
+        }
+        String[] tokens = regex.split(proj4Text);
+        Map<String, String> v = new HashMap<String, String>();
+        for (String token : tokens) {
+            String[] keyValue = token.split("=");
+            if (keyValue.length == 2) {
+                String key = formatKey(keyValue[0]);
+                ProjKeyParameters.checkUnsupported(key);
+                v.put(key, keyValue[1]);
+            } else {
+                String key = formatKey(token);
+                ProjKeyParameters.checkUnsupported(key);
+                v.put(key, null);
+            }
+        }
+        if (!v.containsKey(ProjKeyParameters.title)) {
+            v.put(ProjKeyParameters.title, authcode);
+        }
+        return v;
+    }
+
     /**
      * Remove + char if exists
      *
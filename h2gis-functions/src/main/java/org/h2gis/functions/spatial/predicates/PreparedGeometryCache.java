@@ -0,0 +1,136 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.predicates;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+
+/**
+ * Keeps, for each thread, the last geometries given to the spatial
+ * predicates. When a geometry is given again, typically the geometry of the
+ * outer table of a join, the predicate is evaluated on a
+ * {@link PreparedGeometry} whose edge index is built once.
+ *
+ * <p>H2 gives a new copy of a geometry to each function call, so the cached
+ * geometries are compared by number of points, envelope and exact equality.
+ * A geometry is only prepared the second time it is seen, so the index is not
+ * built for geometries used once.
+ */
+final class PreparedGeometryCache {
+
+    /** Number of geometries kept by each thread */
+    private static final int SIZE = 4;
+    /** Smaller geometries are evaluated without index */
+    private static final int MIN_POINTS = 16;
+
+    private static final ThreadLocal<Entry[]> CACHE = new ThreadLocal<Entry[]>() {
+        @Override
+        protected Entry[] initialValue() {
+            return new Entry[SIZE];
+        }
+    };
+
+    private PreparedGeometryCache() {
+    }
+
+    /**
+     * Look up a geometry in the cache of the current thread, and add it if
+     * it was not found.
+     *
+     * @param geometry Geometry
+     * @return The cached entry if the geometry has already been seen by this
+     * thread, null otherwise
+     */
+    static Entry get(Geometry geometry) {
+        if (geometry.getNumPoints() < MIN_POINTS) {
+            return null;
+        }
+        final Entry[] entries = CACHE.get();
+        // Most recently used entries first
+        for (int i = 0; i < entries.length && entries[i] != null; i++) {
+            final Entry entry = entries[i];
+            if (entry.matches(geometry)) {
+                System.arraycopy(entries, 0, entries, 1, i);
+                entries[0] = entry;
+                return entry;
+            }
+        }
+        System.arraycopy(entries, 0, entries, 1, entries.length - 1);
+        entries[0] = new Entry(geometry);
+        return null;
+    }
+
+    /**
+     * A cached geometry with its lazily built indexes.
+     */
+    static final class Entry {
+        private final Geometry geometry;
+        private final int numPoints;
+        private final Envelope envelope;
+        private PreparedGeometry preparedGeometry;
+        private IndexedFacetDistance facetDistance;
+
+        private Entry(Geometry geometry) {
+            this.geometry = geometry;
+            this.numPoints = geometry.getNumPoints();
+            this.envelope = geometry.getEnvelopeInternal();
+        }
+
+        private boolean matches(Geometry other) {
+            return other == geometry || (other.getNumPoints() == numPoints
+                    && other.getClass() == geometry.getClass()
+                    && other.getEnvelopeInternal().equals(envelope)
+                    && other.equalsExact(geometry));
+        }
+
+        /**
+         * @return The prepared geometry
+         */
+        PreparedGeometry getPreparedGeometry() {
+            if (preparedGeometry == null) {
+                preparedGeometry = PreparedGeometryFactory.prepare(geometry);
+            }
+            return preparedGeometry;
+        }
+
+        /**
+         * @param other    Geometry, not empty
+         * @param distance Distance
+         * @return True if the distance between the cached geometry and the
+         * other geometry is less or equal to the given distance
+         */
+        boolean isWithinDistance(Geometry other, double distance) {
+            if (distance < 0 || envelope.distance(other.getEnvelopeInternal()) > distance) {
+                return false;
+            }
+            if (getPreparedGeometry().intersects(other)) {
+                return true;
+            }
+            if (facetDistance == null) {
+                facetDistance = new IndexedFacetDistance(geometry);
+            }
+            return facetDistance.distance(other) <= distance;
+        }
+    }
+}
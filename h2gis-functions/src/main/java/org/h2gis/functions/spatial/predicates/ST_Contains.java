@@ -59,6 +59,10 @@ public class ST_Contains extends DeterministicScalarFunction {
         if(surface.getSRID()!=testGeometry.getSRID()){
             throw new SQLException("Operation on mixed SRID geometries not supported");
         }
+        PreparedGeometryCache.Entry cached = PreparedGeometryCache.get(surface);
+        if (cached != null) {
+            return cached.getPreparedGeometry().contains(testGeometry);
+        }
         return surface.contains(testGeometry);
     }
 }
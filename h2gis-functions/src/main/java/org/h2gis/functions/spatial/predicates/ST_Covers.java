@@ -57,6 +57,10 @@ public class ST_Covers extends DeterministicScalarFunction {
         if(geomA.getSRID()!=geomB.getSRID()){
             throw new SQLException("Operation on mixed SRID geometries not supported");
         }
+        PreparedGeometryCache.Entry cached = PreparedGeometryCache.get(geomA);
+        if (cached != null) {
+            return cached.getPreparedGeometry().covers(geomB);
+        }
         return geomA.covers(geomB);
     }
 }
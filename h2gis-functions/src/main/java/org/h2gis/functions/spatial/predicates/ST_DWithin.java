@@ -57,6 +57,16 @@ public class ST_DWithin extends DeterministicScalarFunction {
         if(geomA.getSRID()!=geomB.getSRID()){
             throw new SQLException("Operation on mixed SRID geometries not supported");
         }
+        if (!geomA.isEmpty() && !geomB.isEmpty()) {
+            PreparedGeometryCache.Entry cached = PreparedGeometryCache.get(geomA);
+            if (cached != null) {
+                return cached.isWithinDistance(geomB, distance);
+            }
+            cached = PreparedGeometryCache.get(geomB);
+            if (cached != null) {
+                return cached.isWithinDistance(geomA, distance);
+            }
+        }
         return geomA.isWithinDistance(geomB, distance);
     }
 }
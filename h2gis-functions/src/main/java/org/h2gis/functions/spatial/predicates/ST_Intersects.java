@@ -57,6 +57,14 @@ public class ST_Intersects extends DeterministicScalarFunction {
         if(surface.getSRID()!=testGeometry.getSRID()){
             throw new SQLException("Operation on mixed SRID geometries not supported");
         }
+        PreparedGeometryCache.Entry cached = PreparedGeometryCache.get(surface);
+        if (cached != null) {
+            return cached.getPreparedGeometry().intersects(testGeometry);
+        }
+        cached = PreparedGeometryCache.get(testGeometry);
+        if (cached != null) {
+            return cached.getPreparedGeometry().intersects(surface);
+        }
         return surface.intersects(testGeometry);
     }
 }
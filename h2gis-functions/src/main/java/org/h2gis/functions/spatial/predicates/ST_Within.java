@@ -55,6 +55,11 @@ public class ST_Within extends DeterministicScalarFunction {
         if(a.getSRID()!=b.getSRID()){
             throw new SQLException("Operation on mixed SRID geometries not supported");
         }
+        // a is within b if b contains a
+        PreparedGeometryCache.Entry cached = PreparedGeometryCache.get(b);
+        if (cached != null) {
+            return cached.getPreparedGeometry().contains(a);
+        }
         return a.within(b);
     }
 }
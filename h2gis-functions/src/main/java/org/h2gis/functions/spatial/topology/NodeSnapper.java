@@ -0,0 +1,295 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.topology;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.Arrays;
+
+/**
+ * Snaps the first and last coordinates of the edges of {@link ST_Graph} to
+ * nodes in memory.
+ *
+ * <p>The endpoints are taken in order: the start points of all the edges,
+ * then their end points. An endpoint becomes a node unless the envelope of an
+ * earlier endpoint expanded by the tolerance intersects its own expanded
+ * envelope, or has the same coordinates when the tolerance is zero. Each
+ * endpoint is then snapped to the first node found this way.
+ *
+ * <p>The endpoints are hashed by grid cells twice as wide as the tolerance,
+ * so that a lookup only scans the endpoints of the neighbouring cells.
+ */
+final class NodeSnapper {
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final double tolerance;
+    private final double cellSize;
+    private final boolean hasZ;
+    // Start point of edge e at 2e, end point at 2e + 1, NaN for missing points
+    private double[] x = new double[2048];
+    private double[] y = new double[2048];
+    private double[] z = new double[2048];
+    private long[] edgeIds = new long[1024];
+    private int edgeCount = 0;
+    // Snapping results: node id of each endpoint which is a node, 0 for the
+    // others, and node id of each snapped endpoint
+    private int[] nodeIds;
+    private int[] snapped;
+    private int[] nodeEndpoints;
+    private int nodeCount = 0;
+    // Hash of the grid cells: first endpoint of each cell, next endpoint of
+    // the same cell
+    private long[] cellKeys;
+    private int[] cellHeads;
+    private int[] nextInCell;
+    private int hashShift;
+
+    /**
+     * @param tolerance Snapping tolerance, zero to merge equal coordinates only
+     * @param hasZ      True to compare the z values of equal coordinates
+     */
+    NodeSnapper(double tolerance, boolean hasZ) {
+        this.tolerance = tolerance;
+        this.cellSize = 2 * tolerance;
+        this.hasZ = hasZ;
+    }
+
+    /**
+     * Add the first coordinate of the first geometry and the last coordinate
+     * of the last geometry of an edge.
+     *
+     * @param edgeId   Edge id
+     * @param geometry Edge geometry, may be null or empty
+     */
+    void addEdge(long edgeId, Geometry geometry) {
+        if (edgeCount == edgeIds.length) {
+            final int capacity = edgeCount + (edgeCount >> 1);
+            edgeIds = Arrays.copyOf(edgeIds, capacity);
+            x = Arrays.copyOf(x, 2 * capacity);
+            y = Arrays.copyOf(y, 2 * capacity);
+            z = Arrays.copyOf(z, 2 * capacity);
+        }
+        edgeIds[edgeCount] = edgeId;
+        if (geometry == null || geometry.isEmpty()) {
+            set(2 * edgeCount, null);
+            set(2 * edgeCount + 1, null);
+        } else {
+            final Geometry first = geometry.getGeometryN(0);
+            final Geometry last = geometry.getGeometryN(geometry.getNumGeometries() - 1);
+            final Coordinate[] lastCoordinates = last.getCoordinates();
+            set(2 * edgeCount, first.isEmpty() ? null : first.getCoordinates()[0]);
+            set(2 * edgeCount + 1, lastCoordinates.length == 0 ? null : lastCoordinates[lastCoordinates.length - 1]);
+        }
+        edgeCount++;
+    }
+
+    private void set(int endpoint, Coordinate coordinate) {
+        if (coordinate == null) {
+            x[endpoint] = Double.NaN;
+            y[endpoint] = Double.NaN;
+            z[endpoint] = Double.NaN;
+        } else {
+            x[endpoint] = coordinate.x;
+            y[endpoint] = coordinate.y;
+            z[endpoint] = coordinate.getZ();
+        }
+    }
+
+    /**
+     * @return Number of added edges
+     */
+    int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @param edge Edge index, in the order of {@link #addEdge}
+     * @return Edge id
+     */
+    long getEdgeId(int edge) {
+        return edgeIds[edge];
+    }
+
+    /**
+     * Find the nodes and snap the endpoints to them.
+     *
+     * @return Number of nodes
+     */
+    int snap() {
+        final int endpointCount = 2 * edgeCount;
+        int bits = 1;
+        while ((1 << bits) < 2 * endpointCount) {
+            bits++;
+        }
+        hashShift = 64 - bits;
+        cellKeys = new long[1 << bits];
+        cellHeads = new int[1 << bits];
+        Arrays.fill(cellHeads, -1);
+        nextInCell = new int[endpointCount];
+        nodeIds = new int[endpointCount];
+        snapped = new int[endpointCount];
+        nodeEndpoints = new int[Math.max(16, endpointCount / 2)];
+        nodeCount = 0;
+        for (int i = 0; i < endpointCount; i++) {
+            final int endpoint = endpointAt(i);
+            if (Double.isNaN(x[endpoint])) {
+                continue;
+            }
+            // The endpoints already in the cells are the earlier ones
+            if (findFirst(endpoint, false) == -1) {
+                if (nodeCount == nodeEndpoints.length) {
+                    nodeEndpoints = Arrays.copyOf(nodeEndpoints, nodeCount + (nodeCount >> 1));
+                }
+                nodeEndpoints[nodeCount++] = endpoint;
+                nodeIds[endpoint] = nodeCount;
+            }
+            insert(endpoint);
+        }
+        for (int endpoint = 0; endpoint < endpointCount; endpoint++) {
+            if (nodeIds[endpoint] != 0) {
+                snapped[endpoint] = nodeIds[endpoint];
+            } else if (!Double.isNaN(x[endpoint])) {
+                snapped[endpoint] = findFirst(endpoint, true);
+            }
+        }
+        nodeIds = null;
+        cellKeys = null;
+        cellHeads = null;
+        nextInCell = null;
+        return nodeCount;
+    }
+
+    /**
+     * @param i Position of the endpoint in the snapping order
+     * @return Index of the endpoint
+     */
+    private int endpointAt(int i) {
+        return i < edgeCount ? 2 * i : 2 * (i - edgeCount) + 1;
+    }
+
+    /**
+     * @param edge Edge index, in the order of {@link #addEdge}
+     * @return Id of the node of the start point, 0 if there is none
+     */
+    int getStartNode(int edge) {
+        return snapped[2 * edge];
+    }
+
+    /**
+     * @param edge Edge index, in the order of {@link #addEdge}
+     * @return Id of the node of the end point, 0 if there is none
+     */
+    int getEndNode(int edge) {
+        return snapped[2 * edge + 1];
+    }
+
+    /**
+     * @param node Node id, from 1 to the number of nodes
+     * @return Coordinate of the node
+     */
+    Coordinate getNodeCoordinate(int node) {
+        final int endpoint = nodeEndpoints[node - 1];
+        return hasZ ? new Coordinate(x[endpoint], y[endpoint], z[endpoint])
+                : new Coordinate(x[endpoint], y[endpoint]);
+    }
+
+    /**
+     * Find the first node, or any earlier endpoint, snapping with an
+     * endpoint.
+     *
+     * @param endpoint Endpoint index
+     * @param nodes    True to return the smallest id of the snapping nodes,
+     *                 false to return any snapping endpoint in the cells
+     * @return Node id or endpoint index, -1 (nodes = false) or 0 (nodes =
+     * true) if there is none
+     */
+    private int findFirst(int endpoint, boolean nodes) {
+        int first = nodes ? Integer.MAX_VALUE : -1;
+        final int range = tolerance > 0 ? 1 : 0;
+        final long cellX = cell(x[endpoint]);
+        final long cellY = cell(y[endpoint]);
+        for (long i = cellX - range; i <= cellX + range; i++) {
+            for (long j = cellY - range; j <= cellY + range; j++) {
+                final int slot = find(key(i, j));
+                for (int other = cellHeads[slot]; other != -1; other = nextInCell[other]) {
+                    if (!snaps(endpoint, other)) {
+                        continue;
+                    }
+                    if (!nodes) {
+                        return other;
+                    }
+                    if (nodeIds[other] > 0) {
+                        first = Math.min(first, nodeIds[other]);
+                    }
+                }
+            }
+        }
+        return nodes ? (first == Integer.MAX_VALUE ? 0 : first) : first;
+    }
+
+    private boolean snaps(int a, int b) {
+        if (tolerance > 0) {
+            // Intersection of the envelopes expanded by the tolerance
+            return x[a] - tolerance <= x[b] + tolerance && x[b] - tolerance <= x[a] + tolerance
+                    && y[a] - tolerance <= y[b] + tolerance && y[b] - tolerance <= y[a] + tolerance;
+        }
+        return x[a] == x[b] && y[a] == y[b] && (!hasZ || same(z[a], z[b]));
+    }
+
+    private static boolean same(double a, double b) {
+        // The z values may be NaN
+        return a == b || Double.isNaN(a) && Double.isNaN(b);
+    }
+
+    private long cell(double value) {
+        // With a zero tolerance, the cells are the coordinates themselves,
+        // -0 being in the cell of 0
+        if (tolerance > 0) {
+            return (long) Math.floor(value / cellSize);
+        }
+        return value == 0 ? 0 : Double.doubleToLongBits(value);
+    }
+
+    private static long key(long cellX, long cellY) {
+        return cellX * HASH_MULTIPLIER + cellY;
+    }
+
+    private void insert(int endpoint) {
+        final long key = key(cell(x[endpoint]), cell(y[endpoint]));
+        final int slot = find(key);
+        cellKeys[slot] = key;
+        nextInCell[endpoint] = cellHeads[slot];
+        cellHeads[slot] = endpoint;
+    }
+
+    /**
+     * @return The slot of the cell, or the empty slot where it would be added
+     */
+    private int find(long key) {
+        final int mask = cellHeads.length - 1;
+        int slot = (int) ((key * HASH_MULTIPLIER) >>> hashShift);
+        while (cellHeads[slot] != -1 && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
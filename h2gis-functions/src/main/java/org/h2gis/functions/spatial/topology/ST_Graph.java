@@ -23,8 +23,9 @@ package org.h2gis.functions.spatial.topology;
 import org.h2gis.api.AbstractFunction;
 import org.h2gis.api.ScalarFunction;
 import org.h2gis.utilities.*;
-import org.h2gis.utilities.dbtypes.DBTypes;
-import org.h2gis.utilities.dbtypes.DBUtils;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,8 +47,7 @@ public class ST_Graph extends AbstractFunction implements ScalarFunction {
     
     public static final String NODES_SUFFIX = "_NODES";
     public static final String EDGES_SUFFIX = "_EDGES";
-    public static String PTS_TABLE;
-    public static String COORDS_TABLE;
+    private static final int BATCH_SIZE = 1000;
     
     public static final String REMARKS =
             "ST_Graph produces two tables (nodes and edges) from an input table containing\n" +
@@ -241,7 +241,6 @@ public class ST_Graph extends AbstractFunction implements ScalarFunction {
         final TableLocation tableName = TableUtilities.parseInputTable(connection, inputTable);
         final TableLocation nodesName = TableUtilities.suffixTableLocation(tableName, NODES_SUFFIX);
         final TableLocation edgesName = TableUtilities.suffixTableLocation(tableName, EDGES_SUFFIX);
-        final DBTypes dbType = DBUtils.getDBType(connection);
         if(deleteTables){            
             try (Statement stmt = connection.createStatement()) {
                 StringBuilder sb = new StringBuilder("drop table if exists ");
@@ -254,9 +253,6 @@ public class ST_Graph extends AbstractFunction implements ScalarFunction {
                 JDBCUtilities.tableExists(connection, edgesName)) {
             throw new IllegalArgumentException(ALREADY_RUN_ERROR + tableName.getTable());
         }
-        //Tables used to store intermediate data
-        PTS_TABLE = TableLocation.parse(System.currentTimeMillis()+"_PTS", dbType).toString();
-        COORDS_TABLE = TableLocation.parse(System.currentTimeMillis()+"_COORDS", dbType).toString();
         // Check for a primary key
         final Tuple<String, Integer> pkIndex = JDBCUtilities.getIntegerPrimaryKeyNameAndIndex(connection, tableName);
         if (pkIndex==null) {
@@ -276,22 +272,42 @@ public class ST_Graph extends AbstractFunction implements ScalarFunction {
             }
         }
         checkGeometryType(geometryMetada.getValue().geometryTypeCode);
+        final int srid = geometryMetada.getValue().SRID;
+        final boolean hasZ = geometryMetada.getValue().hasZ;
+        final NodeSnapper snapper = new NodeSnapper(tolerance, hasZ);
+        final String edgeIdType = readEndpoints(connection, tableName, pkIndex.first(),
+                geometryMetada.getKey(), snapper);
+        LOGGER.info("Snapping the endpoints to the nodes...");
+        final int nodeCount = snapper.snap();
+        checkForNullEdgeEndpoints(snapper);
         final Statement st = connection.createStatement();
         try {
-            firstFirstLastLast(st, tableName, pkIndex.first(), geometryMetada.getKey(), tolerance);            
-            int srid = geometryMetada.getValue().SRID;
-            boolean hasZ = geometryMetada.getValue().hasZ;
-            makeEnvelopes(st, tolerance, dbType, srid,hasZ);
-            nodesTable(st, nodesName, tolerance, srid, hasZ);
-            edgesTable(st, nodesName, edgesName, tolerance, dbType);
-            checkForNullEdgeEndpoints(st, edgesName);
-            if (orientBySlope) {
-                orientBySlope(st, nodesName, edgesName);
-            }
-        } finally {            
-            st.execute("DROP TABLE IF EXISTS "+ PTS_TABLE+ ","+ COORDS_TABLE);
+            String pointSignature = hasZ ? "POINTZ" : "POINT";
+            st.execute("CREATE TABLE " + nodesName + "(" +
+                    "NODE_ID SERIAL PRIMARY KEY, " +
+                    "THE_GEOM GEOMETRY(" + pointSignature + ", " + srid + ")" +
+                    ")");
+            st.execute("CREATE TABLE " + edgesName + "(" +
+                    "EDGE_ID " + edgeIdType + ", " +
+                    "START_NODE INTEGER, " +
+                    "END_NODE INTEGER" +
+                    ")");
+        } finally {
             st.close();
         }
+        final boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            nodesTable(connection, nodesName, snapper, nodeCount, srid);
+            edgesTable(connection, edgesName, snapper, orientBySlope);
+            connection.commit();
+        } catch (SQLException | RuntimeException ex) {
+            // Restoring the auto-commit would commit the half-filled tables
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
         return true;
     }
 
@@ -299,212 +315,96 @@ public class ST_Graph extends AbstractFunction implements ScalarFunction {
         if (geomType != GeometryTypeCodes.LINESTRING && geomType != GeometryTypeCodes.LINESTRINGZ) {
             throw new IllegalArgumentException(TYPE_ERROR);
         }
-    }   
-
-    private static String expand(String geom, double tol) {
-        return "ST_Expand(" + geom + ", " + tol + ")";
     }
 
     /**
-     * Return the first and last coordinates table
-     * @param st
-     * @param tableName
-     * @param pkCol
-     * @param geomCol
-     * @param tolerance
-     * @throws SQLException 
+     * Read the edge ids and the first coordinate of the first geometry and the
+     * last coordinate of the last geometry of each edge, in one pass over the
+     * input table.
+     *
+     * @return SQL type of the edge ids
      */
-    private static void firstFirstLastLast(Statement st,
-                                           TableLocation tableName,
-                                           String pkCol,
-                                           String geomCol,
-                                           double tolerance) throws SQLException {
+    private static String readEndpoints(Connection connection,
+                                        TableLocation tableName,
+                                        String pkCol,
+                                        String geomCol,
+                                        NodeSnapper snapper) throws SQLException {
         LOGGER.info("Selecting the first coordinate of the first geometry and " +
                 "the last coordinate of the last geometry...");
-        final String numGeoms = "ST_NumGeometries(" + geomCol + ")";
-        final String firstGeom = "ST_GeometryN(" + geomCol + ", 1)";
-        final String firstPointFirstGeom = "ST_PointN(" + firstGeom + ", 1)";
-        final String lastGeom = "ST_GeometryN(" + geomCol + ", " + numGeoms + ")";
-        final String lastPointLastGeom = "ST_PointN(" + lastGeom + ", ST_NumPoints(" + lastGeom + "))";
-        st.execute("drop TABLE if exists "+ COORDS_TABLE);
-        if (tolerance > 0) {
-            st.execute("CREATE TABLE "+ COORDS_TABLE+" AS "
-                    + "SELECT " + pkCol + " EDGE_ID, "
-                    + firstPointFirstGeom + " START_POINT, "
-                    + expand(firstPointFirstGeom, tolerance) + " START_POINT_EXP, "
-                    + lastPointLastGeom + " END_POINT, "
-                    + expand(lastPointLastGeom, tolerance) + " END_POINT_EXP "
-                    + "FROM " + tableName);
-        } else {
-            // If the tolerance is zero, there is no need to call ST_Expand.
-            st.execute("CREATE  TABLE "+ COORDS_TABLE+" AS "
-                    + "SELECT " + pkCol + " EDGE_ID, "
-                    + firstPointFirstGeom + " START_POINT, "
-                    + lastPointLastGeom + " END_POINT "
-                    + "FROM " + tableName);
-        }
-    }
-
-    /**
-     * Make a big table of all points in the coords table with an envelope around each point.
-     * We will use this table to remove duplicate points.
-     */
-    private static void makeEnvelopes(Statement st, double tolerance, DBTypes dbType, int srid, boolean hasZ) throws SQLException {
-        st.execute("DROP TABLE IF EXISTS" + PTS_TABLE + ";");
-        String pointSignature = hasZ?"POINTZ":"POINT";
-        if (tolerance > 0) {
-            LOGGER.info("Calculating envelopes around coordinates...");
-            // Putting all points and their envelopes together...
-            st.execute("CREATE  TABLE " + PTS_TABLE + "( ID SERIAL PRIMARY KEY, "
-                    + "THE_GEOM GEOMETRY("+pointSignature+"," + srid + "),"
-                    + "AREA GEOMETRY(POLYGON, " + srid + ")"
-                    + ") ");
-            st.execute("INSERT INTO " + PTS_TABLE + " (SELECT CAST((row_number() over()) as Integer) , a.THE_GEOM, A.AREA FROM  "
-                    + "(SELECT  START_POINT AS THE_GEOM, START_POINT_EXP as AREA FROM " + COORDS_TABLE
-                    + " UNION ALL "
-                    + "SELECT  END_POINT AS THE_GEOM, END_POINT_EXP as AREA FROM " + COORDS_TABLE + ") as a);");
-            // Putting a spatial index on the envelopes...
-            if (dbType == DBTypes.H2 || dbType == DBTypes.H2GIS) {
-                st.execute("CREATE SPATIAL INDEX ON " + PTS_TABLE + "(AREA);");
-            } else {
-                st.execute("CREATE INDEX ON " + PTS_TABLE + " USING GIST(AREA);");
-            }
-        } else {
-            LOGGER.info("Preparing temporary nodes table from coordinates...");
-            // If the tolerance is zero, we just put all points together
-            st.execute("CREATE  TABLE " + PTS_TABLE + "( "
-                    + "ID SERIAL PRIMARY KEY, "
-                    + "THE_GEOM GEOMETRY("+pointSignature+"," + srid + ")"
-                    + ")");
-            st.execute("INSERT INTO " + PTS_TABLE + " (SELECT (row_number() over())::int , a.the_geom FROM "
-                    + "(SELECT  START_POINT as THE_GEOM FROM " + COORDS_TABLE
-                    + " UNION ALL "
-                    + "SELECT  END_POINT as THE_GEOM FROM " + COORDS_TABLE + ") as a);");
-            if (dbType == DBTypes.H2 || dbType == DBTypes.H2GIS) {
-                // Putting a spatial index on the points themselves...
-                st.execute("CREATE SPATIAL INDEX ON " + PTS_TABLE + "(THE_GEOM);");
-            } else {
-                // Putting a spatial index on the points themselves...
-                st.execute("CREATE INDEX ON " + PTS_TABLE + " USING GIST(THE_GEOM);");
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + pkCol + ", " + geomCol + " FROM " + tableName)) {
+            while (rs.next()) {
+                snapper.addEdge(rs.getLong(1), (Geometry) rs.getObject(2));
             }
+            return rs.getMetaData().getColumnType(1) == Types.BIGINT ? "BIGINT" : "INTEGER";
         }
     }
 
     /**
-     * Create the nodes table.
+     * Fill the nodes table.
      */
-    private static void nodesTable(Statement st,
+    private static void nodesTable(Connection connection,
                                    TableLocation nodesName,
-                                   double tolerance, int srid, boolean hasZ) throws SQLException {
+                                   NodeSnapper snapper,
+                                   int nodeCount, int srid) throws SQLException {
         LOGGER.info("Creating the nodes table...");
-        // Creating nodes table by removing copies from the pts table.
-        String pointSignature = hasZ?"POINTZ":"POINT";
-        if (tolerance > 0) {
-               st.execute("CREATE TABLE " + nodesName + "(" +
-                    "NODE_ID SERIAL PRIMARY KEY, " +
-                    "THE_GEOM GEOMETRY("+pointSignature+", " + srid+"), "+
-                    "EXP GEOMETRY(POLYGON," +srid+")"+
-                    ") " );
-                st.execute( "INSERT INTO "+nodesName +" (SELECT CAST((row_number() over()) AS INTEGER) , c.the_geom, c.area FROM (SELECT  A.THE_GEOM, A.AREA FROM "+ PTS_TABLE +" as  A, "+ PTS_TABLE +" as B " +
-                    "WHERE A.AREA && B.AREA " +
-                    "GROUP BY A.ID " +
-                    "HAVING A.ID=MIN(B.ID)) as c);"); 
-
-        } else {
-            // If the tolerance is zero, we can create the NODES table
-            // by using = rather than &&.
-            st.execute("CREATE TABLE " + nodesName + "(" +
-                    "NODE_ID SERIAL PRIMARY KEY, " +
-                    "THE_GEOM GEOMETRY("+pointSignature+", "+srid+")" +
-                    ") " );            
-            st.execute("INSERT INTO "+nodesName +" (SELECT CAST((row_number() over()) as INTEGER) , c.the_geom FROM (SELECT A.THE_GEOM FROM "+ PTS_TABLE + " as A," + PTS_TABLE + " as B " +
-                    "WHERE A.THE_GEOM && B.THE_GEOM AND A.THE_GEOM=B.THE_GEOM " +
-                    "GROUP BY A.ID " +
-                    "HAVING A.ID=MIN(B.ID)) as c);");
+        final GeometryFactory factory = new GeometryFactory(new PrecisionModel(), srid);
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + nodesName + " VALUES(?, ?)")) {
+            for (int node = 1; node <= nodeCount; node++) {
+                ps.setInt(1, node);
+                ps.setObject(2, factory.createPoint(snapper.getNodeCoordinate(node)));
+                ps.addBatch();
+                if (node % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
         }
     }
 
     /**
-     * Create the edges table.
+     * Fill the edges table, orienting the edges by slope if requested: edges
+     * whose start node is lower than their end node are reversed.
      */
-    private static void edgesTable(Statement st,
-                                   TableLocation nodesName,
+    private static void edgesTable(Connection connection,
                                    TableLocation edgesName,
-                                   double tolerance, DBTypes dbType) throws SQLException {
+                                   NodeSnapper snapper,
+                                   boolean orientBySlope) throws SQLException {
         LOGGER.info("Creating the edges table...");
-        if (tolerance > 0) {
-            if (dbType == DBTypes.H2 || dbType == DBTypes.H2GIS) {
-                st.execute("CREATE SPATIAL INDEX ON " + nodesName + "(EXP);");
-                st.execute("CREATE SPATIAL INDEX ON "+ COORDS_TABLE+"(START_POINT_EXP);");
-                st.execute("CREATE SPATIAL INDEX ON "+ COORDS_TABLE+"(END_POINT_EXP);");
-            } else {
-                st.execute("CREATE  INDEX ON " + nodesName + " USING GIST(EXP);");
-                st.execute("CREATE  INDEX ON "+ COORDS_TABLE+" USING GIST(START_POINT_EXP);");
-                st.execute("CREATE  INDEX ON "+ COORDS_TABLE+" USING GIST(END_POINT_EXP);");
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + edgesName + " VALUES(?, ?, ?)")) {
+            for (int edge = 0; edge < snapper.getEdgeCount(); edge++) {
+                int startNode = snapper.getStartNode(edge);
+                int endNode = snapper.getEndNode(edge);
+                if (orientBySlope && snapper.getNodeCoordinate(startNode).getZ()
+                        < snapper.getNodeCoordinate(endNode).getZ()) {
+                    final int tmp = startNode;
+                    startNode = endNode;
+                    endNode = tmp;
+                }
+                ps.setLong(1, snapper.getEdgeId(edge));
+                ps.setInt(2, startNode);
+                ps.setInt(3, endNode);
+                ps.addBatch();
+                if ((edge + 1) % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
             }
-            st.execute("CREATE TABLE " + edgesName + " AS " +
-                    "SELECT EDGE_ID, " +
-                    "(SELECT NODE_ID FROM " + nodesName +
-                    " WHERE " + nodesName + ".EXP && "+ COORDS_TABLE+".START_POINT_EXP LIMIT 1) START_NODE, " +
-                    "(SELECT NODE_ID FROM " + nodesName +
-                    " WHERE " + nodesName + ".EXP && "+ COORDS_TABLE+".END_POINT_EXP LIMIT 1) END_NODE " +
-                    "FROM "+ COORDS_TABLE+";");
-            st.execute("ALTER TABLE " + nodesName + " DROP COLUMN EXP;");
-        } else {
-            if (dbType == DBTypes.H2 || dbType == DBTypes.H2GIS) {
-                st.execute("CREATE SPATIAL INDEX ON " + nodesName + "(THE_GEOM);");
-                st.execute("CREATE SPATIAL INDEX ON "+ COORDS_TABLE+"(START_POINT);");
-                st.execute("CREATE SPATIAL INDEX ON "+ COORDS_TABLE+"(END_POINT);");
-            } else {
-                st.execute("CREATE INDEX ON " + nodesName + " USING GIST(THE_GEOM);");
-                st.execute("CREATE INDEX ON "+ COORDS_TABLE+" USING GIST(START_POINT);");
-                st.execute("CREATE INDEX ON "+ COORDS_TABLE+" USING GIST(END_POINT);");
-            }
-            // If the tolerance is zero, then we can use = on the geometries
-            // instead of && on the envelopes.
-            st.execute("CREATE TABLE " + edgesName + " AS " +
-                    "SELECT EDGE_ID, " +
-                    "(SELECT NODE_ID FROM " + nodesName +
-                    " WHERE " + nodesName + ".THE_GEOM && "+ COORDS_TABLE+".START_POINT " +
-                    "AND " + nodesName + ".THE_GEOM="+ COORDS_TABLE+".START_POINT LIMIT 1) START_NODE, " +
-                    "(SELECT NODE_ID FROM " + nodesName +
-                    " WHERE " + nodesName + ".THE_GEOM && "+ COORDS_TABLE+".END_POINT " +
-                    "AND " + nodesName + ".THE_GEOM="+ COORDS_TABLE+".END_POINT LIMIT 1) END_NODE " +
-                    "FROM "+ COORDS_TABLE+";");
+            ps.executeBatch();
         }
     }
 
-    /**
-     * Edges direction according the slope (start and end z)
-     * @param st
-     * @param nodesName
-     * @param edgesName
-     * @throws SQLException 
-     */
-    private static void orientBySlope(Statement st,
-                                      TableLocation nodesName,
-                                      TableLocation edgesName) throws SQLException {
-        LOGGER.info("Orienting edges by slope...");
-        st.execute("UPDATE " + edgesName + " c " +
-                    "SET START_NODE=END_NODE, " +
-                    "    END_NODE=START_NODE " +
-                    "WHERE (SELECT ST_Z(A.THE_GEOM) < ST_Z(B.THE_GEOM) " +
-                            "FROM " + nodesName + " A, " + nodesName + " B " +
-                            "WHERE C.START_NODE=A.NODE_ID AND C.END_NODE=B.NODE_ID);");
-    }
-
-    private static void checkForNullEdgeEndpoints(Statement st,
-                                                  TableLocation edgesName) throws SQLException {
+    private static void checkForNullEdgeEndpoints(NodeSnapper snapper) {
         LOGGER.info("Checking for null edge endpoints...");
-        try (ResultSet nullEdges = st.executeQuery("SELECT COUNT(*) FROM " + edgesName + " WHERE " +
-                "START_NODE IS NULL OR END_NODE IS NULL;")) {
-            nullEdges.next();
-            final int n = nullEdges.getInt(1);
-            if (n > 0) {
-                String msg = "There " + (n == 1 ? "is one edge " : "are " + n + " edges ");
-                throw new IllegalStateException(msg + "with a null start node or end node. " +
-                        "Try using a slightly smaller tolerance.");
+        int n = 0;
+        for (int edge = 0; edge < snapper.getEdgeCount(); edge++) {
+            if (snapper.getStartNode(edge) == 0 || snapper.getEndNode(edge) == 0) {
+                n++;
             }
         }
+        if (n > 0) {
+            String msg = "There " + (n == 1 ? "is one edge " : "are " + n + " edges ");
+            throw new IllegalStateException(msg + "with a null start node or end node. " +
+                    "Try using a slightly smaller tolerance.");
+        }
     }
 }
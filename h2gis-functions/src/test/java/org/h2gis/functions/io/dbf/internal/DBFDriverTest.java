@@ -1,11 +1,16 @@
 package org.h2gis.functions.io.dbf.internal;
 
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2gis.functions.io.dbf.DBFEngineTest;
 import org.h2gis.functions.io.shp.SHPEngineTest;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Date;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -18,4 +23,96 @@ public class DBFDriverTest {
         dbfDriver.initDriverFromFile(new File(SHPEngineTest.class.getResource("waternetwork.dbf").getFile()));
         assertTrue(dbfDriver.dbaseFileReader.getPositionFor(11000000, 0) > Integer.MAX_VALUE);
     }
+
+    @Test
+    public void testReadRecordSingleByteCharset() throws IOException {
+        // cp1252 file with numeric, float, char and date fields, each record is decoded at once
+        assertReadRecord(new File(DBFEngineTest.class.getResource("sotchi.dbf").getFile()), null);
+        assertReadRecord(new File(DBFEngineTest.class.getResource("sotchi.dbf").getFile()), "cp1251");
+        assertReadRecord(new File(DBFEngineTest.class.getResource("comma_separator.dbf").getFile()), "cp1252");
+    }
+
+    @Test
+    public void testReadRecordMultiByteCharset() throws IOException {
+        // UTF-8 and Big5 files, the fields are decoded one by one
+        assertReadRecord(new File(SHPEngineTest.class.getResource("waternetwork.dbf").getFile()), null);
+        assertReadRecord(new File(DBFEngineTest.class.getResource("encoding_test.dbf").getFile()), null);
+    }
+
+    @Test
+    public void testReadRecordFieldTypes() throws IOException, DbaseFileException {
+        for (String encoding : new String[]{"cp1252", "UTF-8"}) {
+            File dbfFile = new File("target/read_record_" + encoding + ".dbf");
+            DbaseFileHeader header = new DbaseFileHeader();
+            header.setEncoding(encoding);
+            header.addColumn("ID", 'N', 10, 0);
+            header.addColumn("VALUE", 'F', 20, 5);
+            header.addColumn("FLAG", 'L', 1, 0);
+            header.addColumn("NAME", 'C', 20, 0);
+            header.addColumn("DAY", 'D', 8, 0);
+            DBFDriver writer = new DBFDriver();
+            writer.initDriver(dbfFile, header);
+            writer.insertRow(new Object[]{1, 1.5, true, "first", new Date()});
+            writer.insertRow(new Object[]{2, -2.25, false, "Théâtre", new Date()});
+            writer.insertRow(new Object[]{3, 0.125, true, "Ölçü", new Date()});
+            writer.insertRow(new Object[]{null, null, null, null, null});
+            writer.close();
+
+            DBFDriver dbfDriver = new DBFDriver();
+            dbfDriver.initDriverFromFile(dbfFile);
+            assertEquals(encoding, dbfDriver.getDbaseFileHeader().getFileEncoding());
+            // Field offsets, the deletion flag is the first byte of a record
+            DbaseFileHeader readHeader = dbfDriver.getDbaseFileHeader();
+            long recordPosition = readHeader.getHeaderLength() + 2L * readHeader.getRecordLength() + 1;
+            assertEquals(recordPosition, dbfDriver.dbaseFileReader.getPositionFor(2, 0));
+            assertEquals(recordPosition + 10, dbfDriver.dbaseFileReader.getPositionFor(2, 1));
+            assertEquals(recordPosition + 30, dbfDriver.dbaseFileReader.getPositionFor(2, 2));
+            assertEquals(recordPosition + 31, dbfDriver.dbaseFileReader.getPositionFor(2, 3));
+            assertEquals(recordPosition + 51, dbfDriver.dbaseFileReader.getPositionFor(2, 4));
+            Value[] row = new Value[dbfDriver.getFieldCount()];
+            dbfDriver.readRecord(1, row);
+            assertEquals(2, row[0].getInt());
+            assertEquals(-2.25, row[1].getDouble(), 0);
+            assertEquals(false, row[2].getBoolean());
+            assertEquals("Théâtre", row[3].getString());
+            dbfDriver.readRecord(2, row);
+            assertEquals(3, row[0].getInt());
+            assertEquals(0.125, row[1].getDouble(), 0);
+            assertEquals(true, row[2].getBoolean());
+            assertEquals("Ölçü", row[3].getString());
+            dbfDriver.readRecord(3, row);
+            for (Value value : row) {
+                assertEquals(ValueNull.INSTANCE, value);
+            }
+            dbfDriver.close();
+            assertReadRecord(dbfFile, null);
+        }
+    }
+
+    /**
+     * Check that readRecord returns the same values as getField, with a Value array and with an Object array.
+     *
+     * @param dbfFile DBF file
+     * @param forceEncoding Encoding to use, null for the encoding of the file header
+     */
+    private static void assertReadRecord(File dbfFile, String forceEncoding) throws IOException {
+        DBFDriver fieldDriver = new DBFDriver();
+        fieldDriver.initDriverFromFile(dbfFile, forceEncoding);
+        DBFDriver recordDriver = new DBFDriver();
+        recordDriver.initDriverFromFile(dbfFile, forceEncoding);
+        int fieldCount = recordDriver.getFieldCount();
+        Value[] values = new Value[fieldCount];
+        Object[] objects = new Object[fieldCount];
+        for (long rowId = recordDriver.getRowCount() - 1; rowId >= 0; rowId--) {
+            recordDriver.readRecord(rowId, values);
+            recordDriver.readRecord(rowId, objects);
+            for (int columnId = 0; columnId < fieldCount; columnId++) {
+                Value expected = fieldDriver.getField(rowId, columnId);
+                assertEquals(expected, values[columnId], dbfFile.getName() + " row " + rowId + " column " + columnId);
+                assertEquals(expected, objects[columnId], dbfFile.getName() + " row " + rowId + " column " + columnId);
+            }
+        }
+        fieldDriver.close();
+        recordDriver.close();
+    }
 }
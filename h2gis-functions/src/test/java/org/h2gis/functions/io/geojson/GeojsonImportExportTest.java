@@ -33,10 +33,14 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.WKTReader;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.*;
 import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 
 import org.h2gis.unitTest.GeometryAsserts;
 import org.osgi.service.jdbc.DataSourceFactory;
@@ -757,6 +761,155 @@ public class GeojsonImportExportTest {
         }
     }
 
+    @Test
+    public void testReadLatePropertyAfterFirstBatch() throws Exception {
+        StringBuilder sb = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int i = 1; i <= 2000; i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[").append(i).append(",0]},\"properties\":{\"id\":").append(i);
+            if (i >= 1500) {
+                sb.append(",\"late\":\"v").append(i).append('"');
+            }
+            sb.append("}}");
+        }
+        sb.append("]}");
+        Files.write(new File("target/late_property.geojson").toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_LATE_READ;");
+            stat.execute("CALL GeoJsonRead('target/late_property.geojson', 'TABLE_LATE_READ');");
+            ResultSet res = stat.executeQuery("SELECT COUNT(*), COUNT(LATE), MIN(LATE) FROM TABLE_LATE_READ;");
+            res.next();
+            assertEquals(2000, res.getInt(1));
+            assertEquals(501, res.getInt(2));
+            assertEquals("v1500", res.getString(3));
+            res.close();
+            res = stat.executeQuery("SELECT LATE FROM TABLE_LATE_READ WHERE ID = 1499 OR ID = 2000 ORDER BY ID;");
+            res.next();
+            assertNull(res.getObject(1));
+            res.next();
+            assertEquals("v2000", res.getString(1));
+            res.close();
+        }
+    }
+
+    @Test
+    public void testReadWidenedPropertyType() throws Exception {
+        Files.write(new File("target/widened_property.geojson").toPath(), ("{\"type\":\"FeatureCollection\",\"features\":["
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,1]},\"properties\":{\"value\":1,\"number\":1}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[2,2]},\"properties\":{\"value\":1.5,\"number\":2.5}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[3,3]},\"properties\":{\"value\":\"a\",\"number\":3.5}}"
+                + "]}").getBytes(StandardCharsets.UTF_8));
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_WIDENED_READ;");
+            stat.execute("CALL GeoJsonRead('target/widened_property.geojson', 'TABLE_WIDENED_READ');");
+            ResultSet res = stat.executeQuery("SELECT VALUE, NUMBER FROM TABLE_WIDENED_READ;");
+            ResultSetMetaData rsmd = res.getMetaData();
+            assertEquals(Types.VARCHAR, rsmd.getColumnType(1));
+            assertEquals(Types.DOUBLE, rsmd.getColumnType(2));
+            res.next();
+            assertEquals("1", res.getString(1));
+            assertEquals(1, res.getDouble(2), 0);
+            res.next();
+            assertEquals("1.5", res.getString(1));
+            assertEquals(2.5, res.getDouble(2), 0);
+            res.next();
+            assertEquals("a", res.getString(1));
+            assertEquals(3.5, res.getDouble(2), 0);
+            assertFalse(res.next());
+            res.close();
+        }
+    }
+
+    @Test
+    public void testReadLateZCoordinate() throws Exception {
+        Files.write(new File("target/late_z.geojson").toPath(), ("{\"type\":\"FeatureCollection\",\"features\":["
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,1]},\"properties\":{\"id\":1}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[2,2],[3,3]]},\"properties\":{\"id\":2}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[4,4,10]},\"properties\":{\"id\":3}}"
+                + "]}").getBytes(StandardCharsets.UTF_8));
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_LATE_Z_READ;");
+            stat.execute("CALL GeoJsonRead('target/late_z.geojson', 'TABLE_LATE_Z_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_LATE_Z_READ ORDER BY ID;");
+            res.next();
+            assertGeometryEquals("POINTZ (1 1 0)", res.getObject(1));
+            res.next();
+            assertGeometryEquals("LINESTRINGZ (2 2 0, 3 3 0)", res.getObject(1));
+            res.next();
+            assertGeometryEquals("POINTZ (4 4 10)", res.getObject(1));
+            assertFalse(res.next());
+            res.close();
+        }
+    }
+
+    @Test
+    public void testReadGzipGeoJson() throws Exception {
+        String content = "{\"type\":\"FeatureCollection\",\"features\":["
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]},\"properties\":{\"name\":\"first\"}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[3,4]},\"properties\":{\"name\":\"second\"}}"
+                + "]}";
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream("target/points_gz.geojson.gz"))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_GZ_READ;");
+            stat.execute("CALL GeoJsonRead('target/points_gz.geojson.gz', 'TABLE_GZ_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_GZ_READ;");
+            res.next();
+            assertGeometryEquals("POINT (1 2)", res.getObject(1));
+            assertEquals("first", res.getString(2));
+            res.next();
+            assertGeometryEquals("POINT (3 4)", res.getObject(1));
+            assertEquals("second", res.getString(2));
+            assertFalse(res.next());
+            res.close();
+        }
+    }
+
+    @Test
+    public void testReadGeoJsonSequence() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_SEQUENCE_READ;");
+            stat.execute("CALL GeoJsonRead(" + StringUtils.quoteStringSQL(GeojsonImportExportTest.class.getResource("sequence.geojsonl").getPath()) + ", 'TABLE_SEQUENCE_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_SEQUENCE_READ;");
+            ResultSetMetaData rsmd = res.getMetaData();
+            assertEquals(4, rsmd.getColumnCount());
+            assertEquals("DOUBLE PRECISION", rsmd.getColumnTypeName(2));
+            assertEquals("BOOLEAN", rsmd.getColumnTypeName(4));
+            res.next();
+            assertTrue(((Geometry) res.getObject(1)).equals(WKTREADER.read("POINT (100 0)")));
+            assertEquals(1, res.getDouble(2), 0);
+            assertEquals("first", res.getString(3));
+            res.next();
+            assertEquals(2.5, res.getDouble(2), 0);
+            assertTrue(res.getBoolean(4));
+            res.next();
+            assertNull(res.getObject(1));
+            assertEquals(3, res.getDouble(2), 0);
+            assertFalse(res.next());
+            res.close();
+        }
+    }
+
+    @Test
+    public void testReadGeoJsonTextSequence() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_SEQUENCE_READ;");
+            stat.execute("CALL GeoJsonRead(" + StringUtils.quoteStringSQL(GeojsonImportExportTest.class.getResource("sequence.geojsons").getPath()) + ", 'TABLE_SEQUENCE_READ');");
+            ResultSet res = stat.executeQuery("SELECT * FROM TABLE_SEQUENCE_READ;");
+            res.next();
+            assertGeometryEquals("LINESTRING Z (0 0 0, 1 1 2)", res.getObject(1));
+            assertEquals(1, res.getInt(2));
+            assertEquals("[\"a\",\"b\"]", res.getString(3));
+            res.next();
+            assertGeometryEquals("LINESTRING Z (2 2 0, 3 3 0)", res.getObject(1));
+            assertFalse(res.next());
+            res.close();
+        }
+    }
+
     @Test
     public void testWriteReadEmptyTable() throws SQLException {
         try (Statement stat = connection.createStatement()) {
@@ -0,0 +1,91 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the off-heap store of the OSM node locations
+ */
+public class NodeLocationStoreTest {
+
+    @Test
+    public void testOrderedPuts() {
+        NodeLocationStore store = new NodeLocationStore();
+        store.put(1, 10, 20);
+        store.put(2, 11, 21);
+        store.put(7, 12, 22);
+        assertEquals(3, store.size());
+        assertEquals(new Coordinate(10, 20), store.get(1));
+        assertEquals(new Coordinate(11, 21), store.get(2));
+        assertEquals(new Coordinate(12, 22), store.get(7));
+        assertNull(store.get(3));
+    }
+
+    @Test
+    public void testPutAfterLookup() {
+        NodeLocationStore store = new NodeLocationStore();
+        store.put(5, 5, 50);
+        store.put(3, 3, 30);
+        // The lookup sorts the nodes
+        assertEquals(new Coordinate(3, 30), store.get(3));
+        // 4 is lower than the greatest identifier, the nodes must be sorted again
+        store.put(4, 4, 40);
+        assertEquals(new Coordinate(4, 40), store.get(4));
+        assertEquals(new Coordinate(3, 30), store.get(3));
+        assertEquals(new Coordinate(5, 50), store.get(5));
+        store.put(6, 6, 60);
+        assertEquals(new Coordinate(6, 60), store.get(6));
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    public void testUnorderedPutsMixedWithLookups() {
+        NodeLocationStore store = new NodeLocationStore();
+        Map<Long, Coordinate> expected = new HashMap<>();
+        Random random = new Random(42);
+        // More nodes than a chunk
+        for (int i = 0; i < NodeLocationStore.CHUNK_SIZE + 1000; i++) {
+            long id = random.nextInt(Integer.MAX_VALUE);
+            if (expected.containsKey(id)) {
+                continue;
+            }
+            Coordinate coordinate = new Coordinate(random.nextDouble(), random.nextDouble());
+            store.put(id, coordinate.x, coordinate.y);
+            expected.put(id, coordinate);
+            if (i < 2000 || i % 10000 == 0) {
+                assertEquals(coordinate, store.get(id));
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        for (Map.Entry<Long, Coordinate> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), store.get(entry.getKey()));
+        }
+        assertNull(store.get(-1));
+    }
+}
@@ -23,6 +23,7 @@ package org.h2gis.functions.io.osm;
 import org.h2.util.StringUtils;
 import org.h2gis.functions.factory.H2GISDBFactory;
 import org.junit.jupiter.api.*;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 
 import java.io.File;
@@ -261,7 +262,66 @@ public class OSMImportTest {
         assertEquals(3, rs.getInt(1));
         rs.close();
     }
-    
+
+    @Test
+    public void importPbfOSMFile() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm.pbf").getPath()) + ", 'OSM');");
+        ResultSet rs = st.executeQuery("SELECT count(TABLE_NAME) FROM INFORMATION_SCHEMA.TABLES where TABLE_NAME LIKE 'OSM%'");
+        rs.next();
+        assertEquals(10, rs.getInt(1));
+        rs.close();
+        // Same content as the XML file
+        rs = st.executeQuery("SELECT count(ID_NODE) FROM OSM_NODE");
+        rs.next();
+        assertEquals(3243, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT THE_GEOM FROM OSM_NODE WHERE ID_NODE=462020579");
+        assertTrue(rs.next());
+        assertEquals("SRID=4326;POINT (-2.1213541 47.6347657)", rs.getString("the_geom"));
+        rs.close();
+        rs = st.executeQuery("SELECT * FROM OSM_NODE WHERE ID_NODE=670177172");
+        assertTrue(rs.next());
+        assertEquals(91.9, rs.getDouble("ELE"), 0.1);
+        assertFalse(rs.wasNull());
+        rs.close();
+        rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY");
+        rs.next();
+        assertEquals(472, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY_NODE");
+        rs.next();
+        assertEquals(4180, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY_TAG");
+        rs.next();
+        assertEquals(1014, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(ID_RELATION) FROM OSM_RELATION");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY_MEMBER");
+        assertTrue(rs.next());
+        assertEquals(79, rs.getInt(1));
+        rs.close();
+        // Compare all the tables with the import of the XML file
+        st.execute("DROP TABLE IF EXISTS XML_NODE, XML_NODE_TAG, XML_WAY, XML_WAY_TAG, XML_WAY_NODE, XML_RELATION, XML_RELATION_TAG, XML_NODE_MEMBER, XML_WAY_MEMBER, XML_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'XML');");
+        for (String table : new String[]{"_NODE", "_NODE_TAG", "_WAY", "_WAY_TAG", "_WAY_NODE", "_RELATION",
+                "_RELATION_TAG", "_NODE_MEMBER", "_WAY_MEMBER", "_RELATION_MEMBER"}) {
+            rs = st.executeQuery("SELECT count(*) FROM (SELECT * FROM OSM" + table + " EXCEPT SELECT * FROM XML" + table + ")");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1), "OSM" + table);
+            rs.close();
+            rs = st.executeQuery("SELECT count(*) FROM (SELECT * FROM XML" + table + " EXCEPT SELECT * FROM OSM" + table + ")");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1), "XML" + table);
+            rs.close();
+        }
+        st.execute("DROP TABLE XML_NODE, XML_NODE_TAG, XML_WAY, XML_WAY_TAG, XML_WAY_NODE, XML_RELATION, XML_RELATION_TAG, XML_NODE_MEMBER, XML_WAY_MEMBER, XML_RELATION_MEMBER;");
+    }
+
     //Disable this @Test to avoid internet connection error
     //@Test
     public void downloadOSMFile() throws SQLException, IOException {
@@ -306,7 +366,120 @@ public class OSMImportTest {
         assertTrue(new File(file.getPath()).exists());
         }
     }
+
+    @Test
+    public void importOSMFileWithWayGeometries() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'OSM', 'geometry=true');");
+        ResultSet rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY");
+        assertTrue(rs.next());
+        assertEquals(472, rs.getInt(1));
+        rs.close();
+        // Closed buildings are polygons, highways are lines
+        rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY WHERE ST_DIMENSION(THE_GEOM) = 2");
+        assertTrue(rs.next());
+        assertEquals(450, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT THE_GEOM FROM OSM_WAY WHERE ID_WAY=38895116");
+        assertTrue(rs.next());
+        Geometry geom = (Geometry) rs.getObject(1);
+        assertEquals(4326, geom.getSRID());
+        assertEquals("LINESTRING (-2.1259619 47.6361555, -2.1268133 47.6371904, -2.1268698 47.6372667, -2.1269243 47.6373781, " +
+                "-2.127035 47.6375201, -2.1278809 47.6380428, -2.1281738 47.6382474, -2.1282863 47.6383534, " +
+                "-2.1288096 47.6387601, -2.1289545 47.6389026, -2.1292771 47.6396641, -2.1294241 47.6398015, " +
+                "-2.1302606 47.6400719, -2.13051 47.6402289, -2.1313409 47.6407937)", geom.toText());
+        rs.close();
+        // The geometries use the way nodes in order
+        rs = st.executeQuery("SELECT count(W.ID_WAY) FROM OSM_WAY W WHERE ST_NPOINTS(W.THE_GEOM) <> " +
+                "(SELECT count(WN.ID_NODE) FROM OSM_WAY_NODE WN WHERE WN.ID_WAY = W.ID_WAY)");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+    }
     
+    @Test
+    public void importOSMFileWithFilter() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'OSM', 'bbox=-2.125,47.635,-2.120,47.637 tags=building');");
+        // Untagged nodes in the bounding box
+        ResultSet rs = st.executeQuery("SELECT count(ID_NODE) FROM OSM_NODE");
+        assertTrue(rs.next());
+        assertEquals(1211, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(ID_NODE) FROM OSM_NODE WHERE ST_X(THE_GEOM) < -2.125 OR ST_X(THE_GEOM) > -2.120 " +
+                "OR ST_Y(THE_GEOM) < 47.635 OR ST_Y(THE_GEOM) > 47.637");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        // Buildings with at least one node in the bounding box
+        rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY");
+        assertTrue(rs.next());
+        assertEquals(235, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(DISTINCT ID_WAY) FROM OSM_WAY_TAG WHERE TAG_KEY = 'building'");
+        assertTrue(rs.next());
+        assertEquals(235, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(ID_RELATION) FROM OSM_RELATION");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        // Same area given as a polygon
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm.pbf").getPath()) + ", 'OSM', " +
+                "'polygon=POLYGON ((-2.125 47.635, -2.120 47.635, -2.120 47.637, -2.125 47.637, -2.125 47.635)) tags=building', true);");
+        rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY");
+        assertTrue(rs.next());
+        assertEquals(235, rs.getInt(1));
+        rs.close();
+        // Relations are kept when one of their members is in the area
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'OSM', " +
+                "'bbox=-2.125,47.635,-2.120,47.637', true);");
+        rs = st.executeQuery("SELECT count(ID_RELATION) FROM OSM_RELATION");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        rs.close();
+    }
+
+    @Test
+    public void importOSMFileWithFilterWayNodes() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        // The highway=give_way node is a vertex of a highway=unclassified way
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'OSM', 'tags=highway=unclassified');");
+        ResultSet rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY_NODE WN LEFT JOIN OSM_NODE N ON WN.ID_NODE = N.ID_NODE WHERE N.ID_NODE IS NULL");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT ID_NODE, TAG_VALUE FROM OSM_NODE_TAG WHERE TAG_KEY = 'highway'");
+        assertTrue(rs.next());
+        assertEquals(2339529308L, rs.getLong(1));
+        assertEquals("give_way", rs.getString(2));
+        assertFalse(rs.next());
+        rs.close();
+        // The buildings crossing the bounding box keep their nodes outside of it
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'OSM', " +
+                "'bbox=-2.125,47.635,-2.120,47.637 tags=building geometry=true', true);");
+        rs = st.executeQuery("SELECT count(ID_WAY) FROM OSM_WAY W WHERE ST_NPoints(THE_GEOM) <> " +
+                "(SELECT count(*) FROM OSM_WAY_NODE WN WHERE WN.ID_WAY = W.ID_WAY)");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(ID_WAY), count(CASE WHEN ST_Dimension(THE_GEOM) = 2 THEN 1 END) FROM OSM_WAY " +
+                "WHERE ST_XMin(THE_GEOM) < -2.125 OR ST_XMax(THE_GEOM) > -2.120 OR ST_YMin(THE_GEOM) < 47.635 OR ST_YMax(THE_GEOM) > 47.637");
+        assertTrue(rs.next());
+        assertEquals(21, rs.getInt(1));
+        assertEquals(21, rs.getInt(2));
+        rs.close();
+        // Their nodes outside of the bounding box are not imported
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY_NODE WN LEFT JOIN OSM_NODE N ON WN.ID_NODE = N.ID_NODE WHERE N.ID_NODE IS NULL");
+        assertTrue(rs.next());
+        assertEquals(68, rs.getInt(1));
+        rs.close();
+    }
+
     //Disable this @Test to avoid internet connection error
     //@Test
     public void downloadOSMFileAndImport() throws SQLException, IOException {
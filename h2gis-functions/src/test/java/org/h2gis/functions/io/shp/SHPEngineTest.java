@@ -23,7 +23,10 @@ package org.h2gis.functions.io.shp;
 import org.apache.commons.io.FileUtils;
 import org.h2.util.StringUtils;
 import org.h2gis.functions.factory.H2GISDBFactory;
+import org.h2.value.Value;
 import org.h2gis.functions.io.file_table.H2TableIndex;
+import org.h2gis.functions.io.shp.internal.SHPDriver;
+import org.h2gis.functions.io.utility.PRJUtil;
 import org.h2gis.utilities.GeometryTableUtilities;
 import org.h2gis.utilities.GeometryTypeCodes;
 import org.h2gis.utilities.TableLocation;
@@ -32,10 +35,12 @@ import org.junit.jupiter.api.*;
 import org.locationtech.jts.geom.Geometry;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -256,6 +261,51 @@ public class SHPEngineTest {
         st.execute("drop table shptable");
     }
 
+    @Test
+    public void testSpatialIndexOnTableLink() throws Exception {
+        File src = new File(SHPEngineTest.class.getResource("waternetwork.shp").getPath());
+        File srcDbf = new File(SHPEngineTest.class.getResource("waternetwork.dbf").getPath());
+        File srcShx = new File(SHPEngineTest.class.getResource("waternetwork.shx").getPath());
+        File dst = new File("target/waternetwork_spatial.shp");
+        File indexFile = new File("target/waternetwork_spatial.h2idx");
+        indexFile.delete();
+        FileUtils.copyFile(src, dst);
+        FileUtils.copyFile(srcDbf, new File("target/waternetwork_spatial.dbf"));
+        FileUtils.copyFile(srcShx, new File("target/waternetwork_spatial.shx"));
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS shptable");
+        st.execute("CALL FILE_TABLE('" + dst + "', 'SHPTABLE');");
+        // The index is built on first use
+        assertFalse(indexFile.exists());
+        try (ResultSet rs = st.executeQuery("EXPLAIN SELECT PK FROM SHPTABLE WHERE THE_GEOM && ST_BUFFER('POINT(183541 2426015)', 15)")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1).contains("SHPTABLE_THE_GEOM_SPATIAL_INDEX_"));
+        }
+        try (ResultSet rs = st.executeQuery("SELECT PK FROM SHPTABLE WHERE THE_GEOM && ST_BUFFER('POINT(183541 2426015)', 15) ORDER BY PK")) {
+            assertTrue(rs.next());
+            assertEquals(128, rs.getLong(1));
+            assertTrue(rs.next());
+            assertEquals(326, rs.getLong(1));
+            assertFalse(rs.next());
+        }
+        assertTrue(indexFile.exists());
+        long indexModified = indexFile.lastModified();
+        // The index file is reused while the shape file is not modified
+        st.execute("DROP TABLE shptable");
+        st.execute("CALL FILE_TABLE('" + dst + "', 'SHPTABLE');");
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM SHPTABLE WHERE THE_GEOM && ST_BUFFER('POINT(183541 2426015)', 15)")) {
+            assertTrue(rs.next());
+            assertEquals(2, rs.getLong(1));
+        }
+        assertEquals(indexModified, indexFile.lastModified());
+        // All the rows are found with the extent of the table
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM SHPTABLE WHERE THE_GEOM && (SELECT ST_EXTENT(THE_GEOM) FROM SHPTABLE)")) {
+            assertTrue(rs.next());
+            assertEquals(382, rs.getLong(1));
+        }
+        st.execute("DROP TABLE shptable");
+    }
+
     @Disabled
     @Test
     public void testAddIndexOnTableLink() throws SQLException {
@@ -443,4 +493,92 @@ public class SHPEngineTest {
             assertTrue(rs.getString(1).contains("PK_INDEX"), "Expected contains PK_INDEX but result is " + rs.getString(1));
         }
     }
+
+    @Test
+    public void linkedShpColumnOnDemandTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists shptable");
+        st.execute("CALL FILE_TABLE('"+SHPEngineTest.class.getResource("waternetwork.shp").getPath()+"', 'SHPTABLE');");
+        // The row count is read from the file header
+        try (ResultSet rs = st.executeQuery("EXPLAIN SELECT COUNT(*) FROM SHPTABLE")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1).contains("direct lookup"), "Expected direct lookup but result is " + rs.getString(1));
+        }
+        // The geometry is decoded once and used in both clauses
+        try (ResultSet rs = st.executeQuery("SELECT GID, ST_NPOINTS(THE_GEOM), THE_GEOM FROM SHPTABLE WHERE ST_NPOINTS(THE_GEOM) > 0 AND PK = 4")) {
+            assertTrue(rs.next());
+            assertEquals(4, rs.getInt(1));
+            Geometry geom = (Geometry) rs.getObject(3);
+            assertEquals(geom.getNumPoints(), rs.getInt(2));
+            assertFalse(rs.next());
+        }
+        // Only DBF columns are requested
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM SHPTABLE WHERE GID > 100")) {
+            assertTrue(rs.next());
+            assertEquals(282, rs.getInt(1));
+        }
+        st.execute("drop table shptable");
+    }
+
+    @Test
+    public void linkedShpFieldCacheTest() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("drop table if exists shptable");
+        st.execute(String.format("CREATE TABLE SHPTABLE ENGINE %s WITH %s",
+                StringUtils.quoteJavaString(CountingSHPEngine.class.getName()),
+                StringUtils.quoteJavaString(SHPEngineTest.class.getResource("waternetwork.shp").getPath())));
+        int rowCount;
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM SHPTABLE")) {
+            assertTrue(rs.next());
+            rowCount = rs.getInt(1);
+        }
+        // The geometry used in the WHERE and in the SELECT clauses is decoded once per row
+        CountingSHPDriver.geometryReads = 0;
+        int selectedRows = 0;
+        try (ResultSet rs = st.executeQuery("SELECT ST_NPOINTS(THE_GEOM), THE_GEOM FROM SHPTABLE WHERE ST_NPOINTS(THE_GEOM) > 0")) {
+            while (rs.next()) {
+                assertEquals(((Geometry) rs.getObject(2)).getNumPoints(), rs.getInt(1));
+                selectedRows++;
+            }
+        }
+        assertTrue(selectedRows > 0);
+        // The WHERE clause reads every geometry, the SELECT clause reuses them
+        assertEquals(rowCount, CountingSHPDriver.geometryReads);
+        // Only DBF columns are requested, the geometries are never decoded
+        CountingSHPDriver.geometryReads = 0;
+        try (ResultSet rs = st.executeQuery("SELECT GID, TYPE_AXE FROM SHPTABLE WHERE GID > 100")) {
+            selectedRows = 0;
+            while (rs.next()) {
+                selectedRows++;
+            }
+        }
+        assertEquals(282, selectedRows);
+        assertEquals(0, CountingSHPDriver.geometryReads);
+        st.execute("drop table shptable");
+    }
+
+    /**
+     * SHP table engine that counts the geometries decoded from the file.
+     */
+    public static class CountingSHPEngine extends SHPEngine {
+        @Override
+        protected SHPDriver createDriver(File filePath, List<String> args) throws IOException {
+            SHPDriver driver = new CountingSHPDriver();
+            driver.initDriverFromFile(filePath);
+            driver.setSRID(PRJUtil.getSRID(driver.prjFile));
+            return driver;
+        }
+    }
+
+    private static class CountingSHPDriver extends SHPDriver {
+        static int geometryReads;
+
+        @Override
+        public Value getField(long rowId, int column) throws IOException {
+            if (column == getGeometryFieldIndex()) {
+                geometryReads++;
+            }
+            return super.getField(rowId, column);
+        }
+    }
 }
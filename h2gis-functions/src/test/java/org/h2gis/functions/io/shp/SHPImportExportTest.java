@@ -108,6 +108,31 @@ public class SHPImportExportTest {
         assertGeometryEquals("MULTIPOLYGON (((90 109, 190 109, 190 9, 90 9, 90 109)))", (ValueGeometry) shpDriver.getField(1, 1));
     }
 
+    @Test
+    public void readRecordTest() throws IOException {
+        File shpFile = new File(SHPEngineTest.class.getResource("waternetwork.shp").getFile());
+        // Geometry before, between and after the DBF fields
+        for (int geometryFieldIndex = 0; geometryFieldIndex <= 3; geometryFieldIndex++) {
+            SHPDriver fieldDriver = new SHPDriver();
+            fieldDriver.initDriverFromFile(shpFile);
+            fieldDriver.setGeometryFieldIndex(geometryFieldIndex);
+            SHPDriver recordDriver = new SHPDriver();
+            recordDriver.initDriverFromFile(shpFile);
+            recordDriver.setGeometryFieldIndex(geometryFieldIndex);
+            assertEquals(4, recordDriver.getFieldCount());
+            Object[] row = new Object[recordDriver.getFieldCount()];
+            for (long rowId = recordDriver.getRowCount() - 1; rowId >= 0; rowId--) {
+                recordDriver.readRecord(rowId, row);
+                for (int columnId = 0; columnId < row.length; columnId++) {
+                    assertEquals(fieldDriver.getField(rowId, columnId), row[columnId]);
+                }
+            }
+            assertTrue(row[geometryFieldIndex] instanceof ValueGeometry);
+            fieldDriver.close();
+            recordDriver.close();
+        }
+    }
+
     @Test
     public void exportTableTestGeomDeb() throws SQLException, IOException {
         Statement stat = connection.createStatement();
@@ -717,6 +742,30 @@ public class SHPImportExportTest {
         rs.close();
     }
 
+    @Test
+    public void exportSelectHeaders() throws SQLException, IOException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS WATERNETWORK");
+        final String path = StringUtils.quoteStringSQL(SHPEngineTest.class.getResource("waternetwork.shp").getPath());
+        st.execute("CALL SHPRead(" + path + ", 'WATERNETWORK');");
+        st.execute("CALL SHPWrite('target/test_river_headers.shp', '(select * from WATERNETWORK where type_axe = ''river'')', true)");
+        // The record count and the bounds are written when the export is done
+        SHPDriver shpDriver = new SHPDriver();
+        shpDriver.initDriverFromFile(new File("target/test_river_headers.shp"));
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*), ST_XMIN(ST_EXTENT(THE_GEOM)), ST_YMIN(ST_EXTENT(THE_GEOM)), " +
+                "ST_XMAX(ST_EXTENT(THE_GEOM)), ST_YMAX(ST_EXTENT(THE_GEOM)) FROM WATERNETWORK WHERE TYPE_AXE = 'river'")) {
+            assertTrue(rs.next());
+            assertEquals(rs.getInt(1), shpDriver.getRowCount());
+            assertEquals(rs.getInt(1), shpDriver.getDbaseFileHeader().getNumRecords());
+            assertEquals(rs.getDouble(2), shpDriver.getShapeFileHeader().minX(), 1e-6);
+            assertEquals(rs.getDouble(3), shpDriver.getShapeFileHeader().minY(), 1e-6);
+            assertEquals(rs.getDouble(4), shpDriver.getShapeFileHeader().maxX(), 1e-6);
+            assertEquals(rs.getDouble(5), shpDriver.getShapeFileHeader().maxY(), 1e-6);
+        } finally {
+            shpDriver.close();
+        }
+    }
+
     @Test
     public void exportImportCharacters() throws SQLException, IOException {
         Statement stat = connection.createStatement();
@@ -925,4 +974,52 @@ public class SHPImportExportTest {
         assertEquals(coord.z, 5, 10E-1);
         res.close();
     }
+
+    @Test
+    public void importParallel() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        File shpFile = new File(SHPImportExportTest.class.getResource("waternetwork.shp").getFile());
+        SHPDriverFunction driverFunction = new SHPDriverFunction();
+        driverFunction.importFile(connection, "WATERNETWORK_SEQ", shpFile, null, true, new EmptyProgressVisitor());
+        driverFunction = new SHPDriverFunction();
+        driverFunction.setThreadCount(4);
+        driverFunction.setBatchSize(17);
+        driverFunction.setCommitInterval(50);
+        driverFunction.importFile(connection, "WATERNETWORK_PAR", shpFile, null, true, new EmptyProgressVisitor());
+        try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM WATERNETWORK_PAR")) {
+            assertTrue(rs.next());
+            assertEquals(382, rs.getInt(1));
+        }
+        // Same rows in the same order
+        try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM (SELECT * FROM WATERNETWORK_SEQ EXCEPT SELECT * FROM WATERNETWORK_PAR)")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+        stat.execute("DROP TABLE WATERNETWORK_SEQ, WATERNETWORK_PAR");
+    }
+
+    /**
+     * Import rate of a polygon layer according to the number of threads
+     */
+    @Disabled
+    @Test
+    public void benchmarkImportParallel() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS POLYGONS");
+        stat.execute("CREATE TABLE POLYGONS AS SELECT X AS ID, ST_BUFFER(ST_MAKEPOINT(X, X), 10) THE_GEOM FROM SYSTEM_RANGE(1, 500000)");
+        File shpFile = new File("target/benchmark_polygons.shp");
+        new SHPDriverFunction().exportTable(connection, "POLYGONS", shpFile, true, new EmptyProgressVisitor());
+        stat.execute("DROP TABLE POLYGONS");
+        for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount *= 2) {
+            SHPDriverFunction driverFunction = new SHPDriverFunction();
+            driverFunction.setThreadCount(threadCount);
+            driverFunction.setBatchSize(1000);
+            driverFunction.setCommitInterval(10000);
+            long start = System.nanoTime();
+            driverFunction.importFile(connection, "POLYGONS_IMPORT", shpFile, null, true, new EmptyProgressVisitor());
+            long time = System.nanoTime() - start;
+            log.info(threadCount + " threads: " + (int) (500000 * 1e9 / time) + " rows/s");
+        }
+        stat.execute("DROP TABLE POLYGONS_IMPORT");
+    }
 }
@@ -0,0 +1,171 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+
+package org.h2gis.functions.io.utility;
+
+import org.h2gis.functions.io.shp.SHPEngineTest;
+import org.h2gis.functions.io.shp.internal.IndexFile;
+import org.h2gis.functions.io.shp.internal.ShapefileReader;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compare the buffered and the memory-mapped implementations of ReadBufferManager
+ */
+public class ReadBufferManagerTest {
+
+    private static File getShapeFile(String extension) {
+        return new File(SHPEngineTest.class.getResource("waternetwork." + extension).getFile());
+    }
+
+    @Test
+    public void testMappedReadsSameValues() throws IOException {
+        File shpFile = getShapeFile("shp");
+        try (FileInputStream bufferedStream = new FileInputStream(shpFile);
+             FileInputStream mappedStream = new FileInputStream(shpFile)) {
+            ReadBufferManager buffered = new ReadBufferManager(bufferedStream.getChannel(), 1024);
+            // Use a tiny segment size to read across segment boundaries
+            MappedReadBufferManager mapped = new MappedReadBufferManager(mappedStream.getChannel(), 100);
+            assertEquals(buffered.getLength(), mapped.getLength());
+            buffered.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            long length = buffered.getLength();
+            for (long pos = 0; pos + 8 <= length; pos += 7) {
+                assertEquals(buffered.getInt(pos), mapped.getInt(pos));
+                assertEquals(buffered.getDouble(pos), mapped.getDouble(pos));
+                assertEquals(buffered.getByte(pos), mapped.getByte(pos));
+            }
+            // Read values larger than the segments
+            Random random = new Random(42);
+            byte[] expected = new byte[150];
+            byte[] actual = new byte[expected.length];
+            for (int i = 0; i < 20; i++) {
+                long pos = (long) (random.nextDouble() * (length - expected.length));
+                buffered.get(pos, expected);
+                mapped.get(pos, actual);
+                assertArrayEquals(expected, actual);
+            }
+            assertThrows(IOException.class, () -> mapped.getLong(length - 4));
+        }
+    }
+
+    @Test
+    public void testMappedClose() throws IOException {
+        FileInputStream mappedStream = new FileInputStream(getShapeFile("shp"));
+        MappedReadBufferManager mapped = new MappedReadBufferManager(mappedStream.getChannel(), 100);
+        int first = mapped.getInt(0);
+        mapped.getInt(mapped.getLength() - 4);
+        mapped.close();
+        mappedStream.close();
+        // The segments have been released, they cannot be mapped again from the closed channel
+        assertThrows(IOException.class, () -> mapped.getInt(0));
+        assertThrows(IOException.class, () -> mapped.getInt(mapped.getLength() - 4));
+        assertNotEquals(0, first);
+    }
+
+    @Test
+    public void testMappedShapefileReader() throws IOException {
+        String mmap = System.getProperty(ReadBufferManager.MMAP_PROPERTY);
+        try (FileInputStream shxStream = new FileInputStream(getShapeFile("shx"));
+             FileInputStream mappedStream = new FileInputStream(getShapeFile("shp"));
+             FileInputStream bufferedStream = new FileInputStream(getShapeFile("shp"))) {
+            IndexFile indexFile = new IndexFile(shxStream.getChannel());
+            System.setProperty(ReadBufferManager.MMAP_PROPERTY, "true");
+            ShapefileReader mappedReader = new ShapefileReader(mappedStream.getChannel());
+            System.setProperty(ReadBufferManager.MMAP_PROPERTY, "false");
+            ShapefileReader bufferedReader = new ShapefileReader(bufferedStream.getChannel());
+            assertTrue(indexFile.getRecordCount() > 0);
+            for (int i = indexFile.getRecordCount() - 1; i >= 0; i--) {
+                int offset = indexFile.getOffset(i);
+                Geometry expected = bufferedReader.geomAt(offset);
+                Geometry actual = mappedReader.geomAt(offset);
+                assertTrue(expected.equalsExact(actual));
+            }
+        } finally {
+            if (mmap == null) {
+                System.clearProperty(ReadBufferManager.MMAP_PROPERTY);
+            } else {
+                System.setProperty(ReadBufferManager.MMAP_PROPERTY, mmap);
+            }
+        }
+    }
+
+    /**
+     * Manual benchmark, not run by the build. Compare the full scan and random
+     * access throughput of the buffered and the memory-mapped readers, replace
+     * the test shapefile by a large one to get meaningful figures.
+     */
+    @Disabled("Manual benchmark")
+    @Test
+    public void manualBenchmarkGeomAt() throws IOException {
+        File shpFile = getShapeFile("shp");
+        File shxFile = getShapeFile("shx");
+        String mmap = System.getProperty(ReadBufferManager.MMAP_PROPERTY);
+        try {
+            for (String mode : new String[]{"false", "true"}) {
+                System.setProperty(ReadBufferManager.MMAP_PROPERTY, mode);
+                try (FileInputStream shxStream = new FileInputStream(shxFile);
+                     FileInputStream shpStream = new FileInputStream(shpFile)) {
+                    IndexFile indexFile = new IndexFile(shxStream.getChannel());
+                    ShapefileReader reader = new ShapefileReader(shpStream.getChannel());
+                    int count = indexFile.getRecordCount();
+                    int[] offsets = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        offsets[i] = indexFile.getOffset(i);
+                    }
+                    int loops = Math.max(1, 1000000 / count);
+                    long start = System.nanoTime();
+                    for (int loop = 0; loop < loops; loop++) {
+                        for (int offset : offsets) {
+                            reader.geomAt(offset);
+                        }
+                    }
+                    long scanTime = System.nanoTime() - start;
+                    Random random = new Random(42);
+                    start = System.nanoTime();
+                    for (int loop = 0; loop < loops * count; loop++) {
+                        reader.geomAt(offsets[random.nextInt(count)]);
+                    }
+                    long randomTime = System.nanoTime() - start;
+                    System.out.println((Boolean.parseBoolean(mode) ? "Mapped  " : "Buffered")
+                            + " full scan: " + (loops * count * 1e9 / scanTime) + " geom/s"
+                            + ", random access: " + (loops * count * 1e9 / randomTime) + " geom/s");
+                }
+            }
+        } finally {
+            if (mmap == null) {
+                System.clearProperty(ReadBufferManager.MMAP_PROPERTY);
+            } else {
+                System.setProperty(ReadBufferManager.MMAP_PROPERTY, mmap);
+            }
+        }
+    }
+}
@@ -381,6 +381,33 @@ public class SpatialFunctionTest {
         st.execute("DROP TABLE input_table;");
     }
 
+    @Test
+    public void test_PredicatesOnRepeatedGeometry() throws Exception {
+        st.execute("DROP TABLE IF EXISTS area, pts;"
+                + "CREATE TABLE area(the_geom GEOMETRY(POLYGON));"
+                + "INSERT INTO area VALUES(ST_Buffer('POINT(0 0)'::GEOMETRY, 50, 64));"
+                + "CREATE TABLE pts(the_geom GEOMETRY(GEOMETRY));"
+                + "INSERT INTO pts SELECT ST_MakePoint(X * 7 % 130 - 65, X * 13 % 130 - 65) FROM SYSTEM_RANGE(1, 500);"
+                + "INSERT INTO pts SELECT ST_Buffer(ST_MakePoint(X * 11 % 130 - 65, X * 3 % 130 - 65), 5) FROM SYSTEM_RANGE(1, 100);");
+        ResultSet rs = st.executeQuery("SELECT "
+                + "COUNT(CASE WHEN ST_Intersects(a.the_geom, p.the_geom) THEN 1 END) = COUNT(CASE WHEN ST_Relate(a.the_geom, p.the_geom, 'T********') OR ST_Relate(a.the_geom, p.the_geom, '*T*******') OR ST_Relate(a.the_geom, p.the_geom, '***T*****') OR ST_Relate(a.the_geom, p.the_geom, '****T****') THEN 1 END),"
+                + "COUNT(CASE WHEN ST_Intersects(p.the_geom, a.the_geom) THEN 1 END) = COUNT(CASE WHEN ST_Distance(a.the_geom, p.the_geom) = 0 THEN 1 END),"
+                + "COUNT(CASE WHEN ST_Contains(a.the_geom, p.the_geom) THEN 1 END) = COUNT(CASE WHEN ST_Relate(a.the_geom, p.the_geom, 'T*****FF*') THEN 1 END),"
+                + "COUNT(CASE WHEN ST_Within(p.the_geom, a.the_geom) THEN 1 END) = COUNT(CASE WHEN ST_Relate(p.the_geom, a.the_geom, 'T*F**F***') THEN 1 END),"
+                + "COUNT(CASE WHEN ST_Covers(a.the_geom, p.the_geom) THEN 1 END) = COUNT(CASE WHEN ST_Relate(a.the_geom, p.the_geom, 'T*****FF*') OR ST_Relate(a.the_geom, p.the_geom, '*T****FF*') OR ST_Relate(a.the_geom, p.the_geom, '***T**FF*') OR ST_Relate(a.the_geom, p.the_geom, '****T*FF*') THEN 1 END),"
+                + "COUNT(CASE WHEN ST_DWithin(a.the_geom, p.the_geom, 3) THEN 1 END) = COUNT(CASE WHEN ST_Distance(a.the_geom, p.the_geom) <= 3 THEN 1 END),"
+                + "COUNT(CASE WHEN ST_DWithin(p.the_geom, a.the_geom, -1) THEN 1 END),"
+                + "COUNT(CASE WHEN ST_Contains(a.the_geom, p.the_geom) THEN 1 END) "
+                + "FROM area a, pts p;");
+        assertTrue(rs.next());
+        for (int i = 1; i <= 6; i++) {
+            assertTrue(rs.getBoolean(i), "Column " + i);
+        }
+        assertEquals(0, rs.getInt(7));
+        assertTrue(rs.getInt(8) > 0);
+        st.execute("DROP TABLE area, pts;");
+    }
+
     @Test
     public void test_ST_DWithin() throws Exception {
         st.execute("DROP TABLE IF EXISTS input_table;"
@@ -31,11 +31,18 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.h2.value.ValueGeometry;
 
 import static org.h2gis.unitTest.GeometryAsserts.assertGeometryBarelyEquals;
 
+import org.h2gis.utilities.GeometryTableUtilities;
 import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.GeographyUtilities;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -206,6 +213,108 @@ public class CRSFunctionTest {
         st.execute("DROP TABLE IF EXISTS BASE_L93, BASE_L2E, BASE;");
     }
 
+    @Test
+    public void testST_TransformCRSCache() throws Exception {
+        CRSCache.clear();
+        checkProjectedGeom("SRID=27572;POINT(584173.736059813 2594514.82833411)",
+                "SRID=4326;POINT(2.114551398096724 50.34560979151726)");
+        long misses = CRSCache.getOperationLevel().getMissCount();
+        long hits = CRSCache.getOperationLevel().getHitCount();
+        assertTrue(misses > 0);
+        assertEquals(1, CRSCache.getOperationLevel().size());
+        assertEquals(2, CRSCache.getCRSLevel().size());
+        checkProjectedGeom("SRID=27572;POINT(584173.736059813 2594514.82833411)",
+                "SRID=4326;POINT(2.114551398096724 50.34560979151726)");
+        assertTrue(CRSCache.getOperationLevel().getHitCount() > hits);
+        assertEquals(misses, CRSCache.getOperationLevel().getMissCount());
+        int maxSize = CRSCache.getMaxSize();
+        try {
+            CRSCache.setMaxSize(1);
+            checkProjectedGeom("SRID=4326;POINT(2.114551398096724 50.34560979151726)",
+                    "SRID=27572;POINT(584173.736059813 2594514.82833411)", 10E-3);
+            assertEquals(1, CRSCache.getOperationLevel().size());
+            assertEquals(1, CRSCache.getCRSLevel().size());
+        } finally {
+            CRSCache.setMaxSize(maxSize);
+        }
+    }
+
+    @Test
+    public void testST_TransformConcurrentSessions() throws Exception {
+        CRSCache.clear();
+        final int[] srids = new int[]{2154, 3857, 27572, 32631};
+        final Geometry point = ValueGeometry.get("SRID=4326;POINT(2 48)").getGeometry();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                final int srid = srids[i % srids.length];
+                results.add(executor.submit(() -> {
+                    try (Connection session = H2GISDBFactory.openSpatialDataBase(DB_NAME)) {
+                        double error = 0;
+                        for (int j = 0; j < 100; j++) {
+                            Geometry back = ST_Transform.ST_Transform(session,
+                                    ST_Transform.ST_Transform(session, point, srid), 4326);
+                            error = Math.max(error, back.getCoordinate().distance(point.getCoordinate()));
+                        }
+                        return error;
+                    }
+                }));
+            }
+            for (Future<Double> result : results) {
+                assertEquals(0, result.get(), 1E-6);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8, CRSCache.getOperationLevel().size());
+    }
+
+    @Test
+    public void testST_TransformTable() throws Exception {
+        st.execute("DROP TABLE IF EXISTS PTS, PTS_REF;");
+        st.execute("CREATE TABLE PTS(ID INT PRIMARY KEY, THE_GEOM GEOMETRY(POINT, 4326));");
+        st.execute("INSERT INTO PTS SELECT X, CASE WHEN MOD(X, 1000) = 0 THEN NULL " +
+                "ELSE ST_SetSRID(ST_MakePoint(X * 0.0001, 45), 4326) END FROM SYSTEM_RANGE(1, 25000);");
+        st.execute("CREATE TABLE PTS_REF AS SELECT ID, ST_Transform(THE_GEOM, 2154) THE_GEOM FROM PTS;");
+        ResultSet rs = st.executeQuery("SELECT ST_TransformTable('PTS', 2154);");
+        assertTrue(rs.next());
+        assertEquals(24975, rs.getLong(1));
+        rs = st.executeQuery("SELECT COUNT(*) FROM PTS P, PTS_REF R WHERE P.ID = R.ID " +
+                "AND (P.THE_GEOM IS DISTINCT FROM R.THE_GEOM OR ST_SRID(P.THE_GEOM) <> 2154);");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getLong(1));
+        assertEquals(2154, GeometryTableUtilities.getSRID(connection, TableLocation.parse("PTS")));
+        // Nothing to do
+        rs = st.executeQuery("SELECT ST_TransformTable('PTS', 'THE_GEOM', 2154);");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getLong(1));
+        st.execute("DROP TABLE PTS, PTS_REF;");
+    }
+
+    @Test
+    public void testST_TransformTableRollback() throws Exception {
+        st.execute("DROP TABLE IF EXISTS PTS;");
+        // The geometry without SRID is in the second chunk
+        st.execute("CREATE TABLE PTS(ID INT PRIMARY KEY, THE_GEOM GEOMETRY(POINT));");
+        st.execute("INSERT INTO PTS SELECT X, CASE WHEN X = 15000 THEN ST_MakePoint(X * 0.0001, 45) " +
+                "ELSE ST_SetSRID(ST_MakePoint(X * 0.0001, 45), 4326) END FROM SYSTEM_RANGE(1, 20000);");
+        assertThrows(SQLException.class, () -> st.executeQuery("SELECT ST_TransformTable('PTS', 2154);"));
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM PTS WHERE ST_SRID(THE_GEOM) = 4326;");
+        assertTrue(rs.next());
+        assertEquals(19999, rs.getLong(1));
+        // The SRID constraint is restored
+        st.execute("DROP TABLE PTS;");
+        st.execute("CREATE TABLE PTS(ID INT PRIMARY KEY, THE_GEOM GEOMETRY(POINT, 4326));");
+        st.execute("INSERT INTO PTS VALUES (1, 'SRID=4326;POINT(2 45)');");
+        assertThrows(SQLException.class, () -> st.executeQuery("SELECT ST_TransformTable('PTS', 999999);"));
+        assertEquals(4326, GeometryTableUtilities.getSRID(connection, TableLocation.parse("PTS")));
+        rs = st.executeQuery("SELECT ST_SRID(THE_GEOM) FROM PTS;");
+        assertTrue(rs.next());
+        assertEquals(4326, rs.getInt(1));
+        st.execute("DROP TABLE PTS;");
+    }
+
 
     /**
      * Check the projected geometry using the POSTGIS EWKT style
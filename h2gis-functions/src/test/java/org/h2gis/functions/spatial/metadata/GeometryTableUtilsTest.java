@@ -536,6 +536,24 @@ public class GeometryTableUtilsTest {
                 -> GeometryTableUtilities.getEnvelope(connection, tableLocation, ""));
     }
 
+    @Test
+    public void testTableEnvelopeWithSRID() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS GEOMTABLE_SRID; CREATE TABLE GEOMTABLE_SRID (THE_GEOM GEOMETRY(GEOMETRY, 4326));");
+        TableLocation tableLocation = TableLocation.parse("GEOMTABLE_SRID", DBTypes.H2GIS);
+        assertNull(GeometryTableUtilities.getEnvelope(connection, tableLocation, "THE_GEOM"));
+        st.execute("INSERT INTO GEOMTABLE_SRID VALUES ('SRID=4326;POLYGON ((150 360, 200 360, 200 310, 150 310, 150 360))'),"
+                + "('SRID=4326;LINESTRING (195.5 279, 240 250)'), (NULL)");
+        Geometry env = GeometryTableUtilities.getEnvelope(connection, tableLocation, "THE_GEOM");
+        assertEquals(new Envelope(150.0, 240.0, 250.0, 360.0), env.getEnvelopeInternal());
+        assertEquals(4326, env.getSRID());
+        st.execute("CREATE SPATIAL INDEX ON GEOMTABLE_SRID(THE_GEOM)");
+        env = GeometryTableUtilities.getEnvelope(connection, tableLocation, "THE_GEOM");
+        assertEquals(new Envelope(150.0, 240.0, 250.0, 360.0), env.getEnvelopeInternal());
+        assertEquals(4326, env.getSRID());
+        st.execute("DROP TABLE GEOMTABLE_SRID");
+    }
+
     @Test
     public void testEstimatedExtentWithoutIndex() throws SQLException {
         TableLocation tableLocation = TableLocation.parse("GEOMTABLE",DBTypes.H2GIS);
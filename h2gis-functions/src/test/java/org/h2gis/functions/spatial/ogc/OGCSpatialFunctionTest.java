@@ -84,6 +84,30 @@ public class OGCSpatialFunctionTest {
         rs.close();
     }
 
+    @Test
+    public void test_ST_UnionAgg() throws Exception {
+        Statement st = connection.createStatement();
+        ResultSet rs = st.executeQuery("SELECT ST_Area(ST_UnionAgg(footprint)) FROM buildings GROUP BY SUBSTRING(address,4)");
+        assertTrue(rs.next());
+        assertEquals(16, rs.getDouble(1), 1e-8);
+        rs.close();
+        // More geometries than a bucket, in two groups
+        rs = st.executeQuery("SELECT MOD(X, 2), ST_Area(ST_UnionAgg(ST_MakeEnvelope(X, 0, X + 2, 1))), " +
+                "ST_NumGeometries(ST_UnionAgg(ST_MakeEnvelope(X, 0, X + 2, 1))) " +
+                "FROM SYSTEM_RANGE(0, 999) GROUP BY MOD(X, 2) ORDER BY 1");
+        assertTrue(rs.next());
+        assertEquals(1000, rs.getDouble(2), 1e-8);
+        assertEquals(1, rs.getInt(3));
+        assertTrue(rs.next());
+        assertEquals(1000, rs.getDouble(2), 1e-8);
+        assertFalse(rs.next());
+        rs.close();
+        rs = st.executeQuery("SELECT ST_UnionAgg(footprint) FROM buildings WHERE 1 = 0");
+        assertTrue(rs.next());
+        assertNull(rs.getObject(1));
+        rs.close();
+    }
+
     @Test
     public void test_ST_UnionSimple() throws Exception {
         Statement st = connection.createStatement();
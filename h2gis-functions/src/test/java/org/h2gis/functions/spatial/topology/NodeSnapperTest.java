@@ -0,0 +1,142 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; you can
+ * redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License as published by the Free Software Foundation; version 3.0 of
+ * the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.topology;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NodeSnapperTest {
+
+    private static final GeometryFactory FACTORY = new GeometryFactory();
+
+    @Test
+    public void testPointsAtTheTolerance() {
+        // The envelopes expanded by the tolerance touch at a distance of twice the tolerance
+        NodeSnapper snapper = snapper(0.5, 0, 0, 0.5, 0, 1, 0, -1.0000001, 0);
+        assertEquals(2, snapper.snap());
+        assertEquals(1, snapper.getStartNode(0));
+        assertEquals(1, snapper.getEndNode(0));
+        assertEquals(1, snapper.getStartNode(1));
+        assertEquals(2, snapper.getEndNode(1));
+        snapper = snapper(0.5, 3, 3, 3.5, 3.5, 4, 4, 1.9999999, 1.9999999);
+        assertEquals(2, snapper.snap());
+        assertEquals(1, snapper.getStartNode(1));
+        assertEquals(2, snapper.getEndNode(1));
+    }
+
+    @Test
+    public void testPointsOnCellBoundaries() {
+        // The grid cells are 1 wide, the points are on their corners
+        NodeSnapper snapper = snapper(0.5, 1, 1, 2, 2, 3, 1, 4, 1, 1, 3, 5, 5);
+        assertEquals(4, snapper.snap());
+        assertEquals(1, snapper.getStartNode(0));
+        assertEquals(2, snapper.getStartNode(1));
+        assertEquals(3, snapper.getStartNode(2));
+        // (2, 2) touches the first three nodes and is snapped to the first one
+        assertEquals(1, snapper.getEndNode(0));
+        assertEquals(2, snapper.getEndNode(1));
+        assertEquals(4, snapper.getEndNode(2));
+        assertEquals(new Coordinate(3, 1), snapper.getNodeCoordinate(2));
+    }
+
+    @Test
+    public void testNegativeCoordinates() {
+        NodeSnapper snapper = snapper(0.5, -1, -1, 0, 0, -0.5, -1, -2.0000001, -2.0000001, -3.5, -2, -1.5, -0.5);
+        assertEquals(3, snapper.snap());
+        assertEquals(1, snapper.getStartNode(0));
+        assertEquals(1, snapper.getStartNode(1));
+        assertEquals(2, snapper.getStartNode(2));
+        assertEquals(1, snapper.getEndNode(0));
+        assertEquals(3, snapper.getEndNode(1));
+        assertEquals(1, snapper.getEndNode(2));
+        assertEquals(new Coordinate(-2.0000001, -2.0000001), snapper.getNodeCoordinate(3));
+        // Without tolerance, -0 and 0 are the same coordinate
+        snapper = snapper(0, 0, 0, -0.0, 0, -0.0, -0.0, 0, 0);
+        assertEquals(1, snapper.snap());
+        assertEquals(1, snapper.getEndNode(0));
+        assertEquals(1, snapper.getStartNode(1));
+    }
+
+    @Test
+    public void testSameNodesAsPairwiseComparison() {
+        final Random random = new Random(42);
+        for (double tolerance : new double[]{0, 0.25, 0.5, 1}) {
+            final NodeSnapper snapper = new NodeSnapper(tolerance, false);
+            final int edgeCount = 2000;
+            final double[][] points = new double[2 * edgeCount][];
+            for (int i = 0; i < points.length; i++) {
+                // Quarters on a small grid around the origin, to hit the cell boundaries
+                points[i] = new double[]{(random.nextInt(160) - 80) / 4.0, (random.nextInt(160) - 80) / 4.0};
+            }
+            for (int edge = 0; edge < edgeCount; edge++) {
+                snapper.addEdge(edge, FACTORY.createLineString(new Coordinate[]{
+                        new Coordinate(points[edge][0], points[edge][1]),
+                        new Coordinate(points[edgeCount + edge][0], points[edgeCount + edge][1])}));
+            }
+            // The start points then the end points, as the snapper takes them
+            final int[] nodeIds = new int[points.length];
+            int nodeCount = 0;
+            for (int i = 0; i < points.length; i++) {
+                boolean node = true;
+                for (int j = 0; j < i && node; j++) {
+                    node = !snaps(points[i], points[j], tolerance);
+                }
+                if (node) {
+                    nodeIds[i] = ++nodeCount;
+                }
+            }
+            assertEquals(nodeCount, snapper.snap());
+            for (int i = 0; i < points.length; i++) {
+                int expected = 0;
+                for (int j = 0; j < points.length && expected == 0; j++) {
+                    if (nodeIds[j] != 0 && snaps(points[i], points[j], tolerance)) {
+                        expected = nodeIds[j];
+                    }
+                }
+                final int actual = i < edgeCount ? snapper.getStartNode(i) : snapper.getEndNode(i - edgeCount);
+                assertEquals(expected, actual, "Endpoint " + i + " with tolerance " + tolerance);
+            }
+        }
+    }
+
+    private static boolean snaps(double[] a, double[] b, double tolerance) {
+        return Math.abs(a[0] - b[0]) <= 2 * tolerance && Math.abs(a[1] - b[1]) <= 2 * tolerance;
+    }
+
+    /**
+     * @param tolerance   Snapping tolerance
+     * @param coordinates x and y of the start and end points of each edge
+     * @return Snapper of two points edges
+     */
+    private static NodeSnapper snapper(double tolerance, double... coordinates) {
+        final NodeSnapper snapper = new NodeSnapper(tolerance, false);
+        for (int i = 0; i < coordinates.length; i += 4) {
+            snapper.addEdge(i / 4, FACTORY.createLineString(new Coordinate[]{
+                    new Coordinate(coordinates[i], coordinates[i + 1]),
+                    new Coordinate(coordinates[i + 2], coordinates[i + 3])}));
+        }
+        return snapper;
+    }
+}
@@ -634,4 +634,27 @@ public class ST_GraphTest {
         }
     }
 
+    @Test
+    public void test_ST_Graph_BigintPrimaryKey() throws Exception {
+        st.execute("DROP TABLE IF EXISTS TEST; DROP TABLE IF EXISTS TEST_NODES; DROP TABLE IF EXISTS TEST_EDGES");
+        st.execute("CREATE TABLE test(road GEOMETRY(LINESTRING), id BIGINT PRIMARY KEY);"
+                + "INSERT INTO test VALUES "
+                + "('LINESTRING (0 0, 1 2)', 3000000000),"
+                + "('LINESTRING (1 2, 2 3, 4 3)', 3000000001);");
+        try (ResultSet rs = st.executeQuery("SELECT ST_Graph('TEST', 'road', 0.1, false)")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getBoolean(1));
+        }
+        try (ResultSet edgesResult = st.executeQuery("SELECT * FROM TEST_EDGES ORDER BY EDGE_ID")) {
+            assertTrue(edgesResult.next());
+            assertEquals(3000000000L, edgesResult.getLong("EDGE_ID"));
+            assertEquals(1, edgesResult.getInt("START_NODE"));
+            assertEquals(2, edgesResult.getInt("END_NODE"));
+            assertTrue(edgesResult.next());
+            assertEquals(3000000001L, edgesResult.getLong("EDGE_ID"));
+            assertEquals(2, edgesResult.getInt("START_NODE"));
+            assertEquals(3, edgesResult.getInt("END_NODE"));
+            assertFalse(edgesResult.next());
+        }
+    }
 }
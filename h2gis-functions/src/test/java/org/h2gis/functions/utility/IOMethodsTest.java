@@ -23,9 +23,13 @@ import java.io.File;
 import java.io.IOException;
 
 import org.h2gis.api.DriverFunction;
+import org.h2gis.api.EmptyProgressVisitor;
+import org.h2gis.api.ProgressVisitor;
 import org.h2gis.functions.factory.H2GISDBFactory;
 import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.dbtypes.DBTypes;
 import org.junit.jupiter.api.*;
 
 import java.sql.Connection;
@@ -35,6 +39,7 @@ import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.sql.DataSource;
 import org.h2gis.functions.factory.H2GISFunctions;
@@ -405,6 +410,155 @@ public class IOMethodsTest {
         }
     }
 
+    @Test
+    public void testParallelExportToDataBase() throws SQLException {
+        DataSource source = JDBCUtilities.wrapSpatialDataSource(H2GISDBFactory.createDataSource("IOMethodsSourceTest", true));
+        DataSource target = JDBCUtilities.wrapSpatialDataSource(H2GISDBFactory.createDataSource("IOMethodsTargetTest", true));
+        try (Connection sourceConnection = source.getConnection();
+                Connection targetConnection = target.getConnection()) {
+            Statement sourceST = sourceConnection.createStatement();
+            sourceST.execute("create table area_pk(idarea int primary key, the_geom GEOMETRY(POINT, 4326), name varchar)");
+            sourceST.execute("insert into area_pk select x * 7, ST_SetSRID(ST_MakePoint(x, x), 4326), 'area ' || x from system_range(1, 10000)");
+            sourceST.execute("create table area_nopk(the_geom GEOMETRY, name varchar)");
+            sourceST.execute("insert into area_nopk select ST_SetSRID(ST_MakePoint(x, x), 2154), 'area ' || x from system_range(1, 10000)");
+            sourceST.execute("insert into area_nopk values(null, 'null')");
+            sourceST.execute("create table area_empty(idarea int primary key, name varchar)");
+            AtomicInteger steps = new AtomicInteger();
+            ProgressVisitor progress = new EmptyProgressVisitor() {
+                @Override
+                public void endStep() {
+                    steps.incrementAndGet();
+                }
+            };
+            Statement targetST = targetConnection.createStatement();
+            for (String table : new String[]{"area_pk", "area_nopk", "area_empty"}) {
+                steps.set(0);
+                String outputTable = IOMethods.exportToDataBase(source, table, target, table + "_copy", -1, 100, 4, progress);
+                ResultSet res = sourceST.executeQuery("SELECT COUNT(*), COUNT(DISTINCT name) FROM " + table);
+                assertTrue(res.next());
+                long count = res.getLong(1);
+                long distinct = res.getLong(2);
+                res = targetST.executeQuery("SELECT COUNT(*), COUNT(DISTINCT name) FROM " + outputTable);
+                assertTrue(res.next());
+                assertEquals(count, res.getLong(1));
+                assertEquals(distinct, res.getLong(2));
+                if (count > 0) {
+                    assertEquals(16, steps.get());
+                }
+            }
+            assertEquals(4326, GeometryTableUtilities.getSRID(targetConnection, TableLocation.parse("AREA_PK_COPY", DBTypes.H2GIS), "THE_GEOM"));
+            assertEquals(2154, GeometryTableUtilities.getSRID(targetConnection, TableLocation.parse("AREA_NOPK_COPY", DBTypes.H2GIS), "THE_GEOM"));
+
+            ProgressVisitor canceled = new EmptyProgressVisitor() {
+                private boolean isCanceled = false;
+
+                @Override
+                public void endStep() {
+                    isCanceled = true;
+                }
+
+                @Override
+                public boolean isCanceled() {
+                    return isCanceled;
+                }
+            };
+            assertThrows(SQLException.class, ()
+                    -> IOMethods.exportToDataBase(source, "area_pk", target, "area_pk_canceled", -1, 100, 2, canceled));
+        }
+    }
+
+    @Test
+    public void testParallelExportToDataBaseSRID() throws SQLException {
+        DataSource source = JDBCUtilities.wrapSpatialDataSource(H2GISDBFactory.createDataSource("IOMethodsSourceSRIDTest", true));
+        DataSource target = JDBCUtilities.wrapSpatialDataSource(H2GISDBFactory.createDataSource("IOMethodsTargetSRIDTest", true));
+        try (Connection sourceConnection = source.getConnection();
+                Connection targetConnection = target.getConnection()) {
+            Statement sourceST = sourceConnection.createStatement();
+            // Empty partitions between the key ranges, partitions starting with or
+            // only containing null geometries
+            sourceST.execute("create table area_gap(idarea int primary key, the_geom GEOMETRY, name varchar)");
+            sourceST.execute("insert into area_gap select x, case when x > 10 then ST_SetSRID(ST_MakePoint(x, x), 4326) end, " +
+                    "'area ' || x from system_range(1, 100)");
+            sourceST.execute("insert into area_gap select x, null, 'null ' || x from system_range(50000, 50010)");
+            sourceST.execute("insert into area_gap select x, ST_SetSRID(ST_MakePoint(x, x), 4326), 'area ' || x " +
+                    "from system_range(100000, 100100)");
+            // Two SRID in different partitions
+            sourceST.execute("create table area_mixed(idarea int primary key, the_geom GEOMETRY, name varchar)");
+            sourceST.execute("insert into area_mixed select x, ST_SetSRID(ST_MakePoint(x, x), " +
+                    "case when x > 5000 then 2154 else 4326 end), 'area ' || x from system_range(1, 10000)");
+            Statement targetST = targetConnection.createStatement();
+            for (String table : new String[]{"area_gap", "area_mixed"}) {
+                String outputTable = IOMethods.exportToDataBase(source, table, target, table + "_copy", -1, 100, 4, new EmptyProgressVisitor());
+                ResultSet res = targetST.executeQuery("SELECT COUNT(*), COUNT(THE_GEOM) FROM " + outputTable);
+                assertTrue(res.next());
+                assertEquals(table.equals("area_gap") ? 212 : 10000, res.getLong(1));
+                assertEquals(table.equals("area_gap") ? 191 : 10000, res.getLong(2));
+            }
+            assertEquals(4326, GeometryTableUtilities.getSRID(targetConnection, TableLocation.parse("AREA_GAP_COPY", DBTypes.H2GIS), "THE_GEOM"));
+            assertEquals(0, GeometryTableUtilities.getSRID(targetConnection, TableLocation.parse("AREA_MIXED_COPY", DBTypes.H2GIS), "THE_GEOM"));
+        }
+    }
+
+    @Test
+    public void testExportH2GISTableToPOSTGISWithCopy(TestInfo testInfo) throws SQLException, IOException {
+        String url = "jdbc:postgresql://localhost:5432/orbisgis_db";
+        Properties props = new Properties();
+        props.setProperty("user", "orbisgis");
+        props.setProperty("password", "orbisgis");
+        props.setProperty("url", url);
+        st.execute("DROP TABLE IF EXISTS AREA");
+        st.execute("create table area(idarea int primary key, the_geom GEOMETRY(POINTZ, 4326), name VARCHAR, "
+                + "height DOUBLE, counter BIGINT, valid BOOLEAN, creation DATE, modified TIMESTAMP)");
+        st.execute("insert into area select x, ST_SetSRID(ST_MakePoint(x, x * 2, x * 3), 4326), 'name ' || x, x / 2.0,"
+                + " x * 1000000000000, mod(x, 2) = 0, DATEADD('DAY', x * 10, DATE '1995-01-01'),"
+                + " DATEADD('HOUR', x, TIMESTAMP '1999-12-31 20:00:00.5') from system_range(1, 1000)");
+        st.execute("insert into area values(1001, null, null, null, null, null, null, null)");
+        DataSourceFactory dataSourceFactory = new DataSourceFactoryImpl();
+        Connection con = null;
+        try {
+            DataSource ds = dataSourceFactory.createDataSource(props);
+            con = ds.getConnection();
+
+        } catch (SQLException e) {
+            log.warn("Cannot connect to the database to execute the test " + testInfo.getDisplayName());
+        }
+        if (con != null) {
+            IOMethods.exportToDataBase(connection, "area", con, "area_postgis", -1, 100);
+            ResultSet res = con.createStatement().executeQuery("SELECT * FROM area_postgis ORDER BY idarea");
+            ResultSet expected = st.executeQuery("SELECT * FROM area ORDER BY idarea");
+            int count = 0;
+            while (expected.next()) {
+                assertTrue(res.next());
+                assertEquals(expected.getInt(1), res.getInt(1));
+                assertEquals(expected.getObject(2), res.getObject(2));
+                assertEquals(expected.getString(3), res.getString(3));
+                assertEquals(expected.getObject(4), res.getObject(4));
+                assertEquals(expected.getObject(5), res.getObject(5));
+                assertEquals(expected.getObject(6), res.getObject(6));
+                assertEquals(expected.getDate(7), res.getDate(7));
+                assertEquals(expected.getTimestamp(8), res.getTimestamp(8));
+                count++;
+            }
+            assertFalse(res.next());
+            assertEquals(1001, count);
+            res.close();
+            expected.close();
+            res = con.createStatement().executeQuery("SELECT ST_SRID(the_geom) FROM area_postgis WHERE idarea = 1");
+            assertTrue(res.next());
+            assertEquals(4326, res.getInt(1));
+            res.close();
+
+            IOMethods.exportToDataBase(con, "area_postgis", connection, "area_h2gis", -1, 100);
+            res = st.executeQuery("SELECT COUNT(*), SUM(idarea), COUNT(the_geom) FROM area_h2gis");
+            assertTrue(res.next());
+            assertEquals(1001, res.getInt(1));
+            assertEquals(501501, res.getLong(2));
+            assertEquals(1000, res.getInt(3));
+            res.close();
+            assertTrue(con.getAutoCommit());
+        }
+    }
+
     @Test
     public void test_linkedFile() throws Exception {
         IOMethods ioMethods = new IOMethods();
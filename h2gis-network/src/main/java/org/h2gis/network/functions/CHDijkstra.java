@@ -0,0 +1,114 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+/**
+ * Shortest path lengths in a {@link ContractionHierarchy}.
+ *
+ * <p>A forward search in the upward graph from the source and a backward
+ * search in the downward graph from the destination meet at the vertex of
+ * highest rank of a shortest path. Both searches only climb the hierarchy,
+ * so they settle few vertices. As for {@link CSRDijkstra}, an instance must
+ * not be shared between threads, but several instances can search the same
+ * hierarchy concurrently.
+ */
+public final class CHDijkstra {
+
+    private final ContractionHierarchy hierarchy;
+    private final CSRDijkstra forward;
+    private final CSRDijkstra backward;
+
+    /**
+     * @param hierarchy Contraction hierarchy
+     */
+    public CHDijkstra(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.forward = new CSRDijkstra(hierarchy.getUpwardGraph());
+        this.backward = new CSRDijkstra(hierarchy.getDownwardGraph());
+    }
+
+    /**
+     * @return Contraction hierarchy
+     */
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Compute the distance between two vertices.
+     *
+     * @param source      Source vertex index
+     * @param destination Destination vertex index
+     * @return Distance, {@link Double#POSITIVE_INFINITY} if the destination is
+     * unreachable
+     */
+    public double oneToOne(int source, int destination) {
+        forward.start(source);
+        backward.start(destination);
+        double distance = Double.POSITIVE_INFINITY;
+        while (true) {
+            // Each search stops once it cannot find a shorter path
+            final boolean forwardActive = !forward.isFinished() && forward.getNextDistance() < distance;
+            final boolean backwardActive = !backward.isFinished() && backward.getNextDistance() < distance;
+            if (forwardActive && (!backwardActive || forward.getNextDistance() <= backward.getNextDistance())) {
+                final int node = forward.settle();
+                if (backward.isReached(node)) {
+                    distance = Math.min(distance, forward.getDistance(node) + backward.getDistance(node));
+                }
+            } else if (backwardActive) {
+                final int node = backward.settle();
+                if (forward.isReached(node)) {
+                    distance = Math.min(distance, forward.getDistance(node) + backward.getDistance(node));
+                }
+            } else {
+                return distance;
+            }
+        }
+    }
+
+    /**
+     * Compute the distances from a vertex to several vertices. The upward
+     * search from the source is done once, then each destination is reached
+     * by a backward search.
+     *
+     * @param source       Source vertex index
+     * @param destinations Destination vertex indices
+     * @return Distances in the order of the destinations
+     */
+    public double[] oneToMany(int source, int[] destinations) {
+        forward.start(source);
+        while (!forward.isFinished()) {
+            forward.settle();
+        }
+        final double[] distances = new double[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            backward.start(destinations[i]);
+            double distance = Double.POSITIVE_INFINITY;
+            while (!backward.isFinished() && backward.getNextDistance() < distance) {
+                final int node = backward.settle();
+                if (forward.isReached(node)) {
+                    distance = Math.min(distance, forward.getDistance(node) + backward.getDistance(node));
+                }
+            }
+            distances[i] = distance;
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+/**
+ * Bidirectional Dijkstra's algorithm on a {@link CSRGraph}: a forward search
+ * from the source and a backward search from the destination, on the
+ * {@linkplain CSRGraph#reverse() reversed graph}, settle vertices alternately
+ * until they meet.
+ *
+ * <p>Each step settles the closest vertex of either search. The best distance
+ * found through an edge joining both searches is final once the sum of the
+ * distances of the next vertices to settle reaches it. As for
+ * {@link CSRDijkstra}, an instance must not be shared between threads.
+ */
+public final class CSRBidirectionalDijkstra {
+
+    private final CSRGraph graph;
+    private final CSRDijkstra forward;
+    private final CSRDijkstra backward;
+    private final boolean recordPaths;
+    private int source;
+    private int destination;
+    private double distance;
+    /** Edge joining both searches on the shortest path, -1 if none */
+    private int meetingEdge;
+    /** True if the meeting edge belongs to the reversed graph */
+    private boolean meetingBackward;
+
+    /**
+     * @param graph       Graph
+     * @param recordPaths True to record the shortest path, see
+     *                    {@link #getPath()}
+     */
+    public CSRBidirectionalDijkstra(CSRGraph graph, boolean recordPaths) {
+        this.graph = graph;
+        this.recordPaths = recordPaths;
+        this.forward = new CSRDijkstra(graph, recordPaths);
+        this.backward = new CSRDijkstra(graph.reverse(), recordPaths);
+    }
+
+    /**
+     * Compute the distance between two vertices.
+     *
+     * @param source      Source vertex index
+     * @param destination Destination vertex index
+     * @return Distance, {@link Double#POSITIVE_INFINITY} if the destination is
+     * unreachable
+     */
+    public double oneToOne(int source, int destination) {
+        this.source = source;
+        this.destination = destination;
+        distance = source == destination ? 0.0 : Double.POSITIVE_INFINITY;
+        meetingEdge = -1;
+        forward.start(source);
+        backward.start(destination);
+        while (!forward.isFinished() && !backward.isFinished()
+                && forward.getNextDistance() + backward.getNextDistance() < distance) {
+            if (forward.getNextDistance() <= backward.getNextDistance()) {
+                step(forward, backward, false);
+            } else {
+                step(backward, forward, true);
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Settle the next vertex of a search and look for shorter paths through
+     * its edges reaching the other search.
+     */
+    private void step(CSRDijkstra search, CSRDijkstra other, boolean isBackward) {
+        final int node = search.settle();
+        final CSRGraph searchGraph = search.getGraph();
+        final double nodeDistance = search.getDistance(node);
+        final int last = searchGraph.getLastEdge(node);
+        for (int edge = searchGraph.getFirstEdge(node); edge < last; edge++) {
+            final int target = searchGraph.getTarget(edge);
+            if (other.isReached(target)) {
+                final double candidate = nodeDistance + searchGraph.getWeight(edge) + other.getDistance(target);
+                if (candidate < distance) {
+                    distance = candidate;
+                    meetingEdge = edge;
+                    meetingBackward = isBackward;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the shortest path found by the last search.
+     *
+     * @return Shortest path, or null if the destination is unreachable
+     * @throws IllegalStateException If the paths are not recorded
+     */
+    public CSRPath getPath() {
+        if (!recordPaths) {
+            throw new IllegalStateException("The paths are not recorded");
+        }
+        if (distance == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        if (meetingEdge == -1) {
+            // The source is the destination
+            return new CSRPath(0);
+        }
+        // Vertices joined by the meeting edge, in the direction of the path
+        final int forwardNode;
+        final int backwardNode;
+        final CSRGraph reverse = backward.getGraph();
+        if (meetingBackward) {
+            backwardNode = reverse.getSource(meetingEdge);
+            forwardNode = reverse.getTarget(meetingEdge);
+        } else {
+            forwardNode = graph.getSource(meetingEdge);
+            backwardNode = graph.getTarget(meetingEdge);
+        }
+        int forwardSize = 0;
+        for (int node = forwardNode; node != source; node = graph.getSource(forward.getPredecessor(node))) {
+            forwardSize++;
+        }
+        int backwardSize = 0;
+        for (int node = backwardNode; node != destination; node = reverse.getSource(backward.getPredecessor(node))) {
+            backwardSize++;
+        }
+        final CSRPath path = new CSRPath(forwardSize + 1 + backwardSize);
+        int node = forwardNode;
+        for (int i = forwardSize - 1; i >= 0; i--) {
+            final int edge = forward.getPredecessor(node);
+            final int previous = graph.getSource(edge);
+            path.set(i, previous, node, graph.getEdgeId(edge), graph.getWeight(edge));
+            node = previous;
+        }
+        if (meetingBackward) {
+            path.set(forwardSize, forwardNode, backwardNode,
+                    reverse.getEdgeId(meetingEdge), reverse.getWeight(meetingEdge));
+        } else {
+            path.set(forwardSize, forwardNode, backwardNode,
+                    graph.getEdgeId(meetingEdge), graph.getWeight(meetingEdge));
+        }
+        node = backwardNode;
+        for (int i = forwardSize + 1; i < path.size(); i++) {
+            // The edges of the reversed graph go from the destination side
+            final int edge = backward.getPredecessor(node);
+            final int next = reverse.getSource(edge);
+            path.set(i, node, next, reverse.getEdgeId(edge), reverse.getWeight(edge));
+            node = next;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra's algorithm on a {@link CSRGraph}, using a binary heap of vertex
+ * indices.
+ *
+ * <p>The search state is stored in arrays owned by this object and reset
+ * lazily between two searches, so an instance can run many searches without
+ * allocating. An instance must not be shared between threads, but several
+ * instances can search the same graph concurrently.
+ *
+ * <p>{@link #aStar} orders the vertices by their distance plus the lower bound
+ * of their distance to the destination given by the coordinates of the graph,
+ * so that fewer vertices are settled before the destination.
+ */
+public final class CSRDijkstra {
+
+    private final CSRGraph graph;
+    private final double[] distances;
+    /** Search number of the last update of each vertex */
+    private final int[] visit;
+    /** Search number of the last search having each vertex as destination */
+    private final int[] destinationVisit;
+    /** Position of each vertex in the heap, -1 once it is settled */
+    private final int[] heapPosition;
+    private final int[] heap;
+    /** Edge reaching each vertex on its shortest path, null if not recorded */
+    private final int[] predecessors;
+    /** Heap keys, the distances themselves unless an A* search is running */
+    private double[] keys;
+    /** Heap keys of the A* searches, allocated on the first one */
+    private double[] aStarKeys;
+    /** A* destination, -1 for Dijkstra searches */
+    private int boundDestination = -1;
+    private int heapSize;
+    private int currentVisit = 0;
+
+    /**
+     * @param graph Graph
+     */
+    public CSRDijkstra(CSRGraph graph) {
+        this(graph, false);
+    }
+
+    /**
+     * @param graph       Graph
+     * @param recordPaths True to record the shortest paths, see
+     *                    {@link #getPath(int)}
+     */
+    public CSRDijkstra(CSRGraph graph, boolean recordPaths) {
+        this.graph = graph;
+        final int nodeCount = graph.getNodeCount();
+        distances = new double[nodeCount];
+        visit = new int[nodeCount];
+        destinationVisit = new int[nodeCount];
+        heapPosition = new int[nodeCount];
+        heap = new int[nodeCount];
+        predecessors = recordPaths ? new int[nodeCount] : null;
+        keys = distances;
+    }
+
+    /**
+     * @return Graph
+     */
+    public CSRGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Compute the distances from a vertex to all the vertices.
+     *
+     * @param source Source vertex index
+     * @return Distances indexed by vertex index, {@link Double#POSITIVE_INFINITY}
+     * for unreachable vertices
+     */
+    public double[] oneToAll(int source) {
+        start(source);
+        while (heapSize > 0) {
+            settle();
+        }
+        final double[] result = new double[distances.length];
+        for (int node = 0; node < result.length; node++) {
+            result[node] = getDistance(node);
+        }
+        return result;
+    }
+
+    /**
+     * Compute the distance between two vertices, the search stops once the
+     * destination is reached.
+     *
+     * @param source      Source vertex index
+     * @param destination Destination vertex index
+     * @return Distance, {@link Double#POSITIVE_INFINITY} if the destination is
+     * unreachable
+     */
+    public double oneToOne(int source, int destination) {
+        start(source);
+        while (heapSize > 0) {
+            if (settle() == destination) {
+                break;
+            }
+        }
+        return getDistance(destination);
+    }
+
+    /**
+     * Compute the distance between two vertices with the A* algorithm, using
+     * the coordinates of the graph.
+     *
+     * @param source      Source vertex index
+     * @param destination Destination vertex index
+     * @return Distance, {@link Double#POSITIVE_INFINITY} if the destination is
+     * unreachable
+     * @throws IllegalArgumentException If the graph has no coordinates
+     */
+    public double aStar(int source, int destination) {
+        if (!graph.hasCoordinates()) {
+            throw new IllegalArgumentException("The A* search needs the coordinates of the vertices");
+        }
+        if (aStarKeys == null) {
+            aStarKeys = new double[distances.length];
+        }
+        keys = aStarKeys;
+        boundDestination = destination;
+        try {
+            return oneToOne(source, destination);
+        } finally {
+            // The next Dijkstra searches order the heap by distance again
+            keys = distances;
+            boundDestination = -1;
+        }
+    }
+
+    /**
+     * Compute the distances from a vertex to several vertices, the search
+     * stops once all the destinations are reached.
+     *
+     * @param source       Source vertex index
+     * @param destinations Destination vertex indices
+     * @return Distances in the order of the destinations
+     */
+    public double[] oneToMany(int source, int[] destinations) {
+        start(source);
+        // Duplicated destinations are counted once
+        int remaining = 0;
+        for (int destination : destinations) {
+            if (destinationVisit[destination] != currentVisit) {
+                destinationVisit[destination] = currentVisit;
+                remaining++;
+            }
+        }
+        while (heapSize > 0 && remaining > 0) {
+            if (destinationVisit[settle()] == currentVisit) {
+                remaining--;
+            }
+        }
+        final double[] result = new double[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            result[i] = getDistance(destinations[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Distance of the vertex found by the last search
+     */
+    public double getDistance(int node) {
+        return visit[node] == currentVisit ? distances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Return the shortest path to a vertex found by the last search.
+     *
+     * @param destination Destination vertex index
+     * @return Shortest path, or null if the destination was not reached
+     * @throws IllegalStateException If the paths are not recorded
+     */
+    public CSRPath getPath(int destination) {
+        if (predecessors == null) {
+            throw new IllegalStateException("The paths are not recorded");
+        }
+        if (visit[destination] != currentVisit) {
+            return null;
+        }
+        int size = 0;
+        for (int node = destination; predecessors[node] != -1; node = graph.getSource(predecessors[node])) {
+            size++;
+        }
+        final CSRPath path = new CSRPath(size);
+        int node = destination;
+        for (int i = size - 1; i >= 0; i--) {
+            final int edge = predecessors[node];
+            final int source = graph.getSource(edge);
+            path.set(i, source, node, graph.getEdgeId(edge), graph.getWeight(edge));
+            node = source;
+        }
+        return path;
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Edge reaching the vertex on its shortest path, -1 for the source
+     */
+    int getPredecessor(int node) {
+        return predecessors[node];
+    }
+
+    /**
+     * @param node Vertex index
+     * @return True if the last search reached the vertex
+     */
+    boolean isReached(int node) {
+        return visit[node] == currentVisit;
+    }
+
+    /**
+     * @return True if all the reached vertices are settled
+     */
+    boolean isFinished() {
+        return heapSize == 0;
+    }
+
+    /**
+     * @return Distance of the next vertex to settle
+     */
+    double getNextDistance() {
+        return distances[heap[0]];
+    }
+
+    /**
+     * Start a search whose vertices are settled one by one with
+     * {@link #settle()}.
+     *
+     * @param source Source vertex index
+     */
+    void start(int source) {
+        currentVisit++;
+        if (currentVisit == Integer.MAX_VALUE) {
+            Arrays.fill(visit, 0);
+            Arrays.fill(destinationVisit, 0);
+            currentVisit = 1;
+        }
+        heapSize = 0;
+        update(source, 0.0, -1);
+    }
+
+    /**
+     * Remove the closest vertex of the heap and relax its outgoing edges.
+     *
+     * @return The settled vertex
+     */
+    int settle() {
+        final int node = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPosition[heap[0]] = 0;
+            siftDown(0);
+        }
+        heapPosition[node] = -1;
+        final double distance = distances[node];
+        final int last = graph.getLastEdge(node);
+        for (int edge = graph.getFirstEdge(node); edge < last; edge++) {
+            update(graph.getTarget(edge), distance + graph.getWeight(edge), edge);
+        }
+        return node;
+    }
+
+    private void update(int node, double distance, int edge) {
+        if (visit[node] != currentVisit) {
+            visit[node] = currentVisit;
+            distances[node] = distance;
+            if (boundDestination != -1) {
+                keys[node] = distance + graph.getLowerBound(node, boundDestination);
+            }
+            if (predecessors != null) {
+                predecessors[node] = edge;
+            }
+            heap[heapSize] = node;
+            heapPosition[node] = heapSize;
+            heapSize++;
+            siftUp(heapSize - 1);
+        } else if (heapPosition[node] >= 0 && distance < distances[node]) {
+            distances[node] = distance;
+            if (boundDestination != -1) {
+                keys[node] = distance + graph.getLowerBound(node, boundDestination);
+            }
+            if (predecessors != null) {
+                predecessors[node] = edge;
+            }
+            siftUp(heapPosition[node]);
+        }
+    }
+
+    private void siftUp(int position) {
+        final int node = heap[position];
+        final double key = keys[node];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            final int parentNode = heap[parent];
+            if (keys[parentNode] <= key) {
+                break;
+            }
+            heap[position] = parentNode;
+            heapPosition[parentNode] = position;
+            position = parent;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    private void siftDown(int position) {
+        final int node = heap[position];
+        final double key = keys[node];
+        final int half = heapSize >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            final int right = child + 1;
+            if (right < heapSize && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            final int childNode = heap[child];
+            if (key <= keys[childNode]) {
+                break;
+            }
+            heap[position] = childNode;
+            heapPosition[childNode] = position;
+            position = child;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+}
@@ -0,0 +1,366 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import java.util.Arrays;
+
+/**
+ * Directed graph stored in compressed sparse row arrays.
+ *
+ * <p>The vertices are numbered from 0 to {@link #getNodeCount()} - 1 in the
+ * order of their ids. The outgoing edges of the vertex {@code v} are stored
+ * from {@code offsets[v]} to {@code offsets[v + 1]} in the {@code targets},
+ * {@code weights} and {@code edgeIds} arrays. Undirected edges are stored in
+ * both directions, the reversed direction having the opposite edge id as in
+ * the graphs of {@link GraphCreator}.
+ *
+ * <p>The graph is immutable: it can be shared by several searches running in
+ * different threads, see {@link CSRDijkstra}.
+ *
+ * <p>The vertices may have coordinates, used by the A* search to compute a
+ * lower bound of the distance between two vertices: the Euclidean distance
+ * multiplied by the smallest ratio between the weight of an edge and the
+ * distance between its vertices. This bound never overestimates the distance,
+ * whatever the weights.
+ */
+public final class CSRGraph {
+
+    private final int[] nodeIds;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final int[] edgeIds;
+    private final double[] x;
+    private final double[] y;
+    private final double boundFactor;
+    /** Graph with the reversed edges, built on demand */
+    private CSRGraph reverse;
+
+    private CSRGraph(int[] nodeIds, int[] offsets, int[] targets, double[] weights, int[] edgeIds,
+                     double[] x, double[] y, double boundFactor) {
+        this.nodeIds = nodeIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeIds = edgeIds;
+        this.x = x;
+        this.y = y;
+        this.boundFactor = boundFactor;
+    }
+
+    /**
+     * @return Number of vertices
+     */
+    public int getNodeCount() {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return Number of directed edges
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param nodeId Vertex id
+     * @return Index of the vertex, or -1 if the graph does not contain it
+     */
+    public int indexOf(int nodeId) {
+        final int index = Arrays.binarySearch(nodeIds, nodeId);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * @param nodeId Vertex id
+     * @return Index of the vertex
+     * @throws IllegalArgumentException If the graph does not contain the vertex
+     */
+    public int checkedIndexOf(int nodeId) {
+        final int index = indexOf(nodeId);
+        if (index == -1) {
+            throw new IllegalArgumentException("The graph does not contain vertex " + nodeId);
+        }
+        return index;
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Vertex id
+     */
+    public int getNodeId(int node) {
+        return nodeIds[node];
+    }
+
+    /**
+     * @param edge Edge position
+     * @return Index of the source vertex of the edge
+     */
+    public int getSource(int edge) {
+        // Last vertex whose first edge is at or before the position
+        int low = 0;
+        int high = nodeIds.length - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Position of the first outgoing edge of the vertex
+     */
+    public int getFirstEdge(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Position after the last outgoing edge of the vertex
+     */
+    public int getLastEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @param edge Edge position
+     * @return Index of the target vertex of the edge
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @param edge Edge position
+     * @return Weight of the edge
+     */
+    public double getWeight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * @param edge Edge position
+     * @return Id of the edge, negative for the reversed direction of an
+     * undirected edge
+     */
+    public int getEdgeId(int edge) {
+        return edgeIds[edge];
+    }
+
+    /**
+     * @return True if the vertices have coordinates
+     */
+    public boolean hasCoordinates() {
+        return x != null;
+    }
+
+    /**
+     * Return a copy of this graph, sharing its edges, whose vertices have the
+     * given coordinates.
+     *
+     * @param x X coordinates indexed by vertex index
+     * @param y Y coordinates indexed by vertex index
+     * @return Graph with coordinates
+     */
+    public CSRGraph withCoordinates(double[] x, double[] y) {
+        if (x.length != nodeIds.length || y.length != nodeIds.length) {
+            throw new IllegalArgumentException("Expected " + nodeIds.length + " coordinates");
+        }
+        double factor = Double.POSITIVE_INFINITY;
+        for (int node = 0; node < nodeIds.length; node++) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                final double length = distance(x, y, node, targets[edge]);
+                if (length > 0) {
+                    factor = Math.min(factor, weights[edge] / length);
+                }
+            }
+        }
+        if (Double.isInfinite(factor) || !(factor > 0)) {
+            // No usable bound, A* falls back to Dijkstra
+            factor = 0;
+        } else {
+            // Keep a margin for the rounding errors of the bound
+            factor *= 1 - 1e-9;
+        }
+        return new CSRGraph(nodeIds, offsets, targets, weights, edgeIds, x, y, factor);
+    }
+
+    /**
+     * @param node        Vertex index
+     * @param destination Vertex index
+     * @return A lower bound of the distance between the two vertices
+     */
+    public double getLowerBound(int node, int destination) {
+        return boundFactor * distance(x, y, node, destination);
+    }
+
+    private static double distance(double[] x, double[] y, int a, int b) {
+        final double dx = x[a] - x[b];
+        final double dy = y[a] - y[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Return the graph with the same vertices and reversed edges, used by the
+     * backward search of {@link CSRBidirectionalDijkstra}. It is built once
+     * and kept with this graph.
+     *
+     * @return Reversed graph
+     */
+    public synchronized CSRGraph reverse() {
+        if (reverse == null) {
+            final int nodeCount = nodeIds.length;
+            final int edgeCount = targets.length;
+            final int[] reverseOffsets = new int[nodeCount + 1];
+            for (int edge = 0; edge < edgeCount; edge++) {
+                reverseOffsets[targets[edge] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                reverseOffsets[i + 1] += reverseOffsets[i];
+            }
+            final int[] position = Arrays.copyOf(reverseOffsets, nodeCount);
+            final int[] reverseTargets = new int[edgeCount];
+            final double[] reverseWeights = new double[edgeCount];
+            final int[] reverseEdgeIds = new int[edgeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    final int p = position[targets[edge]]++;
+                    reverseTargets[p] = node;
+                    reverseWeights[p] = weights[edge];
+                    reverseEdgeIds[p] = edgeIds[edge];
+                }
+            }
+            reverse = new CSRGraph(nodeIds, reverseOffsets, reverseTargets, reverseWeights,
+                    reverseEdgeIds, x, y, boundFactor);
+        }
+        return reverse;
+    }
+
+    /**
+     * Collects the edges of a {@link CSRGraph}.
+     */
+    public static final class Builder {
+        private int[] sources;
+        private int[] targets;
+        private double[] weights;
+        private int[] edgeIds;
+        private int size = 0;
+        private int[] nodes = new int[0];
+        private int nodeSize = 0;
+
+        /**
+         * Constructor
+         */
+        public Builder() {
+            this(1024);
+        }
+
+        /**
+         * @param capacity Expected number of directed edges
+         */
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            sources = new int[capacity];
+            targets = new int[capacity];
+            weights = new double[capacity];
+            edgeIds = new int[capacity];
+        }
+
+        /**
+         * Add a directed edge.
+         *
+         * @param source Source vertex id
+         * @param target Target vertex id
+         * @param edgeId Edge id
+         * @param weight Edge weight
+         */
+        public void addEdge(int source, int target, int edgeId, double weight) {
+            if (size == sources.length) {
+                final int capacity = size + (size >> 1);
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                edgeIds = Arrays.copyOf(edgeIds, capacity);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            edgeIds[size] = edgeId;
+            size++;
+        }
+
+        /**
+         * Add a vertex, which may have no edges.
+         *
+         * @param nodeId Vertex id
+         */
+        public void addNode(int nodeId) {
+            if (nodeSize == nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(16, nodeSize + (nodeSize >> 1)));
+            }
+            nodes[nodeSize++] = nodeId;
+        }
+
+        /**
+         * @return The graph of the added vertices and edges
+         */
+        public CSRGraph build() {
+            // Sorted unique vertex ids
+            int[] ids = new int[size * 2 + nodeSize];
+            System.arraycopy(sources, 0, ids, 0, size);
+            System.arraycopy(targets, 0, ids, size, size);
+            System.arraycopy(nodes, 0, ids, size * 2, nodeSize);
+            Arrays.sort(ids);
+            int nodeCount = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[nodeCount++] = ids[i];
+                }
+            }
+            final int[] nodeIds = Arrays.copyOf(ids, nodeCount);
+            // Count the outgoing edges of each vertex
+            final int[] offsets = new int[nodeCount + 1];
+            final int[] sourceIndex = new int[size];
+            for (int i = 0; i < size; i++) {
+                sourceIndex[i] = Arrays.binarySearch(nodeIds, sources[i]);
+                offsets[sourceIndex[i] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            final int[] position = Arrays.copyOf(offsets, nodeCount);
+            final int[] csrTargets = new int[size];
+            final double[] csrWeights = new double[size];
+            final int[] csrEdgeIds = new int[size];
+            for (int i = 0; i < size; i++) {
+                final int p = position[sourceIndex[i]]++;
+                csrTargets[p] = Arrays.binarySearch(nodeIds, targets[i]);
+                csrWeights[p] = weights[i];
+                csrEdgeIds[p] = edgeIds[i];
+            }
+            return new CSRGraph(nodeIds, offsets, csrTargets, csrWeights, csrEdgeIds, null, null, 0);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+/**
+ * Edges of a shortest path found in a {@link CSRGraph}, from the source to the
+ * destination.
+ */
+public final class CSRPath {
+
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] edgeIds;
+    private final double[] weights;
+
+    /**
+     * @param size Number of edges
+     */
+    CSRPath(int size) {
+        sources = new int[size];
+        targets = new int[size];
+        edgeIds = new int[size];
+        weights = new double[size];
+    }
+
+    void set(int index, int source, int target, int edgeId, double weight) {
+        sources[index] = source;
+        targets[index] = target;
+        edgeIds[index] = edgeId;
+        weights[index] = weight;
+    }
+
+    /**
+     * @return Number of edges
+     */
+    public int size() {
+        return edgeIds.length;
+    }
+
+    /**
+     * @param index Edge index in the path
+     * @return Index of the vertex the edge leaves
+     */
+    public int getSource(int index) {
+        return sources[index];
+    }
+
+    /**
+     * @param index Edge index in the path
+     * @return Index of the vertex the edge reaches
+     */
+    public int getTarget(int index) {
+        return targets[index];
+    }
+
+    /**
+     * @param index Edge index in the path
+     * @return Edge id
+     */
+    public int getEdgeId(int index) {
+        return edgeIds[index];
+    }
+
+    /**
+     * @param index Edge index in the path
+     * @return Edge weight
+     */
+    public double getWeight(int index) {
+        return weights[index];
+    }
+}
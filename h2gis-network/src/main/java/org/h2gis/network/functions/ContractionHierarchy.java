@@ -0,0 +1,233 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy of a graph, see {@link #contract(CSRGraph)}.
+ *
+ * <p>The vertices are ranked in the order of their contraction. The
+ * hierarchy keeps the edges of the graph and the shortcuts added by the
+ * contraction in two graphs having the same vertex indices: the upward graph
+ * contains the edges going to a vertex of higher rank, the downward graph
+ * contains the reversed edges coming from a vertex of higher rank. A shortest
+ * path is then found by two small searches in these graphs, see
+ * {@link CHDijkstra}.
+ *
+ * <p>The edge ids of both graphs are the indices of the vertices bypassed by
+ * the shortcuts, -1 for the edges of the graph.
+ */
+public final class ContractionHierarchy {
+
+    private final int[] ranks;
+    private final CSRGraph upward;
+    private final CSRGraph downward;
+
+    private ContractionHierarchy(int[] ranks, CSRGraph upward, CSRGraph downward) {
+        this.ranks = ranks;
+        this.upward = upward;
+        this.downward = downward;
+    }
+
+    /**
+     * Contract a graph.
+     *
+     * @param graph Graph
+     * @return Contraction hierarchy of the graph
+     */
+    public static ContractionHierarchy contract(CSRGraph graph) {
+        return new GraphContractor(graph).contract();
+    }
+
+    /**
+     * @return Number of vertices
+     */
+    public int getNodeCount() {
+        return ranks.length;
+    }
+
+    /**
+     * @return Number of edges and shortcuts
+     */
+    public int getEdgeCount() {
+        return upward.getEdgeCount() + downward.getEdgeCount();
+    }
+
+    /**
+     * @param nodeId Vertex id
+     * @return Index of the vertex, or -1 if the hierarchy does not contain it
+     */
+    public int indexOf(int nodeId) {
+        return upward.indexOf(nodeId);
+    }
+
+    /**
+     * @param nodeId Vertex id
+     * @return Index of the vertex
+     * @throws IllegalArgumentException If the hierarchy does not contain the
+     * vertex
+     */
+    public int checkedIndexOf(int nodeId) {
+        return upward.checkedIndexOf(nodeId);
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Vertex id
+     */
+    public int getNodeId(int node) {
+        return upward.getNodeId(node);
+    }
+
+    /**
+     * @param node Vertex index
+     * @return Rank of the vertex, 0 for the first contracted vertex
+     */
+    public int getRank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * @return Edges going to a vertex of higher rank
+     */
+    public CSRGraph getUpwardGraph() {
+        return upward;
+    }
+
+    /**
+     * @return Reversed edges coming from a vertex of higher rank
+     */
+    public CSRGraph getDownwardGraph() {
+        return downward;
+    }
+
+    /**
+     * Collects the ranked vertices and the edges of a
+     * {@link ContractionHierarchy}.
+     */
+    public static final class Builder {
+        private int[] nodeIds = new int[1024];
+        private int[] nodeRanks = new int[1024];
+        private int nodeCount = 0;
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private double[] weights = new double[1024];
+        private int[] vias = new int[1024];
+        private boolean[] shortcuts = new boolean[1024];
+        private int edgeCount = 0;
+
+        /**
+         * Add a vertex.
+         *
+         * @param nodeId Vertex id
+         * @param rank   Rank of the vertex
+         */
+        public void addNode(int nodeId, int rank) {
+            if (nodeCount == nodeIds.length) {
+                nodeIds = Arrays.copyOf(nodeIds, nodeCount + (nodeCount >> 1));
+                nodeRanks = Arrays.copyOf(nodeRanks, nodeIds.length);
+            }
+            nodeIds[nodeCount] = nodeId;
+            nodeRanks[nodeCount] = rank;
+            nodeCount++;
+        }
+
+        /**
+         * Add an edge of the graph.
+         *
+         * @param start  Start vertex id
+         * @param end    End vertex id
+         * @param weight Weight
+         */
+        public void addEdge(int start, int end, double weight) {
+            add(start, end, weight, 0, false);
+        }
+
+        /**
+         * Add a shortcut.
+         *
+         * @param start  Start vertex id
+         * @param end    End vertex id
+         * @param weight Weight
+         * @param via    Id of the bypassed vertex
+         */
+        public void addShortcut(int start, int end, double weight, int via) {
+            add(start, end, weight, via, true);
+        }
+
+        private void add(int start, int end, double weight, int via, boolean shortcut) {
+            if (edgeCount == starts.length) {
+                final int capacity = edgeCount + (edgeCount >> 1);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                vias = Arrays.copyOf(vias, capacity);
+                shortcuts = Arrays.copyOf(shortcuts, capacity);
+            }
+            starts[edgeCount] = start;
+            ends[edgeCount] = end;
+            weights[edgeCount] = weight;
+            vias[edgeCount] = via;
+            shortcuts[edgeCount] = shortcut;
+            edgeCount++;
+        }
+
+        /**
+         * @return The contraction hierarchy of the added vertices and edges
+         * @throws IllegalArgumentException If an edge uses a vertex which was
+         * not added
+         */
+        public ContractionHierarchy build() {
+            final CSRGraph.Builder upward = new CSRGraph.Builder(edgeCount);
+            final CSRGraph.Builder downward = new CSRGraph.Builder(edgeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                upward.addNode(nodeIds[i]);
+                downward.addNode(nodeIds[i]);
+            }
+            // Ranks indexed by vertex index, in the order of the sorted ids
+            final int[] order = Arrays.copyOf(nodeIds, nodeCount);
+            Arrays.sort(order);
+            final int[] ranks = new int[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                ranks[Arrays.binarySearch(order, nodeIds[i])] = nodeRanks[i];
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                final int start = index(order, starts[i]);
+                final int end = index(order, ends[i]);
+                final int via = shortcuts[i] ? index(order, vias[i]) : -1;
+                if (ranks[start] < ranks[end]) {
+                    upward.addEdge(starts[i], ends[i], via, weights[i]);
+                } else {
+                    downward.addEdge(ends[i], starts[i], via, weights[i]);
+                }
+            }
+            return new ContractionHierarchy(ranks, upward.build(), downward.build());
+        }
+
+        private static int index(int[] order, int nodeId) {
+            final int index = Arrays.binarySearch(order, nodeId);
+            if (index < 0) {
+                throw new IllegalArgumentException("The hierarchy does not contain vertex " + nodeId);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+import org.javanetworkanalyzer.model.KeyedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the graphs built by {@link GraphCreator} ({@link KeyedGraph} or
+ * {@link CSRGraph}) in memory between two calls of the graph functions.
+ *
+ * <p>A graph is identified by the database, the edges table, the orientation,
+ * the weight column and the vertex and edge classes. It is reused only if the
+ * modification id of the edges table did not change since it was loaded.
+ *
+ * <p>Graph algorithms store their state in the vertices, so a cached graph is
+ * lent to one function call at a time: {@link #borrow} removes it from the
+ * cache and {@link #release} puts it back once the call is done. Concurrent
+ * calls on the same edges table build their own graph.
+ *
+ * <p>The cache is bounded by a total number of edges, the least recently used
+ * graphs are evicted first. It is disabled by default (size 0).
+ */
+public final class GraphCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphCache.class);
+
+    /** Graphs available in the cache, in access order */
+    private static final LinkedHashMap<Key, Entry> CACHE = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    /** Graphs lent to a running function */
+    private static final Map<Object, Entry> BORROWED = new IdentityHashMap<Object, Entry>();
+    /** Maximum number of edges of all the cached graphs */
+    private static long maxEdgeCount = 0;
+    /** Number of edges of all the cached graphs */
+    private static long edgeCount = 0;
+
+    private GraphCache() {
+    }
+
+    /**
+     * @return True if the graphs are kept in memory
+     */
+    public static synchronized boolean isEnabled() {
+        return maxEdgeCount > 0;
+    }
+
+    /**
+     * @return Maximum number of edges of all the cached graphs
+     */
+    public static synchronized long getMaxEdgeCount() {
+        return maxEdgeCount;
+    }
+
+    /**
+     * Set the maximum number of edges of all the cached graphs. The least
+     * recently used graphs are evicted if the cache is too large.
+     *
+     * @param maxEdgeCount Maximum number of edges, 0 to disable the cache
+     */
+    public static synchronized void setMaxEdgeCount(long maxEdgeCount) {
+        if (maxEdgeCount < 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        GraphCache.maxEdgeCount = maxEdgeCount;
+        evict();
+    }
+
+    /**
+     * Create the cache key of a graph and read the modification id of its
+     * edges table.
+     *
+     * @param connection  Connection
+     * @param inputTable  Edges table
+     * @param parser      Parsed orientation and weight
+     * @param vertexClass Vertex class
+     * @param edgeClass   Edge class
+     * @return The key of the graph
+     * @throws SQLException
+     */
+    public static Key createKey(Connection connection,
+                                String inputTable,
+                                GraphFunctionParser parser,
+                                Class<?> vertexClass,
+                                Class<?> edgeClass) throws SQLException {
+        final TableLocation table = TableUtilities.parseInputTable(connection, inputTable);
+        final String database = getDatabase(connection);
+        final long modificationId = getModificationId(connection, table);
+        return new Key(database, table.toString(), parser.getGlobalOrientation(),
+                parser.getEdgeOrientation(), parser.getWeightColumn(), vertexClass, edgeClass, modificationId);
+    }
+
+    /**
+     * Take a graph out of the cache.
+     *
+     * @param key Graph key
+     * @return The graph or null if it is not in the cache or if the edges
+     * table has been modified
+     */
+    public static synchronized Object borrow(Key key) {
+        final Entry entry = CACHE.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        edgeCount -= entry.edgeCount;
+        if (entry.key.modificationId != key.modificationId) {
+            LOGGER.info("The table " + key.table + " has been modified, its graph is reloaded.");
+            return null;
+        }
+        BORROWED.put(entry.graph, entry);
+        return entry.graph;
+    }
+
+    /**
+     * Register a graph built for the given key, it will be added to the cache
+     * when it is released.
+     *
+     * @param key   Graph key
+     * @param graph Graph
+     */
+    public static synchronized void register(Key key, KeyedGraph<?, ?> graph) {
+        BORROWED.put(graph, new Entry(key, graph, graph.edgeSet().size()));
+    }
+
+    /**
+     * Register a graph built for the given key, it will be added to the cache
+     * when it is released.
+     *
+     * @param key   Graph key
+     * @param graph Graph
+     */
+    public static synchronized void register(Key key, CSRGraph graph) {
+        BORROWED.put(graph, new Entry(key, graph, graph.getEdgeCount()));
+    }
+
+    /**
+     * Register a contraction hierarchy built for the given key, it will be
+     * added to the cache when it is released.
+     *
+     * @param key       Graph key
+     * @param hierarchy Contraction hierarchy
+     */
+    public static synchronized void register(Key key, ContractionHierarchy hierarchy) {
+        BORROWED.put(hierarchy, new Entry(key, hierarchy, hierarchy.getEdgeCount()));
+    }
+
+    /**
+     * Give back a graph when the function which uses it is done.
+     * Graphs that are not registered are ignored.
+     *
+     * @param graph Graph
+     */
+    public static synchronized void release(Object graph) {
+        if (graph == null) {
+            return;
+        }
+        final Entry entry = BORROWED.remove(graph);
+        if (entry == null || entry.edgeCount > maxEdgeCount || CACHE.containsKey(entry.key)) {
+            return;
+        }
+        CACHE.put(entry.key, entry);
+        edgeCount += entry.edgeCount;
+        evict();
+    }
+
+    /**
+     * Remove the graphs of a database from the cache.
+     *
+     * @param connection Connection
+     * @param inputTable Edges table, null to remove all the graphs of the database
+     * @return Number of removed graphs
+     * @throws SQLException
+     */
+    public static int clear(Connection connection, String inputTable) throws SQLException {
+        final String database = getDatabase(connection);
+        final String table = inputTable == null ? null
+                : TableUtilities.parseInputTable(connection, inputTable).toString();
+        synchronized (GraphCache.class) {
+            int count = 0;
+            Iterator<Entry> it = CACHE.values().iterator();
+            while (it.hasNext()) {
+                final Entry entry = it.next();
+                if (entry.key.database.equals(database) && (table == null || entry.key.table.equals(table))) {
+                    it.remove();
+                    edgeCount -= entry.edgeCount;
+                    count++;
+                }
+            }
+            // Borrowed graphs of this table must not come back
+            Iterator<Entry> borrowedIt = BORROWED.values().iterator();
+            while (borrowedIt.hasNext()) {
+                final Entry entry = borrowedIt.next();
+                if (entry.key.database.equals(database) && (table == null || entry.key.table.equals(table))) {
+                    borrowedIt.remove();
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @param connection Connection
+     * @return The keys and the number of edges of the cached graphs of the
+     * database, from the least to the most recently used
+     * @throws SQLException
+     */
+    public static List<Map.Entry<Key, Integer>> getEntries(Connection connection) throws SQLException {
+        final String database = getDatabase(connection);
+        synchronized (GraphCache.class) {
+            List<Map.Entry<Key, Integer>> entries = new ArrayList<Map.Entry<Key, Integer>>();
+            for (Entry entry : CACHE.values()) {
+                if (entry.key.database.equals(database)) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<Key, Integer>(entry.key, entry.edgeCount));
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Remove the least recently used graphs until the cache size is below
+     * the maximum.
+     */
+    private static void evict() {
+        Iterator<Entry> it = CACHE.values().iterator();
+        while (edgeCount > maxEdgeCount && it.hasNext()) {
+            edgeCount -= it.next().edgeCount;
+            it.remove();
+        }
+    }
+
+    /**
+     * @param connection Connection
+     * @return An identifier of the database of this connection
+     * @throws SQLException
+     */
+    private static String getDatabase(Connection connection) throws SQLException {
+        final Statement st = connection.createStatement();
+        try {
+            final ResultSet rs = st.executeQuery("SELECT COALESCE(DATABASE_PATH(), DATABASE())");
+            try {
+                rs.next();
+                return rs.getString(1);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+    }
+
+    /**
+     * @param connection Connection
+     * @param table      Table
+     * @return The modification id of the last change of the table
+     * @throws SQLException
+     */
+    private static long getModificationId(Connection connection, TableLocation table) throws SQLException {
+        final PreparedStatement st = connection.prepareStatement("SELECT LAST_MODIFICATION FROM " +
+                "INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?");
+        try {
+            st.setString(1, table.getSchema(connection.getSchema()));
+            st.setString(2, table.getTable());
+            final ResultSet rs = st.executeQuery();
+            try {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+                throw new SQLException("Table " + table + " not found.");
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+    }
+
+    /**
+     * Identifier of a cached graph.
+     */
+    public static final class Key {
+        private final String database;
+        private final String table;
+        private final GraphFunctionParser.Orientation globalOrientation;
+        private final String edgeOrientation;
+        private final String weight;
+        private final Class<?> vertexClass;
+        private final Class<?> edgeClass;
+        /** Modification id of the table when the key was created, not part of the identity */
+        private final long modificationId;
+
+        private Key(String database, String table, GraphFunctionParser.Orientation globalOrientation,
+                    String edgeOrientation, String weight, Class<?> vertexClass, Class<?> edgeClass,
+                    long modificationId) {
+            this.database = database;
+            this.table = table;
+            this.globalOrientation = globalOrientation;
+            this.edgeOrientation = edgeOrientation == null ? null : edgeOrientation.toUpperCase();
+            this.weight = weight == null ? null : weight.toUpperCase();
+            this.vertexClass = vertexClass;
+            this.edgeClass = edgeClass;
+            this.modificationId = modificationId;
+        }
+
+        /**
+         * @return Edges table
+         */
+        public String getTable() {
+            return table;
+        }
+
+        /**
+         * @return Global orientation
+         */
+        public GraphFunctionParser.Orientation getGlobalOrientation() {
+            return globalOrientation;
+        }
+
+        /**
+         * @return Edge orientation column, null for undirected graphs
+         */
+        public String getEdgeOrientation() {
+            return edgeOrientation;
+        }
+
+        /**
+         * @return Weight column, null for unweighted graphs
+         */
+        public String getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return Vertex class
+         */
+        public Class<?> getVertexClass() {
+            return vertexClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return database.equals(other.database) && table.equals(other.table)
+                    && globalOrientation == other.globalOrientation
+                    && equals(edgeOrientation, other.edgeOrientation)
+                    && equals(weight, other.weight)
+                    && vertexClass.equals(other.vertexClass) && edgeClass.equals(other.edgeClass);
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = database.hashCode();
+            result = 31 * result + table.hashCode();
+            result = 31 * result + (globalOrientation == null ? 0 : globalOrientation.hashCode());
+            result = 31 * result + (edgeOrientation == null ? 0 : edgeOrientation.hashCode());
+            result = 31 * result + (weight == null ? 0 : weight.hashCode());
+            result = 31 * result + vertexClass.hashCode();
+            result = 31 * result + edgeClass.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * Cached graph.
+     */
+    private static final class Entry {
+        private final Key key;
+        private final Object graph;
+        private final int edgeCount;
+
+        private Entry(Key key, Object graph, int edgeCount) {
+            this.key = key;
+            this.graph = graph;
+            this.edgeCount = edgeCount;
+        }
+    }
+}
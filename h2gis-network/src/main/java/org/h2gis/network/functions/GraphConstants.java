@@ -45,4 +45,8 @@ public interface GraphConstants {
     String PATH_EDGE_ID = "PATH_EDGE_ID";
     String TREE_ID = "TREE_ID";
     String WEIGHT = "WEIGHT";
+    String CH_RANK = "CH_RANK";
+    String VIA_NODE = "VIA_NODE";
+    String NODE_CH_SUFFIX = "_NODE_CH";
+    String EDGE_CH_SUFFIX = "_EDGE_CH";
 }
@@ -0,0 +1,375 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Builds the {@link ContractionHierarchy} of a {@link CSRGraph}.
+ *
+ * <p>The vertices are contracted one by one, the least important first. When
+ * a vertex is contracted, a shortcut replaces each path going through it
+ * unless a witness search finds a path of at most the same length avoiding
+ * it. The edges of the contracted vertex are then removed from the remaining
+ * graph. The importance of a vertex is twice the number of shortcuts its
+ * contraction would add minus the number of its edges, plus the number of its
+ * contracted neighbours. It is computed again when the vertex reaches the
+ * head of the queue (lazy updates).
+ */
+final class GraphContractor {
+
+    /** Maximum number of vertices settled by a witness search */
+    private static final int WITNESS_SETTLED_LIMIT = 500;
+    /** Maximum number of vertices settled by the searches computing the priorities */
+    private static final int SIMULATION_SETTLED_LIMIT = 50;
+
+    private final CSRGraph graph;
+    private final int nodeCount;
+    // Remaining graph: outgoing and incoming edges of each vertex
+    private final int[][] outNodes;
+    private final double[][] outWeights;
+    private final int[][] outVias;
+    private final int[] outSize;
+    private final int[][] inNodes;
+    private final double[][] inWeights;
+    private final int[][] inVias;
+    private final int[] inSize;
+    private final int[] contractedNeighbours;
+    // Witness search state
+    private final double[] witnessDistances;
+    private final int[] witnessVisit;
+    private int currentVisit = 0;
+    private final int[] witnessTarget;
+    private int targetMark = 0;
+    private int[] heapNodes = new int[64];
+    private double[] heapKeys = new double[64];
+    private int heapSize;
+
+    GraphContractor(CSRGraph graph) {
+        this.graph = graph;
+        nodeCount = graph.getNodeCount();
+        outNodes = new int[nodeCount][];
+        outWeights = new double[nodeCount][];
+        outVias = new int[nodeCount][];
+        outSize = new int[nodeCount];
+        inNodes = new int[nodeCount][];
+        inWeights = new double[nodeCount][];
+        inVias = new int[nodeCount][];
+        inSize = new int[nodeCount];
+        contractedNeighbours = new int[nodeCount];
+        witnessDistances = new double[nodeCount];
+        witnessVisit = new int[nodeCount];
+        witnessTarget = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            final int degree = Math.max(2, graph.getLastEdge(node) - graph.getFirstEdge(node));
+            outNodes[node] = new int[degree];
+            outWeights[node] = new double[degree];
+            outVias[node] = new int[degree];
+            inNodes[node] = new int[degree];
+            inWeights[node] = new double[degree];
+            inVias[node] = new int[degree];
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            final int last = graph.getLastEdge(node);
+            for (int edge = graph.getFirstEdge(node); edge < last; edge++) {
+                addEdge(node, graph.getTarget(edge), graph.getWeight(edge), -1);
+            }
+        }
+    }
+
+    /**
+     * @return The contraction hierarchy of the graph
+     */
+    ContractionHierarchy contract() {
+        final ContractionHierarchy.Builder builder = new ContractionHierarchy.Builder();
+        final PriorityQueue<Long> queue = new PriorityQueue<Long>(Math.max(1, nodeCount));
+        for (int node = 0; node < nodeCount; node++) {
+            queue.add(entry(contract(node, true), node));
+        }
+        int rank = 0;
+        while (!queue.isEmpty()) {
+            final int node = (int) (queue.poll() & 0xFFFFFFFFL);
+            // Lazy update: contract the vertex only if it is still the least
+            // important one
+            final long current = entry(contract(node, true), node);
+            if (!queue.isEmpty() && current > queue.peek()) {
+                queue.add(current);
+                continue;
+            }
+            // Keep the edges to the remaining vertices, which have a higher rank
+            final int nodeId = graph.getNodeId(node);
+            for (int i = 0; i < outSize[node]; i++) {
+                final int target = outNodes[node][i];
+                addToHierarchy(builder, nodeId, graph.getNodeId(target), outWeights[node][i], outVias[node][i]);
+                contractedNeighbours[target]++;
+            }
+            for (int i = 0; i < inSize[node]; i++) {
+                final int source = inNodes[node][i];
+                addToHierarchy(builder, graph.getNodeId(source), nodeId, inWeights[node][i], inVias[node][i]);
+                contractedNeighbours[source]++;
+            }
+            contract(node, false);
+            disconnect(node);
+            builder.addNode(nodeId, rank++);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Remove the edges of a contracted vertex from the remaining graph, so
+     * that the next searches do not scan them.
+     */
+    private void disconnect(int node) {
+        for (int i = 0; i < outSize[node]; i++) {
+            final int target = outNodes[node][i];
+            removeEdge(inNodes[target], inWeights[target], inVias[target], inSize[target]--, node);
+        }
+        for (int i = 0; i < inSize[node]; i++) {
+            final int source = inNodes[node][i];
+            removeEdge(outNodes[source], outWeights[source], outVias[source], outSize[source]--, node);
+        }
+        outSize[node] = 0;
+        inSize[node] = 0;
+        outNodes[node] = null;
+        outWeights[node] = null;
+        outVias[node] = null;
+        inNodes[node] = null;
+        inWeights[node] = null;
+        inVias[node] = null;
+    }
+
+    /**
+     * Replace the edge to the given vertex by the last edge of the list.
+     */
+    private static void removeEdge(int[] nodes, double[] weights, int[] vias, int size, int node) {
+        for (int i = 0; i < size; i++) {
+            if (nodes[i] == node) {
+                nodes[i] = nodes[size - 1];
+                weights[i] = weights[size - 1];
+                vias[i] = vias[size - 1];
+                return;
+            }
+        }
+        throw new IllegalStateException("Missing edge to vertex " + node);
+    }
+
+    private void addToHierarchy(ContractionHierarchy.Builder builder, int start, int end,
+                                double weight, int via) {
+        if (via == -1) {
+            builder.addEdge(start, end, weight);
+        } else {
+            builder.addShortcut(start, end, weight, graph.getNodeId(via));
+        }
+    }
+
+    private static long entry(int priority, int node) {
+        return ((long) priority << 32) | node;
+    }
+
+    /**
+     * Contract a vertex, or only count the shortcuts its contraction needs.
+     *
+     * @param node     Vertex index
+     * @param simulate True to only compute the priority of the vertex
+     * @return Priority of the vertex
+     */
+    private int contract(int node, boolean simulate) {
+        int shortcuts = 0;
+        // Targets of the witness searches, marked to stop the searches once
+        // they are all settled
+        targetMark++;
+        for (int j = 0; j < outSize[node]; j++) {
+            witnessTarget[outNodes[node][j]] = targetMark;
+        }
+        final int targetCount = outSize[node];
+        for (int i = 0; i < inSize[node]; i++) {
+            final int source = inNodes[node][i];
+            final double inWeight = inWeights[node][i];
+            double maxOutWeight = -1;
+            for (int j = 0; j < outSize[node]; j++) {
+                final int target = outNodes[node][j];
+                if (target != source) {
+                    maxOutWeight = Math.max(maxOutWeight, outWeights[node][j]);
+                }
+            }
+            if (maxOutWeight < 0) {
+                continue;
+            }
+            witnessSearch(source, node, inWeight + maxOutWeight,
+                    witnessTarget[source] == targetMark ? targetCount - 1 : targetCount,
+                    simulate ? SIMULATION_SETTLED_LIMIT : WITNESS_SETTLED_LIMIT);
+            for (int j = 0; j < outSize[node]; j++) {
+                final int target = outNodes[node][j];
+                if (target == source) {
+                    continue;
+                }
+                final double weight = inWeight + outWeights[node][j];
+                if (getWitnessDistance(target) > weight) {
+                    shortcuts++;
+                    if (!simulate) {
+                        addEdge(source, target, weight, node);
+                    }
+                }
+            }
+        }
+        return 2 * (shortcuts - inSize[node] - outSize[node]) + contractedNeighbours[node];
+    }
+
+    /**
+     * Add an edge to the remaining graph, or decrease the weight of the
+     * existing edge.
+     */
+    private void addEdge(int source, int target, double weight, int via) {
+        if (source == target) {
+            return;
+        }
+        for (int i = 0; i < outSize[source]; i++) {
+            if (outNodes[source][i] == target) {
+                if (weight < outWeights[source][i]) {
+                    outWeights[source][i] = weight;
+                    outVias[source][i] = via;
+                    for (int j = 0; j < inSize[target]; j++) {
+                        if (inNodes[target][j] == source) {
+                            inWeights[target][j] = weight;
+                            inVias[target][j] = via;
+                            break;
+                        }
+                    }
+                }
+                return;
+            }
+        }
+        if (outSize[source] == outNodes[source].length) {
+            final int capacity = outSize[source] * 2;
+            outNodes[source] = Arrays.copyOf(outNodes[source], capacity);
+            outWeights[source] = Arrays.copyOf(outWeights[source], capacity);
+            outVias[source] = Arrays.copyOf(outVias[source], capacity);
+        }
+        outNodes[source][outSize[source]] = target;
+        outWeights[source][outSize[source]] = weight;
+        outVias[source][outSize[source]] = via;
+        outSize[source]++;
+        if (inSize[target] == inNodes[target].length) {
+            final int capacity = inSize[target] * 2;
+            inNodes[target] = Arrays.copyOf(inNodes[target], capacity);
+            inWeights[target] = Arrays.copyOf(inWeights[target], capacity);
+            inVias[target] = Arrays.copyOf(inVias[target], capacity);
+        }
+        inNodes[target][inSize[target]] = source;
+        inWeights[target][inSize[target]] = weight;
+        inVias[target][inSize[target]] = via;
+        inSize[target]++;
+    }
+
+    /**
+     * Dijkstra's algorithm in the remaining graph without the contracted
+     * vertex, stopped at the given distance, once the targets are settled or
+     * after the given number of settled vertices.
+     */
+    private void witnessSearch(int source, int ignored, double maxDistance, int targets, int settledLimit) {
+        currentVisit++;
+        if (currentVisit == Integer.MAX_VALUE) {
+            Arrays.fill(witnessVisit, 0);
+            currentVisit = 1;
+        }
+        heapSize = 0;
+        witnessVisit[source] = currentVisit;
+        witnessDistances[source] = 0;
+        push(source, 0);
+        int settled = 0;
+        while (heapSize > 0 && settled < settledLimit) {
+            final double distance = heapKeys[0];
+            final int node = pop();
+            if (distance > witnessDistances[node]) {
+                // Outdated heap entry
+                continue;
+            }
+            if (distance > maxDistance) {
+                break;
+            }
+            settled++;
+            if (node != source && witnessTarget[node] == targetMark && --targets == 0) {
+                break;
+            }
+            for (int i = 0; i < outSize[node]; i++) {
+                final int target = outNodes[node][i];
+                if (target == ignored) {
+                    continue;
+                }
+                final double targetDistance = distance + outWeights[node][i];
+                if (witnessVisit[target] != currentVisit || targetDistance < witnessDistances[target]) {
+                    witnessVisit[target] = currentVisit;
+                    witnessDistances[target] = targetDistance;
+                    push(target, targetDistance);
+                }
+            }
+        }
+    }
+
+    private double getWitnessDistance(int node) {
+        return witnessVisit[node] == currentVisit ? witnessDistances[node] : Double.POSITIVE_INFINITY;
+    }
+
+    private void push(int node, double key) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int position = heapSize++;
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapNodes[position] = heapNodes[parent];
+            heapKeys[position] = heapKeys[parent];
+            position = parent;
+        }
+        heapNodes[position] = node;
+        heapKeys[position] = key;
+    }
+
+    private int pop() {
+        final int top = heapNodes[0];
+        heapSize--;
+        if (heapSize > 0) {
+            final int node = heapNodes[heapSize];
+            final double key = heapKeys[heapSize];
+            int position = 0;
+            final int half = heapSize >>> 1;
+            while (position < half) {
+                int child = 2 * position + 1;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                    child++;
+                }
+                if (key <= heapKeys[child]) {
+                    break;
+                }
+                heapNodes[position] = heapNodes[child];
+                heapKeys[position] = heapKeys[child];
+                position = child;
+            }
+            heapNodes[position] = node;
+            heapKeys[position] = key;
+        }
+        return top;
+    }
+}
@@ -91,6 +91,23 @@ public class GraphCreator<V extends VId, E extends Edge> {
         this.edgeClass = edgeClass;
     }
 
+    /**
+     * Constructor of a creator of {@link CSRGraph}.
+     *
+     * @param connection                Connection
+     * @param inputTable                Name of edges table from {@link org.h2gis.functions.spatial.topology.ST_Graph}.
+     * @param globalOrientation         Global orientation
+     * @param edgeOrientationColumnName Edge orientation
+     * @param weightColumn              Weight column name
+     */
+    public GraphCreator(Connection connection,
+                        String inputTable,
+                        GraphFunctionParser.Orientation globalOrientation,
+                        String edgeOrientationColumnName,
+                        String weightColumn) {
+        this(connection, inputTable, globalOrientation, edgeOrientationColumnName, weightColumn, null, null);
+    }
+
     /**
      * Prepares a graph.
      *
@@ -138,6 +155,36 @@ public class GraphCreator<V extends VId, E extends Edge> {
         }
     }
 
+    /**
+     * Prepares a graph stored in primitive arrays.
+     *
+     * @return The newly prepared graph
+     *
+     * @throws java.sql.SQLException
+     */
+    protected CSRGraph prepareCSRGraph() throws SQLException {
+        LOGGER.info("Loading graph into memory...");
+        final long start = System.currentTimeMillis();
+        final Statement st = connection.createStatement();
+        final ResultSet edges = st.executeQuery("SELECT * FROM " +
+                TableUtilities.parseInputTable(connection, inputTable));
+        // Initialize the indices.
+        initIndices(edges);
+        try {
+            final CSRGraph.Builder builder = new CSRGraph.Builder();
+            // Add the edges.
+            while (edges.next()) {
+                loadEdge(builder, edges);
+            }
+            final CSRGraph graph = builder.build();
+            logTime(LOGGER, start);
+            return graph;
+        } finally {
+            edges.close();
+            st.close();
+        }
+    }
+
     /**
      * Recovers the indices from the metadata.
      */
@@ -242,6 +289,52 @@ public class GraphCreator<V extends VId, E extends Edge> {
         return edge;
     }
 
+    /**
+     * Loads an edge into the graph builder from the current row, following
+     * the same orientation rules as {@link #loadEdge(KeyedGraph, ResultSet)}.
+     *
+     * @param builder The graph builder to which the edges will be added.
+     */
+    private void loadEdge(CSRGraph.Builder builder, ResultSet edges) throws SQLException {
+        final int startNode = edges.getInt(startNodeIndex);
+        final int endNode = edges.getInt(endNodeIndex);
+        final int edgeID = edges.getInt(edgeIDIndex);
+        double weight = WeightedGraph.DEFAULT_EDGE_WEIGHT;
+        if (weightColumnIndex != -1) {
+            weight = edges.getDouble(weightColumnIndex);
+        }
+        if (globalOrientation.equals(GraphFunctionParser.Orientation.UNDIRECTED)) {
+            builder.addEdge(startNode, endNode, edgeID, weight);
+            builder.addEdge(endNode, startNode, -edgeID, weight);
+        } else {
+            int edgeOrientation = (edgeOrientationIndex == -1)
+                    ? DIRECTED_EDGE
+                    : edges.getInt(edgeOrientationIndex);
+            if (edges.wasNull()) {
+                throw new IllegalArgumentException("Invalid edge orientation: NULL.");
+            }
+            final boolean reversed = globalOrientation.equals(GraphFunctionParser.Orientation.REVERSED);
+            if (edgeOrientation == UNDIRECTED_EDGE) {
+                builder.addEdge(startNode, endNode, reversed ? -edgeID : edgeID, weight);
+                builder.addEdge(endNode, startNode, reversed ? edgeID : -edgeID, weight);
+            } else if (edgeOrientation == DIRECTED_EDGE) {
+                if (reversed) {
+                    builder.addEdge(endNode, startNode, edgeID, weight);
+                } else {
+                    builder.addEdge(startNode, endNode, edgeID, weight);
+                }
+            } else if (edgeOrientation == REVERSED_EDGE) {
+                if (reversed) {
+                    builder.addEdge(startNode, endNode, edgeID, weight);
+                } else {
+                    builder.addEdge(endNode, startNode, edgeID, weight);
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid edge orientation: " + edgeOrientation);
+            }
+        }
+    }
+
     /**
      * In directed graphs, undirected edges are represented by directed edges
      * in both directions. The edges are assigned ids with opposite signs.
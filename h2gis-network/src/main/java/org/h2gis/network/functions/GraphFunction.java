@@ -20,11 +20,24 @@
 package org.h2gis.network.functions;
 
 import org.h2gis.api.AbstractFunction;
+import org.h2gis.functions.spatial.topology.ST_Graph;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+import org.javanetworkanalyzer.data.VId;
+import org.javanetworkanalyzer.model.Edge;
+import org.javanetworkanalyzer.model.EdgeCent;
 import org.javanetworkanalyzer.model.KeyedGraph;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
 import org.slf4j.Logger;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.h2gis.network.functions.GraphConstants.*;
 
 /**
  * Helper class for Graph Functions.
@@ -36,7 +49,12 @@ public class GraphFunction extends AbstractFunction {
     public static final String ARG_ERROR  = "Unrecognized argument: ";
 
     /**
-     * Return a JGraphT graph from the input edges table.
+     * Return a JGraphT graph from the input edges table. If the
+     * {@link GraphCache} is enabled, the graph is taken from the cache when
+     * the edges table did not change. The graph must be given back with
+     * {@link #releaseGraph(KeyedGraph)} once the calculation is done.
+     * Graphs with {@link EdgeCent} edges are never cached, the centrality
+     * analysis accumulates its results in the vertices and the edges.
      *
      * @param connection  Connection
      * @param inputTable  Input table name
@@ -47,20 +65,276 @@ public class GraphFunction extends AbstractFunction {
      * @return Graph
      * @throws java.sql.SQLException
      */
-    protected static KeyedGraph prepareGraph(Connection connection,
-                                             String inputTable,
-                                             String orientation,
-                                             String weight,
-                                             Class vertexClass,
-                                             Class edgeClass) throws SQLException {
-        GraphFunctionParser parser = new GraphFunctionParser();
-        parser.parseWeightAndOrientation(orientation, weight);
+    protected static <V extends VId, E extends Edge<?>> KeyedGraph<V, E> prepareGraph(Connection connection,
+                                                                                  String inputTable,
+                                                                                  String orientation,
+                                                                                  String weight,
+                                                                                  Class<? extends V> vertexClass,
+                                                                                  Class<? extends E> edgeClass)
+            throws SQLException {
+        GraphFunctionParser parser = parseWeightAndOrientation(orientation, weight);
 
-        return new GraphCreator(connection,
+        GraphCache.Key key = null;
+        if (GraphCache.isEnabled() && !EdgeCent.class.isAssignableFrom(edgeClass)) {
+            key = GraphCache.createKey(connection, inputTable, parser, vertexClass, edgeClass);
+            KeyedGraph<V, E> graph = borrowGraph(key);
+            if (graph != null) {
+                return graph;
+            }
+        }
+        KeyedGraph<V, E> graph = new GraphCreator<V, E>(connection,
                 inputTable,
                 parser.getGlobalOrientation(), parser.getEdgeOrientation(), parser.getWeightColumn(),
                 vertexClass,
                 edgeClass).prepareGraph();
+        if (key != null && graph != null) {
+            GraphCache.register(key, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Parse the weight and the orientation of a function which does not
+     * support the One-to-One search options.
+     *
+     * @param orientation Orientation string
+     * @param weight      Weight column name, null for unweighted graphs
+     * @return Parser
+     */
+    private static GraphFunctionParser parseWeightAndOrientation(String orientation, String weight) {
+        GraphFunctionParser parser = new GraphFunctionParser();
+        parser.parseWeightAndOrientation(orientation, weight);
+        if (parser.getSearch() != GraphFunctionParser.Search.DIJKSTRA) {
+            throw new IllegalArgumentException(GraphFunctionParser.SEARCH_ERROR);
+        }
+        return parser;
+    }
+
+    /**
+     * Take a JGraphT graph out of the cache. The key holds the vertex and
+     * edge classes, so the cached graph has the requested types.
+     *
+     * @param key Graph key
+     * @return The graph or null if it is not in the cache
+     */
+    @SuppressWarnings("unchecked")
+    private static <V extends VId, E extends Edge<?>> KeyedGraph<V, E> borrowGraph(GraphCache.Key key) {
+        return (KeyedGraph<V, E>) GraphCache.borrow(key);
+    }
+
+    /**
+     * Return a graph stored in primitive arrays from the input edges table.
+     * As for {@link #prepareGraph}, the graph may come from the
+     * {@link GraphCache} and must be given back with
+     * {@link #releaseGraph(CSRGraph)}.
+     *
+     * @param connection  Connection
+     * @param inputTable  Input table name
+     * @param orientation Orientation string
+     * @param weight      Weight column name, null for unweighted graphs
+     * @return Graph
+     * @throws java.sql.SQLException
+     */
+    protected static CSRGraph prepareCSRGraph(Connection connection,
+                                              String inputTable,
+                                              String orientation,
+                                              String weight) throws SQLException {
+        GraphFunctionParser parser = parseWeightAndOrientation(orientation, weight);
+        return prepareCSRGraph(connection, inputTable, parser, false);
+    }
+
+    /**
+     * Return a graph stored in primitive arrays from the input edges table,
+     * with the coordinates of its vertices if requested. The coordinates are
+     * read from the nodes table given to the A* option, or from the nodes
+     * table produced by ST_Graph with the edges table.
+     *
+     * @param connection  Connection
+     * @param inputTable  Input table name
+     * @param parser      Parsed orientation and weight
+     * @param coordinates True to read the coordinates of the vertices
+     * @return Graph
+     * @throws java.sql.SQLException
+     */
+    protected static CSRGraph prepareCSRGraph(Connection connection,
+                                              String inputTable,
+                                              GraphFunctionParser parser,
+                                              boolean coordinates) throws SQLException {
+        GraphCache.Key key = null;
+        if (GraphCache.isEnabled()) {
+            // Graphs with coordinates are cached apart, with points as vertices
+            key = GraphCache.createKey(connection, inputTable, parser,
+                    coordinates ? Point.class : CSRGraph.class, CSRGraph.class);
+            CSRGraph graph = (CSRGraph) GraphCache.borrow(key);
+            if (graph != null) {
+                return graph;
+            }
+        }
+        CSRGraph graph = new GraphCreator<VId, Edge<?>>(connection,
+                inputTable,
+                parser.getGlobalOrientation(), parser.getEdgeOrientation(), parser.getWeightColumn())
+                .prepareCSRGraph();
+        if (coordinates) {
+            String nodesTable = parser.getNodesTable();
+            if (nodesTable == null) {
+                nodesTable = getNodesTable(inputTable);
+            }
+            graph = readCoordinates(connection, nodesTable, graph);
+        }
+        if (key != null) {
+            GraphCache.register(key, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * @param inputTable Edges table produced by ST_Graph
+     * @return The nodes table produced by ST_Graph with the edges table
+     */
+    private static String getNodesTable(String inputTable) {
+        if (!inputTable.toUpperCase().endsWith(ST_Graph.EDGES_SUFFIX)) {
+            throw new IllegalArgumentException("Cannot find the nodes table of " + inputTable
+                    + ", enter '" + GraphFunctionParser.ASTAR + "(nodes_table)'.");
+        }
+        return inputTable.substring(0, inputTable.length() - ST_Graph.EDGES_SUFFIX.length())
+                + ST_Graph.NODES_SUFFIX;
+    }
+
+    /**
+     * Read the coordinates of the vertices of a graph from a nodes table
+     * containing NODE_ID and THE_GEOM columns.
+     *
+     * @param connection Connection
+     * @param nodesTable Nodes table
+     * @param graph      Graph
+     * @return The graph with the coordinates of its vertices
+     * @throws SQLException
+     */
+    private static CSRGraph readCoordinates(Connection connection, String nodesTable,
+                                            CSRGraph graph) throws SQLException {
+        final int nodeCount = graph.getNodeCount();
+        final double[] x = new double[nodeCount];
+        final double[] y = new double[nodeCount];
+        final boolean[] found = new boolean[nodeCount];
+        final Statement st = connection.createStatement();
+        try {
+            final ResultSet rs = st.executeQuery("SELECT " + NODE_ID + ", " + THE_GEOM
+                    + " FROM " + TableUtilities.parseInputTable(connection, nodesTable));
+            try {
+                while (rs.next()) {
+                    final int node = graph.indexOf(rs.getInt(1));
+                    final Geometry geometry = (Geometry) rs.getObject(2);
+                    if (node != -1 && geometry != null && !geometry.isEmpty()) {
+                        final Coordinate coordinate = geometry.getCoordinate();
+                        x[node] = coordinate.x;
+                        y[node] = coordinate.y;
+                        found[node] = true;
+                    }
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            if (!found[node]) {
+                throw new IllegalArgumentException("The nodes table " + nodesTable
+                        + " does not contain the point of vertex " + graph.getNodeId(node));
+            }
+        }
+        return graph.withCoordinates(x, y);
+    }
+
+    /**
+     * Return the contraction hierarchy stored by ST_ContractionHierarchy for
+     * the input edges table. As for {@link #prepareGraph}, the hierarchy may
+     * come from the {@link GraphCache} and must be given back with
+     * {@link #releaseGraph(ContractionHierarchy)}.
+     *
+     * @param connection Connection
+     * @param inputTable Edges table given to ST_ContractionHierarchy
+     * @return Contraction hierarchy
+     * @throws SQLException
+     */
+    protected static ContractionHierarchy prepareContractionHierarchy(Connection connection,
+                                                                      String inputTable) throws SQLException {
+        final TableLocation tableName = TableUtilities.parseInputTable(connection, inputTable);
+        final TableLocation nodesName = TableUtilities.suffixTableLocation(tableName, NODE_CH_SUFFIX);
+        final TableLocation edgesName = TableUtilities.suffixTableLocation(tableName, EDGE_CH_SUFFIX);
+        GraphCache.Key key = null;
+        if (GraphCache.isEnabled()) {
+            // The hierarchy is replaced when its edges table is rebuilt
+            key = GraphCache.createKey(connection, edgesName.toString(), new GraphFunctionParser(),
+                    ContractionHierarchy.class, ContractionHierarchy.class);
+            ContractionHierarchy hierarchy = (ContractionHierarchy) GraphCache.borrow(key);
+            if (hierarchy != null) {
+                return hierarchy;
+            }
+        }
+        final ContractionHierarchy.Builder builder = new ContractionHierarchy.Builder();
+        final Statement st = connection.createStatement();
+        try {
+            ResultSet rs = st.executeQuery("SELECT " + NODE_ID + ", " + CH_RANK + " FROM " + nodesName);
+            try {
+                while (rs.next()) {
+                    builder.addNode(rs.getInt(1), rs.getInt(2));
+                }
+            } finally {
+                rs.close();
+            }
+            rs = st.executeQuery("SELECT " + START_NODE + ", " + END_NODE + ", " + WEIGHT + ", " + VIA_NODE
+                    + " FROM " + edgesName);
+            try {
+                while (rs.next()) {
+                    final int via = rs.getInt(4);
+                    if (rs.wasNull()) {
+                        builder.addEdge(rs.getInt(1), rs.getInt(2), rs.getDouble(3));
+                    } else {
+                        builder.addShortcut(rs.getInt(1), rs.getInt(2), rs.getDouble(3), via);
+                    }
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+        final ContractionHierarchy hierarchy = builder.build();
+        if (key != null) {
+            GraphCache.register(key, hierarchy);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Give back a graph returned by {@link #prepareGraph}, so it can be
+     * reused by the next calls.
+     *
+     * @param graph Graph, may be null
+     */
+    protected static void releaseGraph(KeyedGraph<?, ?> graph) {
+        GraphCache.release(graph);
+    }
+
+    /**
+     * Give back a graph returned by {@link #prepareCSRGraph}, so it can be
+     * reused by the next calls.
+     *
+     * @param graph Graph, may be null
+     */
+    protected static void releaseGraph(CSRGraph graph) {
+        GraphCache.release(graph);
+    }
+
+    /**
+     * Give back a hierarchy returned by {@link #prepareContractionHierarchy},
+     * so it can be reused by the next calls.
+     *
+     * @param hierarchy Contraction hierarchy, may be null
+     */
+    protected static void releaseGraph(ContractionHierarchy hierarchy) {
+        GraphCache.release(hierarchy);
     }
 
     /**
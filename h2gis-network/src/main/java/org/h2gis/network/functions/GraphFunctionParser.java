@@ -29,6 +29,8 @@ public class GraphFunctionParser {
     private String weightColumn;
     private Orientation globalOrientation;
     private String edgeOrientation;
+    private Search search = Search.DIJKSTRA;
+    private String nodesTable;
 
     public static final String SEPARATOR = "-";
     public static final String DIRECTED = "directed";
@@ -39,6 +41,21 @@ public class GraphFunctionParser {
         DIRECTED, REVERSED, UNDIRECTED
     }
 
+    public static final String BIDIRECTIONAL = "bidirectional";
+    public static final String ASTAR = "astar";
+
+    /**
+     * One-to-One search algorithm, selected by an option at the end of the
+     * orientation string ('o[ - eo] - bidirectional' or
+     * 'o[ - eo] - astar[(nodes_table)]').
+     */
+    public enum Search {
+        DIJKSTRA, BIDIRECTIONAL, ASTAR
+    }
+
+    public static final String SEARCH_ERROR = "The '" + BIDIRECTIONAL + "' and '" + ASTAR
+            + "' options are only supported by the One-to-One signatures.";
+
     public static final String EDGE_ORIENTATION_COLUMN = "edge_orientation_column";
     public static final String POSSIBLE_ORIENTATIONS =
             "'" + DIRECTED + " - " + EDGE_ORIENTATION_COLUMN + "' "
@@ -168,8 +185,44 @@ public class GraphFunctionParser {
         }
     }
 
+    /**
+     * Recovers the search option from the end of the orientation string.
+     *
+     * @param v Orientation string
+     * @return The orientation string without the search option
+     */
+    protected String parseSearch(String v) {
+        if (v == null) {
+            return null;
+        }
+        // The nodes table of the A* option may contain the separator
+        final int parenthesis = v.indexOf('(');
+        final int index = v.lastIndexOf(SEPARATOR, parenthesis == -1 ? v.length() : parenthesis);
+        if (index == -1) {
+            return v;
+        }
+        final String option = v.substring(index + 1).trim();
+        final String lowerOption = option.toLowerCase();
+        if (lowerOption.equals(BIDIRECTIONAL)) {
+            search = Search.BIDIRECTIONAL;
+        } else if (lowerOption.equals(ASTAR)) {
+            search = Search.ASTAR;
+        } else if (lowerOption.startsWith(ASTAR + "(")) {
+            if (!option.endsWith(")") || option.length() == ASTAR.length() + 2) {
+                throw new IllegalArgumentException("Bad A* option format. Enter '"
+                        + ASTAR + "' or '" + ASTAR + "(nodes_table)'.");
+            }
+            nodesTable = option.substring(ASTAR.length() + 1, option.length() - 1).trim();
+            search = Search.ASTAR;
+        } else {
+            return v;
+        }
+        return v.substring(0, index);
+    }
+
     private void setWeightAndOrientation(String weight, String orient) {
         weightColumn = parseWeight(weight);
+        orient = parseSearch(orient);
         globalOrientation = parseGlobalOrientation(orient);
         if (globalOrientation != null) {
             if (!globalOrientation.equals(Orientation.UNDIRECTED)) {
@@ -205,6 +258,24 @@ public class GraphFunctionParser {
         return edgeOrientation;
     }
 
+    /**
+     * Get the One-to-One search algorithm.
+     *
+     * @return search algorithm, {@link Search#DIJKSTRA} by default
+     */
+    public Search getSearch() {
+        return search;
+    }
+
+    /**
+     * Get the nodes table given to the A* option.
+     *
+     * @return nodes table name, or null if not specified
+     */
+    public String getNodesTable() {
+        return nodesTable;
+    }
+
     /**
      * Returns true if the given string contains a comma.
      * @param s String
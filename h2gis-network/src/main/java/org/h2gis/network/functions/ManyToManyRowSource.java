@@ -0,0 +1,163 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2.tools.SimpleRowSource;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Rows of a Many-to-Many distance computation running on a
+ * {@link ForkJoinPool}.
+ *
+ * <p>Each source is searched by a task using the {@link CSRDijkstra} of its
+ * worker thread, all the workers sharing the same read-only {@link CSRGraph}.
+ * The distances of a source are returned as soon as its search is finished, so
+ * the rows are not ordered by source. A bounded queue stops the workers when
+ * the rows are not read fast enough.
+ *
+ * <p>The graph is released once all the rows are read or the row source is
+ * closed.
+ */
+class ManyToManyRowSource implements SimpleRowSource {
+
+    /** Number of finished searches waiting to be read, per thread */
+    private static final int QUEUE_SIZE_PER_THREAD = 4;
+
+    private final CSRGraph graph;
+    private final ForkJoinPool pool;
+    private final BlockingQueue<SearchResult> results;
+    /** Number of searches not read yet */
+    private int remaining;
+    private SearchResult current;
+    private int position;
+    private boolean closed = false;
+
+    /**
+     * @param graph        Graph, released by this row source
+     * @param sources      Source vertex indices
+     * @param destinations Destination vertex indices of each source
+     * @param parallelism  Number of threads
+     */
+    ManyToManyRowSource(final CSRGraph graph, final int[] sources, final int[][] destinations,
+                        int parallelism) {
+        this.graph = graph;
+        this.remaining = sources.length;
+        this.pool = new ForkJoinPool(parallelism);
+        this.results = new ArrayBlockingQueue<SearchResult>(parallelism * QUEUE_SIZE_PER_THREAD);
+        final ThreadLocal<CSRDijkstra> dijkstra = new ThreadLocal<CSRDijkstra>() {
+            @Override
+            protected CSRDijkstra initialValue() {
+                return new CSRDijkstra(graph);
+            }
+        };
+        for (int i = 0; i < sources.length; i++) {
+            final int source = sources[i];
+            final int[] targets = destinations[i];
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SearchResult result;
+                    try {
+                        result = new SearchResult(source, targets,
+                                dijkstra.get().oneToMany(source, targets), null);
+                    } catch (Throwable ex) {
+                        result = new SearchResult(source, targets, null, ex);
+                    }
+                    try {
+                        results.put(result);
+                    } catch (InterruptedException ex) {
+                        // The row source has been closed
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public Object[] readRow() throws SQLException {
+        if (closed) {
+            return null;
+        }
+        while (current == null || position == current.destinations.length) {
+            if (remaining == 0) {
+                close();
+                return null;
+            }
+            try {
+                current = results.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new SQLException("Interrupted while computing the distances", ex);
+            }
+            remaining--;
+            position = 0;
+            if (current.error != null) {
+                close();
+                throw new SQLException("Cannot compute the distances from vertex "
+                        + graph.getNodeId(current.source), current.error);
+            }
+        }
+        final int i = position++;
+        return new Object[]{graph.getNodeId(current.source),
+                graph.getNodeId(current.destinations[i]),
+                current.distances[i]};
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            pool.shutdownNow();
+            results.clear();
+            current = null;
+            GraphFunction.releaseGraph(graph);
+        }
+    }
+
+    @Override
+    public void reset() throws SQLException {
+        if (closed || current != null) {
+            throw new SQLException("The distances cannot be read twice");
+        }
+    }
+
+    /**
+     * Distances from a source to its destinations.
+     */
+    private static final class SearchResult {
+        private final int source;
+        private final int[] destinations;
+        private final double[] distances;
+        private final Throwable error;
+
+        private SearchResult(int source, int[] destinations, double[] distances, Throwable error) {
+            this.source = source;
+            this.destinations = destinations;
+            this.distances = distances;
+            this.error = error;
+        }
+    }
+}
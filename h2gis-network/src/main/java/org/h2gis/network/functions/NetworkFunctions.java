@@ -46,8 +46,13 @@ public class NetworkFunctions {
     public static Function[] getBuiltInsFunctions() throws SQLException {
         return new Function[]{
             new ST_Accessibility(),
+            new ST_CHShortestPathLength(),
             new ST_ConnectedComponents(),
+            new ST_ContractionHierarchy(),
             new ST_GraphAnalysis(),
+            new ST_GraphCacheClear(),
+            new ST_GraphCacheInfo(),
+            new ST_GraphCacheSize(),
             new ST_ShortestPathLength(),
             new ST_ShortestPathTree(),
             new ST_ShortestPath()
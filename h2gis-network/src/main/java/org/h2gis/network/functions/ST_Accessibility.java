@@ -111,12 +111,16 @@ public class ST_Accessibility extends GraphFunction implements ScalarFunction {
         }
         final KeyedGraph<VAccess, Edge> graph =
                 prepareGraph(connection, inputTable, orientation, weight, VAccess.class, Edge.class);
-        // Decide whether this is a destination string or a table string.
-        if (GraphFunctionParser.isDestinationsString(arg4)) {
-            return compute(graph, prepareDestSet(graph, GraphFunctionParser.parseDestinationsString(arg4)));
-        } else {
-            // arg4 is a destination table.
-            return compute(graph, prepareDestSet(connection, graph, arg4));
+        try {
+            // Decide whether this is a destination string or a table string.
+            if (GraphFunctionParser.isDestinationsString(arg4)) {
+                return compute(graph, prepareDestSet(graph, GraphFunctionParser.parseDestinationsString(arg4)));
+            } else {
+                // arg4 is a destination table.
+                return compute(graph, prepareDestSet(connection, graph, arg4));
+            }
+        } finally {
+            releaseGraph(graph);
         }
     }
 
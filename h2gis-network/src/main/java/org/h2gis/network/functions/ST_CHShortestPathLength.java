@@ -0,0 +1,128 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2.value.Value;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueVarchar;
+import org.h2gis.api.ScalarFunction;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.h2gis.network.functions.GraphConstants.*;
+import static org.h2gis.utilities.TableUtilities.isColumnListConnection;
+
+/**
+ * Calculates the length(s) of shortest path(s) between vertices in the
+ * {@link ContractionHierarchy} produced by {@link ST_ContractionHierarchy}.
+ * The distances are those of {@link ST_ShortestPathLength} with the
+ * orientation and weight given to ST_ContractionHierarchy.
+ */
+public class ST_CHShortestPathLength extends GraphFunction implements ScalarFunction {
+
+    public static final String REMARKS =
+            "`ST_CHShortestPathLength` calculates the length(s) of shortest path(s) among\n" +
+            "vertices in the contraction hierarchy produced by `ST_ContractionHierarchy`.\n" +
+            "Possible signatures:\n" +
+            "* `ST_CHShortestPathLength('input_edges', s, d)` - One-to-One\n" +
+            "* `ST_CHShortestPathLength('input_edges', s, 'ds')` - One-to-Several\n" +
+            "\n" +
+            "where\n" +
+            "* `input_edges` = Edges table given to `ST_ContractionHierarchy`\n" +
+            "* `s` = Source vertex id\n" +
+            "* `d` = Destination vertex id\n" +
+            "* `ds` = Comma-separated Destination string ('dest1, dest2, ...')\n";
+
+    /**
+     * Constructor
+     */
+    public ST_CHShortestPathLength() {
+        addProperty(PROP_REMARKS, REMARKS);
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "getShortestPathLength";
+    }
+
+    /**
+     * Calculate distances for
+     * <ol>
+     * <li> One-to-One: <code>arg3 = d</code>,</li>
+     * <li> One-to-Several: <code>arg3 = ds</code>.</li>
+     * </ol>
+     *
+     * @param connection Connection
+     * @param inputTable Edges table given to ST_ContractionHierarchy
+     * @param source     Source vertex id
+     * @param arg3       Destination vertex id -OR- Destination string
+     * @return Distances table
+     * @throws SQLException
+     */
+    public static ResultSet getShortestPathLength(Connection connection,
+                                                  String inputTable,
+                                                  int source,
+                                                  Value arg3) throws SQLException {
+        final SimpleResultSet output = prepareResultSet();
+        if (isColumnListConnection(connection)) {
+            return output;
+        }
+        final int[] destinations;
+        if (arg3 instanceof ValueInteger) {
+            destinations = new int[]{arg3.getInt()};
+        } else if (arg3 instanceof ValueVarchar) {
+            destinations = GraphFunctionParser.parseDestinationsString(arg3.getString());
+        } else {
+            throw new IllegalArgumentException(ARG_ERROR + arg3);
+        }
+        final ContractionHierarchy hierarchy = prepareContractionHierarchy(connection, inputTable);
+        try {
+            final int sourceIndex = hierarchy.checkedIndexOf(source);
+            final int[] destinationIndices = new int[destinations.length];
+            for (int i = 0; i < destinations.length; i++) {
+                destinationIndices[i] = hierarchy.checkedIndexOf(destinations[i]);
+            }
+            final CHDijkstra dijkstra = new CHDijkstra(hierarchy);
+            if (destinations.length == 1) {
+                output.addRow(source, destinations[0], dijkstra.oneToOne(sourceIndex, destinationIndices[0]));
+            } else {
+                final double[] distances = dijkstra.oneToMany(sourceIndex, destinationIndices);
+                for (int i = 0; i < destinations.length; i++) {
+                    output.addRow(source, destinations[i], distances[i]);
+                }
+            }
+        } finally {
+            releaseGraph(hierarchy);
+        }
+        return output;
+    }
+
+    private static SimpleResultSet prepareResultSet() {
+        final SimpleResultSet output = new SimpleResultSet();
+        output.addColumn(SOURCE, Types.INTEGER, 10, 0);
+        output.addColumn(DESTINATION, Types.INTEGER, 10, 0);
+        output.addColumn(DISTANCE, Types.DOUBLE, 10, 0);
+        return output;
+    }
+}
@@ -96,7 +96,12 @@ public class ST_ConnectedComponents  extends GraphFunction implements ScalarFunc
         if (graph == null) {
             return false;
         }
-        final List<Set<VUCent>> componentsList = getConnectedComponents(graph, orientation);
+        final List<Set<VUCent>> componentsList;
+        try {
+            componentsList = getConnectedComponents(graph, orientation);
+        } finally {
+            releaseGraph(graph);
+        }
 
         final TableLocation tableName = TableUtilities.parseInputTable(connection, inputTable);
         final TableLocation nodesName = TableUtilities.suffixTableLocation(tableName, NODE_COMP_SUFFIX);
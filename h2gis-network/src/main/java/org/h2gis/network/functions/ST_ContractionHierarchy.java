@@ -0,0 +1,237 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import static org.h2gis.network.functions.GraphConstants.*;
+
+/**
+ * Contracts a graph into a {@link ContractionHierarchy} stored in two tables,
+ * so that {@link ST_CHShortestPathLength} answers shortest path queries
+ * without searching the whole graph.
+ */
+public class ST_ContractionHierarchy extends GraphFunction implements ScalarFunction {
+
+    protected static final int BATCH_SIZE = 1000;
+    private static final Logger LOGGER = LoggerFactory.getLogger("gui." + ST_ContractionHierarchy.class);
+    public static final String REMARKS =
+            "`ST_ContractionHierarchy` contracts a graph into a contraction hierarchy used by\n" +
+            "`ST_CHShortestPathLength`. It produces two tables: the nodes with their rank\n" +
+            "in the hierarchy and the edges with the shortcuts added by the contraction\n" +
+            "(the id of the bypassed node, NULL for the edges of the graph). The tables must\n" +
+            "be dropped before contracting the graph again. Signatures: \n" +
+            "* `ST_ContractionHierarchy('input_edges', 'o[ - eo]')`\n" +
+            "* `ST_ContractionHierarchy('input_edges', 'o[ - eo]', 'w')`\n" +
+            "\n" +
+            "where \n" +
+            "* `input_edges` = Edges table produced by `ST_Graph` from table `input`\n" +
+            "* `o` = Global orientation (directed, reversed or undirected)\n" +
+            "* `eo` = Edge orientation (1 = directed, -1 = reversed, 0 = undirected).\n" +
+            "  Required if global orientation is directed or reversed.\n" +
+            "* `w` = Name of column containing edge weights as doubles\n";
+
+    /**
+     * Constructor
+     */
+    public ST_ContractionHierarchy() {
+        addProperty(PROP_REMARKS, REMARKS);
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "createContractionHierarchy";
+    }
+
+    /**
+     * Contract an unweighted graph.
+     *
+     * @param connection  Connection
+     * @param inputTable  Edges table produced by ST_Graph
+     * @param orientation Orientation string
+     * @return True if the hierarchy was stored
+     * @throws SQLException
+     */
+    public static boolean createContractionHierarchy(Connection connection,
+                                                     String inputTable,
+                                                     String orientation) throws SQLException {
+        return createContractionHierarchy(connection, inputTable, orientation, null);
+    }
+
+    /**
+     * Contract a graph and store its hierarchy in the input_NODE_CH and
+     * input_EDGE_CH tables.
+     *
+     * @param connection  Connection
+     * @param inputTable  Edges table produced by ST_Graph
+     * @param orientation Orientation string
+     * @param weight      Weight column name, null for unweighted graphs
+     * @return True if the hierarchy was stored
+     * @throws SQLException
+     */
+    public static boolean createContractionHierarchy(Connection connection,
+                                                     String inputTable,
+                                                     String orientation,
+                                                     String weight) throws SQLException {
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, orientation, weight);
+        final ContractionHierarchy hierarchy;
+        try {
+            LOGGER.info("Contracting the graph... ");
+            final long start = System.currentTimeMillis();
+            hierarchy = ContractionHierarchy.contract(graph);
+            logTime(LOGGER, start);
+        } finally {
+            releaseGraph(graph);
+        }
+
+        final TableLocation tableName = TableUtilities.parseInputTable(connection, inputTable);
+        final TableLocation nodesName = TableUtilities.suffixTableLocation(tableName, NODE_CH_SUFFIX);
+        final TableLocation edgesName = TableUtilities.suffixTableLocation(tableName, EDGE_CH_SUFFIX);
+        createTables(connection, nodesName, edgesName);
+        try {
+            store(connection, nodesName, edgesName, hierarchy);
+        } catch (SQLException e) {
+            cancel(connection, nodesName, edgesName, e, "Could not store the contraction hierarchy.");
+            return false;
+        }
+        return true;
+    }
+
+    private static void createTables(Connection connection,
+                                     TableLocation nodesName,
+                                     TableLocation edgesName) throws SQLException {
+        final Statement st = connection.createStatement();
+        try {
+            st.execute("CREATE TABLE " + nodesName + "(" +
+                    NODE_ID + " INTEGER PRIMARY KEY, " +
+                    CH_RANK + " INTEGER);");
+            st.execute("CREATE TABLE " + edgesName + "(" +
+                    START_NODE + " INTEGER, " +
+                    END_NODE + " INTEGER, " +
+                    WEIGHT + " DOUBLE, " +
+                    VIA_NODE + " INTEGER);");
+        } finally {
+            st.close();
+        }
+    }
+
+    private static void store(Connection connection,
+                              TableLocation nodesName,
+                              TableLocation edgesName,
+                              ContractionHierarchy hierarchy) throws SQLException {
+        LOGGER.info("Storing the contraction hierarchy... ");
+        final long start = System.currentTimeMillis();
+        final boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            storeNodes(connection, nodesName, hierarchy);
+            final PreparedStatement edgeSt =
+                    connection.prepareStatement("INSERT INTO " + edgesName + " VALUES(?,?,?,?)");
+            try {
+                int count = storeEdges(edgeSt, hierarchy, hierarchy.getUpwardGraph(), false, 0);
+                // The downward graph is reversed, its edges are stored in their direction
+                storeEdges(edgeSt, hierarchy, hierarchy.getDownwardGraph(), true, count);
+                edgeSt.executeBatch();
+            } finally {
+                edgeSt.close();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+        logTime(LOGGER, start);
+    }
+
+    private static void storeNodes(Connection connection,
+                                   TableLocation nodesName,
+                                   ContractionHierarchy hierarchy) throws SQLException {
+        final PreparedStatement nodeSt =
+                connection.prepareStatement("INSERT INTO " + nodesName + " VALUES(?,?)");
+        try {
+            for (int node = 0; node < hierarchy.getNodeCount(); node++) {
+                nodeSt.setInt(1, hierarchy.getNodeId(node));
+                nodeSt.setInt(2, hierarchy.getRank(node));
+                nodeSt.addBatch();
+                if ((node + 1) % BATCH_SIZE == 0) {
+                    nodeSt.executeBatch();
+                }
+            }
+            nodeSt.executeBatch();
+        } finally {
+            nodeSt.close();
+        }
+    }
+
+    private static int storeEdges(PreparedStatement edgeSt,
+                                  ContractionHierarchy hierarchy,
+                                  CSRGraph graph,
+                                  boolean reversed,
+                                  int count) throws SQLException {
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                final int target = graph.getTarget(edge);
+                edgeSt.setInt(1, hierarchy.getNodeId(reversed ? target : node));
+                edgeSt.setInt(2, hierarchy.getNodeId(reversed ? node : target));
+                edgeSt.setDouble(3, graph.getWeight(edge));
+                final int via = graph.getEdgeId(edge);
+                if (via == -1) {
+                    edgeSt.setNull(4, Types.INTEGER);
+                } else {
+                    edgeSt.setInt(4, hierarchy.getNodeId(via));
+                }
+                edgeSt.addBatch();
+                count++;
+                if (count % BATCH_SIZE == 0) {
+                    edgeSt.executeBatch();
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void cancel(Connection connection,
+                               TableLocation nodesName,
+                               TableLocation edgesName,
+                               SQLException e,
+                               String msg)
+            throws SQLException {
+        LOGGER.error(msg, e);
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute("DROP TABLE IF EXISTS " + nodesName);
+            statement.execute("DROP TABLE IF EXISTS " + edgesName);
+        } finally {
+            statement.close();
+        }
+    }
+}
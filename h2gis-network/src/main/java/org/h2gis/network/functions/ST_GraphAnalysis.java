@@ -136,8 +136,12 @@ public class ST_GraphAnalysis extends GraphFunction implements ScalarFunction {
                     doAnalysisAndReturnGraph(connection, inputTable, orientation, weight);
             final boolean previousAutoCommit = connection.getAutoCommit();
             connection.setAutoCommit(false);
-            storeNodeCentrality(connection, nodesName, graph);
-            storeEdgeCentrality(connection, edgesName, graph);
+            try {
+                storeNodeCentrality(connection, nodesName, graph);
+                storeEdgeCentrality(connection, edgesName, graph);
+            } finally {
+                releaseGraph(graph);
+            }
             connection.setAutoCommit(previousAutoCommit);
         } catch (SQLException e) {
             LOGGER.error("Problem creating centrality tables.");
@@ -161,11 +165,16 @@ public class ST_GraphAnalysis extends GraphFunction implements ScalarFunction {
             IllegalAccessException, InvocationTargetException {
         final KeyedGraph graph = prepareGraph(connection, inputTable, orientation, weight,
                 (weight == null) ? VUCent.class : VWCent.class, EdgeCent.class);
-        final DefaultProgressMonitor pm = new DefaultProgressMonitor();
-        GraphAnalyzer analyzer = (weight == null) ?
-                new UnweightedGraphAnalyzer(graph, pm) :
-                new WeightedGraphAnalyzer((WeightedGraph) graph, pm);
-        analyzer.computeAll();
+        try {
+            final DefaultProgressMonitor pm = new DefaultProgressMonitor();
+            GraphAnalyzer analyzer = (weight == null) ?
+                    new UnweightedGraphAnalyzer(graph, pm) :
+                    new WeightedGraphAnalyzer((WeightedGraph) graph, pm);
+            analyzer.computeAll();
+        } catch (Exception e) {
+            releaseGraph(graph);
+            throw e;
+        }
         return graph;
     }
 
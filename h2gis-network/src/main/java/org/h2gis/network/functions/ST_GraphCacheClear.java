@@ -0,0 +1,76 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Removes graphs from the {@link GraphCache}.
+ */
+public class ST_GraphCacheClear extends AbstractFunction implements ScalarFunction {
+
+    public static final String REMARKS =
+            "`ST_GraphCacheClear` removes the graphs kept in memory by the graph\n" +
+            "functions and returns the number of removed graphs. Possible signatures: \n" +
+            "* `ST_GraphCacheClear()` - All the graphs of the database\n" +
+            "* `ST_GraphCacheClear('input_edges')` - The graphs of one edges table\n" +
+            "\n" +
+            "where \n" +
+            "* `input_edges` = Edges table produced by `ST_Graph` from table `input`\n";
+
+    /**
+     * Constructor
+     */
+    public ST_GraphCacheClear() {
+        addProperty(PROP_REMARKS, REMARKS);
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "clearCache";
+    }
+
+    /**
+     * Remove all the cached graphs of the database.
+     *
+     * @param connection Connection
+     * @return Number of removed graphs
+     * @throws SQLException
+     */
+    public static int clearCache(Connection connection) throws SQLException {
+        return GraphCache.clear(connection, null);
+    }
+
+    /**
+     * Remove the cached graphs of an edges table.
+     *
+     * @param connection Connection
+     * @param inputTable Edges table produced by ST_Graph
+     * @return Number of removed graphs
+     * @throws SQLException
+     */
+    public static int clearCache(Connection connection, String inputTable) throws SQLException {
+        return GraphCache.clear(connection, inputTable);
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+
+import static org.h2gis.utilities.TableUtilities.isColumnListConnection;
+
+/**
+ * Lists the graphs of the {@link GraphCache}.
+ */
+public class ST_GraphCacheInfo extends AbstractFunction implements ScalarFunction {
+
+    public static final String REMARKS =
+            "`ST_GraphCacheInfo` lists the graphs of the database kept in memory by the\n" +
+            "graph functions, from the least to the most recently used. Signature: \n" +
+            "* `ST_GraphCacheInfo()`\n";
+
+    /**
+     * Constructor
+     */
+    public ST_GraphCacheInfo() {
+        addProperty(PROP_REMARKS, REMARKS);
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "getCacheInfo";
+    }
+
+    /**
+     * @param connection Connection
+     * @return Table of the cached graphs
+     * @throws SQLException
+     */
+    public static ResultSet getCacheInfo(Connection connection) throws SQLException {
+        final SimpleResultSet output = new SimpleResultSet();
+        output.addColumn("TABLE_NAME", Types.VARCHAR, Integer.MAX_VALUE, 0);
+        output.addColumn("ORIENTATION", Types.VARCHAR, Integer.MAX_VALUE, 0);
+        output.addColumn("EDGE_ORIENTATION", Types.VARCHAR, Integer.MAX_VALUE, 0);
+        output.addColumn("WEIGHT", Types.VARCHAR, Integer.MAX_VALUE, 0);
+        output.addColumn("VERTEX_TYPE", Types.VARCHAR, Integer.MAX_VALUE, 0);
+        output.addColumn("EDGE_COUNT", Types.INTEGER, 10, 0);
+        if (isColumnListConnection(connection)) {
+            return output;
+        }
+        for (Map.Entry<GraphCache.Key, Integer> entry : GraphCache.getEntries(connection)) {
+            final GraphCache.Key key = entry.getKey();
+            output.addRow(key.getTable(), key.getGlobalOrientation() == null ? null : key.getGlobalOrientation().name(), key.getEdgeOrientation(),
+                    key.getWeight(), key.getVertexClass().getSimpleName(), entry.getValue());
+        }
+        return output;
+    }
+}
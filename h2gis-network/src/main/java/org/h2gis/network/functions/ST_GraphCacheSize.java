@@ -0,0 +1,62 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+
+/**
+ * Sets the maximum size of the {@link GraphCache}.
+ */
+public class ST_GraphCacheSize extends AbstractFunction implements ScalarFunction {
+
+    public static final String REMARKS =
+            "`ST_GraphCacheSize` sets the maximum number of edges of the graphs kept in\n" +
+            "memory by the graph functions, and returns the previous value. The least\n" +
+            "recently used graphs are removed when the cache is full. Signature: \n" +
+            "* `ST_GraphCacheSize(n)`\n" +
+            "\n" +
+            "where \n" +
+            "* `n` = Maximum number of edges, 0 disables the cache (default).\n";
+
+    /**
+     * Constructor
+     */
+    public ST_GraphCacheSize() {
+        addProperty(PROP_REMARKS, REMARKS);
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "setCacheSize";
+    }
+
+    /**
+     * Set the maximum number of edges of the cached graphs.
+     *
+     * @param maxEdgeCount Maximum number of edges, 0 to disable the cache
+     * @return The previous maximum number of edges
+     */
+    public static long setCacheSize(long maxEdgeCount) {
+        final long previous = GraphCache.getMaxEdgeCount();
+        GraphCache.setMaxEdgeCount(maxEdgeCount);
+        return previous;
+    }
+}
@@ -53,14 +53,17 @@ public class ST_ShortestPath extends GraphFunction implements ScalarFunction {
     public static final String REMARKS =
             "`ST_ShortestPath` calculates the shortest path(s) between vertices in a graph.\n" +
             "Possible signatures:\n" +
-            "* `ST_ShortestPath('input_edges', 'o[ - eo]', s, d)`  - One-to-One\n" +
-            "* `ST_ShortestPath('input_edges', 'o[ - eo]', 'w', s, d)`  - One-to-One weighted\n" +
+            "* `ST_ShortestPath('input_edges', 'o[ - eo][ - search]', s, d)`  - One-to-One\n" +
+            "* `ST_ShortestPath('input_edges', 'o[ - eo][ - search]', 'w', s, d)`  - One-to-One weighted\n" +
             "\n" +
             "where\n" +
             "* `input_edges` = Edges table produced by `ST_Graph` from table `input`\n" +
             "* `o` = Global orientation (directed, reversed or undirected)\n" +
             "* `eo` = Edge orientation (1 = directed, -1 = reversed, 0 = undirected). Required\n" +
             "  if global orientation is directed or reversed.\n" +
+            "* `search` = `bidirectional` or `astar[(nodes_table)]` (A* bounded by the points\n" +
+            "  of the nodes table, by default `input_nodes`). Returns only one path when\n" +
+            "  several have the same length.\n" +
             "* `w` = Name of column containing edge weights as doubles\n" +
             "* `s` = Source vertex id\n" +
             "* `d` = Destination vertex id\n";
@@ -130,28 +133,98 @@ public class ST_ShortestPath extends GraphFunction implements ScalarFunction {
         if (isColumnListConnection(connection)) {
             return output;
         }
+        final GraphFunctionParser parser = new GraphFunctionParser();
+        parser.parseWeightAndOrientation(orientation, weight);
+        if (parser.getSearch() != GraphFunctionParser.Search.DIJKSTRA) {
+            final Map<Integer, Geometry> edgeGeometryMap = containsGeomField
+                    ? getEdgeGeometryMap(connection, tableName, firstGeometryField) : null;
+            addPath(connection, inputTable, parser, source, destination, output, edgeGeometryMap);
+            return output;
+        }
         // Do the calculation.
         final KeyedGraph<VDijkstra, Edge> graph =
                 prepareGraph(connection, inputTable, orientation, weight,
                         VDijkstra.class, Edge.class);
-        final Dijkstra<VDijkstra, Edge> dijkstra = new Dijkstra<VDijkstra, Edge>(graph);
-        final VDijkstra vDestination = graph.getVertex(destination);
-        final double distance = dijkstra.oneToOne(graph.getVertex(source), vDestination);
+        try {
+            final Dijkstra<VDijkstra, Edge> dijkstra = new Dijkstra<VDijkstra, Edge>(graph);
+            final VDijkstra vDestination = graph.getVertex(destination);
+            final double distance = dijkstra.oneToOne(graph.getVertex(source), vDestination);
 
-        if (distance != Double.POSITIVE_INFINITY) {           
-            // Need to create an object for the globalID recursion.
-            final ST_ShortestPath f = new ST_ShortestPath();
-            if (containsGeomField) {
-                final Map<Integer, Geometry> edgeGeometryMap =
-                        getEdgeGeometryMap(connection, tableName, firstGeometryField);
-                f.addPredEdges(graph, vDestination, output, edgeGeometryMap, 1);
-            } else {
-                f.addPredEdges(graph, vDestination, output, 1);
+            if (distance != Double.POSITIVE_INFINITY) {           
+                // Need to create an object for the globalID recursion.
+                final ST_ShortestPath f = new ST_ShortestPath();
+                if (containsGeomField) {
+                    final Map<Integer, Geometry> edgeGeometryMap =
+                            getEdgeGeometryMap(connection, tableName, firstGeometryField);
+                    f.addPredEdges(graph, vDestination, output, edgeGeometryMap, 1);
+                } else {
+                    f.addPredEdges(graph, vDestination, output, 1);
+                }
             }
+        } finally {
+            releaseGraph(graph);
         }
         return output;
     }
 
+    /**
+     * Add the edges of a shortest path found by the bidirectional or A*
+     * search. Contrary to Dijkstra's algorithm, these searches return only
+     * one path when several have the same length.
+     *
+     * @param connection  Connection
+     * @param inputTable  Edges table produced by ST_Graph
+     * @param parser      Parsed orientation and weight
+     * @param source      Source vertex id
+     * @param destination Destination vertex id
+     * @param output      Output
+     * @param edgeGeomMap Edge geometries, null if the input table contains no
+     *                    geometry field
+     * @throws SQLException
+     */
+    private static void addPath(Connection connection, String inputTable, GraphFunctionParser parser,
+                                int source, int destination, SimpleResultSet output,
+                                Map<Integer, Geometry> edgeGeomMap) throws SQLException {
+        final boolean aStar = parser.getSearch() == GraphFunctionParser.Search.ASTAR;
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, parser, aStar);
+        try {
+            final int sourceIndex = graph.checkedIndexOf(source);
+            final int destinationIndex = graph.checkedIndexOf(destination);
+            final CSRPath path;
+            if (aStar) {
+                final CSRDijkstra dijkstra = new CSRDijkstra(graph, true);
+                dijkstra.aStar(sourceIndex, destinationIndex);
+                path = dijkstra.getPath(destinationIndex);
+            } else {
+                final CSRBidirectionalDijkstra dijkstra = new CSRBidirectionalDijkstra(graph, true);
+                dijkstra.oneToOne(sourceIndex, destinationIndex);
+                path = dijkstra.getPath();
+            }
+            if (path == null) {
+                return;
+            }
+            // The undirected edges of an undirected graph keep their id in
+            // both directions.
+            final boolean undirected =
+                    parser.getGlobalOrientation() == GraphFunctionParser.Orientation.UNDIRECTED;
+            // Numbered from the destination as the paths found by Dijkstra
+            for (int i = path.size() - 1, localID = 1; i >= 0; i--, localID++) {
+                final int edgeID = undirected ? Math.abs(path.getEdgeId(i)) : path.getEdgeId(i);
+                final int edgeSource = graph.getNodeId(path.getSource(i));
+                final int edgeDestination = graph.getNodeId(path.getTarget(i));
+                if (edgeGeomMap != null) {
+                    output.addRow(edgeGeomMap.get(Math.abs(edgeID)), edgeID, 1, localID,
+                            edgeSource, edgeDestination, path.getWeight(i));
+                } else {
+                    output.addRow(edgeID, 1, localID,
+                            edgeSource, edgeDestination, path.getWeight(i));
+                }
+            }
+        } finally {
+            releaseGraph(graph);
+        }
+    }
+
     private void addPredEdges(KeyedGraph<VDijkstra, Edge> graph, VDijkstra dest, SimpleResultSet output,
                               Map<Integer, Geometry> edgeGeomMap, int localID) throws SQLException {
         // Rebuild the shortest path(s). (Yes, there could be more than
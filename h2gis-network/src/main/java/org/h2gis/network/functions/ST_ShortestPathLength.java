@@ -21,19 +21,17 @@ package org.h2gis.network.functions;
 
 
 import org.h2.tools.SimpleResultSet;
+import org.h2.tools.SimpleRowSource;
 import org.h2.value.Value;
 import org.h2.value.ValueInteger;
 import org.h2.value.ValueVarchar;
 import org.h2gis.api.ScalarFunction;
 import org.h2gis.utilities.JDBCUtilities;
-import org.javanetworkanalyzer.alg.Dijkstra;
-import org.javanetworkanalyzer.data.VDijkstra;
-import org.javanetworkanalyzer.model.Edge;
-import org.javanetworkanalyzer.model.KeyedGraph;
 
 import java.sql.*;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -41,8 +39,8 @@ import static org.h2gis.network.functions.GraphConstants.*;
 import static org.h2gis.utilities.TableUtilities.isColumnListConnection;
 
 /**
- * Calculates the length(s) of shortest path(s) between vertices in a JGraphT
- * graph produced from the input_edges table produced by ST_Graph.
+ * Calculates the length(s) of shortest path(s) between vertices in a
+ * {@link CSRGraph} produced from the input_edges table produced by ST_Graph.
  *
  * @author Adam Gouge
  */
@@ -51,17 +49,23 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
     public static final int SOURCE_INDEX = 1;
     public static final int DESTINATION_INDEX = 2;
     public static final int DISTANCE_INDEX = 3;
+    /**
+     * Session variable giving the number of threads of the Many-to-Many
+     * computations: 1 (the default) for a sequential computation, 0 for one
+     * thread per processor.
+     */
+    public static final String PARALLELISM = "@SHORTEST_PATH_PARALLELISM";
 
     public static final String REMARKS =
             "`ST_ShortestPathLength` calculates the length(s) of shortest path(s) among\n" +
             "vertices in a graph. Possible signatures:\n" +
             "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', s)` - One-to-All\n" +
             "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', 'sdt')` - Many-to-Many\n" +
-            "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', s, d)` - One-to-One\n" +
+            "* `ST_ShortestPathLength('input_edges', 'o[ - eo][ - search]', s, d)` - One-to-One\n" +
             "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', s, 'ds')` - One-to-Several\n" +
             "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', 'w', s)` - One-to-All weighted\n" +
             "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', 'w', 'sdt')` - Many-to-Many weighted\n" +
-            "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', 'w', s, d)` - One-to-One weighted\n" +
+            "* `ST_ShortestPathLength('input_edges', 'o[ - eo][ - search]', 'w', s, d)` - One-to-One weighted\n" +
             "* `ST_ShortestPathLength('input_edges', 'o[ - eo]', 'w', s, 'ds')` - One-to-Several weighted\n" +
             "\n" +
             "where\n" +
@@ -69,12 +73,18 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
             "* `o` = Global orientation (directed, reversed or undirected)\n" +
             "* `eo` = Edge orientation (1 = directed, -1 = reversed, 0 = undirected).\n" +
             "  Required if global orientation is directed or reversed.\n" +
+            "* `search` = One-to-One search: `bidirectional` or `astar[(nodes_table)]`\n" +
+            "  (A* bounded by the points of the nodes table, by default `input_nodes`),\n" +
+            "  rejected by the other signatures\n" +
             "* `w` = Name of column containing edge weights as doubles\n" +
             "* `s` = Source vertex id\n" +
             "* `d` = Destination vertex id\n" +
             "* `sdt` = Source-Destination table name (must contain columns\n" +
             "  " + SOURCE + " and " + DESTINATION + " containing integer vertex ids)\n" +
-            "* `ds` = Comma-separated Destination string ('dest1, dest2, ...')\n";
+            "* `ds` = Comma-separated Destination string ('dest1, dest2, ...')\n" +
+            "\n" +
+            "Many-to-Many distances are computed on several threads after\n" +
+            "`SET " + PARALLELISM + " = n` (0 = one thread per processor).\n";
 
 
     /**
@@ -248,13 +258,29 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
                                      int source,
                                      int destination) throws SQLException {
         final SimpleResultSet output = prepareResultSet();
-        final KeyedGraph<VDijkstra, Edge> graph =
-                prepareGraph(connection, inputTable, orientation, weight,
-                        VDijkstra.class, Edge.class);
-        // 7: (o, w, s, d)
-        final double distance = new Dijkstra<VDijkstra, Edge>(graph)
-                .oneToOne(graph.getVertex(source), graph.getVertex(destination));
-        output.addRow(source, destination, distance);
+        final GraphFunctionParser parser = new GraphFunctionParser();
+        parser.parseWeightAndOrientation(orientation, weight);
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, parser,
+                parser.getSearch() == GraphFunctionParser.Search.ASTAR);
+        try {
+            // 7: (o, w, s, d)
+            final int sourceIndex = graph.checkedIndexOf(source);
+            final int destinationIndex = graph.checkedIndexOf(destination);
+            final double distance;
+            switch (parser.getSearch()) {
+                case BIDIRECTIONAL:
+                    distance = new CSRBidirectionalDijkstra(graph, false).oneToOne(sourceIndex, destinationIndex);
+                    break;
+                case ASTAR:
+                    distance = new CSRDijkstra(graph).aStar(sourceIndex, destinationIndex);
+                    break;
+                default:
+                    distance = new CSRDijkstra(graph).oneToOne(sourceIndex, destinationIndex);
+            }
+            output.addRow(source, destination, distance);
+        } finally {
+            releaseGraph(graph);
+        }
         return output;
     }
 
@@ -264,14 +290,15 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
                                       String weight,
                                       int source) throws SQLException {
         final SimpleResultSet output = prepareResultSet();
-        final KeyedGraph<VDijkstra, Edge> graph =
-                prepareGraph(connection, inputTable, orientation, weight,
-                        VDijkstra.class, Edge.class);
-        // 5: (o, w, s)
-        final Map<VDijkstra,Double> distances = new Dijkstra<VDijkstra, Edge>(graph)
-                        .oneToMany(graph.getVertex(source), graph.vertexSet());
-        for (Map.Entry<VDijkstra, Double> e : distances.entrySet()) {
-            output.addRow(source, e.getKey().getID(), e.getValue());
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, orientation, weight);
+        try {
+            // 5: (o, w, s)
+            final double[] distances = new CSRDijkstra(graph).oneToAll(graph.checkedIndexOf(source));
+            for (int node = 0; node < distances.length; node++) {
+                output.addRow(source, graph.getNodeId(node), distances[node]);
+            }
+        } finally {
+            releaseGraph(graph);
         }
         return output;
     }
@@ -281,33 +308,35 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
                                         String orientation,
                                         String weight,
                                         String sourceDestinationTable) throws SQLException {
-        final SimpleResultSet output = prepareResultSet();
-        final KeyedGraph<VDijkstra, Edge> graph =
-                prepareGraph(connection, inputTable, orientation, weight,
-                        VDijkstra.class, Edge.class);
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, orientation, weight);
+        final int[] sources;
+        final int[][] destinations;
+        final int parallelism;
         final Statement st = connection.createStatement();
         try {
             // Prepare the source-destination map from the source-destination table.
-            Map<VDijkstra, Set<VDijkstra>> sourceDestinationMap =
+            Map<Integer, int[]> sourceDestinationMap =
                     prepareSourceDestinationMap(st, sourceDestinationTable, graph);
-
-            // Reusable Dijkstra object.
-            final Dijkstra<VDijkstra, Edge> dijkstra = new Dijkstra<VDijkstra, Edge>(graph);
-
-            // 6: (o, w, sdt). Do One-to-Many many times and store the results.
-            for (Map.Entry<VDijkstra, Set<VDijkstra>> sourceToDestSetMap : sourceDestinationMap.entrySet()) {
-                Map<VDijkstra, Double> distances =
-                        dijkstra.oneToMany(sourceToDestSetMap.getKey(),
-                                           sourceToDestSetMap.getValue());
-                for (Map.Entry<VDijkstra, Double> destToDistMap : distances.entrySet()) {
-                    output.addRow(sourceToDestSetMap.getKey().getID(),
-                            destToDistMap.getKey().getID(), destToDistMap.getValue());
-                }
+            sources = new int[sourceDestinationMap.size()];
+            destinations = new int[sourceDestinationMap.size()][];
+            int i = 0;
+            for (Map.Entry<Integer, int[]> sourceToDestSetMap : sourceDestinationMap.entrySet()) {
+                sources[i] = sourceToDestSetMap.getKey();
+                destinations[i] = sourceToDestSetMap.getValue();
+                i++;
             }
+            parallelism = getParallelism(st);
+        } catch (SQLException ex) {
+            releaseGraph(graph);
+            throw ex;
+        } catch (RuntimeException ex) {
+            releaseGraph(graph);
+            throw ex;
         } finally {
             st.close();
         }
-        return output;
+        // 6: (o, w, sdt). Do One-to-Many many times and store the results.
+        return manyToMany(graph, sources, destinations, parallelism);
     }
 
     private static ResultSet manyToManySeparateTables(
@@ -317,62 +346,152 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
             String weight,
             String sourceTable,
             String destTable) throws SQLException {
-        final SimpleResultSet output = prepareResultSet();
-        final KeyedGraph<VDijkstra, Edge> graph =
-                prepareGraph(connection, inputTable, orientation, weight,
-                        VDijkstra.class, Edge.class);
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, orientation, weight);
+        final int[] sourceSet;
+        final int[][] destinations;
+        final int parallelism;
         final Statement st = connection.createStatement();
         try {
-            final Set<VDijkstra> destSet = getSet(st, graph, destTable);
-            final Set<VDijkstra> sourceSet = getSet(st, graph, sourceTable);
-            final Dijkstra<VDijkstra, Edge> dijkstra = new Dijkstra<VDijkstra, Edge>(graph);
-            for (VDijkstra source : sourceSet) {
-                Map<VDijkstra, Double> distances =
-                        dijkstra.oneToMany(source, destSet);
-                for (Map.Entry<VDijkstra, Double> destToDistMap : distances.entrySet()) {
-                    output.addRow(source.getID(),
-                            destToDistMap.getKey().getID(), destToDistMap.getValue());
-                }
-            }
+            final int[] destSet = getSet(st, graph, destTable);
+            sourceSet = getSet(st, graph, sourceTable);
+            destinations = new int[sourceSet.length][];
+            Arrays.fill(destinations, destSet);
+            parallelism = getParallelism(st);
+        } catch (SQLException ex) {
+            releaseGraph(graph);
+            throw ex;
+        } catch (RuntimeException ex) {
+            releaseGraph(graph);
+            throw ex;
         } finally {
             st.close();
         }
+        return manyToMany(graph, sourceSet, destinations, parallelism);
+    }
+
+    /**
+     * Compute the distances from each source to its destinations, on
+     * {@code parallelism} threads. The graph is released once the distances
+     * are computed.
+     *
+     * @param graph        Graph
+     * @param sources      Source vertex indices
+     * @param destinations Destination vertex indices of each source
+     * @param parallelism  Number of threads
+     * @return Distances table
+     */
+    private static ResultSet manyToMany(CSRGraph graph, int[] sources, int[][] destinations,
+                                        int parallelism) {
+        if (parallelism > 1 && sources.length > 1) {
+            // The rows are produced as the searches finish
+            return prepareResultSet(new ManyToManyRowSource(graph, sources, destinations,
+                    Math.min(parallelism, sources.length)));
+        }
+        final SimpleResultSet output = prepareResultSet();
+        try {
+            // Reusable Dijkstra object.
+            final CSRDijkstra dijkstra = new CSRDijkstra(graph);
+            for (int i = 0; i < sources.length; i++) {
+                addRows(output, graph, sources[i], destinations[i],
+                        dijkstra.oneToMany(sources[i], destinations[i]));
+            }
+        } finally {
+            releaseGraph(graph);
+        }
         return output;
     }
 
     /**
-     * Puts the integers contained in the first column of the table in a Set of
-     * corresponding VDijkstra.
+     * Read the number of threads of the Many-to-Many computations from the
+     * {@link #PARALLELISM} session variable.
+     *
+     * @param st Statement
+     * @return Number of threads, 1 if the variable is not set
+     * @throws SQLException
+     */
+    private static int getParallelism(Statement st) throws SQLException {
+        final ResultSet rs = st.executeQuery("SELECT " + PARALLELISM);
+        try {
+            if (!rs.next()) {
+                return 1;
+            }
+            final int parallelism = rs.getInt(1);
+            if (rs.wasNull()) {
+                return 1;
+            }
+            if (parallelism < 0) {
+                throw new IllegalArgumentException("The parallelism cannot be negative: " + parallelism);
+            }
+            return parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * Add the distances from a source to its destinations to the output.
+     *
+     * @param output       Output
+     * @param graph        Graph
+     * @param source       Source vertex index
+     * @param destinations Destination vertex indices
+     * @param distances    Distances in the order of the destinations
+     */
+    private static void addRows(SimpleResultSet output, CSRGraph graph, int source,
+                                int[] destinations, double[] distances) {
+        final int sourceID = graph.getNodeId(source);
+        for (int i = 0; i < destinations.length; i++) {
+            output.addRow(sourceID, graph.getNodeId(destinations[i]), distances[i]);
+        }
+    }
+
+    /**
+     * Puts the integers contained in the first column of the table in a set of
+     * corresponding vertex indices.
      *
      * @param st        Statement
      * @param graph     Graph
      * @param tableName Table
-     * @return Set of VDijkstra
+     * @return Sorted vertex indices, without duplicates
      * @throws SQLException
      */
-    private static Set<VDijkstra> getSet(Statement st,
-            KeyedGraph<VDijkstra, Edge> graph, String tableName) throws SQLException {
+    private static int[] getSet(Statement st,
+            CSRGraph graph, String tableName) throws SQLException {
         final ResultSet intSet =
                 st.executeQuery("SELECT * FROM " + tableName);
         try {
-            final Set<VDijkstra> set = new HashSet<VDijkstra>();
+            int[] set = new int[16];
+            int size = 0;
             while (intSet.next()) {
-                final int vertexID = intSet.getInt(1);
-                final VDijkstra vertex = graph.getVertex(vertexID);
-                if (vertex == null) {
-                    throw new IllegalArgumentException("The graph does not contain vertex " + vertexID);
+                if (size == set.length) {
+                    set = Arrays.copyOf(set, size * 2);
                 }
-                set.add(vertex);
+                set[size++] = graph.checkedIndexOf(intSet.getInt(1));
             }
-            if (set.isEmpty()) {
+            if (size == 0) {
                 throw new IllegalArgumentException("Table " + tableName + " was empty.");
             }
-            return set;
+            return unique(Arrays.copyOf(set, size));
         } finally {
             intSet.close();
         }
     }
 
+    /**
+     * @param values Values
+     * @return The sorted values without duplicates
+     */
+    private static int[] unique(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
     private static ResultSet oneToSeveral(Connection connection,
                                           String inputTable,
                                           String orientation,
@@ -380,24 +499,19 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
                                           int source,
                                           String destString) throws SQLException {
         final SimpleResultSet output = prepareResultSet();
-        final KeyedGraph<VDijkstra, Edge> graph =
-                prepareGraph(connection, inputTable, orientation, weight,
-                        VDijkstra.class, Edge.class);
-
-        final int[] destIDs = GraphFunctionParser.parseDestinationsString(destString);
-        Set<VDijkstra> destSet = new HashSet<VDijkstra>();
-        for (int d : destIDs)  {
-            final VDijkstra dest = graph.getVertex(d);
-            if (dest == null) {
-                throw new IllegalArgumentException("The graph does not contain vertex " + d);
+        final CSRGraph graph = prepareCSRGraph(connection, inputTable, orientation, weight);
+        try {
+            final int[] destIDs = GraphFunctionParser.parseDestinationsString(destString);
+            int[] destSet = new int[destIDs.length];
+            for (int i = 0; i < destIDs.length; i++) {
+                destSet[i] = graph.checkedIndexOf(destIDs[i]);
             }
-            destSet.add(dest);
-        }
-        // 8: (o, w, s, ds)
-        final Map<VDijkstra, Double> distances = new Dijkstra<VDijkstra, Edge>(graph)
-                .oneToMany(graph.getVertex(source), destSet);
-        for (Map.Entry<VDijkstra, Double> e : distances.entrySet()) {
-            output.addRow(source, e.getKey().getID(), e.getValue());
+            destSet = unique(destSet);
+            // 8: (o, w, s, ds)
+            final int sourceIndex = graph.checkedIndexOf(source);
+            addRows(output, graph, sourceIndex, destSet, new CSRDijkstra(graph).oneToMany(sourceIndex, destSet));
+        } finally {
+            releaseGraph(graph);
         }
         return output;
     }
@@ -408,13 +522,13 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
      *
      * @param sourceDestinationTable Source-Destination table name
      * @param graph                  Graph
-     * @return Source-Destination map
+     * @return Source-Destination map of vertex indices
      * @throws SQLException
      */
-    private static Map<VDijkstra, Set<VDijkstra>> prepareSourceDestinationMap(
+    private static Map<Integer, int[]> prepareSourceDestinationMap(
             Statement st,
             String sourceDestinationTable,
-            KeyedGraph<VDijkstra, Edge> graph) throws SQLException {
+            CSRGraph graph) throws SQLException {
         final ResultSet sourceDestinationRS =
                 st.executeQuery("SELECT " +
                         SOURCE + ", " + DESTINATION +
@@ -422,14 +536,14 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
         try {
             // Make sure the source-destination table has columns named
             // SOURCE and DESTINATION. An SQLException is thrown if not.
-            Map<VDijkstra, Set<VDijkstra>> map = new HashMap<VDijkstra, Set<VDijkstra>>();
+            Map<Integer, Set<Integer>> map = new LinkedHashMap<Integer, Set<Integer>>();
             while (sourceDestinationRS.next()) {
-                final VDijkstra source = graph.getVertex(sourceDestinationRS.getInt(SOURCE_INDEX));
-                final VDijkstra destination = graph.getVertex(sourceDestinationRS.getInt(DESTINATION_INDEX));
-                Set<VDijkstra> targets = map.get(source);
+                final int source = graph.checkedIndexOf(sourceDestinationRS.getInt(SOURCE_INDEX));
+                final int destination = graph.checkedIndexOf(sourceDestinationRS.getInt(DESTINATION_INDEX));
+                Set<Integer> targets = map.get(source);
                 // Lazy initialize if the destinations set is null.
                 if (targets == null) {
-                    targets = new HashSet<VDijkstra>();
+                    targets = new HashSet<Integer>();
                     map.put(source, targets);
                 }
                 // Add the destination.
@@ -438,7 +552,16 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
             if (map.isEmpty()) {
                 throw new IllegalArgumentException("No sources/destinations requested.");
             }
-            return map;
+            Map<Integer, int[]> destinations = new LinkedHashMap<Integer, int[]>(map.size());
+            for (Map.Entry<Integer, Set<Integer>> entry : map.entrySet()) {
+                final int[] targets = new int[entry.getValue().size()];
+                int i = 0;
+                for (Integer target : entry.getValue()) {
+                    targets[i++] = target;
+                }
+                destinations.put(entry.getKey(), targets);
+            }
+            return destinations;
         } finally {
             sourceDestinationRS.close();
         }
@@ -451,7 +574,22 @@ public class ST_ShortestPathLength extends GraphFunction implements ScalarFuncti
      * DESTINATION and DISTANCE columns
      */
     private static SimpleResultSet prepareResultSet() {
-        SimpleResultSet output = new SimpleResultSet();
+        return addColumns(new SimpleResultSet());
+    }
+
+    /**
+     * Return a new {@link SimpleResultSet} reading its rows from the given
+     * source, with SOURCE, DESTINATION and DISTANCE columns.
+     *
+     * @param rowSource Row source
+     * @return a new {@link SimpleResultSet} with SOURCE, DESTINATION and
+     * DISTANCE columns
+     */
+    private static SimpleResultSet prepareResultSet(SimpleRowSource rowSource) {
+        return addColumns(new SimpleResultSet(rowSource));
+    }
+
+    private static SimpleResultSet addColumns(SimpleResultSet output) {
         output.addColumn(SOURCE, Types.INTEGER, 10, 0);
         output.addColumn(DESTINATION, Types.INTEGER, 10, 0);
         output.addColumn(DISTANCE, Types.DOUBLE, 10, 0);
@@ -0,0 +1,284 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.javanetworkanalyzer.alg.Dijkstra;
+import org.javanetworkanalyzer.data.VDijkstra;
+import org.javanetworkanalyzer.model.DirectedWeightedPseudoG;
+import org.javanetworkanalyzer.model.Edge;
+import org.javanetworkanalyzer.model.KeyedGraph;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CSRDijkstraTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CSRDijkstraTest.class);
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testSameDistancesAsKeyedGraph() {
+        final Random random = new Random(42);
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        final KeyedGraph<VDijkstra, Edge> keyedGraph =
+                new DirectedWeightedPseudoG<VDijkstra, Edge>(VDijkstra.class, Edge.class);
+        for (int id = 1; id <= 1000; id++) {
+            final int source = 1 + random.nextInt(200);
+            final int target = 1 + random.nextInt(200);
+            final double weight = random.nextInt(100) / 10.;
+            builder.addEdge(source, target, id, weight);
+            keyedGraph.addEdge(source, target, id).setWeight(weight);
+        }
+        final CSRGraph graph = builder.build();
+        assertEquals(keyedGraph.vertexSet().size(), graph.getNodeCount());
+        assertEquals(1000, graph.getEdgeCount());
+        final Dijkstra<VDijkstra, Edge> dijkstra = new Dijkstra<VDijkstra, Edge>(keyedGraph);
+        final CSRDijkstra csrDijkstra = new CSRDijkstra(graph);
+        for (int node = 0; node < graph.getNodeCount(); node += 7) {
+            final int sourceID = graph.getNodeId(node);
+            final Map<VDijkstra, Double> expected =
+                    dijkstra.oneToMany(keyedGraph.getVertex(sourceID), keyedGraph.vertexSet());
+            final double[] distances = csrDijkstra.oneToAll(node);
+            for (Map.Entry<VDijkstra, Double> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), distances[graph.checkedIndexOf(entry.getKey().getID())], TOLERANCE);
+            }
+            // The searches stopping before the end find the same distances
+            final int[] destinations = {(node + 3) % graph.getNodeCount(), (node + 50) % graph.getNodeCount(), node};
+            final double[] oneToMany = csrDijkstra.oneToMany(node, destinations);
+            for (int i = 0; i < destinations.length; i++) {
+                assertEquals(distances[destinations[i]], oneToMany[i], TOLERANCE);
+                assertEquals(distances[destinations[i]], csrDijkstra.oneToOne(node, destinations[i]), TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void testUnreachable() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        builder.addEdge(1, 2, 1, 1.0);
+        builder.addEdge(3, 4, 2, 1.0);
+        final CSRGraph graph = builder.build();
+        final CSRDijkstra dijkstra = new CSRDijkstra(graph);
+        assertEquals(Double.POSITIVE_INFINITY, dijkstra.oneToOne(graph.checkedIndexOf(1), graph.checkedIndexOf(4)));
+        assertEquals(1.0, dijkstra.oneToOne(graph.checkedIndexOf(1), graph.checkedIndexOf(2)));
+        assertEquals(Double.POSITIVE_INFINITY, dijkstra.oneToOne(graph.checkedIndexOf(2), graph.checkedIndexOf(1)));
+        assertEquals(-1, graph.indexOf(5));
+        assertThrows(IllegalArgumentException.class, () -> graph.checkedIndexOf(5));
+    }
+
+    @Test
+    public void testBidirectionalAndAStar() {
+        // Jittered grid whose weights are at least the Euclidean lengths
+        final Random random = new Random(42);
+        final int size = 30;
+        final double[] x = new double[size * size];
+        final double[] y = new double[size * size];
+        for (int node = 0; node < x.length; node++) {
+            x[node] = node % size + random.nextDouble() / 2;
+            y[node] = node / size + random.nextDouble() / 2;
+        }
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        int edgeId = 1;
+        for (int node = 0; node < x.length; node++) {
+            for (int neighbour : new int[]{node + 1, node + size}) {
+                if (neighbour < x.length && (neighbour != node + 1 || neighbour % size != 0)) {
+                    final double length = Math.hypot(x[node] - x[neighbour], y[node] - y[neighbour]);
+                    // One-way edges in both directions
+                    builder.addEdge(node, neighbour, edgeId++, length * (1 + random.nextDouble()));
+                    if (random.nextInt(4) != 0) {
+                        builder.addEdge(neighbour, node, edgeId++, length * (1 + random.nextDouble()));
+                    }
+                }
+            }
+        }
+        final CSRGraph graph = builder.build().withCoordinates(x, y);
+        final CSRDijkstra dijkstra = new CSRDijkstra(graph);
+        final CSRDijkstra aStar = new CSRDijkstra(graph, true);
+        final CSRBidirectionalDijkstra bidirectional = new CSRBidirectionalDijkstra(graph, true);
+        for (int i = 0; i < 200; i++) {
+            final int source = random.nextInt(graph.getNodeCount());
+            final int destination = random.nextInt(graph.getNodeCount());
+            final double expected = dijkstra.oneToOne(source, destination);
+            assertEquals(expected, aStar.aStar(source, destination), TOLERANCE);
+            checkPath(aStar.getPath(destination), source, destination, expected);
+            assertEquals(expected, bidirectional.oneToOne(source, destination), TOLERANCE);
+            checkPath(bidirectional.getPath(), source, destination, expected);
+        }
+    }
+
+    @Test
+    public void testDijkstraAfterAStar() {
+        final Random random = new Random(7);
+        final int size = 20;
+        final double[] x = new double[size * size];
+        final double[] y = new double[size * size];
+        for (int node = 0; node < x.length; node++) {
+            x[node] = node % size + random.nextDouble() / 2;
+            y[node] = node / size + random.nextDouble() / 2;
+        }
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        int edgeId = 1;
+        for (int node = 0; node < x.length; node++) {
+            for (int neighbour : new int[]{node + 1, node + size}) {
+                if (neighbour < x.length && (neighbour != node + 1 || neighbour % size != 0)) {
+                    final double length = Math.hypot(x[node] - x[neighbour], y[node] - y[neighbour]);
+                    builder.addEdge(node, neighbour, edgeId++, length * (1 + 3 * random.nextDouble()));
+                    builder.addEdge(neighbour, node, edgeId++, length * (1 + 3 * random.nextDouble()));
+                }
+            }
+        }
+        final CSRGraph graph = builder.build().withCoordinates(x, y);
+        // The same instance runs an A* search before each Dijkstra search
+        final CSRDijkstra reused = new CSRDijkstra(graph);
+        for (int i = 0; i < 50; i++) {
+            final int source = random.nextInt(graph.getNodeCount());
+            final int destination = random.nextInt(graph.getNodeCount());
+            final double[] expected = new CSRDijkstra(graph).oneToAll(source);
+            assertEquals(expected[destination], reused.aStar(source, destination), TOLERANCE);
+            assertArrayEquals(expected, reused.oneToAll(source), TOLERANCE);
+            reused.aStar(destination, source);
+            assertEquals(expected[destination], reused.oneToOne(source, destination), TOLERANCE);
+            reused.aStar(destination, source);
+            final int[] destinations = {destination, (destination + 1) % graph.getNodeCount()};
+            final double[] oneToMany = reused.oneToMany(source, destinations);
+            for (int j = 0; j < destinations.length; j++) {
+                assertEquals(expected[destinations[j]], oneToMany[j], TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void testBidirectionalUnreachable() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        builder.addEdge(1, 2, 1, 1.0);
+        builder.addEdge(3, 2, 2, 1.0);
+        final CSRGraph graph = builder.build();
+        final CSRBidirectionalDijkstra dijkstra = new CSRBidirectionalDijkstra(graph, true);
+        assertEquals(Double.POSITIVE_INFINITY, dijkstra.oneToOne(graph.checkedIndexOf(1), graph.checkedIndexOf(3)));
+        assertNull(dijkstra.getPath());
+        assertEquals(0.0, dijkstra.oneToOne(graph.checkedIndexOf(1), graph.checkedIndexOf(1)));
+        assertEquals(0, dijkstra.getPath().size());
+        assertThrows(IllegalArgumentException.class, () -> new CSRDijkstra(graph).aStar(0, 1));
+    }
+
+    private static void checkPath(CSRPath path, int source, int destination, double distance) {
+        if (distance == Double.POSITIVE_INFINITY) {
+            assertNull(path);
+            return;
+        }
+        double length = 0;
+        int node = source;
+        for (int i = 0; i < path.size(); i++) {
+            assertEquals(node, path.getSource(i));
+            node = path.getTarget(i);
+            length += path.getWeight(i);
+        }
+        assertEquals(destination, node);
+        assertEquals(distance, length, TOLERANCE);
+    }
+
+    /**
+     * Compare the memory footprint and the one-to-all search time of the
+     * {@link KeyedGraph} and {@link CSRGraph} structures on a grid.
+     */
+    @Disabled
+    @Test
+    public void benchmarkGrid() {
+        // 1600 x 1600 vertices, about 10M directed edges
+        final int size = 1600;
+        final int queries = 10;
+        final Random random = new Random(42);
+        final double[] weights = new double[2 * size * size];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 1 + random.nextDouble();
+        }
+        final Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+        long memory = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.currentTimeMillis();
+        final CSRGraph.Builder builder = new CSRGraph.Builder(4 * size * size);
+        int edgeId = 1;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int node = i * size + j;
+                if (j + 1 < size) {
+                    builder.addEdge(node, node + 1, edgeId, weights[2 * node]);
+                    builder.addEdge(node + 1, node, -edgeId, weights[2 * node]);
+                    edgeId++;
+                }
+                if (i + 1 < size) {
+                    builder.addEdge(node, node + size, edgeId, weights[2 * node + 1]);
+                    builder.addEdge(node + size, node, -edgeId, weights[2 * node + 1]);
+                    edgeId++;
+                }
+            }
+        }
+        final CSRGraph graph = builder.build();
+        System.gc();
+        LOGGER.info("CSR graph: " + graph.getEdgeCount() + " edges, built in "
+                + (System.currentTimeMillis() - start) + " ms, "
+                + (runtime.totalMemory() - runtime.freeMemory() - memory) / (1024 * 1024) + " MB");
+        final CSRDijkstra csrDijkstra = new CSRDijkstra(graph);
+        start = System.currentTimeMillis();
+        for (int q = 0; q < queries; q++) {
+            csrDijkstra.oneToAll(random.nextInt(graph.getNodeCount()));
+        }
+        LOGGER.info("CSR one-to-all: " + (System.currentTimeMillis() - start) / queries + " ms per query");
+
+        System.gc();
+        memory = runtime.totalMemory() - runtime.freeMemory();
+        start = System.currentTimeMillis();
+        final KeyedGraph<VDijkstra, Edge> keyedGraph =
+                new DirectedWeightedPseudoG<VDijkstra, Edge>(VDijkstra.class, Edge.class);
+        edgeId = 1;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int node = i * size + j;
+                if (j + 1 < size) {
+                    keyedGraph.addEdge(node, node + 1, edgeId).setWeight(weights[2 * node]);
+                    keyedGraph.addEdge(node + 1, node, -edgeId).setWeight(weights[2 * node]);
+                    edgeId++;
+                }
+                if (i + 1 < size) {
+                    keyedGraph.addEdge(node, node + size, edgeId).setWeight(weights[2 * node + 1]);
+                    keyedGraph.addEdge(node + size, node, -edgeId).setWeight(weights[2 * node + 1]);
+                    edgeId++;
+                }
+            }
+        }
+        System.gc();
+        LOGGER.info("Keyed graph: " + keyedGraph.edgeSet().size() + " edges, built in "
+                + (System.currentTimeMillis() - start) + " ms, "
+                + (runtime.totalMemory() - runtime.freeMemory() - memory) / (1024 * 1024) + " MB");
+        final Dijkstra<VDijkstra, Edge> dijkstra = new Dijkstra<VDijkstra, Edge>(keyedGraph);
+        start = System.currentTimeMillis();
+        for (int q = 0; q < queries; q++) {
+            dijkstra.oneToMany(keyedGraph.getVertex(random.nextInt(size * size)), keyedGraph.vertexSet());
+        }
+        LOGGER.info("Keyed graph one-to-all: " + (System.currentTimeMillis() - start) / queries + " ms per query");
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContractionHierarchyTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testSameDistancesAsDijkstra() {
+        final Random random = new Random(42);
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        for (int id = 1; id <= 1500; id++) {
+            final int source = 1 + random.nextInt(300);
+            final int target = 1 + random.nextInt(300);
+            builder.addEdge(source, target, id, random.nextInt(100) / 10.);
+        }
+        final CSRGraph graph = builder.build();
+        final ContractionHierarchy hierarchy = ContractionHierarchy.contract(graph);
+        assertEquals(graph.getNodeCount(), hierarchy.getNodeCount());
+        final CSRDijkstra dijkstra = new CSRDijkstra(graph);
+        final CHDijkstra chDijkstra = new CHDijkstra(hierarchy);
+        final int[] destinations = new int[graph.getNodeCount()];
+        for (int node = 0; node < destinations.length; node++) {
+            destinations[node] = hierarchy.checkedIndexOf(graph.getNodeId(node));
+        }
+        for (int node = 0; node < graph.getNodeCount(); node += 5) {
+            final double[] expected = dijkstra.oneToAll(node);
+            final int source = hierarchy.checkedIndexOf(graph.getNodeId(node));
+            final double[] oneToMany = chDijkstra.oneToMany(source, destinations);
+            for (int target = 0; target < expected.length; target++) {
+                assertEquals(expected[target], oneToMany[target], TOLERANCE);
+                assertEquals(expected[target], chDijkstra.oneToOne(source, destinations[target]), TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void testBuilderRoundTrip() {
+        final Random random = new Random(7);
+        final CSRGraph.Builder graphBuilder = new CSRGraph.Builder();
+        for (int id = 1; id <= 400; id++) {
+            graphBuilder.addEdge(random.nextInt(100), random.nextInt(100), id, 1 + random.nextInt(10));
+        }
+        final ContractionHierarchy hierarchy = ContractionHierarchy.contract(graphBuilder.build());
+        // Store the hierarchy as ST_ContractionHierarchy does and read it back
+        final ContractionHierarchy.Builder builder = new ContractionHierarchy.Builder();
+        for (int node = 0; node < hierarchy.getNodeCount(); node++) {
+            builder.addNode(hierarchy.getNodeId(node), hierarchy.getRank(node));
+        }
+        addEdges(builder, hierarchy, hierarchy.getUpwardGraph(), false);
+        addEdges(builder, hierarchy, hierarchy.getDownwardGraph(), true);
+        final ContractionHierarchy copy = builder.build();
+        assertEquals(hierarchy.getEdgeCount(), copy.getEdgeCount());
+        final CHDijkstra expected = new CHDijkstra(hierarchy);
+        final CHDijkstra actual = new CHDijkstra(copy);
+        for (int source = 0; source < hierarchy.getNodeCount(); source += 3) {
+            for (int target = 0; target < hierarchy.getNodeCount(); target++) {
+                assertEquals(expected.oneToOne(source, target), actual.oneToOne(source, target), TOLERANCE);
+            }
+        }
+    }
+
+    private static void addEdges(ContractionHierarchy.Builder builder, ContractionHierarchy hierarchy,
+                                 CSRGraph graph, boolean reversed) {
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                final int start = hierarchy.getNodeId(reversed ? graph.getTarget(edge) : node);
+                final int end = hierarchy.getNodeId(reversed ? node : graph.getTarget(edge));
+                final int via = graph.getEdgeId(edge);
+                if (via == -1) {
+                    builder.addEdge(start, end, graph.getWeight(edge));
+                } else {
+                    builder.addShortcut(start, end, graph.getWeight(edge), hierarchy.getNodeId(via));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnreachable() {
+        final CSRGraph.Builder builder = new CSRGraph.Builder();
+        builder.addEdge(1, 2, 1, 1.0);
+        builder.addEdge(2, 3, 2, 2.0);
+        builder.addEdge(4, 3, 3, 1.0);
+        final ContractionHierarchy hierarchy = ContractionHierarchy.contract(builder.build());
+        final CHDijkstra dijkstra = new CHDijkstra(hierarchy);
+        final int one = hierarchy.checkedIndexOf(1);
+        final int three = hierarchy.checkedIndexOf(3);
+        final int four = hierarchy.checkedIndexOf(4);
+        assertEquals(3.0, dijkstra.oneToOne(one, three), TOLERANCE);
+        assertEquals(Double.POSITIVE_INFINITY, dijkstra.oneToOne(three, one), TOLERANCE);
+        assertEquals(Double.POSITIVE_INFINITY, dijkstra.oneToOne(one, four), TOLERANCE);
+        assertArrayEquals(new double[]{0.0, 3.0, Double.POSITIVE_INFINITY},
+                dijkstra.oneToMany(one, new int[]{one, three, four}), TOLERANCE);
+        assertEquals(-1, hierarchy.indexOf(5));
+        assertThrows(IllegalArgumentException.class, () -> hierarchy.checkedIndexOf(5));
+    }
+}
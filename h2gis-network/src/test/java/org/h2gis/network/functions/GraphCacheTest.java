@@ -0,0 +1,174 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2gis.functions.factory.H2GISDBFactory;
+import org.h2gis.functions.factory.H2GISFunctions;
+import org.javanetworkanalyzer.data.VDijkstra;
+import org.javanetworkanalyzer.model.Edge;
+import org.javanetworkanalyzer.model.KeyedGraph;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphCacheTest {
+
+    private static Connection connection;
+    private Statement st;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        // Keep a connection alive to not close the DataBase on each unit test
+        connection = H2GISDBFactory.createSpatialDataBase("GraphCacheTest", true);
+        final Statement st = connection.createStatement();
+        H2GISFunctions.registerFunction(st, new ST_ShortestPathLength(), "");
+        H2GISFunctions.registerFunction(st, new ST_GraphCacheSize(), "");
+        H2GISFunctions.registerFunction(st, new ST_GraphCacheClear(), "");
+        H2GISFunctions.registerFunction(st, new ST_GraphCacheInfo(), "");
+        H2GISFunctions.registerFunction(st, new ST_GraphAnalysis(), "");
+        GraphCreatorTest.registerCormenGraph(connection);
+        st.execute("CREATE TABLE CACHE_EDGES AS SELECT * FROM CORMEN_EDGES_ALL");
+        st.close();
+    }
+
+    @BeforeEach
+    public void setUpStatement() throws Exception {
+        st = connection.createStatement();
+        st.execute("SELECT ST_GraphCacheSize(1000)");
+    }
+
+    @AfterEach
+    public void tearDownStatement() throws Exception {
+        st.execute("SELECT ST_GraphCacheClear()");
+        st.execute("SELECT ST_GraphCacheSize(0)");
+        st.close();
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        connection.close();
+    }
+
+    private double oneToOne(String table, int source, int destination) throws SQLException {
+        ResultSet rs = st.executeQuery("SELECT * FROM ST_ShortestPathLength('" + table + "', " +
+                "'directed - edge_orientation', 'weight', " + source + ", " + destination + ")");
+        try {
+            assertTrue(rs.next());
+            return rs.getDouble(ST_ShortestPathLength.DISTANCE_INDEX);
+        } finally {
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testGraphReused() throws SQLException {
+        KeyedGraph<VDijkstra, Edge> graph = GraphFunction.prepareGraph(connection, "CORMEN_EDGES_ALL",
+                "directed - edge_orientation", "weight", VDijkstra.class, Edge.class);
+        GraphFunction.releaseGraph(graph);
+        KeyedGraph<VDijkstra, Edge> cached = GraphFunction.prepareGraph(connection, "CORMEN_EDGES_ALL",
+                "directed - edge_orientation", "weight", VDijkstra.class, Edge.class);
+        assertSame(graph, cached);
+        // The graph is lent to one caller at a time
+        KeyedGraph<VDijkstra, Edge> other = GraphFunction.prepareGraph(connection, "CORMEN_EDGES_ALL",
+                "directed - edge_orientation", "weight", VDijkstra.class, Edge.class);
+        assertNotSame(cached, other);
+        GraphFunction.releaseGraph(cached);
+        GraphFunction.releaseGraph(other);
+        // Another orientation is another graph
+        KeyedGraph<VDijkstra, Edge> undirected = GraphFunction.prepareGraph(connection, "CORMEN_EDGES_ALL",
+                "undirected", "weight", VDijkstra.class, Edge.class);
+        assertNotSame(graph, undirected);
+        GraphFunction.releaseGraph(undirected);
+    }
+
+    @Test
+    public void testCacheInfoAndClear() throws SQLException {
+        assertEquals(8.0, oneToOne("CORMEN_EDGES_ALL", 1, 2), 0.0);
+        assertEquals(8.0, oneToOne("CORMEN_EDGES_ALL", 1, 2), 0.0);
+        ResultSet rs = st.executeQuery("SELECT * FROM ST_GraphCacheInfo()");
+        assertTrue(rs.next());
+        assertEquals("CORMEN_EDGES_ALL", rs.getString("TABLE_NAME"));
+        assertEquals("DIRECTED", rs.getString("ORIENTATION"));
+        assertEquals("EDGE_ORIENTATION", rs.getString("EDGE_ORIENTATION"));
+        assertEquals("WEIGHT", rs.getString("WEIGHT"));
+        // Undirected edge 10 is stored in both directions
+        assertEquals(11, rs.getInt("EDGE_COUNT"));
+        assertFalse(rs.next());
+        rs.close();
+        rs = st.executeQuery("SELECT ST_GraphCacheClear('CORMEN_EDGES_ALL')");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT * FROM ST_GraphCacheInfo()");
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    @Test
+    public void testTableModification() throws SQLException {
+        assertEquals(8.0, oneToOne("CACHE_EDGES", 1, 2), 0.0);
+        st.execute("UPDATE CACHE_EDGES SET WEIGHT = WEIGHT * 2");
+        assertEquals(16.0, oneToOne("CACHE_EDGES", 1, 2), 0.0);
+        st.execute("UPDATE CACHE_EDGES SET WEIGHT = WEIGHT / 2");
+        assertEquals(8.0, oneToOne("CACHE_EDGES", 1, 2), 0.0);
+    }
+
+    @Test
+    public void testGraphAnalysisNotReused() throws SQLException {
+        // The centrality indices are accumulated in the graph, a second analysis
+        // must not start from the results of the first one
+        for (String weight : new String[]{"", ", 'weight'"}) {
+            st.execute("DROP TABLE IF EXISTS CACHE_EDGES_NODE_CENT, CACHE_EDGES_EDGE_CENT, FIRST_NODE_CENT, FIRST_EDGE_CENT");
+            st.execute("SELECT ST_GraphAnalysis('CACHE_EDGES', 'directed - edge_orientation'" + weight + ")");
+            st.execute("ALTER TABLE CACHE_EDGES_NODE_CENT RENAME TO FIRST_NODE_CENT");
+            st.execute("ALTER TABLE CACHE_EDGES_EDGE_CENT RENAME TO FIRST_EDGE_CENT");
+            st.execute("SELECT ST_GraphAnalysis('CACHE_EDGES', 'directed - edge_orientation'" + weight + ")");
+            ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM (SELECT * FROM FIRST_NODE_CENT " +
+                    "EXCEPT SELECT * FROM CACHE_EDGES_NODE_CENT)");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+            rs.close();
+            rs = st.executeQuery("SELECT COUNT(*) FROM (SELECT * FROM FIRST_EDGE_CENT " +
+                    "EXCEPT SELECT * FROM CACHE_EDGES_EDGE_CENT)");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+            rs.close();
+        }
+        st.execute("DROP TABLE CACHE_EDGES_NODE_CENT, CACHE_EDGES_EDGE_CENT, FIRST_NODE_CENT, FIRST_EDGE_CENT");
+    }
+
+    @Test
+    public void testEviction() throws SQLException {
+        // Only one graph of 11 edges fits in the cache
+        st.execute("SELECT ST_GraphCacheSize(15)");
+        oneToOne("CORMEN_EDGES_ALL", 1, 2);
+        oneToOne("CACHE_EDGES", 1, 2);
+        ResultSet rs = st.executeQuery("SELECT TABLE_NAME FROM ST_GraphCacheInfo()");
+        assertTrue(rs.next());
+        assertEquals("CACHE_EDGES", rs.getString(1));
+        assertFalse(rs.next());
+        rs.close();
+    }
+}
@@ -344,6 +344,72 @@ public class GraphCreatorTest {
         checkEdge(graph, 10, 5, 1, 7.0);
     }
 
+    @Test
+    public void testCSRWDO() throws SQLException {
+        final CSRGraph graph = new GraphCreator(connection,
+                "CORMEN_EDGES_ALL",
+                GraphFunctionParser.Orientation.DIRECTED, "edge_orientation", "weight").prepareCSRGraph();
+        assertEquals(5, graph.getNodeCount());
+        assertEquals(11, graph.getEdgeCount());
+        checkEdge(graph, 1, 1, 2, 10.0);
+        checkEdge(graph, 2, 4, 2, 1.0);
+        checkEdge(graph, 3, 2, 3, 2.0);
+        checkEdge(graph, 4, 3, 2, 3.0);
+        checkEdge(graph, 5, 1, 3, 5.0);
+        checkEdge(graph, 6, 3, 4, 9.0);
+        checkEdge(graph, 7, 3, 5, 2.0);
+        checkEdge(graph, 8, 4, 5, 4.0);
+        checkEdge(graph, 9, 5, 4, 6.0);
+        checkEdge(graph, 10, 5, 1, 7.0);
+        checkEdge(graph, -10, 1, 5, 7.0);
+    }
+
+    @Test
+    public void testCSRRO() throws SQLException {
+        final CSRGraph graph = new GraphCreator(connection,
+                "CORMEN_EDGES_ALL",
+                GraphFunctionParser.Orientation.REVERSED, "edge_orientation", null).prepareCSRGraph();
+        assertEquals(5, graph.getNodeCount());
+        assertEquals(11, graph.getEdgeCount());
+        checkEdge(graph, 1, 2, 1, 1.0);
+        checkEdge(graph, 2, 2, 4, 1.0);
+        checkEdge(graph, 3, 3, 2, 1.0);
+        checkEdge(graph, 4, 2, 3, 1.0);
+        checkEdge(graph, 5, 3, 1, 1.0);
+        checkEdge(graph, 6, 4, 3, 1.0);
+        checkEdge(graph, 7, 5, 3, 1.0);
+        checkEdge(graph, 8, 5, 4, 1.0);
+        checkEdge(graph, 9, 4, 5, 1.0);
+        checkEdge(graph, 10, 1, 5, 1.0);
+        checkEdge(graph, -10, 5, 1, 1.0);
+    }
+
+    @Test
+    public void testCSRWU() throws SQLException {
+        final CSRGraph graph = new GraphCreator(connection,
+                "CORMEN_EDGES_ALL",
+                GraphFunctionParser.Orientation.UNDIRECTED, null, "weight").prepareCSRGraph();
+        assertEquals(5, graph.getNodeCount());
+        // Undirected edges are stored in both directions
+        assertEquals(20, graph.getEdgeCount());
+        checkEdge(graph, 1, 1, 2, 10.0);
+        checkEdge(graph, -1, 2, 1, 10.0);
+        checkEdge(graph, 6, 3, 4, 9.0);
+        checkEdge(graph, -6, 4, 3, 9.0);
+    }
+
+    private void checkEdge(CSRGraph graph, int id, int source, int dest, double weight) {
+        final int sourceIndex = graph.checkedIndexOf(source);
+        for (int edge = graph.getFirstEdge(sourceIndex); edge < graph.getLastEdge(sourceIndex); edge++) {
+            if (graph.getEdgeId(edge) == id) {
+                assertEquals(dest, graph.getNodeId(graph.getTarget(edge)));
+                assertEquals(weight, graph.getWeight(edge), TOLERANCE);
+                return;
+            }
+        }
+        fail("Edge " + id + " not found");
+    }
+
     private void checkEdge(KeyedGraph<VDijkstra, Edge> graph, int id, int source, int dest) {
         checkEdge(graph, id, source, dest, 1.0);
     }
@@ -156,6 +156,41 @@ public class GraphFunctionParserTest {
         assertEquals(local, p.getEdgeOrientation());
     }
 
+    @Test
+    public void testSearchOption() {
+        GraphFunctionParser p = new GraphFunctionParser();
+        p.parseWeightAndOrientation("directed - edge_orientation", "weight");
+        assertEquals(GraphFunctionParser.Search.DIJKSTRA, p.getSearch());
+        p = new GraphFunctionParser();
+        p.parseWeightAndOrientation("directed - edge_orientation - bidirectional", "weight");
+        checkWeightAndOrientation(p, "weight", GraphFunctionParser.Orientation.DIRECTED, "edge_orientation");
+        assertEquals(GraphFunctionParser.Search.BIDIRECTIONAL, p.getSearch());
+        p = new GraphFunctionParser();
+        p.parseWeightAndOrientation("undirected - AStar", null);
+        checkWeightAndOrientation(p, null, GraphFunctionParser.Orientation.UNDIRECTED, null);
+        assertEquals(GraphFunctionParser.Search.ASTAR, p.getSearch());
+        assertNull(p.getNodesTable());
+        p = new GraphFunctionParser();
+        p.parseWeightAndOrientation("weight", "reversed - edge_orientation - astar( roads_nodes )");
+        checkWeightAndOrientation(p, "weight", GraphFunctionParser.Orientation.REVERSED, "edge_orientation");
+        assertEquals(GraphFunctionParser.Search.ASTAR, p.getSearch());
+        assertEquals("roads_nodes", p.getNodesTable());
+        // The separator in the nodes table name is not a separator of the orientation
+        p = new GraphFunctionParser();
+        p.parseWeightAndOrientation("directed - edge_orientation - astar(my-nodes)", "weight");
+        checkWeightAndOrientation(p, "weight", GraphFunctionParser.Orientation.DIRECTED, "edge_orientation");
+        assertEquals(GraphFunctionParser.Search.ASTAR, p.getSearch());
+        assertEquals("my-nodes", p.getNodesTable());
+    }
+
+    @Test
+    public void testSearchOptionFail() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new GraphFunctionParser().parseWeightAndOrientation("directed - bidirectional", null));
+        assertThrows(IllegalArgumentException.class, () ->
+                new GraphFunctionParser().parseWeightAndOrientation("undirected - astar()", null));
+    }
+
     @Test
     public void testDFail() {
         assertThrows(IllegalArgumentException.class, () -> parser.parseWeightAndOrientation(null, null));
@@ -0,0 +1,175 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.network.functions;
+
+import org.h2.jdbc.JdbcSQLNonTransientException;
+import org.h2gis.functions.factory.H2GISDBFactory;
+import org.h2gis.functions.factory.H2GISFunctions;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ST_ContractionHierarchyTest {
+
+    private static Connection connection;
+    private Statement st;
+    private static final double TOLERANCE = 1e-9;
+    private static final String DO = "'directed - edge_orientation'";
+    private static final String RO = "'reversed - edge_orientation'";
+    private static final String U = "'undirected'";
+    private static final String W = "'weight'";
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        // Keep a connection alive to not close the DataBase on each unit test
+        connection = H2GISDBFactory.createSpatialDataBase("ST_ContractionHierarchyTest", true);
+        H2GISFunctions.registerFunction(connection.createStatement(), new ST_ContractionHierarchy(), "");
+        H2GISFunctions.registerFunction(connection.createStatement(), new ST_CHShortestPathLength(), "");
+        H2GISFunctions.registerFunction(connection.createStatement(), new ST_ShortestPathLength(), "");
+        GraphCreatorTest.registerCormenGraph(connection);
+    }
+
+    @BeforeEach
+    public void setUpStatement() throws Exception {
+        st = connection.createStatement();
+    }
+
+    @AfterEach
+    public void tearDownStatement() throws Exception {
+        st.execute("DROP TABLE IF EXISTS CORMEN_EDGES_ALL_NODE_CH, CORMEN_EDGES_ALL_EDGE_CH");
+        st.close();
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testDO() throws Exception {
+        checkSameDistances(DO, null);
+    }
+
+    @Test
+    public void testWDO() throws Exception {
+        checkSameDistances(DO, W);
+    }
+
+    @Test
+    public void testWRO() throws Exception {
+        checkSameDistances(RO, W);
+    }
+
+    @Test
+    public void testWU() throws Exception {
+        checkSameDistances(U, W);
+    }
+
+    @Test
+    public void testTables() throws Exception {
+        contract(DO, W);
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM CORMEN_EDGES_ALL_NODE_CH");
+        assertTrue(rs.next());
+        assertEquals(5, rs.getInt(1));
+        rs.close();
+        // The edges of the graph are kept, the shortcuts are added
+        rs = st.executeQuery("SELECT COUNT(*) FROM CORMEN_EDGES_ALL_EDGE_CH WHERE VIA_NODE IS NULL");
+        assertTrue(rs.next());
+        assertEquals(11, rs.getInt(1));
+        rs.close();
+    }
+
+    @Test
+    public void testOneToSeveral() throws Exception {
+        contract(DO, W);
+        final ResultSet rs = st.executeQuery(
+                "SELECT * FROM ST_CHShortestPathLength('CORMEN_EDGES_ALL', 1, '1, 3, 5')");
+        final double[] expected = {0.0, 5.0, 7.0};
+        final int[] destinations = {1, 3, 5};
+        for (int i = 0; i < destinations.length; i++) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(ST_ShortestPathLength.SOURCE_INDEX));
+            assertEquals(destinations[i], rs.getInt(ST_ShortestPathLength.DESTINATION_INDEX));
+            assertEquals(expected[i], rs.getDouble(ST_ShortestPathLength.DISTANCE_INDEX), TOLERANCE);
+        }
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    @Test
+    public void testExistingHierarchyFail() throws Exception {
+        contract(DO, W);
+        assertThrows(SQLException.class, () -> contract(DO, W));
+    }
+
+    @Test
+    public void testMissingHierarchyFail() {
+        assertThrows(SQLException.class, () ->
+                st.executeQuery("SELECT * FROM ST_CHShortestPathLength('CORMEN_EDGES_ALL', 1, 2)"));
+    }
+
+    @Test
+    public void testNonExistentVertexFail() throws Exception {
+        contract(U, null);
+        assertThrows(JdbcSQLNonTransientException.class, () -> {
+            try {
+                st.executeQuery("SELECT * FROM ST_CHShortestPathLength('CORMEN_EDGES_ALL', 1, 9999)");
+            } catch (JdbcSQLNonTransientException e) {
+                assertTrue(e.getMessage().contains("does not contain vertex 9999"));
+                throw e;
+            }
+        });
+    }
+
+    private void contract(String orientation, String weight) throws SQLException {
+        final ResultSet rs = st.executeQuery("SELECT ST_ContractionHierarchy('CORMEN_EDGES_ALL', "
+                + orientation + ((weight != null) ? ", " + weight : "") + ")");
+        assertTrue(rs.next());
+        assertTrue(rs.getBoolean(1));
+        rs.close();
+    }
+
+    private void checkSameDistances(String orientation, String weight) throws SQLException {
+        contract(orientation, weight);
+        for (int source = 1; source <= 5; source++) {
+            for (int destination = 1; destination <= 5; destination++) {
+                ResultSet rs = st.executeQuery("SELECT * FROM ST_ShortestPathLength('CORMEN_EDGES_ALL', "
+                        + orientation + ((weight != null) ? ", " + weight : "")
+                        + ", " + source + ", " + destination + ")");
+                assertTrue(rs.next());
+                final double expected = rs.getDouble(ST_ShortestPathLength.DISTANCE_INDEX);
+                rs.close();
+                rs = st.executeQuery("SELECT * FROM ST_CHShortestPathLength('CORMEN_EDGES_ALL', "
+                        + source + ", " + destination + ")");
+                assertTrue(rs.next());
+                assertEquals(source, rs.getInt(ST_ShortestPathLength.SOURCE_INDEX));
+                assertEquals(destination, rs.getInt(ST_ShortestPathLength.DESTINATION_INDEX));
+                assertEquals(expected, rs.getDouble(ST_ShortestPathLength.DISTANCE_INDEX), TOLERANCE);
+                assertFalse(rs.next());
+                rs.close();
+            }
+        }
+    }
+}
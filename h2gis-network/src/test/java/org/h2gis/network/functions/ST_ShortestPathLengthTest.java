@@ -371,6 +371,62 @@ public class ST_ShortestPathLengthTest {
         oneToOne(W, U, 5, 5, 0.0);
     }
 
+    @Test
+    public void oneToOneSearchOptions() throws Exception {
+        final double[][] wdo = {{0.0, 8.0, 5.0, 13.0, 7.0},
+                                {11.0, 0.0, 2.0, 10.0, 4.0},
+                                {9.0, 3.0, 0.0, 8.0, 2.0},
+                                {11.0, 1.0, 3.0, 0.0, 4.0},
+                                {7.0, 7.0, 9.0, 6.0, 0.0}};
+        final double[][] ro = {{0.0, 3.0, 2.0, 2.0, 1.0},
+                               {1.0, 0.0, 1.0, 1.0, 2.0},
+                               {1.0, 1.0, 0.0, 2.0, 2.0},
+                               {2.0, 2.0, 1.0, 0.0, 1.0},
+                               {1.0, 2.0, 1.0, 1.0, 0.0}};
+        final double[][] wu = {{0.0, 7.0, 5.0, 8.0, 7.0},
+                               {7.0, 0.0, 2.0, 1.0, 4.0},
+                               {5.0, 2.0, 0.0, 3.0, 2.0},
+                               {8.0, 1.0, 3.0, 0.0, 4.0},
+                               {7.0, 4.0, 2.0, 4.0, 0.0}};
+        for (String search : new String[]{"bidirectional", "astar(cormen_nodes)"}) {
+            for (int i = 1; i <= 5; i++) {
+                for (int j = 1; j <= 5; j++) {
+                    // SELECT * FROM ST_ShortestPathLength('CORMEN_EDGES_ALL',
+                    //     'directed - edge_orientation - astar(cormen_nodes)', 'weight', i, j)
+                    oneToOne("'directed - edge_orientation - " + search + "'", W, i, j, wdo[i - 1][j - 1]);
+                    oneToOne("'reversed - edge_orientation - " + search + "'", i, j, ro[i - 1][j - 1]);
+                    oneToOne("'undirected - " + search + "'", W, i, j, wu[i - 1][j - 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void oneToOneAStarNoNodesTableFail() {
+        assertThrows(JdbcSQLNonTransientException.class, () -> {
+            try {
+                oneToOne("'undirected - astar'", W, 1, 2, 7.0);
+            } catch (JdbcSQLNonTransientException e) {
+                assertTrue(e.getMessage().contains("Cannot find the nodes table"));
+                throw e;
+            }
+        });
+    }
+
+    @Test
+    public void searchOptionNotOneToOneFail() {
+        assertThrows(JdbcSQLNonTransientException.class, () -> {
+            try {
+                oneToAll("'undirected - bidirectional'", W, 1, new double[5]);
+            } catch (JdbcSQLNonTransientException e) {
+                assertTrue(e.getMessage().contains("only supported by the One-to-One signatures"));
+                throw e;
+            }
+        });
+        assertThrows(JdbcSQLNonTransientException.class, () ->
+                oneToSeveral("'directed - edge_orientation - astar(cormen_nodes)'", 1, "'2, 3'", new double[5]));
+    }
+
     private void oneToOne(String orientation, String weight, int source, int destination, double distance) throws SQLException {
         ResultSet rs = st.executeQuery(
                 "SELECT * FROM ST_ShortestPathLength('CORMEN_EDGES_ALL', "
@@ -674,6 +730,19 @@ public class ST_ShortestPathLengthTest {
         manyToManySTDT(orientation, null, sourceTable, destinationTable, distances);
     }
 
+    @Test
+    public void manyToManyParallel() throws Exception {
+        st.execute("SET " + ST_ShortestPathLength.PARALLELISM + " = 3");
+        try {
+            manyToManyWDO();
+            manyToManyU();
+            manyToManyWROSTDT();
+            manyToManyWDOSTSTSquare();
+        } finally {
+            st.execute("SET " + ST_ShortestPathLength.PARALLELISM + " = NULL");
+        }
+    }
+
     @Test
     public void emptySourceTableFail() {
         assertThrows(JdbcSQLNonTransientException.class, () -> {
@@ -808,6 +808,32 @@ public class ST_ShortestPathTest {
                 new PathEdge("LINESTRING (3 1, 4 2)", 11, 1, 1, 7, 6, 1.0)});
     }
 
+    @Test
+    public void oneToOneSearchOptions() throws SQLException {
+        for (String search : new String[]{" - bidirectional'", " - astar(copy_nodes)'"}) {
+            // SELECT * FROM ST_ShortestPath('CORMEN_EDGES_ALL',
+            //     'directed - edge_orientation - bidirectional', 'weight', i, j)
+            check(oneToOne("'directed - edge_orientation" + search, W, 2, 1), new PathEdge[]{
+                    new PathEdge("LINESTRING (2 0, 0 1)", 10, 1, 1, 5, 1, 7.0),
+                    new PathEdge("LINESTRING (1 0, 2 0)", 7, 1, 2, 3, 5, 2.0),
+                    new PathEdge("LINESTRING (1 2, 0.75 1, 1 0)", 3, 1, 3, 2, 3, 2.0)});
+            check(oneToOne("'directed - edge_orientation" + search, W, 5, 3), new PathEdge[]{
+                    new PathEdge("LINESTRING (1 2, 0.75 1, 1 0)", 3, 1, 1, 2, 3, 2.0),
+                    new PathEdge("LINESTRING (1 2, 2 2)", 2, 1, 2, 4, 2, 1.0),
+                    new PathEdge("LINESTRING (2 0, 2.25 1, 2 2)", 9, 1, 3, 5, 4, 6.0)});
+            check(oneToOne("'directed - edge_orientation" + search, W, 2, 2), EMPTY);
+            // The undirected edges keep their id in both directions
+            check(oneToOne("'undirected" + search, W, 4, 1), new PathEdge[]{
+                    new PathEdge("LINESTRING (0 1, 1 0)", 5, 1, 1, 3, 1, 5.0),
+                    new PathEdge("LINESTRING (1 2, 0.75 1, 1 0)", 3, 1, 2, 2, 3, 2.0),
+                    new PathEdge("LINESTRING (1 2, 2 2)", 2, 1, 3, 4, 2, 1.0)});
+            // Vertices 3 and 6 are in different connected components.
+            assertFalse(oneToOne("COPY_EDGES_ALL", "'directed - edge_orientation" + search, W, 3, 6).next());
+            check(oneToOne("COPY_EDGES_ALL", "'undirected" + search, W, 7, 6), new PathEdge[]{
+                    new PathEdge("LINESTRING (3 1, 4 2)", 11, 1, 1, 7, 6, 1.0)});
+        }
+    }
+
     private ResultSet oneToOne(String table, String orientation, String weight,
                                int source, int destination) throws SQLException {
         return st.executeQuery(
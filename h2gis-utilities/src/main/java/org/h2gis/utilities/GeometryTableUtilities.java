@@ -746,7 +746,7 @@ public class GeometryTableUtilities {
                 }
             }
             query = new StringBuilder("SELECT  ENVELOPE(");
-            query.append(TableLocation.quoteIdentifier(geometryColumnName)).append(") FROM ").append(tableLocation.getTable());
+            query.append(TableLocation.quoteIdentifier(geometryColumnName)).append(") FROM ").append(tableLocation);
             try (ResultSet rsEnv = connection.createStatement().executeQuery(query.toString())) {
                 if (rsEnv.next()) {
                     result = (Geometry) rsEnv.getObject(1);
@@ -985,6 +985,22 @@ public class GeometryTableUtilities {
                         + "cannot be computed");
             }
             if (dbTypes== H2GIS || dbTypes==H2) {
+                int srid = getSRID(connection, location, geometryColumn);
+                if (srid != 0) {
+                    // All the geometries have the SRID of the column, so the H2 ENVELOPE aggregate can be used.
+                    // It reads the envelopes from the stored EWKB, or from the spatial index if any,
+                    // without building the geometries
+                    try (ResultSet rs = connection.createStatement().executeQuery("SELECT ENVELOPE("
+                            + TableLocation.quoteIdentifier(geometryColumn) + ") as ext FROM " + location)) {
+                        if (rs.next()) {
+                            Geometry result = (Geometry) rs.getObject(1);
+                            if (result != null) {
+                                result.setSRID(srid);
+                            }
+                            return result;
+                        }
+                    }
+                }
                 try (ResultSet rs = connection.createStatement().executeQuery("SELECT ST_Extent("
                         + TableLocation.quoteIdentifier(geometryColumn) + ") as ext FROM " + location)) {
                     if (rs.next()) {
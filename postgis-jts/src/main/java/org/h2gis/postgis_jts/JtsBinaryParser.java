@@ -24,6 +24,8 @@ import org.locationtech.jts.geom.impl.PackedCoordinateSequence.Double;
 import org.postgis.binary.ByteGetter;
 import org.postgis.binary.ValueGetter;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
@@ -33,6 +35,16 @@ import java.util.Arrays;
  * @author Sylvain PALOMINOS (UBS 2018)
  */
 public class JtsBinaryParser {
+    /**
+     * Buffer of each thread used to decode the hexadecimal strings
+     */
+    private static final ThreadLocal<byte[]> HEX_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[1024];
+        }
+    };
+
     /**
      * Default empty constructor.
      */
@@ -64,8 +76,16 @@ public class JtsBinaryParser {
      * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry}.
      */
     public Geometry parse(String value) {
-        ByteGetter.StringByteGetter bytes = new ByteGetter.StringByteGetter(value);
-        return this.parseGeometry(valueGetterForEndian(bytes));
+        int length = value.length() / 2;
+        byte[] bytes = HEX_BUFFER.get();
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+            HEX_BUFFER.set(bytes);
+        }
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (hexValue(value.charAt(2 * i)) << 4 | hexValue(value.charAt(2 * i + 1)));
+        }
+        return this.parse(ByteBuffer.wrap(bytes, 0, length));
     }
 
     /**
@@ -76,8 +96,171 @@ public class JtsBinaryParser {
      * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry}.
      */
     public Geometry parse(byte[] value) {
-        ByteGetter.BinaryByteGetter bytes = new ByteGetter.BinaryByteGetter(value);
-        return this.parseGeometry(valueGetterForEndian(bytes));
+        return this.parse(ByteBuffer.wrap(value));
+    }
+
+    /**
+     * Parse the EWKB data from the position of the given {@link ByteBuffer} into a JTS
+     * {@link org.locationtech.jts.geom.Geometry}. The position of the buffer is moved after the geometry.
+     *
+     * @param value {@link ByteBuffer} to parse.
+     *
+     * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry}.
+     */
+    public Geometry parse(ByteBuffer value) {
+        byte endian = value.get(value.position());
+        if (endian == 0) {
+            value.order(ByteOrder.BIG_ENDIAN);
+        } else if (endian == 1) {
+            value.order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            throw new IllegalArgumentException("Unknown Endian type:" + endian);
+        }
+        return this.parseGeometry(value, 0, false);
+    }
+
+    /**
+     * Return the value of an hexadecimal digit.
+     *
+     * @param c Hexadecimal digit.
+     *
+     * @return The value of the digit.
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else {
+            throw new IllegalArgumentException("No valid Hex char " + c);
+        }
+    }
+
+    /**
+     * Parse data from the given {@link ByteBuffer} into a JTS {@link org.locationtech.jts.geom.Geometry} with the
+     * given SRID.
+     *
+     * @param data {@link ByteBuffer} to parse, with the byte order of the geometry.
+     * @param srid SRID to give to the parsed geometry (different of the inherited SRID).
+     * @param inheritSrid Make the new {@link org.locationtech.jts.geom.Geometry} inherit its SRID if set to true,
+     *                    otherwise use the parameter given SRID.
+     *
+     * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry} with SRID.
+     */
+    private Geometry parseGeometry(ByteBuffer data, int srid, boolean inheritSrid) {
+        byte endian = data.get();
+        if (endian != (data.order() == ByteOrder.BIG_ENDIAN ? 0 : 1)) {
+            throw new IllegalArgumentException("Endian inconsistency!");
+        }
+        int typeword = data.getInt();
+        int realtype = typeword & 536870911;
+        boolean haveZ = (typeword & -2147483648) != 0;
+        boolean haveM = (typeword & 1073741824) != 0;
+        boolean haveS = (typeword & 536870912) != 0;
+        if (haveS) {
+            int newsrid = org.postgis.Geometry.parseSRID(data.getInt());
+            if (inheritSrid && newsrid != srid) {
+                throw new IllegalArgumentException("Inconsistent srids in complex geometry: " + srid + ", " + newsrid);
+            }
+            srid = newsrid;
+        } else if (!inheritSrid) {
+            srid = 0;
+        }
+
+        Geometry result;
+        switch(realtype) {
+            case 1:
+                result = JtsGeometry.geofac.createPoint(this.parseCS(data, 1, haveZ, haveM));
+                break;
+            case 2:
+                result = JtsGeometry.geofac.createLineString(this.parseCS(data, data.getInt(), haveZ, haveM));
+                break;
+            case 3: {
+                int holecount = data.getInt() - 1;
+                LinearRing[] rings = new LinearRing[holecount];
+                LinearRing shell = JtsGeometry.geofac.createLinearRing(this.parseCS(data, data.getInt(), haveZ, haveM));
+                shell.setSRID(srid);
+                for (int i = 0; i < holecount; ++i) {
+                    rings[i] = JtsGeometry.geofac.createLinearRing(this.parseCS(data, data.getInt(), haveZ, haveM));
+                    rings[i].setSRID(srid);
+                }
+                result = JtsGeometry.geofac.createPolygon(shell, rings);
+                break;
+            }
+            case 4: {
+                Point[] points = new Point[data.getInt()];
+                this.parseGeometryArray(data, points, srid);
+                result = JtsGeometry.geofac.createMultiPoint(points);
+                break;
+            }
+            case 5: {
+                LineString[] strings = new LineString[data.getInt()];
+                this.parseGeometryArray(data, strings, srid);
+                result = JtsGeometry.geofac.createMultiLineString(strings);
+                break;
+            }
+            case 6: {
+                Polygon[] polys = new Polygon[data.getInt()];
+                this.parseGeometryArray(data, polys, srid);
+                result = JtsGeometry.geofac.createMultiPolygon(polys);
+                break;
+            }
+            case 7: {
+                Geometry[] geoms = new Geometry[data.getInt()];
+                this.parseGeometryArray(data, geoms, srid);
+                result = JtsGeometry.geofac.createGeometryCollection(geoms);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown Geometry Type!");
+        }
+
+        result.setSRID(srid);
+        return result;
+    }
+
+    /**
+     * Parse the given {@link ByteBuffer} into an array of JTS {@link org.locationtech.jts.geom.Geometry} with the
+     * given SRID.
+     *
+     * @param data {@link ByteBuffer} to parse.
+     * @param container Array of {@link org.locationtech.jts.geom.Geometry} which will contains the parsed ones.
+     * @param srid SRID of the parsed geometries.
+     */
+    private void parseGeometryArray(ByteBuffer data, Geometry[] container, int srid) {
+        for(int i = 0; i < container.length; ++i) {
+            container[i] = this.parseGeometry(data, srid, true);
+        }
+    }
+
+    /**
+     * Read the given number of coordinates from the {@link ByteBuffer} into a packed JTS
+     * {@link org.locationtech.jts.geom.CoordinateSequence}. The M values are skipped.
+     *
+     * @param data {@link ByteBuffer} to parse.
+     * @param count Number of coordinates.
+     * @param haveZ True if the {@link org.locationtech.jts.geom.CoordinateSequence} has a Z component.
+     * @param haveM True if the {@link org.locationtech.jts.geom.CoordinateSequence} has a M component.
+     *
+     * @return The parsed {@link org.locationtech.jts.geom.CoordinateSequence}.
+     */
+    private CoordinateSequence parseCS(ByteBuffer data, int count, boolean haveZ, boolean haveM) {
+        int dims = haveZ ? 3 : 2;
+        double[] ordinates = new double[count * dims];
+        if (haveM) {
+            for (int i = 0; i < ordinates.length; i += dims) {
+                for (int d = 0; d < dims; ++d) {
+                    ordinates[i + d] = data.getDouble();
+                }
+                data.getDouble();
+            }
+        } else {
+            data.asDoubleBuffer().get(ordinates);
+            data.position(data.position() + ordinates.length * 8);
+        }
+        return new Double(ordinates, dims, 0);
     }
 
     /**
@@ -20,9 +20,13 @@
 package org.h2gis.postgis_jts;
 
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
 import org.postgis.binary.ByteSetter;
 import org.postgis.binary.ValueSetter;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Parser class able to convert a JTS {@link org.locationtech.jts.geom.Geometry} into binary or literal data.
  *
@@ -30,6 +34,17 @@ import org.postgis.binary.ValueSetter;
  * @author Sylvain PALOMINOS (UBS 2018)
  */
 public class JtsBinaryWriter {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    /**
+     * Buffer of each thread used to write the geometries before the hexadecimal encoding
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(1024);
+        }
+    };
+
     /**
      * Default empty constructor.
      */
@@ -45,11 +60,40 @@ public class JtsBinaryWriter {
         }
     }
 
+    /**
+     * Return the {@link ByteOrder} of the given endian flag.
+     *
+     * @param endian 0 for big endian (XDR), 1 for little endian (NDR).
+     *
+     * @return The {@link ByteOrder}.
+     */
+    private static ByteOrder byteOrderForEndian(byte endian) {
+        if (endian == 0) {
+            return ByteOrder.BIG_ENDIAN;
+        } else if (endian == 1) {
+            return ByteOrder.LITTLE_ENDIAN;
+        } else {
+            throw new IllegalArgumentException("Unknown Endian type:" + endian);
+        }
+    }
+
     public String writeHexed(Geometry geom, byte REP) {
-        int length = this.estimateBytes(geom);
-        ByteSetter.StringByteSetter bytes = new ByteSetter.StringByteSetter(length);
-        this.writeGeometry(geom, valueSetterForEndian(bytes, REP));
-        return bytes.result();
+        int length = this.lengthInBytes(geom);
+        ByteBuffer buffer = BUFFER.get();
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            BUFFER.set(buffer);
+        }
+        buffer.clear();
+        buffer.order(byteOrderForEndian(REP));
+        this.write(geom, buffer);
+        byte[] bytes = buffer.array();
+        char[] hex = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
     }
 
     public String writeHexed(Geometry geom) {
@@ -57,16 +101,154 @@ public class JtsBinaryWriter {
     }
 
     public byte[] writeBinary(Geometry geom, byte REP) {
-        int length = this.estimateBytes(geom);
-        ByteSetter.BinaryByteSetter bytes = new ByteSetter.BinaryByteSetter(length);
-        this.writeGeometry(geom, valueSetterForEndian(bytes, REP));
-        return bytes.result();
+        ByteBuffer buffer = ByteBuffer.allocate(this.lengthInBytes(geom)).order(byteOrderForEndian(REP));
+        this.write(geom, buffer);
+        return buffer.array();
     }
 
     public byte[] writeBinary(Geometry geom) {
         return this.writeBinary(geom, (byte)1);
     }
 
+    /**
+     * Return the number of bytes written by {@link #write(Geometry, ByteBuffer)} for the given geometry.
+     *
+     * @param geom JTS {@link org.locationtech.jts.geom.Geometry} to write.
+     *
+     * @return The size of the EWKB data.
+     */
+    public int lengthInBytes(Geometry geom) {
+        int length = 5;
+        if (this.checkSrid(geom)) {
+            length += 4;
+        }
+        if (geom.isEmpty() && !(geom instanceof GeometryCollection)) {
+            return length + 4;
+        }
+        switch(getWKBType(geom)) {
+            case 1:
+                return length + 8 * getCoordDim(geom);
+            case 2:
+                return length + this.lengthInBytes((LineString) geom);
+            case 3: {
+                Polygon polygon = (Polygon) geom;
+                length += 4 + this.lengthInBytes(polygon.getExteriorRing());
+                for (int i = 0; i < polygon.getNumInteriorRing(); ++i) {
+                    length += this.lengthInBytes(polygon.getInteriorRingN(i));
+                }
+                return length;
+            }
+            case 4:
+                length += 4;
+                for (int i = 0; i < geom.getNumPoints(); ++i) {
+                    length += this.lengthInBytes(geom.getGeometryN(i));
+                }
+                return length;
+            default:
+                length += 4;
+                for (int i = 0; i < geom.getNumGeometries(); ++i) {
+                    length += this.lengthInBytes(geom.getGeometryN(i));
+                }
+                return length;
+        }
+    }
+
+    private int lengthInBytes(LineString geom) {
+        return 4 + 8 * getCoordDim(geom) * geom.getNumPoints();
+    }
+
+    /**
+     * Write the given geometry as EWKB from the position of the {@link ByteBuffer}, with the byte order of the
+     * buffer. The buffer must have {@link #lengthInBytes(Geometry)} remaining bytes.
+     *
+     * @param geom JTS {@link org.locationtech.jts.geom.Geometry} to write.
+     * @param dest Destination {@link ByteBuffer}.
+     */
+    public void write(Geometry geom, ByteBuffer dest) {
+        if (geom == null) {
+            throw new NullPointerException();
+        }
+        int dimension;
+        if (geom.isEmpty()) {
+            dimension = 0;
+        } else {
+            dimension = getCoordDim(geom);
+            if (dimension < 2 || dimension > 4) {
+                throw new IllegalArgumentException("Unsupported geometry dimensionality: " + dimension);
+            }
+        }
+
+        dest.put(dest.order() == ByteOrder.BIG_ENDIAN ? (byte) 0 : (byte) 1);
+        int plaintype = getWKBType(geom);
+        int typeword = plaintype;
+        if (dimension == 3 || dimension == 4) {
+            typeword = plaintype | -2147483648;
+        }
+        if (dimension == 4) {
+            typeword |= 1073741824;
+        }
+        boolean haveSrid = this.checkSrid(geom);
+        if (haveSrid) {
+            typeword |= 536870912;
+        }
+        dest.putInt(typeword);
+        if (haveSrid) {
+            dest.putInt(geom.getSRID());
+        }
+
+        if (geom.isEmpty() && !(geom instanceof GeometryCollection)) {
+            dest.putInt(0);
+            return;
+        }
+        switch(plaintype) {
+            case 1:
+                this.writeCoordinates(((Point) geom).getCoordinateSequence(), dimension, dest);
+                break;
+            case 2:
+                this.writeLineString((LineString) geom, dest);
+                break;
+            case 3: {
+                Polygon polygon = (Polygon) geom;
+                dest.putInt(polygon.getNumInteriorRing() + 1);
+                this.writeLineString(polygon.getExteriorRing(), dest);
+                for (int i = 0; i < polygon.getNumInteriorRing(); ++i) {
+                    this.writeLineString(polygon.getInteriorRingN(i), dest);
+                }
+                break;
+            }
+            case 4:
+                dest.putInt(geom.getNumPoints());
+                for (int i = 0; i < geom.getNumPoints(); ++i) {
+                    this.write(geom.getGeometryN(i), dest);
+                }
+                break;
+            default:
+                dest.putInt(geom.getNumGeometries());
+                for (int i = 0; i < geom.getNumGeometries(); ++i) {
+                    this.write(geom.getGeometryN(i), dest);
+                }
+        }
+    }
+
+    private void writeLineString(LineString geom, ByteBuffer dest) {
+        dest.putInt(geom.getNumPoints());
+        this.writeCoordinates(geom.getCoordinateSequence(), getCoordDim(geom), dest);
+    }
+
+    private void writeCoordinates(CoordinateSequence seq, int dims, ByteBuffer dest) {
+        if (seq instanceof PackedCoordinateSequence.Double && seq.getDimension() == dims) {
+            double[] ordinates = ((PackedCoordinateSequence.Double) seq).getRawCoordinates();
+            dest.asDoubleBuffer().put(ordinates);
+            dest.position(dest.position() + ordinates.length * 8);
+        } else {
+            for (int i = 0; i < seq.size(); ++i) {
+                for (int d = 0; d < dims; ++d) {
+                    dest.putDouble(seq.getOrdinate(i, d));
+                }
+            }
+        }
+    }
+
     protected void writeGeometry(Geometry geom, ValueSetter dest) {
         if (geom == null) {
             throw new NullPointerException();
@@ -22,11 +22,18 @@ package org.h2gis.postgis_jts;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.locationtech.jts.io.WKTReader;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.sql.SQLException;
 
-public class JtsGeometry extends PGobject {
+/**
+ * JTS geometry type of the PostgreSQL driver. The geometries are read and written as EWKB text, or as raw EWKB when
+ * the geometry type oid is listed in the <code>binaryTransferEnable</code> property of the connection.
+ */
+public class JtsGeometry extends PGobject implements PGBinaryObject {
     private static final long serialVersionUID = 256L;
     private Geometry geom;
     private static final JtsBinaryParser bp = new JtsBinaryParser();
@@ -54,6 +61,26 @@ public class JtsGeometry extends PGobject {
         this.geom = geomFromString(value);
     }
 
+    @Override
+    public void setByteValue(byte[] value, int offset) throws SQLException {
+        try {
+            this.geom = bp.parse(ByteBuffer.wrap(value, offset, value.length - offset));
+        } catch (Exception e) {
+            throw new SQLException("Error parsing SQL data:" + e);
+        }
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return bw.lengthInBytes(this.geom);
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, bytes.length - offset).order(ByteOrder.LITTLE_ENDIAN);
+        bw.write(this.geom, buffer);
+    }
+
     public static Geometry geomFromString(String value) throws SQLException {
         try {
             value = value.trim();
@@ -0,0 +1,79 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; you can
+ * redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License as published by the Free Software Foundation; version 3.0 of
+ * the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.postgis_jts;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the EWKB parser and writer
+ */
+public class JtsBinaryTest {
+
+    private static final String[] WKT = new String[]{"POINT (1 2)", "POINT Z(1 2 3)",
+            "LINESTRING (0 0, 1 1, 2 3)", "LINESTRING Z(0 0 1, 1 1 2)",
+            "POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (1 1, 2 1, 2 2, 1 1))",
+            "MULTIPOINT ((1 2), (3 4))", "MULTILINESTRING ((0 0, 1 1), (2 2, 3 3))",
+            "MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+            "GEOMETRYCOLLECTION (POINT (1 2), LINESTRING (0 0, 1 1))", "GEOMETRYCOLLECTION EMPTY"};
+
+    @Test
+    public void testHexRoundTrip() throws Exception {
+        WKTReader reader = new WKTReader();
+        JtsBinaryWriter writer = new JtsBinaryWriter();
+        JtsBinaryParser parser = new JtsBinaryParser();
+        for (String wkt : WKT) {
+            Geometry geom = reader.read(wkt);
+            JtsGeometry.setSridRecurse(geom, 4326);
+            for (byte endian = 0; endian < 2; endian++) {
+                String hex = writer.writeHexed(geom, endian);
+                assertEquals(writer.lengthInBytes(geom) * 2, hex.length());
+                Geometry result = parser.parse(hex);
+                assertEquals(geom.toText(), result.toText());
+                assertEquals(4326, result.getSRID());
+                assertEquals(hex, writer.writeHexed(result, endian));
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        WKTReader reader = new WKTReader();
+        for (String wkt : WKT) {
+            JtsGeometry geometry = new JtsGeometry(reader.read(wkt));
+            byte[] bytes = new byte[geometry.lengthInBytes() + 2];
+            geometry.toBytes(bytes, 2);
+            JtsGeometry result = new JtsGeometry();
+            result.setByteValue(bytes, 2);
+            assertEquals(geometry.getGeometry().toText(), result.getGeometry().toText());
+            assertEquals(geometry.getValue(), result.getValue());
+        }
+    }
+
+    @Test
+    public void testWriteEmptyPoint() throws Exception {
+        JtsBinaryWriter writer = new JtsBinaryWriter();
+        Geometry result = new JtsBinaryParser().parse(writer.writeBinary(new WKTReader().read("POINT EMPTY")));
+        assertTrue(result.isEmpty());
+    }
+}